@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.mat.collect.ArrayIntCompressed;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compressing and reading a page of an int index. The page size of the
+ * indices is 1M entries, the values are object ids with the given number of
+ * significant bits.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ArrayIntCompressedBenchmark
+{
+    @Param({ "1000000" })
+    public int size;
+
+    @Param({ "17", "24", "31" })
+    public int bits;
+
+    private int[] values;
+    private int[] positions;
+    private ArrayIntCompressed array;
+
+    @Setup
+    public void setUp()
+    {
+        Random random = new Random(1);
+        values = new int[size];
+        positions = new int[size];
+        for (int ii = 0; ii < size; ii++)
+        {
+            values[ii] = random.nextInt(1 << (bits - 1)) | (1 << (bits - 1));
+            positions[ii] = random.nextInt(size);
+        }
+        array = new ArrayIntCompressed(values);
+    }
+
+    @Benchmark
+    public byte[] compress()
+    {
+        return new ArrayIntCompressed(values).toByteArray();
+    }
+
+    @Benchmark
+    public int getSequential()
+    {
+        int sum = 0;
+        for (int ii = 0; ii < size; ii++)
+            sum += array.get(ii);
+        return sum;
+    }
+
+    @Benchmark
+    public int getRandom()
+    {
+        int sum = 0;
+        for (int ii = 0; ii < size; ii++)
+            sum += array.get(positions[ii]);
+        return sum;
+    }
+}
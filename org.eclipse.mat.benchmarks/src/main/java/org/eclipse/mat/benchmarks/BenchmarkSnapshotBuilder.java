@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.util.Collections;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.IteratorLong;
+import org.eclipse.mat.hprof.HprofHeapObjectReader;
+import org.eclipse.mat.hprof.HprofParserHandlerImpl;
+import org.eclipse.mat.hprof.Pass1Parser;
+import org.eclipse.mat.hprof.Pass2Parser;
+import org.eclipse.mat.hprof.extension.IRuntimeEnhancer;
+import org.eclipse.mat.hprof.ui.HprofPreferences;
+import org.eclipse.mat.parser.IIndexBuilder;
+import org.eclipse.mat.parser.IPreliminaryIndex;
+import org.eclipse.mat.parser.index.IIndexReader.IOne2LongIndex;
+import org.eclipse.mat.parser.index.IndexWriter;
+import org.eclipse.mat.parser.internal.SnapshotFactoryImpl;
+import org.eclipse.mat.parser.internal.SnapshotImpl;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.util.IProgressListener;
+import org.eclipse.mat.util.SimpleMonitor;
+import org.eclipse.mat.util.VoidProgressListener;
+
+/**
+ * Parses an uncompressed HPROF dump into a snapshot without the extension
+ * registry and the preferences of the platform, i.e. without enhancers and
+ * with strict parsing. Objects are read from the dump as in the platform.
+ * Class loaders other than the system class loader are labelled by the name
+ * resolvers of the platform while the snapshot is created, so outside of it
+ * only dumps without those, such as the generated ones, can be parsed.
+ * <p>
+ * Of a file holding several heap dumps, as written by the HPROF agent, the
+ * first one is read unless the system property <code>MAT_HPROF_DUMP_NR</code>
+ * selects another one.
+ */
+public class BenchmarkSnapshotBuilder
+{
+    public static SnapshotImpl build(File dump, File indexDirectory) throws SnapshotException, IOException
+    {
+        String prefix = new File(indexDirectory, dump.getName()).getAbsolutePath() + "."; //$NON-NLS-1$
+        return SnapshotFactoryImpl.parse(dump, prefix, new StrictIndexBuilder(), "hprof", new StrictObjectReader(), //$NON-NLS-1$
+                        new VoidProgressListener());
+    }
+
+    /**
+     * @return the heap dump to read of a file holding several, a 0 based
+     *         number or an id such as <code>#1</code>
+     */
+    public static String dumpNumber()
+    {
+        return System.getProperty("MAT_HPROF_DUMP_NR", "#1"); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    /**
+     * Runs the two passes of the HPROF parser, without the enhancers and the
+     * object to position index of the registered index builder.
+     */
+    private static class StrictIndexBuilder implements IIndexBuilder
+    {
+        private File file;
+        private String prefix;
+        private IOne2LongIndex id2position;
+
+        public void init(File file, String prefix)
+        {
+            this.file = file;
+            this.prefix = prefix;
+        }
+
+        public void fill(IPreliminaryIndex index, IProgressListener listener) throws SnapshotException, IOException
+        {
+            SimpleMonitor monitor = new SimpleMonitor(file.getName(), listener, new int[] { 500, 1500 });
+
+            HprofParserHandlerImpl handler = new HprofParserHandlerImpl();
+            handler.beforePass1(index.getSnapshotInfo());
+            SimpleMonitor.Listener mon = (SimpleMonitor.Listener) monitor.nextMonitor();
+            mon.beginTask(file.getName(), (int) (file.length() / 1000));
+            new Pass1Parser(handler, mon, HprofPreferences.HprofStrictness.STRICTNESS_STOP).read(file, dumpNumber());
+            mon.done();
+
+            handler.beforePass2(listener);
+            mon = (SimpleMonitor.Listener) monitor.nextMonitor();
+            mon.beginTask(file.getName(), (int) (file.length() / 1000));
+            new Pass2Parser(handler, mon, HprofPreferences.HprofStrictness.STRICTNESS_STOP).read(file, dumpNumber());
+            mon.done();
+
+            id2position = handler.fillIn(index);
+        }
+
+        /**
+         * Writes the positions of the remaining objects in the file, which the
+         * object reader needs.
+         */
+        public void clean(final int[] purgedMapping, IProgressListener listener) throws IOException
+        {
+            final IOne2LongIndex positions = id2position;
+            new IndexWriter.LongIndexStreamer().writeTo(new File(prefix + "o2hprof.index"), new IteratorLong() //$NON-NLS-1$
+                            {
+                                int next = nextRemaining(purgedMapping, 0);
+
+                                public boolean hasNext()
+                                {
+                                    return next < purgedMapping.length;
+                                }
+
+                                public long next()
+                                {
+                                    long answer = positions.get(next);
+                                    next = nextRemaining(purgedMapping, next + 1);
+                                    return answer;
+                                }
+                            }).close();
+            cancel();
+        }
+
+        private static int nextRemaining(int[] purgedMapping, int index)
+        {
+            while (index < purgedMapping.length && purgedMapping[index] < 0)
+                index++;
+            return index;
+        }
+
+        public void cancel()
+        {
+            if (id2position != null)
+            {
+                try
+                {
+                    id2position.close();
+                }
+                catch (IOException ignore)
+                {
+                    // $JL-EXC$
+                }
+                id2position.delete();
+                id2position = null;
+            }
+        }
+    }
+
+    /**
+     * Reads the objects with strict parsing and without enhancers.
+     */
+    private static class StrictObjectReader extends HprofHeapObjectReader
+    {
+        @Override
+        public void open(ISnapshot snapshot) throws IOException
+        {
+            open(snapshot, HprofPreferences.HprofStrictness.STRICTNESS_STOP, Collections
+                            .<IRuntimeEnhancer> emptyList());
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.mat.parser.io.BitInputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading bit packed ints, as done when the array cache of the histogram and
+ * the compressed indices are read.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BitInputStreamBenchmark
+{
+    @Param({ "4194304" })
+    public int bytes;
+
+    @Param({ "1", "7", "31" })
+    public int bits;
+
+    private byte[] data;
+
+    @Setup
+    public void setUp()
+    {
+        data = new byte[bytes];
+        new Random(1).nextBytes(data);
+    }
+
+    @Benchmark
+    public int readInt() throws IOException
+    {
+        BitInputStream in = new BitInputStream(new ByteArrayInputStream(data));
+        int count = (int) ((long) bytes * 8 / bits);
+        int sum = 0;
+        for (int ii = 0; ii < count; ii++)
+            sum += in.readInt(bits);
+        in.close();
+        return sum;
+    }
+}
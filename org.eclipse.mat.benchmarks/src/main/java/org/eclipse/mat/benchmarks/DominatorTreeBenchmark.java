@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.parser.index.IIndexReader;
+import org.eclipse.mat.parser.index.IndexManager;
+import org.eclipse.mat.parser.internal.DominatorTree;
+import org.eclipse.mat.parser.internal.SnapshotImpl;
+import org.eclipse.mat.util.VoidProgressListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Calculating the dominator tree and the retained sizes of a parsed dump. The
+ * dump is generated and parsed once per fork, pass an existing one with
+ * <code>-p dump=&lt;file&gt;</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DominatorTreeBenchmark
+{
+    private static final IndexManager.Index[] RESULTS = { IndexManager.Index.DOMINATOR,
+                    IndexManager.Index.DOMINATED, IndexManager.Index.O2RETAINED };
+
+    @Param({ "" })
+    public String dump;
+
+    @Param({ "1000000" })
+    public long objects;
+
+    @Param({ "CHAIN", "RANDOM", "HASHMAPS" })
+    public HprofGenerator.Shape shape;
+
+    @Param({ "false", "true" })
+    public boolean parallel;
+
+    private File dir;
+    private SnapshotImpl snapshot;
+
+    @Setup
+    public void setUp() throws SnapshotException, IOException
+    {
+        dir = SyntheticGraph.createTempDirectory();
+        File file = dump.length() > 0 ? new File(dump) : HprofGenerator.generate(dir, objects, shape);
+        snapshot = BenchmarkSnapshotBuilder.build(file, dir);
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeResults() throws IOException
+    {
+        for (IndexManager.Index index : RESULTS)
+        {
+            IIndexReader reader = snapshot.getIndexManager().getReader(index);
+            if (reader != null)
+                reader.close();
+            snapshot.getIndexManager().setReader(index, null);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        snapshot.getIndexManager().close();
+        SyntheticGraph.delete(dir);
+    }
+
+    @Benchmark
+    public void calculate() throws SnapshotException, IOException
+    {
+        DominatorTree.calculate(snapshot, new VoidProgressListener(), parallel);
+    }
+}
@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.mat.collect.HashMapIntObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Put and get of random keys, as done for the class cache and the GC roots.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class HashMapIntObjectBenchmark
+{
+    @Param({ "1000", "100000" })
+    public int size;
+
+    private int[] keys;
+    private HashMapIntObject<Object> map;
+
+    @Setup
+    public void setUp()
+    {
+        Random random = new Random(1);
+        keys = new int[size];
+        map = new HashMapIntObject<Object>();
+        for (int ii = 0; ii < size; ii++)
+        {
+            keys[ii] = random.nextInt();
+            map.put(keys[ii], Integer.valueOf(ii));
+        }
+    }
+
+    @Benchmark
+    public HashMapIntObject<Object> put()
+    {
+        HashMapIntObject<Object> answer = new HashMapIntObject<Object>();
+        for (int ii = 0; ii < keys.length; ii++)
+            answer.put(keys[ii], keys);
+        return answer;
+    }
+
+    @Benchmark
+    public void get(Blackhole blackhole)
+    {
+        for (int ii = 0; ii < keys.length; ii++)
+            blackhole.consume(map.get(keys[ii]));
+    }
+
+    @Benchmark
+    public void getMissing(Blackhole blackhole)
+    {
+        for (int ii = 0; ii < keys.length; ii++)
+            blackhole.consume(map.get(~keys[ii]));
+    }
+}
@@ -0,0 +1,699 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.benchmarks;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Writes a synthetic HPROF heap dump of a given size and shape. The objects
+ * are written one by one, so the memory needed does not depend on the number
+ * of objects and dumps with hundreds of millions of objects can be created
+ * on any machine.
+ * <p>
+ * The heap consists of instances of generated classes
+ * <code>synthetic.Class&lt;n&gt;</code>, each with an int field
+ * <code>value</code> and <code>references</code> object fields
+ * <code>f0</code>, <code>f1</code>, ... which are linked according to the
+ * {@link Shape}. As the snapshot addresses objects by int, the number of
+ * objects is limited to about 2 billion. With 4 byte identifiers, the
+ * addresses of the objects must fit into 32 bit, which limits the number of
+ * objects to about 500 million.
+ * <p>
+ * Usage from the command line:
+ *
+ * <pre>
+ * java -cp benchmarks.jar org.eclipse.mat.benchmarks.HprofGenerator [-objects n] [-classes n]
+ *    [-shape chain|tree|cycles|random|hashmaps] [-references n] [-group n] [-idsize 4|8] [-seed n] file
+ * </pre>
+ */
+public class HprofGenerator
+{
+    public enum Shape
+    {
+        /**
+         * One long chain via the field <code>f0</code>, i.e. a dominator tree
+         * as deep as there are objects.
+         */
+        CHAIN,
+        /**
+         * A tree of object arrays with <code>references</code> elements
+         * each, the leaves are instances.
+         */
+        TREE,
+        /**
+         * Rings of <code>group</code> objects linked via <code>f0</code>,
+         * the first object of every ring references the next ring via
+         * <code>f1</code>.
+         */
+        CYCLES,
+        /**
+         * A binary tree via <code>f0</code> and <code>f1</code>, the other
+         * fields reference random objects.
+         */
+        RANDOM,
+        /**
+         * Hash maps with <code>group</code> entries, modelled after
+         * <code>java.util.HashMap</code> with <code>java.lang.Integer</code>
+         * keys. Every map is a GC root.
+         */
+        HASHMAPS
+    }
+
+    private static final String MAGIC = "JAVA PROFILE 1.0.2"; //$NON-NLS-1$
+
+    // records
+    private static final int STRING_IN_UTF8 = 0x01;
+    private static final int LOAD_CLASS = 0x02;
+    private static final int HEAP_DUMP_SEGMENT = 0x1c;
+    private static final int HEAP_DUMP_END = 0x2c;
+
+    // heap dump sub-records
+    private static final int ROOT_UNKNOWN = 0xff;
+    private static final int ROOT_STICKY_CLASS = 0x05;
+    private static final int CLASS_DUMP = 0x20;
+    private static final int INSTANCE_DUMP = 0x21;
+    private static final int OBJECT_ARRAY_DUMP = 0x22;
+
+    // basic types
+    private static final int OBJECT = 2;
+    private static final int INT = 10;
+
+    private static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final long CLASS_BASE = 0x10000L;
+
+    // the fixed classes, see CLASS_NAMES, followed by the synthetic classes
+    private static final int JAVA_LANG_OBJECT = 0;
+    private static final int OBJECT_ARRAY = 3;
+    private static final int HASHMAP = 4;
+    private static final int HASHMAP_NODE = 5;
+    private static final int INTEGER = 6;
+    private static final int FIRST_SYNTHETIC = 7;
+
+    private static final String[] CLASS_NAMES = { "java/lang/Object", //$NON-NLS-1$
+                    "java/lang/Class", //$NON-NLS-1$
+                    "java/lang/ClassLoader", //$NON-NLS-1$
+                    "[Ljava/lang/Object;", //$NON-NLS-1$
+                    "java/util/HashMap", //$NON-NLS-1$
+                    "java/util/HashMap$Node", //$NON-NLS-1$
+                    "java/lang/Integer" }; //$NON-NLS-1$
+
+    // ids of the strings
+    private static final int STRING_VALUE = 1;
+    private static final int STRING_TABLE = 2;
+    private static final int STRING_SIZE = 3;
+    private static final int STRING_HASH = 4;
+    private static final int STRING_KEY = 5;
+    private static final int STRING_NEXT = 6;
+    private static final int STRING_CLASS_NAMES = 7;
+
+    private long numberOfObjects = 1000000;
+    private int numberOfClasses = 100;
+    private int references = 4;
+    private int groupSize = 1000;
+    private int identifierSize = 8;
+    private Shape shape = Shape.RANDOM;
+    private long seed = 1;
+
+    // derived
+    private long stride;
+    private long objectBase;
+    private int fields;
+
+    private OutputStream out;
+    private byte[] buffer = new byte[SEGMENT_SIZE + 1024 * 1024];
+    private int pos;
+
+    public void setNumberOfObjects(long numberOfObjects)
+    {
+        this.numberOfObjects = numberOfObjects;
+    }
+
+    public void setNumberOfClasses(int numberOfClasses)
+    {
+        this.numberOfClasses = numberOfClasses;
+    }
+
+    /**
+     * Number of object fields of the synthetic classes, or the length of the
+     * arrays for {@link Shape#TREE}.
+     */
+    public void setReferences(int references)
+    {
+        this.references = references;
+    }
+
+    /**
+     * Length of the rings for {@link Shape#CYCLES} and number of entries of
+     * the maps for {@link Shape#HASHMAPS}.
+     */
+    public void setGroupSize(int groupSize)
+    {
+        this.groupSize = groupSize;
+    }
+
+    public void setIdentifierSize(int identifierSize)
+    {
+        this.identifierSize = identifierSize;
+    }
+
+    public void setShape(Shape shape)
+    {
+        this.shape = shape;
+    }
+
+    public void setSeed(long seed)
+    {
+        this.seed = seed;
+    }
+
+    /**
+     * Writes the dump.
+     *
+     * @return the number of objects written, which for
+     *         {@link Shape#HASHMAPS} is rounded to whole maps
+     */
+    public long write(File file) throws IOException
+    {
+        if (identifierSize != 4 && identifierSize != 8)
+            throw new IllegalArgumentException("identifier size must be 4 or 8: " + identifierSize); //$NON-NLS-1$
+        if (numberOfClasses < 1 || references < 1 || groupSize < 1)
+            throw new IllegalArgumentException("classes, references and group size must be positive"); //$NON-NLS-1$
+
+        fields = shape == Shape.CYCLES || shape == Shape.RANDOM ? Math.max(references, 2) : references;
+        long objects = shape == Shape.HASHMAPS ? numberOfMaps() * mapSize() : numberOfObjects;
+
+        int totalClasses = FIRST_SYNTHETIC + numberOfClasses;
+        stride = identifierSize == 4 ? 8 : 16;
+        objectBase = (CLASS_BASE + totalClasses * stride + 0xfffff) & ~0xfffffL;
+        long limit = identifierSize == 4 ? 0xffffffffL : Long.MAX_VALUE;
+        if (objects < 1 || objects + totalClasses >= Integer.MAX_VALUE || (limit - objectBase) / stride < objects)
+            throw new IllegalArgumentException("unsupported number of objects: " + objects); //$NON-NLS-1$
+
+        out = new BufferedOutputStream(new FileOutputStream(file), 1024 * 1024);
+        try
+        {
+            writeHeader();
+            writeStrings();
+            writeLoadClasses(totalClasses);
+
+            writeClassDumps(totalClasses);
+            switch (shape)
+            {
+                case HASHMAPS:
+                    writeHashMaps();
+                    break;
+                default:
+                    writeInstance(0);
+                    writeObjects();
+                    break;
+            }
+            flushSegment();
+
+            writeRecordHeader(HEAP_DUMP_END, 0);
+            flush();
+        }
+        finally
+        {
+            out.close();
+        }
+        return objects;
+    }
+
+    /**
+     * Writes a dump with the default settings to the directory.
+     */
+    public static File generate(File directory, long numberOfObjects, Shape shape) throws IOException
+    {
+        File file = new File(directory, shape.name().toLowerCase() + numberOfObjects + ".hprof"); //$NON-NLS-1$
+        HprofGenerator generator = new HprofGenerator();
+        generator.setNumberOfObjects(numberOfObjects);
+        generator.setShape(shape);
+        generator.write(file);
+        return file;
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // records
+    // //////////////////////////////////////////////////////////////
+
+    private void writeHeader() throws IOException
+    {
+        for (int ii = 0; ii < MAGIC.length(); ii++)
+            writeByte(MAGIC.charAt(ii));
+        writeByte(0);
+        writeInt(identifierSize);
+        writeLong(System.currentTimeMillis());
+    }
+
+    private void writeStrings() throws IOException
+    {
+        writeString(STRING_VALUE, "value"); //$NON-NLS-1$
+        writeString(STRING_TABLE, "table"); //$NON-NLS-1$
+        writeString(STRING_SIZE, "size"); //$NON-NLS-1$
+        writeString(STRING_HASH, "hash"); //$NON-NLS-1$
+        writeString(STRING_KEY, "key"); //$NON-NLS-1$
+        writeString(STRING_NEXT, "next"); //$NON-NLS-1$
+        for (int ii = 0; ii < FIRST_SYNTHETIC + numberOfClasses; ii++)
+            writeString(STRING_CLASS_NAMES + ii, className(ii));
+        for (int ii = 0; ii < fields; ii++)
+            writeString(fieldNameId(ii), "f" + ii); //$NON-NLS-1$
+    }
+
+    private void writeString(long id, String text) throws IOException
+    {
+        byte[] bytes = text.getBytes("UTF-8"); //$NON-NLS-1$
+        writeRecordHeader(STRING_IN_UTF8, identifierSize + bytes.length);
+        writeId(id);
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, pos, bytes.length);
+        pos += bytes.length;
+        flush();
+    }
+
+    private void writeLoadClasses(int totalClasses) throws IOException
+    {
+        for (int ii = 0; ii < totalClasses; ii++)
+        {
+            writeRecordHeader(LOAD_CLASS, 8 + 2 * identifierSize);
+            writeInt(ii + 1);
+            writeId(classAddress(ii));
+            writeInt(0);
+            writeId(STRING_CLASS_NAMES + ii);
+        }
+        flush();
+    }
+
+    private void writeClassDumps(int totalClasses) throws IOException
+    {
+        for (int ii = 0; ii < totalClasses; ii++)
+        {
+            int[] names;
+            int[] types;
+            switch (ii)
+            {
+                case HASHMAP:
+                    names = new int[] { STRING_TABLE, STRING_SIZE };
+                    types = new int[] { OBJECT, INT };
+                    break;
+                case HASHMAP_NODE:
+                    names = new int[] { STRING_HASH, STRING_KEY, STRING_VALUE, STRING_NEXT };
+                    types = new int[] { INT, OBJECT, OBJECT, OBJECT };
+                    break;
+                case INTEGER:
+                    names = new int[] { STRING_VALUE };
+                    types = new int[] { INT };
+                    break;
+                default:
+                    if (ii < FIRST_SYNTHETIC)
+                    {
+                        names = new int[0];
+                        types = new int[0];
+                    }
+                    else
+                    {
+                        names = new int[fields + 1];
+                        types = new int[fields + 1];
+                        names[0] = STRING_VALUE;
+                        types[0] = INT;
+                        for (int jj = 0; jj < fields; jj++)
+                        {
+                            names[jj + 1] = fieldNameId(jj);
+                            types[jj + 1] = OBJECT;
+                        }
+                    }
+            }
+
+            int instanceSize = 0;
+            for (int type : types)
+                instanceSize += type == OBJECT ? identifierSize : 4;
+
+            ensure(64 + names.length * (identifierSize + 1));
+            writeByte(CLASS_DUMP);
+            writeId(classAddress(ii));
+            writeInt(0);
+            writeId(ii == JAVA_LANG_OBJECT ? 0 : classAddress(JAVA_LANG_OBJECT));
+            writeId(0); // class loader
+            writeId(0); // signers
+            writeId(0); // protection domain
+            writeId(0);
+            writeId(0);
+            writeInt(instanceSize);
+            writeShort(0); // constant pool
+            writeShort(0); // static fields
+            writeShort(names.length);
+            for (int jj = 0; jj < names.length; jj++)
+            {
+                writeId(names[jj]);
+                writeByte(types[jj]);
+            }
+
+            writeByte(ROOT_STICKY_CLASS);
+            writeId(classAddress(ii));
+        }
+    }
+
+    private void writeObjects() throws IOException
+    {
+        writeByte(ROOT_UNKNOWN);
+        writeId(objectAddress(0));
+        for (long ii = 1; ii < numberOfObjects; ii++)
+            writeInstance(ii);
+    }
+
+    private void writeInstance(long index) throws IOException
+    {
+        if (shape == Shape.TREE)
+        {
+            long first = index * references + 1;
+            if (first < numberOfObjects)
+            {
+                int length = (int) Math.min(references, numberOfObjects - first);
+                ensure(16 + (length + 2) * identifierSize);
+                writeByte(OBJECT_ARRAY_DUMP);
+                writeId(objectAddress(index));
+                writeInt(0);
+                writeInt(length);
+                writeId(classAddress(OBJECT_ARRAY));
+                for (int ii = 0; ii < length; ii++)
+                    writeId(objectAddress(first + ii));
+                segmentFull();
+                return;
+            }
+        }
+
+        int type = FIRST_SYNTHETIC + (int) (index % numberOfClasses);
+        ensure(16 + (fields + 2) * identifierSize);
+        writeByte(INSTANCE_DUMP);
+        writeId(objectAddress(index));
+        writeInt(0);
+        writeId(classAddress(type));
+        writeInt(4 + fields * identifierSize);
+        writeInt((int) index);
+        for (int ii = 0; ii < fields; ii++)
+            writeId(reference(index, ii));
+        segmentFull();
+    }
+
+    /**
+     * @return the address of the object referenced by the field, 0 for null
+     */
+    private long reference(long index, int field)
+    {
+        long target = -1;
+        switch (shape)
+        {
+            case CHAIN:
+                if (field == 0)
+                    target = index + 1;
+                break;
+            case TREE:
+                // leaves only
+                break;
+            case CYCLES:
+                long ring = index - index % groupSize;
+                if (field == 0)
+                    target = index + 1 < ring + groupSize && index + 1 < numberOfObjects ? index + 1 : ring;
+                else if (field == 1 && index == ring)
+                    target = ring + groupSize;
+                break;
+            case RANDOM:
+                if (field < 2)
+                    target = 2 * index + 1 + field;
+                else
+                    target = (mix(seed + index * fields + field) & Long.MAX_VALUE) % numberOfObjects;
+                break;
+            default:
+                break;
+        }
+        return target >= 0 && target < numberOfObjects ? objectAddress(target) : 0;
+    }
+
+    private long mapSize()
+    {
+        // map, table, and a node, key and value per entry
+        return 2 + 3L * groupSize;
+    }
+
+    private long numberOfMaps()
+    {
+        return Math.max(1, numberOfObjects / mapSize());
+    }
+
+    private void writeHashMaps() throws IOException
+    {
+        int capacity = Integer.highestOneBit(Math.max(1, groupSize * 4 / 3)) << 1;
+        int[] buckets = new int[capacity];
+        int[] next = new int[groupSize];
+        int[] keys = new int[groupSize];
+
+        long maps = numberOfMaps();
+        for (long map = 0; map < maps; map++)
+        {
+            long base = map * mapSize();
+            long nodes = base + 2;
+            long keyObjects = nodes + groupSize;
+            long values = keyObjects + groupSize;
+
+            Arrays.fill(buckets, -1);
+            for (int ii = 0; ii < groupSize; ii++)
+            {
+                keys[ii] = (int) mix(seed + base + ii);
+                int bucket = (keys[ii] ^ (keys[ii] >>> 16)) & (capacity - 1);
+                next[ii] = buckets[bucket];
+                buckets[bucket] = ii;
+            }
+
+            writeByte(ROOT_UNKNOWN);
+            writeId(objectAddress(base));
+
+            ensure(16 + 2 * identifierSize + 4);
+            writeByte(INSTANCE_DUMP);
+            writeId(objectAddress(base));
+            writeInt(0);
+            writeId(classAddress(HASHMAP));
+            writeInt(identifierSize + 4);
+            writeId(objectAddress(base + 1));
+            writeInt(groupSize);
+
+            ensure(16 + (capacity + 2) * identifierSize);
+            writeByte(OBJECT_ARRAY_DUMP);
+            writeId(objectAddress(base + 1));
+            writeInt(0);
+            writeInt(capacity);
+            writeId(classAddress(OBJECT_ARRAY));
+            for (int ii = 0; ii < capacity; ii++)
+                writeId(buckets[ii] < 0 ? 0 : objectAddress(nodes + buckets[ii]));
+            segmentFull();
+
+            for (int ii = 0; ii < groupSize; ii++)
+            {
+                ensure(16 + 5 * identifierSize);
+                writeByte(INSTANCE_DUMP);
+                writeId(objectAddress(nodes + ii));
+                writeInt(0);
+                writeId(classAddress(HASHMAP_NODE));
+                writeInt(4 + 3 * identifierSize);
+                writeInt(keys[ii] ^ (keys[ii] >>> 16));
+                writeId(objectAddress(keyObjects + ii));
+                writeId(objectAddress(values + ii));
+                writeId(next[ii] < 0 ? 0 : objectAddress(nodes + next[ii]));
+
+                ensure(16 + 2 * identifierSize);
+                writeByte(INSTANCE_DUMP);
+                writeId(objectAddress(keyObjects + ii));
+                writeInt(0);
+                writeId(classAddress(INTEGER));
+                writeInt(4);
+                writeInt(keys[ii]);
+
+                ensure(16 + (fields + 2) * identifierSize);
+                writeByte(INSTANCE_DUMP);
+                writeId(objectAddress(values + ii));
+                writeInt(0);
+                writeId(classAddress(FIRST_SYNTHETIC + ii % numberOfClasses));
+                writeInt(4 + fields * identifierSize);
+                writeInt(ii);
+                for (int jj = 0; jj < fields; jj++)
+                    writeId(0);
+                segmentFull();
+            }
+        }
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // addresses and names
+    // //////////////////////////////////////////////////////////////
+
+    private long classAddress(int index)
+    {
+        return CLASS_BASE + index * stride;
+    }
+
+    private long objectAddress(long index)
+    {
+        return objectBase + index * stride;
+    }
+
+    private String className(int index)
+    {
+        return index < FIRST_SYNTHETIC ? CLASS_NAMES[index] : "synthetic/Class" + (index - FIRST_SYNTHETIC); //$NON-NLS-1$
+    }
+
+    private int fieldNameId(int field)
+    {
+        return STRING_CLASS_NAMES + FIRST_SYNTHETIC + numberOfClasses + field;
+    }
+
+    /**
+     * A cheap hash so that the random references do not depend on the order
+     * in which the objects are written.
+     */
+    private static long mix(long z)
+    {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // output
+    // //////////////////////////////////////////////////////////////
+
+    /**
+     * Writes the buffered sub-records as one heap dump segment when the
+     * segment is full.
+     */
+    private void segmentFull() throws IOException
+    {
+        if (pos >= SEGMENT_SIZE)
+            flushSegment();
+    }
+
+    private void flushSegment() throws IOException
+    {
+        if (pos == 0)
+            return;
+        byte[] header = new byte[9];
+        header[0] = (byte) HEAP_DUMP_SEGMENT;
+        for (int ii = 0; ii < 4; ii++)
+            header[5 + ii] = (byte) (pos >>> (24 - 8 * ii));
+        out.write(header);
+        flush();
+    }
+
+    /**
+     * Starts a record. Not to be used while sub-records of a heap dump
+     * segment are buffered.
+     */
+    private void writeRecordHeader(int tag, int length) throws IOException
+    {
+        flush();
+        writeByte(tag);
+        writeInt(0);
+        writeInt(length);
+    }
+
+    private void flush() throws IOException
+    {
+        out.write(buffer, 0, pos);
+        pos = 0;
+    }
+
+    private void ensure(int length)
+    {
+        if (pos + length > buffer.length)
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, pos + length));
+    }
+
+    private void writeByte(int value)
+    {
+        ensure(1);
+        buffer[pos++] = (byte) value;
+    }
+
+    private void writeShort(int value)
+    {
+        ensure(2);
+        buffer[pos++] = (byte) (value >>> 8);
+        buffer[pos++] = (byte) value;
+    }
+
+    private void writeInt(int value)
+    {
+        ensure(4);
+        buffer[pos++] = (byte) (value >>> 24);
+        buffer[pos++] = (byte) (value >>> 16);
+        buffer[pos++] = (byte) (value >>> 8);
+        buffer[pos++] = (byte) value;
+    }
+
+    private void writeLong(long value)
+    {
+        writeInt((int) (value >>> 32));
+        writeInt((int) value);
+    }
+
+    private void writeId(long id)
+    {
+        if (identifierSize == 4)
+            writeInt((int) id);
+        else
+            writeLong(id);
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // command line
+    // //////////////////////////////////////////////////////////////
+
+    public static void main(String[] args) throws IOException
+    {
+        HprofGenerator generator = new HprofGenerator();
+        File file = null;
+        for (int ii = 0; ii < args.length; ii++)
+        {
+            String arg = args[ii];
+            if ("-objects".equals(arg)) //$NON-NLS-1$
+                generator.setNumberOfObjects(Long.parseLong(args[++ii]));
+            else if ("-classes".equals(arg)) //$NON-NLS-1$
+                generator.setNumberOfClasses(Integer.parseInt(args[++ii]));
+            else if ("-references".equals(arg)) //$NON-NLS-1$
+                generator.setReferences(Integer.parseInt(args[++ii]));
+            else if ("-group".equals(arg)) //$NON-NLS-1$
+                generator.setGroupSize(Integer.parseInt(args[++ii]));
+            else if ("-idsize".equals(arg)) //$NON-NLS-1$
+                generator.setIdentifierSize(Integer.parseInt(args[++ii]));
+            else if ("-shape".equals(arg)) //$NON-NLS-1$
+                generator.setShape(Shape.valueOf(args[++ii].toUpperCase()));
+            else if ("-seed".equals(arg)) //$NON-NLS-1$
+                generator.setSeed(Long.parseLong(args[++ii]));
+            else
+                file = new File(arg);
+        }
+
+        if (file == null)
+        {
+            System.err.println("Usage: HprofGenerator [-objects n] [-classes n] " //$NON-NLS-1$
+                            + "[-shape chain|tree|cycles|random|hashmaps] [-references n] [-group n] " //$NON-NLS-1$
+                            + "[-idsize 4|8] [-seed n] file"); //$NON-NLS-1$
+            System.exit(1);
+        }
+
+        long time = System.currentTimeMillis();
+        long objects = generator.write(file);
+        System.out.println(objects + " objects, " + file.length() + " bytes written to " + file + " in " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                        + (System.currentTimeMillis() - time) + " ms"); //$NON-NLS-1$
+    }
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.mat.parser.index.IIndexReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading the referrers of random objects from the inbound index, as done by
+ * the paths to GC roots and the immediate dominators queries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class InboundReaderBenchmark
+{
+    private static final int LOOKUPS = 10000;
+
+    @Param({ "1000000" })
+    public int objects;
+
+    @Param({ "4" })
+    public int references;
+
+    private File dir;
+    private int[] positions;
+    private IIndexReader.IOne2ManyObjectsIndex inbound;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        SyntheticGraph graph = new SyntheticGraph(objects, references, 1, 1);
+        dir = SyntheticGraph.createTempDirectory();
+        inbound = graph.writeInbound(new File(dir, "inbound.index")); //$NON-NLS-1$
+
+        Random random = new Random(2);
+        positions = new int[LOOKUPS];
+        for (int ii = 0; ii < positions.length; ii++)
+            positions[ii] = random.nextInt(objects);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        inbound.close();
+        SyntheticGraph.delete(dir);
+    }
+
+    @Benchmark
+    public int get()
+    {
+        int count = 0;
+        for (int ii = 0; ii < positions.length; ii++)
+            count += inbound.get(positions[ii]).length;
+        return count;
+    }
+}
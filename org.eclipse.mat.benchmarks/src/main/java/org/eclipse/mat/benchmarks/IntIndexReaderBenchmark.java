@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.mat.parser.index.IIndexReader;
+import org.eclipse.mat.parser.index.IndexWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Random and sequential access to a one-to-one index file, for example the
+ * object to class index. With <code>unload</code> the pages are read from the
+ * file again in every iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IntIndexReaderBenchmark
+{
+    private static final int BATCH = 1000;
+
+    @Param({ "4000000" })
+    public int size;
+
+    @Param({ "false", "true" })
+    public boolean unload;
+
+    private File dir;
+    private int[] positions;
+    private IIndexReader.IOne2OneIndex index;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        Random random = new Random(1);
+        IndexWriter.IntIndexCollector collector = new IndexWriter.IntIndexCollector(size, IndexWriter
+                        .mostSignificantBit(size));
+        for (int ii = 0; ii < size; ii++)
+            collector.set(ii, random.nextInt(size));
+
+        dir = SyntheticGraph.createTempDirectory();
+        index = collector.writeTo(new File(dir, "o2c.index")); //$NON-NLS-1$
+
+        positions = new int[size / BATCH];
+        for (int ii = 0; ii < positions.length; ii++)
+            positions[ii] = random.nextInt(size);
+    }
+
+    @Setup(Level.Iteration)
+    public void unloadPages() throws IOException
+    {
+        if (unload)
+            index.unload();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        index.close();
+        SyntheticGraph.delete(dir);
+    }
+
+    @Benchmark
+    public int get()
+    {
+        int sum = 0;
+        for (int ii = 0; ii < positions.length; ii++)
+            sum += index.get(positions[ii]);
+        return sum;
+    }
+
+    @Benchmark
+    public int getNext()
+    {
+        int sum = 0;
+        for (int ii = 0; ii + BATCH <= size; ii += BATCH)
+        {
+            int[] values = index.getNext(ii, BATCH);
+            sum += values[BATCH - 1];
+        }
+        return sum;
+    }
+}
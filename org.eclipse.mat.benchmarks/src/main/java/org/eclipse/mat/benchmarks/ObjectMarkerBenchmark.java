@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.mat.collect.AtomicBitField;
+import org.eclipse.mat.parser.index.IIndexReader;
+import org.eclipse.mat.parser.internal.snapshot.ObjectMarker;
+import org.eclipse.mat.util.VoidProgressListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Marking the reachable objects of a random graph from its outbound index, as
+ * done by the garbage cleaner and the retained set calculation.
+ * <code>threads</code> 0 runs the single threaded marker.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ObjectMarkerBenchmark
+{
+    @Param({ "1000000" })
+    public int objects;
+
+    @Param({ "4" })
+    public int references;
+
+    @Param({ "0", "1", "4" })
+    public int threads;
+
+    private File dir;
+    private int[] roots;
+    private IIndexReader.IOne2ManyIndex outbound;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        SyntheticGraph graph = new SyntheticGraph(objects, references, 100, 1);
+        roots = graph.getRoots();
+        dir = SyntheticGraph.createTempDirectory();
+        outbound = graph.writeOutbound(new File(dir, "outbound.index")); //$NON-NLS-1$
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        outbound.close();
+        SyntheticGraph.delete(dir);
+    }
+
+    @Benchmark
+    public AtomicBitField mark() throws InterruptedException
+    {
+        AtomicBitField reachable = new AtomicBitField(objects);
+        ObjectMarker marker = new ObjectMarker(roots, reachable, outbound, new VoidProgressListener());
+        if (threads == 0)
+            marker.markSingleThreaded();
+        else
+            marker.markMultiThreaded(threads);
+        return reachable;
+    }
+}
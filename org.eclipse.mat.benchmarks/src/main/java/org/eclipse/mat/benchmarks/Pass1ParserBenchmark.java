@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.hprof.HprofParserHandlerImpl;
+import org.eclipse.mat.hprof.Pass1Parser;
+import org.eclipse.mat.hprof.ui.HprofPreferences;
+import org.eclipse.mat.parser.model.XSnapshotInfo;
+import org.eclipse.mat.util.SimpleMonitor;
+import org.eclipse.mat.util.VoidProgressListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The first pass over a dump, which collects the classes, the GC roots and
+ * the object ids. The dump is generated once per fork, pass an existing one
+ * with <code>-p dump=&lt;file&gt;</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class Pass1ParserBenchmark
+{
+    @Param({ "" })
+    public String dump;
+
+    @Param({ "1000000" })
+    public long objects;
+
+    @Param({ "RANDOM" })
+    public HprofGenerator.Shape shape;
+
+    @Param({ "false", "true" })
+    public boolean memoryMapped;
+
+    private File file;
+    private File dir;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        dir = SyntheticGraph.createTempDirectory();
+        file = dump.length() > 0 ? new File(dump) : HprofGenerator.generate(dir, objects, shape);
+        System.setProperty(HprofPreferences.MEMORY_MAPPED_IO_PREF, String.valueOf(memoryMapped));
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        SyntheticGraph.delete(dir);
+    }
+
+    @Benchmark
+    public HprofParserHandlerImpl read() throws SnapshotException, IOException
+    {
+        XSnapshotInfo info = new XSnapshotInfo();
+        info.setPath(file.getAbsolutePath());
+        info.setPrefix(new File(dir, file.getName()).getAbsolutePath() + "."); //$NON-NLS-1$
+
+        HprofParserHandlerImpl handler = new HprofParserHandlerImpl();
+        handler.beforePass1(info);
+
+        SimpleMonitor monitor = new SimpleMonitor(file.getName(), new VoidProgressListener(), new int[] { 100 });
+        SimpleMonitor.Listener listener = (SimpleMonitor.Listener) monitor.nextMonitor();
+        listener.beginTask(file.getName(), (int) (file.length() / 1000));
+        new Pass1Parser(handler, listener, HprofPreferences.HprofStrictness.STRICTNESS_STOP).read(file, BenchmarkSnapshotBuilder.dumpNumber());
+        listener.done();
+        return handler;
+    }
+}
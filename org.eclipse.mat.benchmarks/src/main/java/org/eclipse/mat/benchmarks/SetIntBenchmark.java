@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.mat.collect.SetInt;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Adding and looking up object ids, as done for the excluded objects of the
+ * retained set and the path queries.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SetIntBenchmark
+{
+    @Param({ "1000", "100000" })
+    public int size;
+
+    private int[] keys;
+    private SetInt set;
+
+    @Setup
+    public void setUp()
+    {
+        Random random = new Random(1);
+        keys = new int[size];
+        set = new SetInt();
+        for (int ii = 0; ii < size; ii++)
+        {
+            // object ids: dense, not negative
+            keys[ii] = random.nextInt(size * 4);
+            set.add(keys[ii]);
+        }
+    }
+
+    @Benchmark
+    public SetInt add()
+    {
+        SetInt answer = new SetInt();
+        for (int ii = 0; ii < keys.length; ii++)
+            answer.add(keys[ii]);
+        return answer;
+    }
+
+    @Benchmark
+    public void contains(Blackhole blackhole)
+    {
+        for (int ii = 0; ii < keys.length; ii++)
+            blackhole.consume(set.contains(keys[ii] + 1));
+    }
+}
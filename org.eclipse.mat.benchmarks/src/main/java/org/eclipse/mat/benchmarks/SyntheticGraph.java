@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Random;
+
+import org.eclipse.mat.parser.index.IIndexReader;
+import org.eclipse.mat.parser.index.IndexWriter;
+import org.eclipse.mat.util.VoidProgressListener;
+
+/**
+ * A random object graph with a fixed number of references per object. The
+ * first objects are the GC roots, every object is reachable from them via the
+ * chain of objects following it.
+ */
+public class SyntheticGraph
+{
+    private final int[][] outbound;
+    private final int[] roots;
+
+    public SyntheticGraph(int numberOfObjects, int referencesPerObject, int numberOfRoots, long seed)
+    {
+        Random random = new Random(seed);
+
+        outbound = new int[numberOfObjects][];
+        for (int ii = 0; ii < numberOfObjects; ii++)
+        {
+            int[] refs = new int[referencesPerObject];
+            refs[0] = ii + 1 < numberOfObjects ? ii + 1 : 0;
+            for (int jj = 1; jj < refs.length; jj++)
+                refs[jj] = random.nextInt(numberOfObjects);
+            outbound[ii] = refs;
+        }
+
+        roots = new int[numberOfRoots];
+        for (int ii = 0; ii < numberOfRoots; ii++)
+            roots[ii] = ii;
+    }
+
+    public int size()
+    {
+        return outbound.length;
+    }
+
+    public int[] getRoots()
+    {
+        return roots;
+    }
+
+    public int[] getOutbound(int objectId)
+    {
+        return outbound[objectId];
+    }
+
+    public IIndexReader.IOne2ManyIndex writeOutbound(File indexFile) throws IOException
+    {
+        IndexWriter.IntArray1NWriter writer = new IndexWriter.IntArray1NWriter(outbound.length, indexFile);
+        for (int ii = 0; ii < outbound.length; ii++)
+            writer.log(ii, outbound[ii]);
+        return writer.flush();
+    }
+
+    public IIndexReader.IOne2ManyObjectsIndex writeInbound(File indexFile) throws IOException
+    {
+        IndexWriter.InboundWriter writer = new IndexWriter.InboundWriter(outbound.length, indexFile);
+        for (int ii = 0; ii < outbound.length; ii++)
+        {
+            int[] refs = outbound[ii];
+            for (int jj = 0; jj < refs.length; jj++)
+                writer.log(refs[jj], ii, jj == 0);
+        }
+        return writer.flush(new VoidProgressListener(), new IndexWriter.KeyWriter()
+        {
+            public void storeKey(int index, Serializable key)
+            {}
+        });
+    }
+
+    /**
+     * Creates a temporary directory for index files which is removed on exit.
+     */
+    public static File createTempDirectory() throws IOException
+    {
+        File dir = File.createTempFile("mat-benchmark", ""); //$NON-NLS-1$ //$NON-NLS-2$
+        if (!dir.delete() || !dir.mkdir())
+            throw new IOException(dir.getAbsolutePath());
+        dir.deleteOnExit();
+        return dir;
+    }
+
+    public static void delete(File dir)
+    {
+        File[] files = dir.listFiles();
+        if (files != null)
+        {
+            for (File f : files)
+                f.delete();
+        }
+        dir.delete();
+    }
+}
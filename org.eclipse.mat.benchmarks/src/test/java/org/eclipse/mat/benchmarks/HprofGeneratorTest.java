@@ -0,0 +1,256 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.benchmarks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.benchmarks.HprofGenerator.Shape;
+import org.eclipse.mat.parser.internal.SnapshotImpl;
+import org.eclipse.mat.snapshot.model.IClass;
+import org.eclipse.mat.snapshot.model.IInstance;
+import org.eclipse.mat.snapshot.model.IObject;
+import org.eclipse.mat.snapshot.model.NamedReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Generates a dump of each shape with 4 and 8 byte identifiers, parses it with
+ * the HPROF parser and checks the numbers of objects, classes and references,
+ * and that the objects can be read from the dump.
+ */
+@RunWith(value = Parameterized.class)
+public class HprofGeneratorTest
+{
+    private static final int OBJECTS = 5000;
+    private static final int CLASSES = 5;
+    private static final int REFERENCES = 3;
+    private static final int GROUP = 10;
+
+    /** java.lang.Object, Class, ClassLoader, Object[], HashMap, its Node and Integer */
+    private static final int FIXED_CLASSES = 7;
+
+    @Parameters(name = "{0} {1}")
+    public static Collection<Object[]> data()
+    {
+        List<Object[]> data = new ArrayList<Object[]>();
+        for (Shape shape : Shape.values())
+        {
+            data.add(new Object[] { shape, 4 });
+            data.add(new Object[] { shape, 8 });
+        }
+        return data;
+    }
+
+    private final Shape shape;
+    private final int identifierSize;
+
+    private File directory;
+    private SnapshotImpl snapshot;
+
+    public HprofGeneratorTest(Shape shape, int identifierSize)
+    {
+        this.shape = shape;
+        this.identifierSize = identifierSize;
+    }
+
+    @Before
+    public void setUp() throws IOException
+    {
+        directory = File.createTempFile("generator", ""); //$NON-NLS-1$ //$NON-NLS-2$
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdir());
+    }
+
+    @After
+    public void tearDown()
+    {
+        if (snapshot != null)
+            snapshot.dispose();
+        File[] files = directory.listFiles();
+        if (files != null)
+        {
+            for (File file : files)
+                file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testParse() throws IOException, SnapshotException
+    {
+        HprofGenerator generator = new HprofGenerator();
+        generator.setNumberOfObjects(OBJECTS);
+        generator.setNumberOfClasses(CLASSES);
+        generator.setReferences(REFERENCES);
+        generator.setGroupSize(GROUP);
+        generator.setIdentifierSize(identifierSize);
+        generator.setShape(shape);
+
+        File dump = new File(directory, "generated.hprof"); //$NON-NLS-1$
+        long objects = generator.write(dump);
+        if (shape == Shape.HASHMAPS)
+            assertEquals(OBJECTS / (2 + 3 * GROUP) * (2 + 3 * GROUP), objects);
+        else
+            assertEquals(OBJECTS, objects);
+
+        snapshot = BenchmarkSnapshotBuilder.build(dump, directory);
+        assertEquals(identifierSize, snapshot.getSnapshotInfo().getIdentifierSize());
+
+        // every object is reachable, so none is discarded, and the parser
+        // adds the system class loader
+        Collection<IClass> classes = snapshot.getClasses();
+        assertEquals(FIXED_CLASSES + CLASSES, classes.size());
+        assertEquals(objects + classes.size() + 1, snapshot.getSnapshotInfo().getNumberOfObjects());
+
+        int synthetic = 0;
+        for (int ii = 0; ii < CLASSES; ii++)
+        {
+            Collection<IClass> found = snapshot.getClassesByName("synthetic.Class" + ii, false); //$NON-NLS-1$
+            assertEquals(1, found.size());
+            synthetic += found.iterator().next().getNumberOfObjects();
+        }
+        assertEquals(expectedSyntheticInstances(objects), synthetic);
+        checkObjects();
+
+        long references = countFieldReferences();
+        long expected = expectedFieldReferences(objects);
+        if (shape == Shape.RANDOM)
+        {
+            // the random references may coincide with the tree references
+            assertTrue(references + " < " + expected, references >= expected); //$NON-NLS-1$
+            assertTrue(references + " > " + (expected + objects * (REFERENCES - 2)), //$NON-NLS-1$
+                            references <= expected + objects * (REFERENCES - 2));
+        }
+        else
+        {
+            assertEquals(expected, references);
+        }
+    }
+
+    /**
+     * @return the references of the generated objects, not counting the
+     *         reference to their class
+     */
+    private long countFieldReferences() throws SnapshotException
+    {
+        long references = 0;
+        int numberOfObjects = snapshot.getSnapshotInfo().getNumberOfObjects();
+        for (int objectId = 0; objectId < numberOfObjects; objectId++)
+        {
+            if (!snapshot.isClass(objectId) && !snapshot.isClassLoader(objectId))
+                references += snapshot.getOutboundReferentIds(objectId).length - 1;
+        }
+        return references;
+    }
+
+    /**
+     * Reads some instances of each synthetic class and compares their fields
+     * with the references in the index.
+     */
+    private void checkObjects() throws SnapshotException
+    {
+        for (int ii = 0; ii < CLASSES; ii++)
+        {
+            IClass clazz = snapshot.getClassesByName("synthetic.Class" + ii, false).iterator().next(); //$NON-NLS-1$
+            int[] objectIds = clazz.getObjectIds();
+            for (int jj = 0; jj < Math.min(objectIds.length, 20); jj++)
+            {
+                IObject object = snapshot.getObject(objectIds[jj]);
+                assertTrue(object instanceof IInstance);
+                assertEquals(clazz.getObjectId(), object.getClazz().getObjectId());
+                assertTrue(object.resolveValue("value") instanceof Integer); //$NON-NLS-1$
+
+                int[] fields = new int[0];
+                for (NamedReference reference : object.getOutboundReferences())
+                {
+                    if (reference.getName().startsWith("f")) //$NON-NLS-1$
+                    {
+                        fields = Arrays.copyOf(fields, fields.length + 1);
+                        fields[fields.length - 1] = reference.getObjectId();
+                    }
+                }
+                int[] expected = snapshot.getOutboundReferentIds(object.getObjectId());
+                // the index holds each referenced object once, after the class
+                int[] distinct = distinct(fields);
+                assertEquals(expected.length - 1, distinct.length);
+                int[] indexed = Arrays.copyOfRange(expected, 1, expected.length);
+                Arrays.sort(indexed);
+                assertTrue(Arrays.equals(indexed, distinct));
+            }
+        }
+    }
+
+    private static int[] distinct(int[] values)
+    {
+        int[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int length = 0;
+        for (int ii = 0; ii < sorted.length; ii++)
+        {
+            if (ii == 0 || sorted[ii] != sorted[ii - 1])
+                sorted[length++] = sorted[ii];
+        }
+        return Arrays.copyOf(sorted, length);
+    }
+
+    private long expectedSyntheticInstances(long objects)
+    {
+        switch (shape)
+        {
+            case TREE:
+                // the inner nodes are object arrays
+                return objects - (objects - 2) / REFERENCES - 1;
+            case HASHMAPS:
+                // one value per entry
+                return objects / (2 + 3 * GROUP) * GROUP;
+            default:
+                return objects;
+        }
+    }
+
+    private long expectedFieldReferences(long objects)
+    {
+        switch (shape)
+        {
+            case CHAIN:
+            case TREE:
+                // every object but the root is referenced once
+                return objects - 1;
+            case CYCLES:
+                // the rings, and each ring but the last references the next
+                long rings = (objects + GROUP - 1) / GROUP;
+                return objects + rings - 1;
+            case RANDOM:
+                // at least the binary tree
+                return objects - 1;
+            case HASHMAPS:
+                // the table, each node from the table or a node, its key and
+                // its value
+                long maps = objects / (2 + 3 * GROUP);
+                return maps * (1 + 3 * GROUP);
+            default:
+                throw new IllegalArgumentException(shape.name());
+        }
+    }
+}
@@ -124,6 +124,8 @@ public class OQLQuery implements IQuery
 
     private static class OQLTextResult extends TextResult implements IOQLQuery.Result
     {
+        private static final long serialVersionUID = 1L;
+
         String queryString;
 
         public OQLTextResult(String text, String queryString)
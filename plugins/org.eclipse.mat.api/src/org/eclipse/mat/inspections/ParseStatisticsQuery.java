@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.inspections;
+
+import org.eclipse.mat.internal.Messages;
+import org.eclipse.mat.query.Bytes;
+import org.eclipse.mat.query.Column;
+import org.eclipse.mat.query.IContextObject;
+import org.eclipse.mat.query.IQuery;
+import org.eclipse.mat.query.IResult;
+import org.eclipse.mat.query.IResultTable;
+import org.eclipse.mat.query.ResultMetaData;
+import org.eclipse.mat.query.annotations.Argument;
+import org.eclipse.mat.query.annotations.Category;
+import org.eclipse.mat.query.annotations.CommandName;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.PhaseStatistics;
+import org.eclipse.mat.util.IProgressListener;
+
+/**
+ * Shows the time and resources each phase took when the heap dump was parsed,
+ * see {@link PhaseStatistics}.
+ */
+@CommandName("parse_statistics")
+@Category(Category.HIDDEN)
+public class ParseStatisticsQuery implements IQuery
+{
+    @Argument
+    public ISnapshot snapshot;
+
+    public IResult execute(IProgressListener listener) throws Exception
+    {
+        Object phases = snapshot.getSnapshotInfo().getProperty(PhaseStatistics.PROPERTY);
+
+        // snapshots parsed by older versions have no statistics
+        return new Result(phases instanceof PhaseStatistics[] ? (PhaseStatistics[]) phases : new PhaseStatistics[0]);
+    }
+
+    public static class Result implements IResultTable
+    {
+        private final PhaseStatistics[] phases;
+
+        public Result(PhaseStatistics[] phases)
+        {
+            this.phases = phases;
+        }
+
+        public ResultMetaData getResultMetaData()
+        {
+            return null;
+        }
+
+        public Column[] getColumns()
+        {
+            return new Column[] { new Column(Messages.ParseStatisticsQuery_Column_Phase), //
+                            new Column(Messages.ParseStatisticsQuery_Column_WallTime, Long.class).noTotals(), //
+                            new Column(Messages.ParseStatisticsQuery_Column_CpuTime, Long.class).noTotals(), //
+                            new Column(Messages.ParseStatisticsQuery_Column_BytesRead, Bytes.class).noTotals(), //
+                            new Column(Messages.ParseStatisticsQuery_Column_BytesWritten, Bytes.class).noTotals(), //
+                            new Column(Messages.ParseStatisticsQuery_Column_PeakHeap, Bytes.class).noTotals(), //
+                            new Column(Messages.ParseStatisticsQuery_Column_Objects, Long.class).noTotals(), //
+                            new Column(Messages.ParseStatisticsQuery_Column_References, Long.class).noTotals() };
+        }
+
+        public int getRowCount()
+        {
+            return phases.length;
+        }
+
+        public Object getRow(int rowId)
+        {
+            return phases[rowId];
+        }
+
+        public Object getColumnValue(Object row, int columnIndex)
+        {
+            PhaseStatistics phase = (PhaseStatistics) row;
+            switch (columnIndex)
+            {
+                case 0:
+                    return phase.getName();
+                case 1:
+                    return valueOf(phase.getWallTime());
+                case 2:
+                    return valueOf(phase.getCpuTime());
+                case 3:
+                    return phase.getBytesRead() >= 0 ? new Bytes(phase.getBytesRead()) : null;
+                case 4:
+                    return phase.getBytesWritten() >= 0 ? new Bytes(phase.getBytesWritten()) : null;
+                case 5:
+                    return phase.getPeakHeap() >= 0 ? new Bytes(phase.getPeakHeap()) : null;
+                case 6:
+                    return valueOf(phase.getObjects());
+                case 7:
+                    return valueOf(phase.getReferences());
+            }
+            return null;
+        }
+
+        private static Long valueOf(long value)
+        {
+            return value >= 0 ? Long.valueOf(value) : null;
+        }
+
+        public IContextObject getContext(Object row)
+        {
+            return null;
+        }
+    }
+}
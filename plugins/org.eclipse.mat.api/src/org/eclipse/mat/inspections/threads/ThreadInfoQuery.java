@@ -47,6 +47,8 @@ public class ThreadInfoQuery implements IQuery
 {
     public static class Result extends SectionSpec
     {
+        private static final long serialVersionUID = 1L;
+
         List<IThreadInfo> infos = new ArrayList<IThreadInfo>();
 
         private Result(String name)
@@ -460,6 +460,15 @@ public class Messages extends NLS
 
     public static String ParseSnapshotApp_MultipleSnapshotsDetected;
 
+    public static String ParseStatisticsQuery_Column_BytesRead;
+    public static String ParseStatisticsQuery_Column_BytesWritten;
+    public static String ParseStatisticsQuery_Column_CpuTime;
+    public static String ParseStatisticsQuery_Column_Objects;
+    public static String ParseStatisticsQuery_Column_PeakHeap;
+    public static String ParseStatisticsQuery_Column_Phase;
+    public static String ParseStatisticsQuery_Column_References;
+    public static String ParseStatisticsQuery_Column_WallTime;
+
     public static String PhantomReferenceStatQuery_Label_Referenced;
     public static String PhantomReferenceStatQuery_Label_Retained;
     public static String PhantomReferenceStatQuery_Label_StronglyRetainedReferents;
@@ -471,6 +480,13 @@ public class Messages extends NLS
 
     public static String PrimitiveArraysWithAConstantValueQuery_SearchingArrayValues;
 
+    public static String QueryServerApp_Listening;
+    public static String QueryServerApp_NoSnapshot;
+    public static String QueryServerApp_Opened;
+    public static String QueryServerApp_UnknownFormat;
+    public static String QueryServerApp_UnsupportedResult;
+    public static String QueryServerApp_Usage;
+
     public static String ReferenceQuery_ErrorMsg_NoMatchingClassesFound;
     public static String ReferenceQuery_HistogramOfReferentObjects;
     public static String ReferenceQuery_Msg_ComputingReferentSet;
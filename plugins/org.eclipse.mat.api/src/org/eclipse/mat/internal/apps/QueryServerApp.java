@@ -0,0 +1,517 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.internal.apps;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.internal.MATPlugin;
+import org.eclipse.mat.internal.Messages;
+import org.eclipse.mat.internal.snapshot.SnapshotQueryContext;
+import org.eclipse.mat.query.Bytes;
+import org.eclipse.mat.query.Column;
+import org.eclipse.mat.query.IResult;
+import org.eclipse.mat.query.IResultTable;
+import org.eclipse.mat.query.IResultTree;
+import org.eclipse.mat.query.IStructuredResult;
+import org.eclipse.mat.query.refined.RefinedResultBuilder;
+import org.eclipse.mat.query.refined.RefinedStructuredResult;
+import org.eclipse.mat.query.refined.RefinedTable;
+import org.eclipse.mat.query.refined.RefinedTree;
+import org.eclipse.mat.query.registry.CommandLine;
+import org.eclipse.mat.query.results.TextResult;
+import org.eclipse.mat.snapshot.Histogram;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.SnapshotFactory;
+import org.eclipse.mat.util.ConsoleProgressListener;
+import org.eclipse.mat.util.IProgressListener;
+import org.eclipse.mat.util.MessageUtil;
+import org.eclipse.mat.util.VoidProgressListener;
+
+/**
+ * Keeps snapshots open and runs queries on them, so that many queries against
+ * the same dump do not pay for starting the application and opening the
+ * snapshot each time.
+ * <p>
+ * Requests are read line by line from standard input or, with the option
+ * <code>-port=&lt;n&gt;</code>, from connections to that port of the loopback
+ * interface. Other options are passed on when opening a snapshot, like those
+ * of {@link ParseSnapshotApp}. The requests are:
+ * <ul>
+ * <li><code>open &lt;dump&gt;</code> opens the dump, unless it is open
+ * already, and runs the following queries on it</li>
+ * <li><code>close [&lt;dump&gt;]</code> releases the dump, by default the one
+ * queries run on. The snapshot stays open while other connections use it.</li>
+ * <li><code>fast_histogram &lt;dump&gt;</code> writes the class histogram of
+ * the dump read in one pass, without parsing the dump into a snapshot. It
+ * includes unreachable objects.</li>
+ * <li><code>format csv|json</code> writes the rows of the following results
+ * as comma separated values with a header line, or as one JSON object per
+ * line</li>
+ * <li><code>limit &lt;n&gt;</code> writes at most n rows of the following
+ * results, 0 for all rows</li>
+ * <li><code>quit</code> ends the connection, or the application if reading
+ * from standard input</li>
+ * <li>any other line is a query command line, for example
+ * <code>histogram</code> or <code>oql "select * from java.lang.String"</code></li>
+ * </ul>
+ * Each response starts with the line <code>OK</code> or
+ * <code>ERROR &lt;message&gt;</code> and ends with a line with a single dot.
+ * Lines of the response starting with a dot get another dot in front. The
+ * response is sent once it is complete, so a failure while writing the rows
+ * gives an error instead of a partial result. Trees are written with their
+ * top level elements only.
+ * <p>
+ * Each connection holds its own reference to the snapshots it opened and
+ * releases them when it ends. Connections opening the same dump share one
+ * snapshot, see {@link SnapshotFactory#openSnapshot}.
+ */
+public class QueryServerApp implements IApplication
+{
+    private final Map<String, String> options = new HashMap<String, String>();
+    private volatile ServerSocket serverSocket;
+
+    public Object start(IApplicationContext context) throws Exception
+    {
+        String[] args = (String[]) context.getArguments().get(IApplicationContext.APPLICATION_ARGS);
+
+        int port = -1;
+        if (args != null)
+        {
+            for (String arg : args)
+            {
+                if (arg.length() == 0 || arg.charAt(0) != '-')
+                    throw new IllegalArgumentException(Messages.QueryServerApp_Usage);
+
+                int p = arg.indexOf('=');
+                String key = p < 0 ? arg.substring(1) : arg.substring(1, p);
+                String value = p < 0 ? Boolean.TRUE.toString() : arg.substring(p + 1);
+                if ("port".equals(key)) //$NON-NLS-1$
+                    port = Integer.parseInt(value);
+                else
+                    options.put(key, value);
+            }
+        }
+
+        if (port < 0)
+            serve(System.in, System.out);
+        else
+            listen(port);
+
+        return IApplication.EXIT_OK;
+    }
+
+    public void stop()
+    {
+        ServerSocket socket = serverSocket;
+        if (socket != null)
+        {
+            try
+            {
+                socket.close();
+            }
+            catch (IOException ignore)
+            {
+                // $JL-EXC$
+            }
+        }
+    }
+
+    private void listen(int port) throws IOException
+    {
+        // local clients only, the requests are not authenticated
+        serverSocket = new ServerSocket(port, 50, InetAddress.getByName(null));
+        System.err.println(MessageUtil.format(Messages.QueryServerApp_Listening,
+                        String.valueOf(serverSocket.getLocalPort())));
+
+        while (!serverSocket.isClosed())
+        {
+            final Socket socket;
+            try
+            {
+                socket = serverSocket.accept();
+            }
+            catch (IOException e)
+            {
+                if (serverSocket.isClosed())
+                    break;
+                throw e;
+            }
+
+            Thread thread = new Thread(new Runnable()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        serve(socket.getInputStream(), socket.getOutputStream());
+                    }
+                    catch (IOException e)
+                    {
+                        MATPlugin.log(e);
+                    }
+                    finally
+                    {
+                        try
+                        {
+                            socket.close();
+                        }
+                        catch (IOException ignore)
+                        {
+                            // $JL-EXC$
+                        }
+                    }
+                }
+            }, "MAT query server " + socket.getRemoteSocketAddress()); //$NON-NLS-1$
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // one connection
+    // //////////////////////////////////////////////////////////////
+
+    /**
+     * Answers the requests of one connection until the input ends or a quit
+     * request, then releases the snapshots opened by the connection.
+     */
+    public void serve(InputStream in, OutputStream out) throws IOException
+    {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8")); //$NON-NLS-1$
+        Response response = new Response(new BufferedWriter(new OutputStreamWriter(out, "UTF-8"))); //$NON-NLS-1$
+
+        Map<File, ISnapshot> snapshots = new HashMap<File, ISnapshot>();
+        File current = null;
+        boolean isJson = false;
+        int limit = 0;
+
+        try
+        {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                line = line.trim();
+                if (line.length() == 0)
+                    continue;
+
+                int p = line.indexOf(' ');
+                String command = p < 0 ? line : line.substring(0, p);
+                String argument = p < 0 ? "" : line.substring(p + 1).trim(); //$NON-NLS-1$
+
+                try
+                {
+                    if ("quit".equals(command)) //$NON-NLS-1$
+                    {
+                        response.ok();
+                        break;
+                    }
+                    else if ("open".equals(command)) //$NON-NLS-1$
+                    {
+                        File file = new File(argument).getAbsoluteFile();
+                        ISnapshot snapshot = open(snapshots, file);
+                        current = file;
+                        response.line(MessageUtil.format(Messages.QueryServerApp_Opened, current.getPath(), String
+                                        .valueOf(snapshot.getSnapshotInfo().getNumberOfObjects())));
+                    }
+                    else if ("close".equals(command)) //$NON-NLS-1$
+                    {
+                        File file = argument.length() > 0 ? new File(argument).getAbsoluteFile() : current;
+                        close(snapshots, file);
+                        if (file != null && file.equals(current))
+                            current = null;
+                    }
+                    else if ("fast_histogram".equals(command)) //$NON-NLS-1$
+                    {
+                        File file = new File(argument).getAbsoluteFile();
+                        IProgressListener listener = new ConsoleProgressListener(System.err);
+                        Histogram histogram = SnapshotFactory.getHistogram(file, listener);
+                        listener.done();
+
+                        List<Object> rows = new ArrayList<Object>(histogram.getRowCount());
+                        for (int ii = 0; ii < histogram.getRowCount(); ii++)
+                            rows.add(histogram.getRow(ii));
+                        writeRows(response, histogram, rows, isJson, limit);
+                    }
+                    else if ("format".equals(command)) //$NON-NLS-1$
+                    {
+                        if (!"csv".equals(argument) && !"json".equals(argument)) //$NON-NLS-1$ //$NON-NLS-2$
+                            throw new IllegalArgumentException(MessageUtil.format(
+                                            Messages.QueryServerApp_UnknownFormat, argument));
+                        isJson = "json".equals(argument); //$NON-NLS-1$
+                    }
+                    else if ("limit".equals(command)) //$NON-NLS-1$
+                    {
+                        limit = Integer.parseInt(argument);
+                    }
+                    else
+                    {
+                        ISnapshot snapshot = current != null ? snapshots.get(current) : null;
+                        if (snapshot == null)
+                            throw new SnapshotException(Messages.QueryServerApp_NoSnapshot);
+
+                        SnapshotQueryContext context = new SnapshotQueryContext(snapshot);
+                        IResult result = CommandLine.execute(context, line, new VoidProgressListener());
+                        write(response, context, result, isJson, limit);
+                    }
+                    response.ok();
+                }
+                catch (Exception e)
+                {
+                    response.error(e);
+                }
+            }
+        }
+        finally
+        {
+            for (ISnapshot snapshot : snapshots.values())
+                SnapshotFactory.dispose(snapshot);
+        }
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // snapshots of one connection
+    // //////////////////////////////////////////////////////////////
+
+    private ISnapshot open(Map<File, ISnapshot> snapshots, File file) throws SnapshotException
+    {
+        ISnapshot snapshot = snapshots.get(file);
+        if (snapshot != null)
+            return snapshot;
+
+        // the factory shares the snapshot with other connections and lets
+        // them wait while the dump is parsed
+        IProgressListener listener = new ConsoleProgressListener(System.err);
+        snapshot = SnapshotFactory.openSnapshot(file, new HashMap<String, String>(options), listener);
+        listener.done();
+
+        snapshots.put(file, snapshot);
+        return snapshot;
+    }
+
+    private void close(Map<File, ISnapshot> snapshots, File file)
+    {
+        ISnapshot snapshot = file != null ? snapshots.remove(file) : null;
+        if (snapshot != null)
+            SnapshotFactory.dispose(snapshot);
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // results
+    // //////////////////////////////////////////////////////////////
+
+    /**
+     * Writes the rows or the text of the result to the response.
+     */
+    private void write(Response response, SnapshotQueryContext context, IResult result, boolean isJson, int limit)
+    {
+        if (result == null)
+            return;
+
+        if (result instanceof TextResult)
+        {
+            for (String line : ((TextResult) result).getText().split("\r?\n")) //$NON-NLS-1$
+                response.line(line);
+            return;
+        }
+
+        RefinedStructuredResult refined;
+        if (result instanceof RefinedStructuredResult)
+        {
+            refined = (RefinedStructuredResult) result;
+        }
+        else if (result instanceof IResultTable || result instanceof IResultTree)
+        {
+            RefinedResultBuilder builder = new RefinedResultBuilder(context, (IStructuredResult) result);
+            builder.setInlineRetainedSizeCalculation(true);
+            refined = builder.build();
+        }
+        else
+        {
+            throw new IllegalArgumentException(MessageUtil.format(Messages.QueryServerApp_UnsupportedResult, result
+                            .getClass().getName()));
+        }
+
+        List<?> rows = refined instanceof RefinedTable ? ((RefinedTable) refined).getRows() : ((RefinedTree) refined)
+                        .getElements();
+        writeRows(response, refined, rows, isJson, limit);
+    }
+
+    private void writeRows(Response response, IStructuredResult result, List<?> rows, boolean isJson, int limit)
+    {
+        int count = limit > 0 ? Math.min(limit, rows.size()) : rows.size();
+        Column[] columns = result.getColumns();
+
+        StringBuilder buf = new StringBuilder();
+        if (!isJson)
+        {
+            for (int ii = 0; ii < columns.length; ii++)
+            {
+                if (ii > 0)
+                    buf.append(',');
+                csv(buf, columns[ii].getLabel());
+            }
+            response.line(buf.toString());
+        }
+
+        for (int row = 0; row < count; row++)
+        {
+            buf.setLength(0);
+            if (isJson)
+                buf.append('{');
+            for (int ii = 0; ii < columns.length; ii++)
+            {
+                Object value = result.getColumnValue(rows.get(row), ii);
+                if (value instanceof Bytes)
+                    value = ((Bytes) value).getValue();
+
+                if (ii > 0)
+                    buf.append(',');
+                if (isJson)
+                {
+                    json(buf, columns[ii].getLabel());
+                    buf.append(':');
+                    if (value == null)
+                        buf.append("null"); //$NON-NLS-1$
+                    else if (value instanceof Number || value instanceof Boolean)
+                        buf.append(value);
+                    else
+                        json(buf, String.valueOf(value));
+                }
+                else if (value != null)
+                {
+                    csv(buf, String.valueOf(value));
+                }
+            }
+            if (isJson)
+                buf.append('}');
+            response.line(buf.toString());
+        }
+    }
+
+    private static void csv(StringBuilder buf, String value)
+    {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0)
+        {
+            buf.append(value);
+            return;
+        }
+
+        buf.append('"');
+        for (int ii = 0; ii < value.length(); ii++)
+        {
+            char c = value.charAt(ii);
+            if (c == '"')
+                buf.append('"');
+            if (c == '\n')
+                buf.append(' ');
+            else
+                buf.append(c);
+        }
+        buf.append('"');
+    }
+
+    private static void json(StringBuilder buf, String value)
+    {
+        buf.append('"');
+        for (int ii = 0; ii < value.length(); ii++)
+        {
+            char c = value.charAt(ii);
+            switch (c)
+            {
+                case '"':
+                    buf.append("\\\""); //$NON-NLS-1$
+                    break;
+                case '\\':
+                    buf.append("\\\\"); //$NON-NLS-1$
+                    break;
+                case '\n':
+                    buf.append("\\n"); //$NON-NLS-1$
+                    break;
+                case '\r':
+                    buf.append("\\r"); //$NON-NLS-1$
+                    break;
+                case '\t':
+                    buf.append("\\t"); //$NON-NLS-1$
+                    break;
+                default:
+                    if (c < ' ')
+                        buf.append(String.format("\\u%04x", (int) c)); //$NON-NLS-1$
+                    else
+                        buf.append(c);
+            }
+        }
+        buf.append('"');
+    }
+
+    /**
+     * Collects the lines of a response, with a dot in front of lines starting
+     * with a dot, so that the single dot ending the response is unique. The
+     * lines are sent after OK, or dropped if the request fails.
+     */
+    private static class Response
+    {
+        private final Writer writer;
+        private final StringBuilder lines = new StringBuilder();
+
+        Response(Writer writer)
+        {
+            this.writer = writer;
+        }
+
+        void line(String line)
+        {
+            if (line.startsWith(".")) //$NON-NLS-1$
+                lines.append('.');
+            lines.append(line).append('\n');
+        }
+
+        void ok() throws IOException
+        {
+            writer.write("OK\n"); //$NON-NLS-1$
+            writer.append(lines);
+            end();
+        }
+
+        void error(Exception e) throws IOException
+        {
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+            writer.write("ERROR "); //$NON-NLS-1$
+            writer.write(message.replace('\n', ' ').replace('\r', ' '));
+            writer.write('\n');
+            end();
+        }
+
+        private void end() throws IOException
+        {
+            lines.setLength(0);
+            writer.write(".\n"); //$NON-NLS-1$
+            writer.flush();
+        }
+    }
+}
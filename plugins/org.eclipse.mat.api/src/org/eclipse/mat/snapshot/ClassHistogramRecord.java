@@ -10,6 +10,9 @@
  *******************************************************************************/
 package org.eclipse.mat.snapshot;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.util.IProgressListener;
 
@@ -113,6 +116,60 @@ public class ClassHistogramRecord extends HistogramRecord
         return retainedHeapSize;
     }
 
+    /**
+     * Find out the approximate retained sizes of many records in one go, which
+     * is much faster than record by record. Records which already know their
+     * retained size are left alone.
+     * @param snapshot the snapshot
+     * @param records the records, for example all the records of a histogram
+     * @param listener to report progress and errors
+     * @throws SnapshotException
+     * @see ISnapshot#getMinRetainedSizes(int[][], IProgressListener)
+     * @since 1.7
+     */
+    public static void calculateRetainedSizes(ISnapshot snapshot, List<? extends ClassHistogramRecord> records,
+                    IProgressListener listener) throws SnapshotException
+    {
+        List<ClassHistogramRecord> todo = new ArrayList<ClassHistogramRecord>(records.size());
+        for (ClassHistogramRecord record : records)
+        {
+            if (record.calculateRetainedSize(snapshot, false, true, listener) == 0)
+                todo.add(record);
+        }
+        if (todo.isEmpty())
+            return;
+
+        int[][] objectIdSets = new int[todo.size()][];
+        for (int ii = 0; ii < objectIdSets.length; ii++)
+            objectIdSets[ii] = todo.get(ii).getRetainedSizeObjectIds();
+
+        long[] retainedSizes = snapshot.getMinRetainedSizes(objectIdSets, listener);
+        for (int ii = 0; ii < retainedSizes.length; ii++)
+            todo.get(ii).retainedSizeCalculated(-retainedSizes[ii]);
+    }
+
+    /**
+     * Get the objects which together retain the retained size of this record.
+     * @return the object ids
+     * @throws SnapshotException
+     * @since 1.7
+     */
+    protected int[] getRetainedSizeObjectIds() throws SnapshotException
+    {
+        return objectIds;
+    }
+
+    /**
+     * Remember a retained size calculated together with the sizes of other
+     * records.
+     * @param retainedSize the retained size, negated if approximate
+     * @since 1.7
+     */
+    protected void retainedSizeCalculated(long retainedSize)
+    {
+        this.retainedHeapSize = retainedSize;
+    }
+
     @SuppressWarnings("nls")
     @Override
     public String toString()
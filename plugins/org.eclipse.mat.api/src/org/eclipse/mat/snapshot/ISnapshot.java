@@ -415,6 +415,25 @@ public interface ISnapshot
      */
     public long getMinRetainedSize(int[] objectIds, IProgressListener listener) throws SnapshotException;
 
+    /**
+     * Calculate the minimum retained sizes for many sets of objects at once.
+     * The result for each set is the same as from
+     * {@link #getMinRetainedSize(int[], IProgressListener)}, but the dominator
+     * tree is walked only once for all the sets and by several threads, so
+     * this is much faster than asking set by set, for example for the
+     * retained sizes of all the classes of a histogram.
+     * 
+     * @param objectIdSets
+     *            the sets of objects, which may overlap
+     * @param listener
+     *            progress listener informing about the current state of
+     *            execution
+     * @return the minimum retained size of each set, in the same order
+     * @throws SnapshotException
+     * @since 1.7
+     */
+    public long[] getMinRetainedSizes(int[][] objectIdSets, IProgressListener listener) throws SnapshotException;
+
     /**
      * Get objects the given object directly dominates, i.e. the objects which
      * are life-time dependent on the given object (not recursively, so just the
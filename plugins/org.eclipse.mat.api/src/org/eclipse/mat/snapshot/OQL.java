@@ -21,6 +21,36 @@ import org.eclipse.mat.util.MessageUtil;
  */
 public final class OQL
 {
+    /**
+     * System property which decides whether queries without a hint evaluate
+     * the WHERE clause of many objects on several threads. The default is
+     * <code>true</code>. A query can choose for itself with the hint
+     * <code>SELECT /*+ PARALLEL *&#47; ...</code>,
+     * <code>SELECT /*+ PARALLEL(4) *&#47; ...</code> or
+     * <code>SELECT /*+ NOPARALLEL *&#47; ...</code>.
+     * 
+     * @since 1.7
+     */
+    public static final String PARALLEL_PROPERTY = "oql_parallel"; //$NON-NLS-1$
+
+    /**
+     * System property with the number of objects from which queries without
+     * a hint evaluate them on several threads. The default is 10000. Queries
+     * with the hint <code>SELECT /*+ PARALLEL *&#47; ...</code> or
+     * <code>SELECT /*+ PARALLEL(4) *&#47; ...</code> always do.
+     * 
+     * @since 1.7
+     */
+    public static final String PARALLEL_THRESHOLD_PROPERTY = "oql_parallel_threshold"; //$NON-NLS-1$
+
+    /**
+     * System property with the number of objects of a class from which
+     * comparisons of its primitive fields with constants are evaluated on the
+     * stored field values instead of the objects. The default is 1000.
+     * 
+     * @since 1.7
+     */
+    public static final String FIELD_VALUES_THRESHOLD_PROPERTY = "oql_field_values_threshold"; //$NON-NLS-1$
 
     /**
      * Select object by its address.
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.snapshot;
+
+import java.io.Serializable;
+
+/**
+ * Measurements of one phase of parsing a heap dump. The phases of a snapshot
+ * are stored as an array in the property {@link #PROPERTY} of its
+ * {@link SnapshotInfo}. Measurements which are not available are -1.
+ *
+ * @since 1.7
+ */
+public final class PhaseStatistics implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The name of the snapshot property with the phases, a
+     * <code>PhaseStatistics[]</code>.
+     */
+    public static final String PROPERTY = "$phaseStatistics"; //$NON-NLS-1$
+
+    /** Reading the heap dump and writing the preliminary indexes. */
+    public static final String PARSE = "parse"; //$NON-NLS-1$
+    /** Removing the unreachable objects and writing the final indexes. */
+    public static final String GARBAGE_CLEANER = "garbage_cleaner"; //$NON-NLS-1$
+    /** Calculating the dominator tree and the retained sizes. */
+    public static final String DOMINATOR_TREE = "dominator_tree"; //$NON-NLS-1$
+
+    private final String name;
+    private final long wallTime;
+    private final long cpuTime;
+    private final long bytesRead;
+    private final long bytesWritten;
+    private final long peakHeap;
+    private final long objects;
+    private final long references;
+
+    public PhaseStatistics(String name, long wallTime, long cpuTime, long bytesRead, long bytesWritten,
+                    long peakHeap, long objects, long references)
+    {
+        this.name = name;
+        this.wallTime = wallTime;
+        this.cpuTime = cpuTime;
+        this.bytesRead = bytesRead;
+        this.bytesWritten = bytesWritten;
+        this.peakHeap = peakHeap;
+        this.objects = objects;
+        this.references = references;
+    }
+
+    /**
+     * @return the name of the phase, for example {@link #PARSE}
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return the elapsed time in milliseconds
+     */
+    public long getWallTime()
+    {
+        return wallTime;
+    }
+
+    /**
+     * @return the CPU time of the process in milliseconds, of all threads
+     *         working in parallel
+     */
+    public long getCpuTime()
+    {
+        return cpuTime;
+    }
+
+    /**
+     * @return the bytes read from the heap dump and from index files
+     */
+    public long getBytesRead()
+    {
+        return bytesRead;
+    }
+
+    /**
+     * @return the bytes written to index files, including temporary ones
+     */
+    public long getBytesWritten()
+    {
+        return bytesWritten;
+    }
+
+    /**
+     * @return the largest used heap sampled during the phase in bytes
+     */
+    public long getPeakHeap()
+    {
+        return peakHeap;
+    }
+
+    /**
+     * @return the number of objects processed
+     */
+    public long getObjects()
+    {
+        return objects;
+    }
+
+    /**
+     * @return the number of references processed
+     */
+    public long getReferences()
+    {
+        return references;
+    }
+
+    @Override
+    public String toString()
+    {
+        return name + " (wall time=" + wallTime + " ms, cpu time=" + cpuTime + " ms, bytes read=" + bytesRead //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                        + ", bytes written=" + bytesWritten + ", peak heap=" + peakHeap + ", objects=" + objects //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                        + ", references=" + references + ")"; //$NON-NLS-1$ //$NON-NLS-2$
+    }
+}
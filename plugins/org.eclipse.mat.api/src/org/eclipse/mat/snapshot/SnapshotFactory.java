@@ -33,6 +33,17 @@ import org.eclipse.mat.util.IProgressListener;
  */
 public final class SnapshotFactory
 {
+    /**
+     * System property with the number of snapshots to keep open after their
+     * last user disposed them, so that opening them again is immediate. The
+     * longest idle ones are disposed first when there are more or when the
+     * used heap exceeds three quarters of the maximum heap. The default is 0,
+     * snapshots are disposed as soon as nobody uses them.
+     * 
+     * @since 1.7
+     */
+    public static final String IDLE_SNAPSHOTS_PROPERTY = "mat_idle_snapshots"; //$NON-NLS-1$
+
     /**
      * Describes the snapshot factory implementation.
      * Implemented in the parser plugin.
@@ -68,6 +79,16 @@ public final class SnapshotFactory
          */
         IOQLQuery createQuery(String queryString) throws OQLParseException, SnapshotException;
 
+        /**
+         * Reads the class histogram of a dump without parsing it into a snapshot
+         * @param file the dump file
+         * @param listener to show progress and errors
+         * @return the histogram of all objects in the dump
+         * @throws SnapshotException if no parser of the dump supports it
+         * @since 1.7
+         */
+        Histogram getHistogram(File file, IProgressListener listener) throws SnapshotException;
+
         /**
          * Show which parsers the factory handles
          * @return a list of snapshot types
@@ -173,6 +194,29 @@ public final class SnapshotFactory
         return factory.createQuery(queryString);
     }
 
+    /**
+     * Read the class histogram of a dump in one pass, without building the
+     * indexes of a snapshot. This is much faster than opening the snapshot,
+     * but the histogram also counts the objects which are not reachable, and
+     * it offers no access to the objects themselves. Only some parsers
+     * support it, for example the HPROF parser.
+     * 
+     * @param file
+     *            the dump file
+     * @param listener
+     *            progress listener informing about the current state of
+     *            execution
+     * @return the histogram of all objects in the dump
+     * @throws SnapshotException
+     *             if the dump cannot be read or its parser does not support
+     *             reading the histogram alone
+     * @since 1.7
+     */
+    public static Histogram getHistogram(File file, IProgressListener listener) throws SnapshotException
+    {
+        return factory.getHistogram(file, listener);
+    }
+
     /**
      * Get the types of the parsers.
      * @return list of formats that the parsers can understand
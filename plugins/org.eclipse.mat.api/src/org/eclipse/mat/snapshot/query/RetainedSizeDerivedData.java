@@ -12,8 +12,10 @@ package org.eclipse.mat.snapshot.query;
 
 import java.text.FieldPosition;
 import java.text.ParsePosition;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -25,6 +27,7 @@ import org.eclipse.mat.query.Bytes;
 import org.eclipse.mat.query.BytesFormat;
 import org.eclipse.mat.query.Column;
 import org.eclipse.mat.query.ContextDerivedData;
+import org.eclipse.mat.query.ContextDerivedData.DerivedBatchCalculator;
 import org.eclipse.mat.query.ContextProvider;
 import org.eclipse.mat.query.IContextObject;
 import org.eclipse.mat.query.IContextObjectSet;
@@ -126,7 +129,17 @@ public class RetainedSizeDerivedData extends ContextDerivedData
         return column;
     }
 
-    private static class DerivedCalculatorImpl implements DerivedCalculator
+    /**
+     * Whether walking the whole dominator tree once is likely to be quicker
+     * than walking up from each object. The walk up from one object is
+     * guessed to cost as much as visiting 16 objects of the tree.
+     */
+    private static boolean worthBatching(ISnapshot snapshot, int sets, long objects)
+    {
+        return sets > 1 && objects * 16 >= snapshot.getSnapshotInfo().getNumberOfObjects();
+    }
+
+    private static class DerivedCalculatorImpl implements DerivedBatchCalculator
     {
         protected final ISnapshot snapshot;
         protected final ContextProvider provider;
@@ -152,6 +165,45 @@ public class RetainedSizeDerivedData extends ContextDerivedData
             }
         }
 
+        public boolean calculate(DerivedOperation operation, List<?> rows, IProgressListener listener)
+                        throws SnapshotException
+        {
+            // only the approximation can be shared between rows
+            if (operation != APPROXIMATE)
+                return false;
+
+            List<Object> todo = new ArrayList<Object>();
+            List<int[]> objectIdSets = new ArrayList<int[]>();
+            long objects = 0;
+            for (Object row : rows)
+            {
+                if (lookup(row) != null)
+                    continue;
+
+                IContextObject contextObject = provider.getContext(row);
+                if (!(contextObject instanceof IContextObjectSet))
+                    continue;
+
+                // single objects are quick anyway and bad ones are reported row by row
+                int[] objectIds = ((IContextObjectSet) contextObject).getObjectIds();
+                if (objectIds == null || objectIds.length < 2)
+                    continue;
+
+                todo.add(row);
+                objectIdSets.add(objectIds);
+                objects += objectIds.length;
+            }
+
+            if (!worthBatching(snapshot, todo.size(), objects))
+                return false;
+
+            long[] retainedSizes = snapshot.getMinRetainedSizes(objectIdSets.toArray(new int[objectIdSets.size()][]),
+                            listener);
+            for (int ii = 0; ii < retainedSizes.length; ii++)
+                values.put(todo.get(ii), -retainedSizes[ii]);
+            return true;
+        }
+
         public void calculate(DerivedOperation operation, Object row, IProgressListener listener)
                         throws SnapshotException
         {
@@ -315,6 +367,42 @@ public class RetainedSizeDerivedData extends ContextDerivedData
             }
         }
 
+        @Override
+        public boolean calculate(DerivedOperation operation, List<?> rows, IProgressListener listener)
+                        throws SnapshotException
+        {
+            if (operation != APPROXIMATE)
+                return false;
+
+            List<ClassHistogramRecord> records = new ArrayList<ClassHistogramRecord>();
+            List<Object> others = new ArrayList<Object>();
+            long objects = 0;
+            for (Object row : rows)
+            {
+                if (row instanceof ClassHistogramRecord)
+                {
+                    ClassHistogramRecord record = (ClassHistogramRecord) row;
+                    if (record.getRetainedHeapSize() == 0)
+                    {
+                        records.add(record);
+                        objects += record.getNumberOfObjects();
+                    }
+                }
+                else if (!(row instanceof ClassLoaderHistogramRecord))
+                {
+                    others.add(row);
+                }
+            }
+
+            // any other rows are left to be done one by one
+            if (worthBatching(snapshot, records.size(), objects))
+            {
+                ClassHistogramRecord.calculateRetainedSizes(snapshot, records, listener);
+                return true;
+            }
+            return super.calculate(operation, others, listener);
+        }
+
         @Override
         public void calculate(DerivedOperation operation, Object row, IProgressListener listener)
                         throws SnapshotException
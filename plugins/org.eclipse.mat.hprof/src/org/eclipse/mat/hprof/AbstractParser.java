@@ -11,10 +11,17 @@
  *******************************************************************************/
 package org.eclipse.mat.hprof;
 
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.zip.GZIPInputStream;
 
 import org.eclipse.mat.hprof.ui.HprofPreferences;
+import org.eclipse.mat.parser.io.GZIPIndex;
+import org.eclipse.mat.parser.io.MappedRandomAccessInputStream;
 import org.eclipse.mat.parser.io.PositionInputStream;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.model.IObject;
@@ -101,12 +108,69 @@ import org.eclipse.mat.util.SimpleMonitor.Listener;
     // The size of identifiers in the dump file
     protected int idSize;
     protected final HprofPreferences.HprofStrictness strictnessPreference;
+    // Checkpoints of a gzip compressed dump, null if the dump is not compressed
+    protected GZIPIndex gzipIndex;
 
     /* package */AbstractParser(HprofPreferences.HprofStrictness strictnessPreference)
     {
         this.strictnessPreference = strictnessPreference;
     }
 
+    /**
+     * Maps the dump into memory if enabled by the preferences.
+     * 
+     * @return the mapped file or null if mapping is disabled or failed, for
+     *         example for lack of address space on a 32-bit VM
+     */
+    /* package */static MappedRandomAccessInputStream mapFile(File file)
+    {
+        if (!HprofPreferences.useMemoryMappedIO())
+            return null;
+
+        try
+        {
+            return new MappedRandomAccessInputStream(new RandomAccessFile(file, "r")); //$NON-NLS-1$
+        }
+        catch (IOException e)
+        {
+            // fall back to buffered reads
+            return null;
+        }
+    }
+
+    /* package */InputStream openSequential(File file) throws IOException
+    {
+        if (gzipIndex != null)
+            return new BufferedInputStream(new GZIPInputStream(new FileInputStream(file), 64 * 1024), 64 * 1024);
+
+        InputStream mapped = mapFile(file);
+        return mapped != null ? mapped : new BufferedInputStream(new FileInputStream(file));
+    }
+
+    /**
+     * The length of the uncompressed dump.
+     */
+    /* package */long streamLength(File file)
+    {
+        return gzipIndex != null ? gzipIndex.length() : file.length();
+    }
+
+    /**
+     * Reads a gzip compressed dump, using the checkpoints for random access.
+     */
+    /* package */void setGZIPIndex(GZIPIndex gzipIndex)
+    {
+        this.gzipIndex = gzipIndex;
+    }
+
+    /**
+     * The file holding the checkpoints of a gzip compressed dump.
+     */
+    /* package */static File gzipIndexFile(String prefix)
+    {
+        return new File(prefix + "gzip.index"); //$NON-NLS-1$
+    }
+
     /* protected */static Version readVersion(InputStream in) throws IOException
     {
         StringBuilder version = new StringBuilder();
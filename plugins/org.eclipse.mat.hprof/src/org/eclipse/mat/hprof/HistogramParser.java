@@ -0,0 +1,723 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.hprof;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.HashMapIntLong;
+import org.eclipse.mat.collect.HashMapLongObject;
+import org.eclipse.mat.collect.SetLong;
+import org.eclipse.mat.hprof.ui.HprofPreferences;
+import org.eclipse.mat.parser.io.GZIPIndex;
+import org.eclipse.mat.parser.io.PositionInputStream;
+import org.eclipse.mat.snapshot.ClassHistogramRecord;
+import org.eclipse.mat.snapshot.ClassLoaderHistogramRecord;
+import org.eclipse.mat.snapshot.Histogram;
+import org.eclipse.mat.snapshot.HistogramRecord;
+import org.eclipse.mat.snapshot.model.IClass;
+import org.eclipse.mat.snapshot.model.IObject;
+import org.eclipse.mat.snapshot.model.IPrimitiveArray;
+import org.eclipse.mat.util.IProgressListener;
+import org.eclipse.mat.util.IProgressListener.Severity;
+import org.eclipse.mat.util.MessageUtil;
+import org.eclipse.mat.util.SimpleMonitor;
+
+/**
+ * Counts the objects per class in one pass over the dump, without keeping
+ * anything per object. The shallow sizes are calculated at the end with the
+ * {@link ObjectSizes} of {@link HprofParserHandlerImpl}, because the reference
+ * size and the object alignment are only known once all objects have been
+ * seen.
+ */
+public class HistogramParser extends AbstractParser
+{
+    /**
+     * The arrays are counted per length, so that the sizes can be aligned once
+     * the object alignment is known. Lengths below this are counted in an
+     * array, longer ones, which are rarer, in a map.
+     */
+    private static final int SHORT_LENGTHS = 256;
+    private static final String SYSTEM_CLASS_LOADER = "<system class loader>"; //$NON-NLS-1$
+
+    private static class ClassRecord
+    {
+        String name;
+        long superClassAddress;
+        long classLoaderAddress;
+        int referenceFields;
+        int primitiveFieldsSize;
+        int staticReferences;
+        int staticPrimitivesSize;
+    }
+
+    private static class Counter
+    {
+        long count;
+        long[] shortLengths;
+        HashMapIntLong longLengths;
+        int payload = Integer.MAX_VALUE;
+    }
+
+    private SimpleMonitor.Listener monitor;
+    private HashMapLongObject<String> constantPool = new HashMapLongObject<String>(10000);
+    private HashMapLongObject<String> class2name = new HashMapLongObject<String>();
+    private HashMapLongObject<ClassRecord> classes = new HashMapLongObject<ClassRecord>();
+    private HashMapLongObject<Counter> instances = new HashMapLongObject<Counter>();
+    private Counter[] primitiveArrays = new Counter[IPrimitiveArray.TYPE.length];
+    private SetLong classLoaders = new SetLong();
+    private SetLong classLoaderClasses = new SetLong();
+    private SetLong otherClasses = new SetLong();
+    private HashMapLongObject<Long> classLoaderTypes = new HashMapLongObject<Long>();
+
+    private int refSize;
+    private long firstAddress;
+    private long align;
+    private long previousArrayStart;
+    private long previousArrayUncompressedEnd;
+    private boolean foundCompressed;
+
+    public HistogramParser(SimpleMonitor.Listener monitor, HprofPreferences.HprofStrictness strictnessPreference)
+    {
+        super(strictnessPreference);
+        this.monitor = monitor;
+    }
+
+    public void read(File file, String dumpNrToRead) throws SnapshotException, IOException
+    {
+        // the dump is read once, so compressed dumps need no checkpoints
+        boolean compressed = GZIPIndex.isGZIP(file);
+        FileInputStream compressedIn = null;
+        InputStream stream;
+        if (compressed)
+        {
+            compressedIn = new FileInputStream(file);
+            stream = new BufferedInputStream(new GZIPInputStream(compressedIn, 64 * 1024), 64 * 1024);
+        }
+        else
+        {
+            stream = openSequential(file);
+        }
+        in = new PositionInputStream(stream);
+
+        try
+        {
+            version = readVersion(in);
+
+            idSize = in.readInt();
+            if (idSize != 4 && idSize != 8)
+                throw new SnapshotException(Messages.Pass1Parser_Error_SupportedDumps);
+            refSize = idSize;
+
+            in.readLong(); // creation date
+
+            // the length of a compressed dump is only known at its end
+            long fileSize = compressed ? Long.MAX_VALUE : file.length();
+            int currentDumpNr = 0;
+            boolean foundDump = false;
+
+            long curPos = in.position();
+            while (curPos < fileSize)
+            {
+                if (monitor.isProbablyCanceled())
+                    throw new IProgressListener.OperationCanceledException();
+                monitor.totalWorkDone((compressed ? compressedIn.getChannel().position() : curPos) / 1000);
+
+                int record = in.read();
+                if (record < 0)
+                    break;
+
+                in.skipBytes(4); // time stamp
+                long length = readUnsignedInt();
+                if (!compressed)
+                    length = updateLengthIfNecessary(fileSize, curPos, record, length, monitor);
+
+                if (length < 0 || (!compressed && curPos + length - 9 > fileSize
+                                && strictnessPreference == HprofPreferences.HprofStrictness.STRICTNESS_STOP))
+                    throw new SnapshotException(MessageUtil.format(Messages.Pass1Parser_Error_IllegalRecordLength,
+                                    length, in.position(), record));
+
+                switch (record)
+                {
+                    case Constants.Record.STRING_IN_UTF8:
+                        readString(length);
+                        break;
+                    case Constants.Record.LOAD_CLASS:
+                        readLoadClass();
+                        break;
+                    case Constants.Record.HEAP_DUMP:
+                    case Constants.Record.HEAP_DUMP_SEGMENT:
+                        if (dumpMatches(currentDumpNr, dumpNrToRead))
+                        {
+                            foundDump = true;
+                            readDumpSegments(length, compressed ? compressedIn : null);
+                        }
+                        else
+                        {
+                            in.skipBytes(length);
+                        }
+
+                        if (record == Constants.Record.HEAP_DUMP)
+                            currentDumpNr++;
+                        break;
+                    case Constants.Record.HEAP_DUMP_END:
+                        currentDumpNr++;
+                        in.skipBytes(length);
+                        break;
+                    default:
+                        // stack traces, threads and alike do not matter here
+                        in.skipBytes(length);
+                        break;
+                }
+
+                curPos = in.position();
+            }
+
+            if (!foundDump)
+                throw new SnapshotException(MessageUtil.format(Messages.Pass1Parser_Error_NoHeapDumpIndexFound,
+                                currentDumpNr, file.getName(), dumpNrToRead));
+        }
+        finally
+        {
+            try
+            {
+                in.close();
+            }
+            catch (IOException ignore)
+            {}
+        }
+    }
+
+    private void readString(long length) throws IOException
+    {
+        long id = readID();
+        byte[] chars = new byte[(int) (length - idSize)];
+        in.readFully(chars);
+        constantPool.put(id, new String(chars, "UTF-8")); //$NON-NLS-1$
+    }
+
+    private void readLoadClass() throws IOException
+    {
+        in.skipBytes(4); // class serial number
+        long classID = readID();
+        in.skipBytes(4); // stack trace serial number
+        long nameID = readID();
+
+        String className = constantPool.get(nameID);
+        if (className != null)
+            class2name.put(classID, className.replace('/', '.'));
+    }
+
+    private void readDumpSegments(long length, FileInputStream compressedIn) throws IOException, SnapshotException
+    {
+        long segmentStartPos = in.position();
+        long segmentsEndPos = segmentStartPos + length;
+        long nextCheck = segmentStartPos;
+
+        while (segmentStartPos < segmentsEndPos)
+        {
+            if (segmentStartPos >= nextCheck)
+            {
+                if (monitor.isProbablyCanceled())
+                    throw new IProgressListener.OperationCanceledException();
+                monitor.totalWorkDone((compressedIn != null ? compressedIn.getChannel().position() : segmentStartPos) / 1000);
+                nextCheck = segmentStartPos + 1024 * 1024;
+            }
+
+            int segmentType = in.readUnsignedByte();
+            switch (segmentType)
+            {
+                case Constants.DumpSegment.ROOT_UNKNOWN:
+                case Constants.DumpSegment.ROOT_STICKY_CLASS:
+                case Constants.DumpSegment.ROOT_MONITOR_USED:
+                    in.skipBytes(idSize);
+                    break;
+                case Constants.DumpSegment.ROOT_JNI_GLOBAL:
+                    in.skipBytes(idSize * 2);
+                    break;
+                case Constants.DumpSegment.ROOT_NATIVE_STACK:
+                case Constants.DumpSegment.ROOT_THREAD_BLOCK:
+                    in.skipBytes(idSize + 4);
+                    break;
+                case Constants.DumpSegment.ROOT_THREAD_OBJECT:
+                case Constants.DumpSegment.ROOT_JNI_LOCAL:
+                case Constants.DumpSegment.ROOT_JAVA_FRAME:
+                    in.skipBytes(idSize + 8);
+                    break;
+                case Constants.DumpSegment.CLASS_DUMP:
+                    readClassDump();
+                    break;
+                case Constants.DumpSegment.INSTANCE_DUMP:
+                    readInstanceDump();
+                    break;
+                case Constants.DumpSegment.OBJECT_ARRAY_DUMP:
+                    readObjectArrayDump();
+                    break;
+                case Constants.DumpSegment.PRIMITIVE_ARRAY_DUMP:
+                    readPrimitiveArrayDump();
+                    break;
+                default:
+                    throw new SnapshotException(MessageUtil.format(Messages.Pass1Parser_Error_InvalidHeapDumpFile,
+                                    segmentType, segmentStartPos));
+            }
+
+            segmentStartPos = in.position();
+        }
+
+        if (segmentStartPos != segmentsEndPos)
+        {
+            String message = MessageUtil.format(Messages.Pass1Parser_UnexpectedEndPosition, Long
+                            .toHexString(segmentsEndPos - length), length, Long.toHexString(segmentStartPos), Long
+                            .toHexString(segmentsEndPos));
+            if (strictnessPreference == HprofPreferences.HprofStrictness.STRICTNESS_STOP)
+                throw new SnapshotException(Messages.HPROFStrictness_Stopped, new SnapshotException(message));
+            monitor.sendUserMessage(Severity.WARNING, message, null);
+        }
+    }
+
+    private void readClassDump() throws IOException
+    {
+        long address = readID();
+        in.skipBytes(4); // stack trace serial number
+        ClassRecord clazz = new ClassRecord();
+        clazz.superClassAddress = readID();
+        clazz.classLoaderAddress = readID();
+
+        // skip signers, protection domain, reserved ids (2), instance size
+        in.skipBytes(this.idSize * 4 + 4);
+
+        // constant pool: u2 ( u2 u1 value )*
+        int constantPoolSize = in.readUnsignedShort();
+        for (int ii = 0; ii < constantPoolSize; ii++)
+        {
+            in.skipBytes(2); // index
+            skipValue(); // value
+        }
+
+        // static fields: u2 num ( name ID, u1 type, value)
+        int numStaticFields = in.readUnsignedShort();
+        for (int ii = 0; ii < numStaticFields; ii++)
+        {
+            in.skipBytes(idSize);
+            byte type = in.readByte();
+            skipValue(type);
+
+            if (type == IObject.Type.OBJECT)
+                clazz.staticReferences++;
+            else
+                clazz.staticPrimitivesSize += IPrimitiveArray.ELEMENT_SIZE[type];
+        }
+
+        // instance fields: u2 num ( name ID, u1 type )
+        int numInstanceFields = in.readUnsignedShort();
+        for (int ii = 0; ii < numInstanceFields; ii++)
+        {
+            in.skipBytes(idSize);
+            byte type = in.readByte();
+
+            if (type == IObject.Type.OBJECT)
+                clazz.referenceFields++;
+            else
+                clazz.primitiveFieldsSize += IPrimitiveArray.ELEMENT_SIZE[type];
+        }
+
+        String className = class2name.get(address);
+        if (className == null)
+            className = "unknown-name@0x" + Long.toHexString(address); //$NON-NLS-1$
+        clazz.name = Pass1Parser.fixArrayClassName(className);
+
+        classes.put(address, clazz);
+        if (clazz.classLoaderAddress != 0)
+            classLoaders.add(clazz.classLoaderAddress);
+        reportAddress(address);
+    }
+
+    private void readInstanceDump() throws IOException
+    {
+        long address = readID();
+        in.skipBytes(4);
+        long classID = readID();
+        int payload = in.readInt();
+
+        Counter counter = counter(classID);
+        counter.count++;
+        // the size of the fake class if the class is missing
+        counter.payload = Math.min(counter.payload, payload);
+
+        // the class dumps referring to a loader may come after the loader,
+        // so keep the type of all objects which might be loaders, usually
+        // the classes come first and these are the loaders only
+        if (classLoaders.contains(address) || mayBeClassLoader(classID))
+            classLoaderTypes.put(address, classID);
+        reportAddress(address);
+
+        in.skipBytes(payload);
+    }
+
+    private void readObjectArrayDump() throws IOException
+    {
+        long address = readID();
+        if (!foundCompressed && idSize == 8 && address > previousArrayStart && address < previousArrayUncompressedEnd)
+        {
+            monitor.sendUserMessage(Severity.INFO, MessageUtil.format(Messages.Pass1Parser_DetectedCompressedReferences,
+                            Long.toHexString(address), Long.toHexString(previousArrayStart)), null);
+            refSize = 4;
+            foundCompressed = true;
+        }
+
+        in.skipBytes(4);
+        int size = in.readInt();
+        long arrayClassObjectID = readID();
+
+        countArray(counter(arrayClassObjectID), size);
+        reportAddress(address);
+
+        in.skipBytes((long) size * idSize);
+        previousArrayStart = address;
+        previousArrayUncompressedEnd = address + 16 + (long) size * 8;
+    }
+
+    private void readPrimitiveArrayDump() throws SnapshotException, IOException
+    {
+        long address = readID();
+        in.skipBytes(4);
+        int size = in.readInt();
+        byte elementType = in.readByte();
+
+        if ((elementType < IPrimitiveArray.Type.BOOLEAN) || (elementType > IPrimitiveArray.Type.LONG))
+            throw new SnapshotException(Messages.Pass1Parser_Error_IllegalType);
+
+        Counter counter = primitiveArrays[elementType];
+        if (counter == null)
+            counter = primitiveArrays[elementType] = new Counter();
+        countArray(counter, size);
+        reportAddress(address);
+
+        in.skipBytes((long) IPrimitiveArray.ELEMENT_SIZE[elementType] * size);
+    }
+
+    /**
+     * @return false if the class is known not to extend
+     *         <code>java.lang.ClassLoader</code>, true if it does or if its
+     *         class dump or one of its superclasses has not been read yet
+     */
+    private boolean mayBeClassLoader(long classID)
+    {
+        if (classLoaderClasses.contains(classID))
+            return true;
+        if (otherClasses.contains(classID))
+            return false;
+
+        for (long address = classID; address != 0;)
+        {
+            ClassRecord clazz = classes.get(address);
+            if (clazz == null)
+                return true;
+            if (IClass.JAVA_LANG_CLASSLOADER.equals(clazz.name) || classLoaderClasses.contains(address))
+            {
+                classLoaderClasses.add(classID);
+                return true;
+            }
+            if (otherClasses.contains(address))
+                break;
+            address = clazz.superClassAddress;
+        }
+        otherClasses.add(classID);
+        return false;
+    }
+
+    private Counter counter(long classID)
+    {
+        Counter counter = instances.get(classID);
+        if (counter == null)
+            instances.put(classID, counter = new Counter());
+        return counter;
+    }
+
+    private static void countArray(Counter counter, int length)
+    {
+        if (counter.shortLengths == null)
+            counter.shortLengths = new long[SHORT_LENGTHS];
+        counter.count++;
+        if (length < SHORT_LENGTHS)
+        {
+            counter.shortLengths[length]++;
+        }
+        else
+        {
+            if (counter.longLengths == null)
+                counter.longLengths = new HashMapIntLong();
+            long n = counter.longLengths.containsKey(length) ? counter.longLengths.get(length) : 0;
+            counter.longLengths.put(length, n + 1);
+        }
+    }
+
+    /**
+     * The object alignment is the greatest common divisor of the distances
+     * between objects, as in {@link HprofParserHandlerImpl}.
+     */
+    private void reportAddress(long address)
+    {
+        if (address == 0 || ObjectSizes.isMinimumAlignment(align))
+            return;
+
+        if (firstAddress == 0)
+        {
+            firstAddress = address;
+            return;
+        }
+
+        align = ObjectSizes.gcd(Math.abs(address - firstAddress), align);
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // histogram
+    // //////////////////////////////////////////////////////////////
+
+    /**
+     * Calculates the histogram from the objects counted while reading the
+     * dump.
+     */
+    public Histogram getHistogram(String label)
+    {
+        ObjectSizes sizes = new ObjectSizes(idSize, refSize, align);
+
+        Map<Long, List<ClassHistogramRecord>> recordsByLoader = new HashMap<Long, List<ClassHistogramRecord>>();
+        ArrayList<ClassHistogramRecord> records = new ArrayList<ClassHistogramRecord>();
+        long numberOfClasses = 0;
+        long classesHeapSize = 0;
+        long numberOfObjects = 0;
+        long usedHeapSize = 0;
+        ClassHistogramRecord javaLangClass = null;
+        ClassHistogramRecord javaLangClassLoader = null;
+        int javaLangClassLoaderSize = 0;
+        boolean[] primitiveArrayCounted = new boolean[primitiveArrays.length];
+
+        for (Iterator<HashMapLongObject.Entry<ClassRecord>> it = classes.entries(); it.hasNext();)
+        {
+            HashMapLongObject.Entry<ClassRecord> entry = it.next();
+            ClassRecord clazz = entry.getValue();
+
+            Counter counter = instances.remove(entry.getKey());
+            long count = 0;
+            long size = 0;
+            if (clazz.name.endsWith("[]")) //$NON-NLS-1$
+            {
+                int elementType = primitiveType(clazz.name);
+                if (elementType >= 0 && !primitiveArrayCounted[elementType])
+                {
+                    // the primitive arrays of the dump refer to no class
+                    primitiveArrayCounted[elementType] = true;
+                    counter = primitiveArrays[elementType];
+                    size = arraysSize(counter, elementType, sizes);
+                }
+                else
+                {
+                    size = arraysSize(counter, IObject.Type.OBJECT, sizes);
+                }
+            }
+            else
+            {
+                int instanceSize = sizes.align(instanceSize(clazz, sizes));
+                if (counter != null)
+                    size = counter.count * instanceSize;
+                if (IClass.JAVA_LANG_CLASSLOADER.equals(clazz.name))
+                    javaLangClassLoaderSize = instanceSize;
+            }
+            if (counter != null)
+                count = counter.count;
+
+            ClassHistogramRecord record = new ClassHistogramRecord(clazz.name, -1, count, size, 0);
+            add(record, clazz.classLoaderAddress, records, recordsByLoader);
+            if (IClass.JAVA_LANG_CLASS.equals(clazz.name))
+                javaLangClass = record;
+            else if (IClass.JAVA_LANG_CLASSLOADER.equals(clazz.name))
+                javaLangClassLoader = record;
+
+            numberOfClasses++;
+            classesHeapSize += sizes.align(clazz.staticReferences * sizes.fieldSize(IObject.Type.OBJECT)
+                            + clazz.staticPrimitivesSize);
+            numberOfObjects += count;
+            usedHeapSize += size;
+        }
+
+        // objects of classes missing in the dump get fake classes, as when
+        // parsing the dump
+        int fakeClasses = 0;
+        for (Iterator<HashMapLongObject.Entry<Counter>> it = instances.entries(); it.hasNext();)
+        {
+            Counter counter = it.next().getValue();
+            long size;
+            String name = "unknown-class-" + fakeClasses++; //$NON-NLS-1$
+            if (counter.shortLengths != null)
+            {
+                name += "[]"; //$NON-NLS-1$
+                size = arraysSize(counter, IObject.Type.OBJECT, sizes);
+            }
+            else
+            {
+                size = counter.count * sizes.align(sizes.fieldsSize(counter.payload, sizes.headerSize()));
+            }
+
+            add(new ClassHistogramRecord(name, -1, counter.count, size, 0), 0, records, recordsByLoader);
+            numberOfClasses++;
+            numberOfObjects += counter.count;
+            usedHeapSize += size;
+        }
+        for (int ii = 0; ii < primitiveArrays.length; ii++)
+        {
+            if (primitiveArrays[ii] == null || primitiveArrayCounted[ii])
+                continue;
+
+            Counter counter = primitiveArrays[ii];
+            long size = arraysSize(counter, ii, sizes);
+            add(new ClassHistogramRecord(IPrimitiveArray.TYPE[ii], -1, counter.count, size, 0), 0, records,
+                            recordsByLoader);
+            numberOfClasses++;
+            numberOfObjects += counter.count;
+            usedHeapSize += size;
+        }
+
+        // the classes are objects too, and the parser adds an object for the
+        // system class loader
+        if (javaLangClass != null)
+        {
+            javaLangClass.incNumberOfObjects(numberOfClasses);
+            javaLangClass.incUsedHeapSize(classesHeapSize);
+            numberOfObjects += numberOfClasses;
+            usedHeapSize += classesHeapSize;
+        }
+        if (javaLangClassLoader != null)
+        {
+            javaLangClassLoader.incNumberOfObjects(1);
+            javaLangClassLoader.incUsedHeapSize(javaLangClassLoaderSize);
+            numberOfObjects++;
+            usedHeapSize += javaLangClassLoaderSize;
+        }
+
+        Collections.sort(records, Collections.reverseOrder(HistogramRecord.COMPARATOR_FOR_USEDHEAPSIZE));
+
+        ArrayList<ClassLoaderHistogramRecord> loaderRecords = new ArrayList<ClassLoaderHistogramRecord>();
+        for (Map.Entry<Long, List<ClassHistogramRecord>> entry : recordsByLoader.entrySet())
+        {
+            long loaderObjects = 0;
+            long loaderHeapSize = 0;
+            for (ClassHistogramRecord record : entry.getValue())
+            {
+                loaderObjects += record.getNumberOfObjects();
+                loaderHeapSize += record.getUsedHeapSize();
+            }
+            loaderRecords.add(new ClassLoaderHistogramRecord(classLoaderLabel(entry.getKey()), -1,
+                            new ArrayList<ClassHistogramRecord>(entry.getValue()), loaderObjects, loaderHeapSize, 0));
+        }
+
+        return new Histogram(label, records, loaderRecords, numberOfObjects, usedHeapSize, 0);
+    }
+
+    private void add(ClassHistogramRecord record, long classLoaderAddress, List<ClassHistogramRecord> records,
+                    Map<Long, List<ClassHistogramRecord>> recordsByLoader)
+    {
+        // as when parsing, loaders without an object are the system class
+        // loader
+        if (!classLoaderTypes.containsKey(classLoaderAddress))
+            classLoaderAddress = 0;
+
+        List<ClassHistogramRecord> list = recordsByLoader.get(classLoaderAddress);
+        if (list == null)
+            recordsByLoader.put(classLoaderAddress, list = new ArrayList<ClassHistogramRecord>());
+        list.add(record);
+        records.add(record);
+    }
+
+    private String classLoaderLabel(long address)
+    {
+        if (address == 0)
+            return SYSTEM_CLASS_LOADER;
+
+        ClassRecord type = classes.get(classLoaderTypes.get(address));
+        String typeName = type != null ? type.name : IClass.JAVA_LANG_CLASSLOADER;
+        return typeName + " @ 0x" + Long.toHexString(address); //$NON-NLS-1$
+    }
+
+    /**
+     * @return the instance size not aligned to the object alignment
+     */
+    private int instanceSize(ClassRecord clazz, ObjectSizes sizes)
+    {
+        if (clazz.superClassAddress == 0)
+            return sizes.headerSize();
+
+        ClassRecord superClass = classes.get(clazz.superClassAddress);
+        // a missing superclass gets a fake class without fields
+        int superSize = superClass != null ? instanceSize(superClass, sizes) : sizes.fieldsSize(0, sizes
+                        .headerSize());
+
+        return sizes.fieldsSize(clazz.referenceFields * sizes.fieldSize(IObject.Type.OBJECT)
+                        + clazz.primitiveFieldsSize, superSize);
+    }
+
+    /**
+     * The sum of the sizes of all arrays counted.
+     *
+     * @param type
+     *            {@link IObject.Type#OBJECT} for object arrays, else the type
+     *            of the primitive arrays
+     */
+    private static long arraysSize(Counter counter, int type, ObjectSizes sizes)
+    {
+        if (counter == null)
+            return 0;
+
+        long size = 0;
+        for (int ii = 0; ii < SHORT_LENGTHS; ii++)
+        {
+            if (counter.shortLengths[ii] != 0)
+                size += counter.shortLengths[ii] * arraySize(type, ii, sizes);
+        }
+        if (counter.longLengths != null)
+        {
+            for (Iterator<HashMapIntLong.Entry> it = counter.longLengths.entries(); it.hasNext();)
+            {
+                HashMapIntLong.Entry entry = it.next();
+                size += entry.getValue() * arraySize(type, entry.getKey(), sizes);
+            }
+        }
+        return size;
+    }
+
+    private static long arraySize(int type, int length, ObjectSizes sizes)
+    {
+        if (type == IObject.Type.OBJECT)
+            return sizes.objectArraySize(length);
+        return sizes.primitiveArraySize(type, length);
+    }
+
+    private static int primitiveType(String className)
+    {
+        for (int ii = 0; ii < IPrimitiveArray.TYPE.length; ii++)
+        {
+            if (className.equals(IPrimitiveArray.TYPE[ii]))
+                return ii;
+        }
+        return -1;
+    }
+}
@@ -10,12 +10,15 @@
  *******************************************************************************/
 package org.eclipse.mat.hprof;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
 
 import org.eclipse.core.runtime.QualifiedName;
 import org.eclipse.core.runtime.content.IContentDescriber;
 import org.eclipse.core.runtime.content.IContentDescription;
+import org.eclipse.mat.parser.io.GZIPIndex;
 
 public class HprofContentDescriber implements IContentDescriber
 {
@@ -24,6 +27,17 @@ public class HprofContentDescriber implements IContentDescriber
 
     public int describe(InputStream contents, IContentDescription description) throws IOException
     {
+        if (!contents.markSupported())
+            contents = new BufferedInputStream(contents);
+
+        contents.mark(2);
+        boolean compressed = GZIPIndex.isGZIP(contents);
+        contents.reset();
+
+        // a compressed dump is recognized by the header of its content
+        if (compressed)
+            contents = new GZIPInputStream(contents);
+
         return AbstractParser.readVersion(contents) != null ? VALID : INVALID;
     }
 
@@ -22,12 +22,14 @@ import org.eclipse.mat.hprof.ui.HprofPreferences;
 import org.eclipse.mat.parser.IObjectReader;
 import org.eclipse.mat.parser.index.IIndexReader;
 import org.eclipse.mat.parser.index.IndexReader;
+import org.eclipse.mat.parser.io.GZIPIndex;
 import org.eclipse.mat.parser.model.AbstractArrayImpl;
 import org.eclipse.mat.parser.model.ObjectArrayImpl;
 import org.eclipse.mat.parser.model.PrimitiveArrayImpl;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.model.IObject;
 import org.eclipse.mat.snapshot.model.IPrimitiveArray;
+import org.eclipse.mat.util.VoidProgressListener;
 
 public class HprofHeapObjectReader implements IObjectReader
 {
@@ -39,27 +41,54 @@ public class HprofHeapObjectReader implements IObjectReader
     private List<IRuntimeEnhancer> enhancers;
 
     public void open(ISnapshot snapshot) throws IOException
+    {
+        List<IRuntimeEnhancer> enhancers = new ArrayList<IRuntimeEnhancer>();
+        for (EnhancerRegistry.Enhancer enhancer : EnhancerRegistry.instance().delegates())
+        {
+            IRuntimeEnhancer runtime = enhancer.runtime();
+            if (runtime != null)
+                enhancers.add(runtime);
+        }
+
+        open(snapshot, HprofPreferences.getCurrentStrictness(), enhancers);
+    }
+
+    /**
+     * Opens the dump with the given strictness and enhancers instead of those
+     * of the preferences and the extension registry, for use outside of a
+     * running platform.
+     */
+    public void open(ISnapshot snapshot, HprofPreferences.HprofStrictness strictnessPreference,
+                    List<IRuntimeEnhancer> enhancers) throws IOException
     {
         this.snapshot = snapshot;
 
         AbstractParser.Version version = AbstractParser.Version.valueOf((String) snapshot.getSnapshotInfo()
                         .getProperty(VERSION_PROPERTY));
 
-        HprofPreferences.HprofStrictness strictnessPreference = HprofPreferences.getCurrentStrictness();
+        File file = new File(snapshot.getSnapshotInfo().getPath());
+        GZIPIndex gzipIndex = null;
+        if (GZIPIndex.isGZIP(file))
+        {
+            File indexFile = AbstractParser.gzipIndexFile(snapshot.getSnapshotInfo().getPrefix());
+            try
+            {
+                gzipIndex = GZIPIndex.read(indexFile);
+            }
+            catch (IOException e)
+            {
+                // missing or damaged, so decompress once more
+                gzipIndex = GZIPIndex.create(file, indexFile, new VoidProgressListener());
+            }
+        }
 
-        this.hprofDump = new HprofRandomAccessParser(new File(snapshot.getSnapshotInfo().getPath()), //
+        this.hprofDump = new HprofRandomAccessParser(file, gzipIndex, //
                         version, //
                         snapshot.getSnapshotInfo().getIdentifierSize(), strictnessPreference);
         this.o2hprof = new IndexReader.LongIndexReader(new File(snapshot.getSnapshotInfo().getPrefix()
                         + "o2hprof.index")); //$NON-NLS-1$
 
-        this.enhancers = new ArrayList<IRuntimeEnhancer>();
-        for (EnhancerRegistry.Enhancer enhancer : EnhancerRegistry.instance().delegates())
-        {
-            IRuntimeEnhancer runtime = enhancer.runtime();
-            if (runtime != null)
-                this.enhancers.add(runtime);
-        }
+        this.enhancers = enhancers;
     }
 
     public long[] readObjectArrayContent(ObjectArrayImpl array, int offset, int length) throws IOException,
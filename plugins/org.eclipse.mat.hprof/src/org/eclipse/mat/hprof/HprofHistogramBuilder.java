@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.hprof;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.hprof.ui.HprofPreferences;
+import org.eclipse.mat.parser.IHistogramBuilder;
+import org.eclipse.mat.snapshot.Histogram;
+import org.eclipse.mat.util.IProgressListener;
+import org.eclipse.mat.util.MessageUtil;
+import org.eclipse.mat.util.SimpleMonitor;
+
+public class HprofHistogramBuilder implements IHistogramBuilder
+{
+    public Histogram build(File file, IProgressListener listener) throws SnapshotException, IOException
+    {
+        HprofPreferences.HprofStrictness strictnessPreference = HprofPreferences.getCurrentStrictness();
+
+        SimpleMonitor monitor = new SimpleMonitor(MessageUtil.format(Messages.HprofHistogramBuilder_Reading,
+                        new Object[] { file.getAbsolutePath() }), listener, new int[] { 1000 });
+
+        listener.beginTask(MessageUtil.format(Messages.HprofHistogramBuilder_Reading, file.getName()), 1000);
+
+        SimpleMonitor.Listener mon = (SimpleMonitor.Listener) monitor.nextMonitor();
+        mon.beginTask(MessageUtil.format(Messages.HprofHistogramBuilder_Reading,
+                        new Object[] { file.getAbsolutePath() }), (int) (file.length() / 1000));
+
+        HistogramParser parser = new HistogramParser(mon, strictnessPreference);
+        parser.read(file, parser.determineDumpNumber());
+
+        if (listener.isCanceled())
+            throw new IProgressListener.OperationCanceledException();
+
+        mon.done();
+        listener.done();
+
+        return parser.getHistogram(MessageUtil.format(Messages.HprofHistogramBuilder_Histogram, file.getName()));
+    }
+}
@@ -25,6 +25,7 @@ import org.eclipse.mat.parser.IIndexBuilder;
 import org.eclipse.mat.parser.IPreliminaryIndex;
 import org.eclipse.mat.parser.index.IIndexReader.IOne2LongIndex;
 import org.eclipse.mat.parser.index.IndexWriter;
+import org.eclipse.mat.parser.io.GZIPIndex;
 import org.eclipse.mat.util.IProgressListener;
 import org.eclipse.mat.util.MessageUtil;
 import org.eclipse.mat.util.SimpleMonitor;
@@ -55,6 +56,8 @@ public class HprofIndexBuilder implements IIndexBuilder
     {
         HprofPreferences.HprofStrictness strictnessPreference = HprofPreferences.getCurrentStrictness();
 
+        boolean compressed = GZIPIndex.isGZIP(file);
+
         SimpleMonitor monitor = new SimpleMonitor(MessageUtil.format(Messages.HprofIndexBuilder_Parsing,
                         new Object[] { file.getAbsolutePath() }), listener, new int[] { 500, 1500 });
 
@@ -67,6 +70,10 @@ public class HprofIndexBuilder implements IIndexBuilder
         mon.beginTask(MessageUtil.format(Messages.HprofIndexBuilder_Scanning, new Object[] { file.getAbsolutePath() }),
                         (int) (file.length() / 1000));
         Pass1Parser pass1 = new Pass1Parser(handler, mon, strictnessPreference);
+        // pass 1 streams through a compressed dump and records the
+        // checkpoints which allow chunks and single objects to be read later on
+        if (compressed)
+            pass1.setGZIPIndexFile(AbstractParser.gzipIndexFile(prefix));
         Serializable id = preliminary.getSnapshotInfo().getProperty("$runtimeId");
         String dumpNrToRead;
         if (id instanceof String)
@@ -84,14 +91,30 @@ public class HprofIndexBuilder implements IIndexBuilder
 
         mon.done();
 
+        GZIPIndex gzipIndex = pass1.getGZIPIndex();
+        long length = gzipIndex != null ? gzipIndex.length() : file.length();
+
         handler.beforePass2(listener);
 
         mon = (SimpleMonitor.Listener) monitor.nextMonitor();
         mon.beginTask(MessageUtil.format(Messages.HprofIndexBuilder_ExtractingObjects,
-                        new Object[] { file.getAbsolutePath() }), (int) (file.length() / 1000));
+                        new Object[] { file.getAbsolutePath() }), (int) (length / 1000));
 
         Pass2Parser pass2 = new Pass2Parser(handler, mon, strictnessPreference);
-        pass2.read(file, dumpNrToRead);
+        pass2.setGZIPIndex(gzipIndex);
+        try
+        {
+            int numProcessors = Runtime.getRuntime().availableProcessors();
+            if (numProcessors > 1 && pass1.getDumpChunks().size() > 2 && HprofPreferences.useParallelParsing())
+                pass2.readParallel(file, pass1.getDumpChunks(), numProcessors);
+            else
+                pass2.read(file, dumpNrToRead);
+        }
+        finally
+        {
+            if (gzipIndex != null)
+                gzipIndex.close();
+        }
 
         if (listener.isCanceled())
             throw new IProgressListener.OperationCanceledException();
@@ -31,7 +31,6 @@ import org.eclipse.mat.parser.index.IIndexReader.IOne2LongIndex;
 import org.eclipse.mat.parser.index.IndexManager.Index;
 import org.eclipse.mat.parser.index.IndexWriter;
 import org.eclipse.mat.parser.model.ClassImpl;
-import org.eclipse.mat.parser.model.PrimitiveArrayImpl;
 import org.eclipse.mat.parser.model.XGCRootInfo;
 import org.eclipse.mat.parser.model.XSnapshotInfo;
 import org.eclipse.mat.snapshot.model.Field;
@@ -73,8 +72,10 @@ public class HprofParserHandlerImpl implements IHprofParserHandler
     private int refSize;
     // The size of uncompressed pointers in the object headers in the heap
     private int pointerSize;
-    // The alignment between successive objects
-    private int objectAlign;
+    // The sizes of the objects, known once all objects have been seen
+    private ObjectSizes sizes;
+    // The uncompressed length of the dump
+    private long streamLength;
 
     // //////////////////////////////////////////////////////////////
     // lifecycle
@@ -95,7 +96,7 @@ public class HprofParserHandlerImpl implements IHprofParserHandler
         identifiers.sort();
 
         // See what the actual object alignment is
-        calculateAlignment();
+        sizes = new ObjectSizes(pointerSize, refSize, calculateAlignment());
         
         // Set property to show if compressed oops are used on x64 bit dumps
         if (pointerSize == 8) // if x64 bit dump
@@ -134,7 +135,7 @@ public class HprofParserHandlerImpl implements IHprofParserHandler
         object2classId = new IndexWriter.IntIndexCollector(this.identifiers.size(), IndexWriter
                         .mostSignificantBit(maxClassId));
         object2position = new IndexWriter.LongIndexCollector(this.identifiers.size(), IndexWriter
-                        .mostSignificantBit(new File(this.info.getPath()).length()));
+                        .mostSignificantBit(streamLength > 0 ? streamLength : new File(this.info.getPath()).length()));
         array2size = new IndexWriter.SizeIndexCollectorUncompressed(this.identifiers.size());
 
         // java.lang.Class needs some special treatment so that object2classId
@@ -189,12 +190,8 @@ public class HprofParserHandlerImpl implements IHprofParserHandler
      * Calculate possible restrictions on object alignment by finding the GCD of differences
      * between object addresses (ignoring address 0).
      */
-    private void calculateAlignment()
+    private long calculateAlignment()
     {
-        // Minimum alignment of 8 bytes
-        final int minAlign = 8;
-        // Maximum alignment of 256 bytes
-        final int maxAlign = 256;
         long prev = 0;
         long align = 0;
         for (IteratorLong it = identifiers.iterator(); it.hasNext(); )
@@ -206,28 +203,11 @@ public class HprofParserHandlerImpl implements IHprofParserHandler
             prev = next;
             if (next == diff)
                 continue;
-            if (align == 0)
-            {
-                align = diff;
-            }
-            else
-            {
-                long mx = Math.max(align, diff);
-                long mn = Math.min(align, diff);
-                long d = mx % mn;
-                while (d != 0) {
-                    mx = mn;
-                    mn = d;
-                    d = mx % mn;
-                }
-                align = mn;
-                // Minimum alignment
-                if (align <= minAlign)
-                    break;
-            }
+            align = ObjectSizes.gcd(align, diff);
+            if (ObjectSizes.isMinimumAlignment(align))
+                break;
         }
-        // Sanitise the alignment
-        objectAlign = Math.max((int)Math.min(align, maxAlign), minAlign);
+        return align;
     }
 
     private void createRequiredFakeClasses() throws IOException, SnapshotException
@@ -337,7 +317,7 @@ public class HprofParserHandlerImpl implements IHprofParserHandler
     {
         if (!clazz.isArrayType())
         {
-            return alignUpToX(calculateSizeRecursive(clazz), objectAlign);
+            return sizes.align(calculateSizeRecursive(clazz));
         }
         else
         {
@@ -351,43 +331,22 @@ public class HprofParserHandlerImpl implements IHprofParserHandler
 	{
 		if (clazz.getSuperClassAddress() == 0)
 		{
-			return pointerSize + refSize;
+			return sizes.headerSize();
 		}
 		ClassImpl superClass = classesByAddress.get(clazz.getSuperClassAddress());
 		int ownFieldsSize = 0;
 		for (FieldDescriptor field : clazz.getFieldDescriptors())
-			ownFieldsSize += sizeOf(field);
+			ownFieldsSize += sizes.fieldSize(field.getType());
 
-		return alignUpToX(ownFieldsSize + calculateSizeRecursive(superClass), refSize);
+		return sizes.fieldsSize(ownFieldsSize, calculateSizeRecursive(superClass));
 	}
 
     private int calculateClassSize(ClassImpl clazz)
     {
         int staticFieldsSize = 0;
         for (Field field : clazz.getStaticFields())
-            staticFieldsSize += sizeOf(field);
-        return alignUpToX(staticFieldsSize, objectAlign);
-    }
-
-    private int sizeOf(FieldDescriptor field)
-    {
-        int type = field.getType();
-        if (type == 2)
-            return refSize;
-
-        return IPrimitiveArray.ELEMENT_SIZE[type];
-    }
-
-    private int alignUpToX(int n, int x)
-    {
-        int r = n % x;
-        return r == 0 ? n : n + x - r;
-    }
-
-    private long alignUpToX(long n, int x)
-    {
-        long r = n % x;
-        return r == 0 ? n : n + x - r;
+            staticFieldsSize += sizes.fieldSize(field.getType());
+        return sizes.align(staticFieldsSize);
     }
 
     public IOne2LongIndex fillIn(IPreliminaryIndex index) throws IOException
@@ -513,6 +472,10 @@ public class HprofParserHandlerImpl implements IHprofParserHandler
         {
             refSize = Integer.parseInt(value);
         }
+        else if (IHprofParserHandler.STREAM_LENGTH.equals(name))
+        {
+            streamLength = Long.parseLong(value);
+        }
     }
 
     @SuppressWarnings("unchecked")
@@ -677,14 +640,13 @@ public class HprofParserHandlerImpl implements IHprofParserHandler
 
     public long getObjectArrayHeapSize(ClassImpl arrayType, int size)
     {
-        long usedHeapSize = alignUpToX(pointerSize + refSize + 4 + size * arrayType.getHeapSizePerInstance(), objectAlign);
-        return usedHeapSize;
+        // the instance size of array classes is the reference size
+        return sizes.objectArraySize(size);
     }
 
     public long getPrimitiveArrayHeapSize(byte elementType, int size)
     {
-        long usedHeapSize = alignUpToX(alignUpToX(pointerSize + refSize + 4, refSize) + size * (long)PrimitiveArrayImpl.ELEMENT_SIZE[(int) elementType], objectAlign);
-        return usedHeapSize;
+        return sizes.primitiveArraySize(elementType, size);
     }
 
 }
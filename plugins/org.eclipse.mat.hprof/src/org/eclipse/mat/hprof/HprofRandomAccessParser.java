@@ -20,7 +20,10 @@ import java.util.List;
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.hprof.ui.HprofPreferences;
 import org.eclipse.mat.parser.io.BufferedRandomAccessInputStream;
+import org.eclipse.mat.parser.io.GZIPIndex;
+import org.eclipse.mat.parser.io.MappedRandomAccessInputStream;
 import org.eclipse.mat.parser.io.PositionInputStream;
+import org.eclipse.mat.parser.io.SeekableGZIPInputStream;
 import org.eclipse.mat.parser.model.ClassImpl;
 import org.eclipse.mat.parser.model.ClassLoaderImpl;
 import org.eclipse.mat.parser.model.InstanceImpl;
@@ -39,21 +42,126 @@ public class HprofRandomAccessParser extends AbstractParser
 {
     public static final int LAZY_LOADING_LIMIT = 256;
 
+    private final MappedRandomAccessInputStream mapped;
+
+    /**
+     * If the dump is memory mapped, the idle parsers sharing the mapping.
+     * Each read takes one, so threads do not wait for each other. Only this
+     * parser refers to them, so the mapping becomes unreachable once the
+     * snapshot is disposed.
+     */
+    private final List<HprofRandomAccessParser> readers;
+    private boolean closed;
+
     public HprofRandomAccessParser(File file, Version version, int identifierSize,
                     HprofPreferences.HprofStrictness strictnessPreference) throws IOException
+    {
+        this(file, null, version, identifierSize, strictnessPreference);
+    }
+
+    /**
+     * @param gzipIndex
+     *            checkpoints if the dump is gzip compressed, otherwise null;
+     *            closed together with the parser
+     */
+    public HprofRandomAccessParser(File file, GZIPIndex gzipIndex, Version version, int identifierSize,
+                    HprofPreferences.HprofStrictness strictnessPreference) throws IOException
     {
         super(strictnessPreference);
-        this.in = new PositionInputStream(new BufferedRandomAccessInputStream(new RandomAccessFile(file, "r"), 512)); //$NON-NLS-1$
+        this.gzipIndex = gzipIndex;
+        this.mapped = gzipIndex != null ? null : mapFile(file);
+        if (mapped != null)
+        {
+            this.in = new PositionInputStream(mapped);
+            this.readers = new ArrayList<HprofRandomAccessParser>();
+        }
+        else if (gzipIndex != null)
+        {
+            this.in = new PositionInputStream(new SeekableGZIPInputStream(file, gzipIndex));
+            this.readers = null;
+        }
+        else
+        {
+            this.in = new PositionInputStream(new BufferedRandomAccessInputStream(new RandomAccessFile(file, "r"), 512)); //$NON-NLS-1$
+            this.readers = null;
+        }
         this.version = version;
         this.idSize = identifierSize;
     }
 
-    public synchronized void close() throws IOException
+    private HprofRandomAccessParser(HprofRandomAccessParser parent)
+    {
+        super(parent.strictnessPreference);
+        this.mapped = null;
+        this.readers = null;
+        this.in = new PositionInputStream(parent.mapped.copy());
+        this.version = parent.version;
+        this.idSize = parent.idSize;
+    }
+
+    public void close() throws IOException
+    {
+        if (readers != null)
+        {
+            synchronized (readers)
+            {
+                closed = true;
+                readers.clear();
+            }
+        }
+
+        synchronized (this)
+        {
+            in.close();
+        }
+
+        if (gzipIndex != null)
+            gzipIndex.close();
+    }
+
+    private HprofRandomAccessParser acquire() throws IOException
+    {
+        synchronized (readers)
+        {
+            if (closed)
+                throw new IOException(Messages.HprofRandomAccessParser_Error_Closed);
+            if (!readers.isEmpty())
+                return readers.remove(readers.size() - 1);
+        }
+        return new HprofRandomAccessParser(this);
+    }
+
+    private void release(HprofRandomAccessParser reader)
+    {
+        synchronized (readers)
+        {
+            if (!closed)
+                readers.add(reader);
+        }
+    }
+
+    public IObject read(int objectId, long position, ISnapshot dump) throws IOException, SnapshotException
     {
-        in.close();
+        if (readers != null)
+        {
+            HprofRandomAccessParser reader = acquire();
+            try
+            {
+                return reader.readObject(objectId, position, dump);
+            }
+            finally
+            {
+                release(reader);
+            }
+        }
+
+        synchronized (this)
+        {
+            return readObject(objectId, position, dump);
+        }
     }
 
-    public synchronized IObject read(int objectId, long position, ISnapshot dump) throws IOException, SnapshotException
+    private IObject readObject(int objectId, long position, ISnapshot dump) throws IOException, SnapshotException
     {
         in.seek(position);
         int segmentType = in.readUnsignedByte();
@@ -197,7 +305,29 @@ public class HprofRandomAccessParser extends AbstractParser
         return array;
     }
 
-    public synchronized long[] readObjectArray(ArrayDescription.Offline descriptor, int offset, int length)
+    public long[] readObjectArray(ArrayDescription.Offline descriptor, int offset, int length)
+                    throws IOException
+    {
+        if (readers != null)
+        {
+            HprofRandomAccessParser reader = acquire();
+            try
+            {
+                return reader.readObjectArrayContent(descriptor, offset, length);
+            }
+            finally
+            {
+                release(reader);
+            }
+        }
+
+        synchronized (this)
+        {
+            return readObjectArrayContent(descriptor, offset, length);
+        }
+    }
+
+    private long[] readObjectArrayContent(ArrayDescription.Offline descriptor, int offset, int length)
                     throws IOException
     {
         int elementSize = this.idSize;
@@ -209,7 +339,29 @@ public class HprofRandomAccessParser extends AbstractParser
         return data;
     }
 
-    public synchronized byte[] readPrimitiveArray(ArrayDescription.Offline descriptor, int offset, int length)
+    public byte[] readPrimitiveArray(ArrayDescription.Offline descriptor, int offset, int length)
+                    throws IOException
+    {
+        if (readers != null)
+        {
+            HprofRandomAccessParser reader = acquire();
+            try
+            {
+                return reader.readPrimitiveArrayContent(descriptor, offset, length);
+            }
+            finally
+            {
+                release(reader);
+            }
+        }
+
+        synchronized (this)
+        {
+            return readPrimitiveArrayContent(descriptor, offset, length);
+        }
+    }
+
+    private byte[] readPrimitiveArrayContent(ArrayDescription.Offline descriptor, int offset, int length)
                     throws IOException
     {
         int elementSize = descriptor.getElementSize();
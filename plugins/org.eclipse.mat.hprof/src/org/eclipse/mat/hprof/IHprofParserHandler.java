@@ -30,6 +30,7 @@ public interface IHprofParserHandler
     String CREATION_DATE = "CREATION_DATE"; //$NON-NLS-1$
     String VERSION = "VERSION";//$NON-NLS-1$
     String REFERENCE_SIZE = "REF_SIZE"; //$NON-NLS-1$
+    String STREAM_LENGTH = "STREAM_LENGTH"; //$NON-NLS-1$
 
     public class HeapObject
     {
@@ -23,6 +23,8 @@ public class Messages extends NLS
     public static String AbstractParser_Error_UnsupportedHPROFVersion;
     public static String EnhancerRegistry_ErrorCreatingParser;
     public static String EnhancerRegistry_ErrorCreatingRuntime;
+    public static String HprofHistogramBuilder_Histogram;
+    public static String HprofHistogramBuilder_Reading;
     public static String HprofIndexBuilder_ExtractingObjects;
     public static String HprofIndexBuilder_Parsing;
     public static String HprofIndexBuilder_Scanning;
@@ -30,6 +32,7 @@ public class Messages extends NLS
     public static String HprofParserHandlerImpl_Error_ExpectedClassSegment;
     public static String HprofParserHandlerImpl_Error_MultipleClassInstancesExist;
     public static String HprofParserHandlerImpl_HeapContainsObjects;
+    public static String HprofRandomAccessParser_Error_Closed;
     public static String HprofRandomAccessParser_Error_DumpIncomplete;
     public static String HprofRandomAccessParser_Error_DuplicateClass;
     public static String HprofRandomAccessParser_Error_IllegalDumpSegment;
@@ -64,6 +67,8 @@ public class Messages extends NLS
     public static String HPROFPreferences_Strictness_Stop;
     public static String HPROFPreferences_Strictness_Warning;
     public static String HPROFPreferences_Strictness_Permissive;
+    public static String HPROFPreferences_ParallelParsing;
+    public static String HPROFPreferences_MemoryMappedIO;
     public static String HPROFStrictness_Unhandled_Preference;
     public static String HPROFStrictness_Stopped;
 
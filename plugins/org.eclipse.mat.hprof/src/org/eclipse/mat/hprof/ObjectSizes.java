@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.hprof;
+
+import org.eclipse.mat.snapshot.model.IObject;
+import org.eclipse.mat.snapshot.model.IPrimitiveArray;
+
+/**
+ * The shallow sizes of the objects of a HPROF dump, which holds no sizes. They
+ * follow from the size of the object headers, the size of references, which
+ * are compressed on some 64 bit VMs, and the object alignment, which is
+ * guessed from the addresses of the objects.
+ * <p>
+ * Shared by {@link HprofParserHandlerImpl} and {@link HistogramParser}, so that
+ * a histogram read without indexes matches the parsed snapshot.
+ */
+/* package */final class ObjectSizes
+{
+    private static final int MIN_ALIGN = 8;
+    private static final int MAX_ALIGN = 256;
+
+    private final int pointerSize;
+    private final int refSize;
+    private final int objectAlign;
+
+    /**
+     * @param pointerSize
+     *            the size of the uncompressed pointers in the object headers,
+     *            the identifier size of the dump
+     * @param refSize
+     *            the size of the possibly compressed references
+     * @param align
+     *            the greatest common divisor of the distances between the
+     *            objects, see {@link #gcd}, or 0 if not known
+     */
+    /* package */ObjectSizes(int pointerSize, int refSize, long align)
+    {
+        this.pointerSize = pointerSize;
+        this.refSize = refSize;
+        this.objectAlign = Math.max((int) Math.min(align, MAX_ALIGN), MIN_ALIGN);
+    }
+
+    /**
+     * One step of calculating the object alignment from the distances between
+     * objects.
+     *
+     * @return the greatest common divisor of a and b, where 0 stands for not
+     *         yet known
+     */
+    /* package */static long gcd(long a, long b)
+    {
+        while (b != 0)
+        {
+            long r = a % b;
+            a = b;
+            b = r;
+        }
+        return a;
+    }
+
+    /**
+     * @return true if the alignment is so small that further distances between
+     *         objects need not be looked at
+     */
+    /* package */static boolean isMinimumAlignment(long align)
+    {
+        return align > 0 && align <= MIN_ALIGN;
+    }
+
+    /* package */int getObjectAlign()
+    {
+        return objectAlign;
+    }
+
+    /**
+     * @param type
+     *            one of the {@link IObject.Type} constants
+     */
+    /* package */int fieldSize(int type)
+    {
+        if (type == IObject.Type.OBJECT)
+            return refSize;
+        return IPrimitiveArray.ELEMENT_SIZE[type];
+    }
+
+    /**
+     * @return the size of the header, which is all of an instance of a class
+     *         without superclass
+     */
+    /* package */int headerSize()
+    {
+        return pointerSize + refSize;
+    }
+
+    /**
+     * The fields of a class follow those of its superclass, aligned to the
+     * reference size.
+     *
+     * @param fieldsSize
+     *            the size of the fields declared by the class
+     * @param superClassSize
+     *            the unaligned instance size of the superclass, see
+     *            {@link #headerSize()} for a class without superclass
+     * @return the unaligned instance size of the class
+     */
+    /* package */int fieldsSize(int fieldsSize, int superClassSize)
+    {
+        return alignUpToX(fieldsSize + superClassSize, refSize);
+    }
+
+    /**
+     * @param size
+     *            the unaligned size of an instance or the size of the static
+     *            fields of a class
+     * @return the size aligned to the object alignment
+     */
+    /* package */int align(int size)
+    {
+        return alignUpToX(size, objectAlign);
+    }
+
+    /* package */long objectArraySize(int length)
+    {
+        return alignUpToX(pointerSize + refSize + 4 + (long) length * refSize, objectAlign);
+    }
+
+    /**
+     * @param type
+     *            one of the {@link IObject.Type} constants
+     */
+    /* package */long primitiveArraySize(int type, int length)
+    {
+        return alignUpToX(alignUpToX(pointerSize + refSize + 4, refSize) + (long) length
+                        * IPrimitiveArray.ELEMENT_SIZE[type], objectAlign);
+    }
+
+    private static int alignUpToX(int n, int x)
+    {
+        int r = n % x;
+        return r == 0 ? n : n + x - r;
+    }
+
+    private static long alignUpToX(long n, int x)
+    {
+        long r = n % x;
+        return r == 0 ? n : n + x - r;
+    }
+}
@@ -13,7 +13,6 @@ package org.eclipse.mat.hprof;
 
 import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
@@ -27,8 +26,10 @@ import java.util.regex.Pattern;
 
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.ArrayLong;
 import org.eclipse.mat.collect.HashMapLongObject;
 import org.eclipse.mat.hprof.ui.HprofPreferences;
+import org.eclipse.mat.parser.io.GZIPIndex;
 import org.eclipse.mat.parser.io.PositionInputStream;
 import org.eclipse.mat.parser.model.ClassImpl;
 import org.eclipse.mat.snapshot.MultipleSnapshotsException;
@@ -46,6 +47,13 @@ public class Pass1Parser extends AbstractParser
 {
     private static final Pattern PATTERN_OBJ_ARRAY = Pattern.compile("^(\\[+)L(.*);$"); //$NON-NLS-1$
     private static final Pattern PATTERN_PRIMITIVE_ARRAY = Pattern.compile("^(\\[+)(.)$"); //$NON-NLS-1$
+    /**
+     * Approximate size of the heap dump chunks handed to the parallel pass 2.
+     * Can be overridden by a -DhprofParallelChunkSize=&lt;bytes&gt; command
+     * line argument, for example to run small dumps through the parallel
+     * pass.
+     */
+    private static final long CHUNK_SIZE = 8L * 1024 * 1024;
 
     private HashMapLongObject<String> class2name = new HashMapLongObject<String>();
     private HashMapLongObject<Long> thread2id = new HashMapLongObject<Long>();
@@ -58,7 +66,11 @@ public class Pass1Parser extends AbstractParser
     private long previousArrayStart;
     private long previousArrayUncompressedEnd;
     private boolean foundCompressed;
-    private final boolean verbose = Platform.inDebugMode() && HprofPlugin.getDefault().isDebugging()
+    private ArrayLong dumpChunks = new ArrayLong();
+    private File gzipIndexFile;
+    private final long chunkSize = Math.max(1, Long.getLong("hprofParallelChunkSize", CHUNK_SIZE)); //$NON-NLS-1$
+    private final boolean verbose = HprofPlugin.getDefault() != null && Platform.inDebugMode()
+                    && HprofPlugin.getDefault().isDebugging()
                     && Boolean.parseBoolean(Platform.getDebugOption("org.eclipse.mat.hprof/debug/parser")); //$NON-NLS-1$
 
     public Pass1Parser(IHprofParserHandler handler, SimpleMonitor.Listener monitor,
@@ -72,7 +84,16 @@ public class Pass1Parser extends AbstractParser
     public void read(File file, String dumpNrToRead) throws SnapshotException, IOException
     {
         // See http://java.net/downloads/heap-snapshot/hprof-binary-format.html
-        in = new PositionInputStream(new BufferedInputStream(new FileInputStream(file)));
+        GZIPIndex.IndexingInputStream indexing = null;
+        if (gzipIndexFile != null)
+        {
+            indexing = new GZIPIndex.IndexingInputStream(file, gzipIndexFile);
+            in = new PositionInputStream(new BufferedInputStream(indexing, 64 * 1024));
+        }
+        else
+        {
+            in = new PositionInputStream(openSequential(file));
+        }
 
         int currentDumpNr = 0;
         List<MultipleSnapshotsException.Context> ctxs = new ArrayList<MultipleSnapshotsException.Context>();
@@ -96,16 +117,21 @@ public class Pass1Parser extends AbstractParser
             long prevTimeOffset = 0;
             long timeWrap = 0;
 
-            long fileSize = file.length();
+            // the length of a compressed dump is only known at its end
+            long fileSize = indexing != null ? Long.MAX_VALUE : streamLength(file);
+            if (indexing == null)
+                handler.addProperty(IHprofParserHandler.STREAM_LENGTH, String.valueOf(fileSize));
             long curPos = in.position();
 
             while (curPos < fileSize)
             {
                 if (monitor.isProbablyCanceled())
                     throw new IProgressListener.OperationCanceledException();
-                monitor.totalWorkDone(curPos / 1000);
+                monitor.totalWorkDone((indexing != null ? indexing.filePosition() : curPos) / 1000);
 
-                int record = in.readUnsignedByte();
+                int record = indexing != null ? in.read() : in.readUnsignedByte();
+                if (record < 0)
+                    break;
 
                 long timeOffset = readUnsignedInt(); // time stamp in microseconds
                 if (timeOffset < prevTimeOffset)
@@ -119,7 +145,8 @@ public class Pass1Parser extends AbstractParser
                 if (verbose)
                     System.out.println("Read record type " + record + ", length " + length + " at position 0x" + Long.toHexString(curPos)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 
-                length = updateLengthIfNecessary(fileSize, curPos, record, length, monitor);
+                if (indexing == null)
+                    length = updateLengthIfNecessary(fileSize, curPos, record, length, monitor);
 
                 if (length < 0)
                     throw new SnapshotException(MessageUtil.format(Messages.Pass1Parser_Error_IllegalRecordLength,
@@ -223,6 +250,12 @@ public class Pass1Parser extends AbstractParser
 
                 curPos = in.position();
             }
+
+            if (indexing != null)
+            {
+                gzipIndex = indexing.finish();
+                handler.addProperty(IHprofParserHandler.STREAM_LENGTH, String.valueOf(gzipIndex.length()));
+            }
         }
         finally
         {
@@ -310,9 +343,16 @@ public class Pass1Parser extends AbstractParser
     {
         long segmentStartPos = in.position();
         long segmentsEndPos = segmentStartPos + length;
+        long chunkStartPos = segmentStartPos;
 
         while (segmentStartPos < segmentsEndPos)
         {
+            if (segmentStartPos - chunkStartPos >= chunkSize)
+            {
+                addDumpChunk(chunkStartPos, segmentStartPos);
+                chunkStartPos = segmentStartPos;
+            }
+
             long workDone = segmentStartPos / 1000;
             if (this.monitor.getWorkDone() < workDone)
             {
@@ -372,6 +412,8 @@ public class Pass1Parser extends AbstractParser
 
             segmentStartPos = in.position();
         }
+        if (segmentStartPos > chunkStartPos)
+            addDumpChunk(chunkStartPos, segmentStartPos);
         if (verbose)
             System.out.println("    Finished heap sub-records."); //$NON-NLS-1$
         if (segmentStartPos != segmentsEndPos)
@@ -398,6 +440,42 @@ public class Pass1Parser extends AbstractParser
         }
     }
 
+    private void addDumpChunk(long start, long end)
+    {
+        dumpChunks.add(start);
+        dumpChunks.add(end);
+    }
+
+    /**
+     * The heap dump sub-records of the selected dump, split into chunks of
+     * roughly {@link #CHUNK_SIZE} bytes which start and end on sub-record
+     * boundaries, so that pass 2 can decode them independently.
+     * 
+     * @return pairs of start and end positions of the chunks, in file order
+     */
+    public ArrayLong getDumpChunks()
+    {
+        return dumpChunks;
+    }
+
+    /**
+     * Reads the dump as gzip compressed and writes the checkpoints for random
+     * access to the given file while reading.
+     */
+    public void setGZIPIndexFile(File gzipIndexFile)
+    {
+        this.gzipIndexFile = gzipIndexFile;
+    }
+
+    /**
+     * @return the checkpoints recorded by {@link #read}, null if the dump is
+     *         not compressed
+     */
+    public GZIPIndex getGZIPIndex()
+    {
+        return gzipIndex;
+    }
+
     private void readGCThreadObject(int gcType) throws IOException
     {
         long id = readID();
@@ -494,7 +572,27 @@ public class Pass1Parser extends AbstractParser
         String className = class2name.get(address);
         if (className == null)
             className = "unknown-name@0x" + Long.toHexString(address); //$NON-NLS-1$
+        className = fixArrayClassName(className);
+
+        ClassImpl clazz = new ClassImpl(address, className, superClassObjectId, classLoaderObjectId, statics, fields);
+        handler.addClass(clazz, segmentStartPos);
+        
+        // Just in case the superclass is missing
+        if (superClassObjectId != 0 && handler.lookupClass(superClassObjectId) == null)
+        {
+            // A real size of an instance will override this
+            handler.reportRequiredClass(superClassObjectId, Integer.MAX_VALUE);
+        }
+    }
 
+    /**
+     * Turns the names of array classes from the dump, for example
+     * <code>[[Ljava.lang.String;</code> or <code>[I</code>, into the names
+     * used by the snapshot, <code>java.lang.String[][]</code> or
+     * <code>int[]</code>.
+     */
+    /* package */static String fixArrayClassName(String className)
+    {
         if (className.charAt(0) == '[') // quick check if array at hand
         {
             // fix object class names
@@ -528,16 +626,7 @@ public class Pass1Parser extends AbstractParser
                     className += "[]"; //$NON-NLS-1$
             }
         }
-
-        ClassImpl clazz = new ClassImpl(address, className, superClassObjectId, classLoaderObjectId, statics, fields);
-        handler.addClass(clazz, segmentStartPos);
-        
-        // Just in case the superclass is missing
-        if (superClassObjectId != 0 && handler.lookupClass(superClassObjectId) == null)
-        {
-            // A real size of an instance will override this
-            handler.reportRequiredClass(superClassObjectId, Integer.MAX_VALUE);
-        }
+        return className;
     }
 
     private void readInstanceDump(long segmentStartPos) throws IOException
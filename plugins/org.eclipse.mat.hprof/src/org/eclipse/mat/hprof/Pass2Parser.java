@@ -15,13 +15,26 @@ import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.ArrayLong;
 import org.eclipse.mat.hprof.IHprofParserHandler.HeapObject;
 import org.eclipse.mat.hprof.ui.HprofPreferences;
 import org.eclipse.mat.hprof.ui.HprofPreferences.HprofStrictness;
+import org.eclipse.mat.parser.io.MappedRandomAccessInputStream;
 import org.eclipse.mat.parser.io.PositionInputStream;
+import org.eclipse.mat.parser.io.SeekableGZIPInputStream;
+import org.eclipse.mat.parser.io.SimpleBufferedRandomAccessInputStream;
 import org.eclipse.mat.parser.model.ClassImpl;
 import org.eclipse.mat.snapshot.model.FieldDescriptor;
 import org.eclipse.mat.snapshot.model.IClass;
@@ -38,9 +51,17 @@ import org.eclipse.mat.util.IProgressListener.Severity;
 
 public class Pass2Parser extends AbstractParser
 {
+    private static final int CHUNK_BUFFER_SIZE = 512 * 1024;
+
     private IHprofParserHandler handler;
     private SimpleMonitor.Listener monitor;
 
+    // only used when decoding a single chunk on a worker thread: the objects
+    // and warnings are collected and reported later in file order
+    private List<HeapObject> pendingObjects;
+    private ArrayLong pendingPositions;
+    private List<String> pendingWarnings;
+
     public Pass2Parser(IHprofParserHandler handler, SimpleMonitor.Listener monitor,
                     HprofPreferences.HprofStrictness strictnessPreference)
     {
@@ -51,7 +72,7 @@ public class Pass2Parser extends AbstractParser
 
     public void read(File file, String dumpNrToRead) throws SnapshotException, IOException
     {
-        in = new PositionInputStream(new BufferedInputStream(new FileInputStream(file)));
+        in = new PositionInputStream(openSequential(file));
 
         int currentDumpNr = 0;
 
@@ -63,7 +84,7 @@ public class Pass2Parser extends AbstractParser
                 throw new SnapshotException(Messages.Pass1Parser_Error_SupportedDumps);
             in.skipBytes(8); // creation date
 
-            long fileSize = file.length();
+            long fileSize = streamLength(file);
             long curPos = in.position();
 
             while (curPos < fileSize)
@@ -119,6 +140,174 @@ public class Pass2Parser extends AbstractParser
         }
     }
 
+    /**
+     * Reads the heap dump chunks found by {@link Pass1Parser} using several
+     * threads. The chunks are decoded concurrently, but the objects are
+     * reported to the handler strictly in file order, so the resulting indices
+     * are identical to those written by {@link #read(File, String)}.
+     * 
+     * @param file
+     *            the heap dump
+     * @param dumpChunks
+     *            start and end positions of the chunks, see
+     *            {@link Pass1Parser#getDumpChunks()}
+     * @param numberOfThreads
+     *            the number of worker threads decoding chunks
+     */
+    public void readParallel(File file, ArrayLong dumpChunks, int numberOfThreads) throws SnapshotException,
+                    IOException
+    {
+        in = new PositionInputStream(gzipIndex != null ? openSequential(file) : new BufferedInputStream(
+                        new FileInputStream(file)));
+        try
+        {
+            version = readVersion(in);
+            idSize = in.readInt();
+            if (idSize != 4 && idSize != 8)
+                throw new SnapshotException(Messages.Pass1Parser_Error_SupportedDumps);
+        }
+        finally
+        {
+            try
+            {
+                in.close();
+            }
+            catch (IOException ignore)
+            {}
+            in = null;
+        }
+
+        // one mapping of the file is shared by all chunk readers
+        final MappedRandomAccessInputStream mapped = gzipIndex != null ? null : mapFile(file);
+
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads, new ThreadFactory()
+        {
+            int count;
+
+            public synchronized Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(r, "HprofPass2Thread-" + (++count)); //$NON-NLS-1$
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        try
+        {
+            int noOfChunks = dumpChunks.size() / 2;
+            // limit the number of decoded, but not yet reported chunks
+            int window = numberOfThreads * 2;
+            LinkedList<Future<Pass2Parser>> queue = new LinkedList<Future<Pass2Parser>>();
+            int submitted = 0;
+
+            for (int ii = 0; ii < noOfChunks; ii++)
+            {
+                while (submitted < noOfChunks && submitted < ii + window)
+                {
+                    queue.add(executor.submit(new ChunkReader(file, mapped, dumpChunks.get(2 * submitted),
+                                    dumpChunks.get(2 * submitted + 1))));
+                    submitted++;
+                }
+
+                if (monitor.isCanceled())
+                    throw new IProgressListener.OperationCanceledException();
+
+                Pass2Parser chunk = waitFor(queue.removeFirst());
+
+                for (String warning : chunk.pendingWarnings)
+                    monitor.sendUserMessage(Severity.WARNING, warning, null);
+
+                for (int jj = 0; jj < chunk.pendingObjects.size(); jj++)
+                    handler.addObject(chunk.pendingObjects.get(jj), chunk.pendingPositions.get(jj));
+
+                monitor.totalWorkDone(dumpChunks.get(2 * ii + 1) / 1000);
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+            if (mapped != null)
+                mapped.close();
+        }
+    }
+
+    private Pass2Parser waitFor(Future<Pass2Parser> future) throws SnapshotException, IOException
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException e)
+        {
+            IOException ioe = new IOException(e.getMessage());
+            ioe.initCause(e);
+            throw ioe;
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof SnapshotException)
+                throw (SnapshotException) cause;
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new SnapshotException(cause);
+        }
+    }
+
+    private class ChunkReader implements Callable<Pass2Parser>
+    {
+        private final File file;
+        private final MappedRandomAccessInputStream mapped;
+        private final long start;
+        private final long end;
+
+        private ChunkReader(File file, MappedRandomAccessInputStream mapped, long start, long end)
+        {
+            this.file = file;
+            this.mapped = mapped;
+            this.start = start;
+            this.end = end;
+        }
+
+        public Pass2Parser call() throws Exception
+        {
+            Pass2Parser parser = new Pass2Parser(handler, monitor, strictnessPreference);
+            parser.version = version;
+            parser.idSize = idSize;
+            parser.pendingObjects = new ArrayList<HeapObject>();
+            parser.pendingPositions = new ArrayLong();
+            parser.pendingWarnings = new ArrayList<String>(0);
+
+            if (gzipIndex != null)
+                parser.in = new PositionInputStream(new SeekableGZIPInputStream(file, gzipIndex));
+            else if (mapped != null)
+                parser.in = new PositionInputStream(mapped.copy());
+            else
+                parser.in = new PositionInputStream(new SimpleBufferedRandomAccessInputStream(new RandomAccessFile(
+                                file, "r"), CHUNK_BUFFER_SIZE)); //$NON-NLS-1$
+            try
+            {
+                parser.in.seek(start);
+                parser.readDumpSegments(end - start);
+            }
+            finally
+            {
+                try
+                {
+                    parser.in.close();
+                }
+                catch (IOException ignore)
+                {}
+                parser.in = null;
+            }
+            return parser;
+        }
+    }
+
     private void readDumpSegments(long length) throws SnapshotException, IOException
     {
         long segmentStartPos = in.position();
@@ -127,7 +316,8 @@ public class Pass2Parser extends AbstractParser
         while (segmentStartPos < segmentsEndPos)
         {
             long workDone = segmentStartPos / 1000;
-            if (this.monitor.getWorkDone() < workDone)
+            // chunks read by worker threads are reported by the caller
+            if (pendingObjects == null && this.monitor.getWorkDone() < workDone)
             {
                 if (this.monitor.isProbablyCanceled())
                     throw new IProgressListener.OperationCanceledException();
@@ -244,7 +434,11 @@ public class Pass2Parser extends AbstractParser
             
             if (endPos >= in.position() && unknown && (strictnessPreference == HprofStrictness.STRICTNESS_WARNING || strictnessPreference == HprofStrictness.STRICTNESS_PERMISSIVE))
             {
-                monitor.sendUserMessage(Severity.WARNING, MessageUtil.format(Messages.Pass2Parser_Error_InsufficientBytesRead, segmentStartPos, endPos, in.position()), null);
+                String msg = MessageUtil.format(Messages.Pass2Parser_Error_InsufficientBytesRead, segmentStartPos, endPos, in.position());
+                if (pendingWarnings != null)
+                    pendingWarnings.add(msg);
+                else
+                    monitor.sendUserMessage(Severity.WARNING, msg, null);
                 in.skipBytes(endPos - in.position());
             }
             else
@@ -253,7 +447,7 @@ public class Pass2Parser extends AbstractParser
             }
         }
 
-        handler.addObject(heapObject, segmentStartPos);
+        addObject(heapObject, segmentStartPos);
     }
 
     private void readObjectArrayDump(long segmentStartPos) throws IOException
@@ -282,7 +476,7 @@ public class Pass2Parser extends AbstractParser
                 heapObject.references.add(refId);
         }
 
-        handler.addObject(heapObject, segmentStartPos);
+        addObject(heapObject, segmentStartPos);
     }
 
     private void readPrimitiveArrayDump(long segmentStartPost) throws SnapshotException, IOException
@@ -307,10 +501,23 @@ public class Pass2Parser extends AbstractParser
         heapObject.references.add(clazz.getObjectAddress());
         heapObject.isArray = true;
 
-        handler.addObject(heapObject, segmentStartPost);
+        addObject(heapObject, segmentStartPost);
 
         int elementSize = IPrimitiveArray.ELEMENT_SIZE[elementType];
         in.skipBytes((long) elementSize * size);
     }
 
+    private void addObject(HeapObject heapObject, long filePosition) throws IOException
+    {
+        if (pendingObjects != null)
+        {
+            pendingObjects.add(heapObject);
+            pendingPositions.add(filePosition);
+        }
+        else
+        {
+            handler.addObject(heapObject, filePosition);
+        }
+    }
+
 }
@@ -10,6 +10,7 @@
  *******************************************************************************/
 package org.eclipse.mat.hprof.ui;
 
+import org.eclipse.jface.preference.BooleanFieldEditor;
 import org.eclipse.jface.preference.FieldEditorPreferencePage;
 import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.preference.RadioGroupFieldEditor;
@@ -67,6 +68,11 @@ public class HPROFPreferencePage extends FieldEditorPreferencePage implements IW
                         // PreferenceConstants.HprofStrictness.STRICTNESS_PERMISSIVE
                         // .toString() }
                         }, getFieldEditorParent(), true));
+
+        addField(new BooleanFieldEditor(HprofPreferences.PARALLEL_PARSING_PREF,
+                        Messages.HPROFPreferences_ParallelParsing, getFieldEditorParent()));
+        addField(new BooleanFieldEditor(HprofPreferences.MEMORY_MAPPED_IO_PREF,
+                        Messages.HPROFPreferences_MemoryMappedIO, getFieldEditorParent()));
     }
 
     /**
@@ -24,6 +24,22 @@ public class HprofPreferences
     /** Default strictness for preferences and value parsing */
     public static final HprofStrictness DEFAULT_STRICTNESS = HprofStrictness.STRICTNESS_STOP;
 
+    /** Whether the second pass of the HPROF parser decodes objects on several threads */
+    public static final String PARALLEL_PARSING_PREF = "hprofParallelParsing"; //$NON-NLS-1$
+
+    /** Default for parallel parsing */
+    public static final boolean DEFAULT_PARALLEL_PARSING = true;
+
+    /** Whether the HPROF parser reads the dump through a memory mapping */
+    public static final String MEMORY_MAPPED_IO_PREF = "hprofMemoryMappedIO"; //$NON-NLS-1$
+
+    /**
+     * Default for memory mapped reading. Off, as a mapping is only released
+     * by the garbage collector and keeps the dump file from being deleted or
+     * replaced on Windows until then.
+     */
+    public static final boolean DEFAULT_MEMORY_MAPPED_IO = false;
+
     /**
      * Return the currently selected preference for strictness. This first
      * checks the preference store, and then checks for any -D$(STRICTNESS)=true
@@ -51,6 +67,44 @@ public class HprofPreferences
         return strictnessPreference;
     }
 
+    /**
+     * Return whether the parser should decode the heap dump segments on
+     * several threads. The preference store can be overridden by a
+     * -DhprofParallelParsing=true|false command line argument.
+     * 
+     * @return true if parallel parsing is enabled
+     */
+    public static boolean useParallelParsing()
+    {
+        return getBoolean(PARALLEL_PARSING_PREF, DEFAULT_PARALLEL_PARSING);
+    }
+
+    /**
+     * Return whether the parser should read the heap dump through a memory
+     * mapping instead of buffered file reads. The preference store can be
+     * overridden by a -DhprofMemoryMappedIO=true|false command line argument.
+     * 
+     * @return true if memory mapped reading is enabled
+     */
+    public static boolean useMemoryMappedIO()
+    {
+        return getBoolean(MEMORY_MAPPED_IO_PREF, DEFAULT_MEMORY_MAPPED_IO);
+    }
+
+    private static boolean getBoolean(String key, boolean defaultValue)
+    {
+        String override = System.getProperty(key);
+        if (override != null)
+            return Boolean.parseBoolean(override);
+
+        // not running in OSGi, for example in the benchmarks
+        if (HprofPlugin.getDefault() == null)
+            return defaultValue;
+
+        return Platform.getPreferencesService().getBoolean(HprofPlugin.getDefault().getBundle().getSymbolicName(),
+                        key, defaultValue, null);
+    }
+
     /**
      * Enumeration for the parser strictness.
      */
@@ -26,6 +26,8 @@ public class PreferenceInitializer extends AbstractPreferenceInitializer
         {
             IPreferenceStore store = (IPreferenceStore)HprofPlugin.getDefault().getPreferenceStore();
             store.setDefault(HprofPreferences.STRICTNESS_PREF, HprofPreferences.DEFAULT_STRICTNESS.toString());
+            store.setDefault(HprofPreferences.PARALLEL_PARSING_PREF, HprofPreferences.DEFAULT_PARALLEL_PARSING);
+            store.setDefault(HprofPreferences.MEMORY_MAPPED_IO_PREF, HprofPreferences.DEFAULT_MEMORY_MAPPED_IO);
         }
         catch (LinkageError e)
         {
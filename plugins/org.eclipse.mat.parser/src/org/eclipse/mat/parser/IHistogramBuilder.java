@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.snapshot.Histogram;
+import org.eclipse.mat.util.IProgressListener;
+
+/**
+ * Optional part of the parser which calculates the class histogram of a heap
+ * dump in one pass over the file, without building any index files.
+ * <p>
+ * Unlike the histogram of a parsed snapshot, it includes the objects which
+ * are not reachable from a garbage collection root, and the records have no
+ * class or object ids.
+ *
+ * @since 1.7
+ */
+public interface IHistogramBuilder
+{
+    /**
+     * Reads the class histogram from the dump
+     * @param file the dump file
+     * @param listener for progress and error reporting
+     * @return the histogram of all the objects in the dump
+     * @throws SnapshotException
+     * @throws IOException
+     */
+    Histogram build(File file, IProgressListener listener) throws SnapshotException, IOException;
+}
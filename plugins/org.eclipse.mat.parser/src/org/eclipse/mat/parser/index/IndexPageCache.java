@@ -0,0 +1,282 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser.index;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The pages loaded by all index readers, bounded by their estimated memory.
+ * <p>
+ * The readers keep the pages in their page tables as {@link Page}s. A page
+ * holds the array strongly as long as it is cached and drops it when it is
+ * evicted, so the garbage collector never clears pages on its own. Looking
+ * up a page takes no lock: a hit only sets the referenced flag of the page,
+ * and the CLOCK eviction hand gives referenced pages a second chance.
+ * Loading a page, which reads from the file anyway, adds it under the lock
+ * of the cache.
+ * <p>
+ * The budget is a percentage of the maximum heap, see
+ * {@link #SIZE_PROPERTY}. It is looked up whenever a page is added, so that
+ * a changed preference applies to the pages loaded from then on.
+ *
+ * @since 1.7
+ */
+public final class IndexPageCache
+{
+    /**
+     * System property with the percentage of the maximum heap which the
+     * loaded index pages of all snapshots may occupy, 10 by default. The
+     * Memory Analyzer preferences set it.
+     */
+    public static final String SIZE_PROPERTY = "mat_index_cache"; //$NON-NLS-1$
+
+    private static final int DEFAULT_PERCENTAGE = 10;
+
+    /**
+     * Estimated bytes of a page besides its compressed data: the headers of
+     * the array, of the page object and of its reference.
+     */
+    /* package */static final int PAGE_OVERHEAD = 64;
+
+    /**
+     * A page in the page table of a reader. It is a soft reference only so
+     * that the page tables keep their type, its array is held by the page
+     * itself until it is evicted.
+     */
+    /* package */static final class Page<T> extends SoftReference<T>
+    {
+        T value;
+        final int size;
+        boolean referenced = true;
+        int slot = -1;
+
+        Page(T value, int size)
+        {
+            super(value);
+            this.value = value;
+            this.size = size;
+        }
+    }
+
+    // hits are counted without a lock by stripes of one counter per cache
+    // line, so that threads rarely write the same line
+    private static final int STRIPES = 16;
+    private static final int STRIDE = 8;
+    private static final AtomicLongArray HITS = new AtomicLongArray(STRIPES * STRIDE);
+
+    private static final ArrayList<Page<?>> clock = new ArrayList<Page<?>>();
+    private static String maxMemoryValue = System.getProperty(SIZE_PROPERTY);
+    private static long maxMemory = maxMemory(maxMemoryValue);
+    private static int hand;
+    private static long memory;
+    private static long misses;
+    private static long evictions;
+
+    private IndexPageCache()
+    {}
+
+    /**
+     * @return the budget for the value of {@link #SIZE_PROPERTY}
+     */
+    private static long maxMemory(String value)
+    {
+        int percentage = DEFAULT_PERCENTAGE;
+        if (value != null)
+        {
+            try
+            {
+                percentage = Math.max(0, Math.min(100, Integer.parseInt(value.trim())));
+            }
+            catch (NumberFormatException ignore)
+            {
+                // $JL-EXC$
+            }
+        }
+        return Runtime.getRuntime().maxMemory() / 100 * percentage;
+    }
+
+    /**
+     * @return the array of the page or null if it is not loaded or was
+     *         evicted
+     */
+    @SuppressWarnings("unchecked")
+    /* package */static <T> T get(SoftReference<T> ref)
+    {
+        if (!(ref instanceof Page<?>))
+            return ref == null ? null : ref.get();
+
+        Page<T> page = (Page<T>) ref;
+        T value = page.value;
+        if (value != null)
+        {
+            if (!page.referenced)
+                page.referenced = true;
+            HITS.incrementAndGet((int) (Thread.currentThread().getId() & (STRIPES - 1)) * STRIDE);
+        }
+        return value;
+    }
+
+    /**
+     * Adds a page just read from an index file.
+     *
+     * @param size
+     *            the estimated memory of the page in bytes
+     */
+    /* package */static <T> Page<T> load(T value, int size)
+    {
+        return add(value, size, true);
+    }
+
+    /**
+     * Adds a page which the reader got from its writer or converted from
+     * another page, so it was not read from the file.
+     */
+    /* package */static <T> Page<T> add(T value, int size)
+    {
+        return add(value, size, false);
+    }
+
+    private static synchronized <T> Page<T> add(T value, int size, boolean isLoaded)
+    {
+        Page<T> page = new Page<T>(value, size);
+        page.slot = clock.size();
+        clock.add(page);
+        memory += size;
+        if (isLoaded)
+            misses++;
+
+        updateMaxMemory();
+        while (memory > maxMemory && clock.size() > 1)
+            evict();
+
+        return page;
+    }
+
+    /**
+     * Takes a changed {@link #SIZE_PROPERTY} into account.
+     */
+    private static void updateMaxMemory()
+    {
+        String value = System.getProperty(SIZE_PROPERTY);
+        if (value == null ? maxMemoryValue != null : !value.equals(maxMemoryValue))
+        {
+            maxMemoryValue = value;
+            maxMemory = maxMemory(value);
+        }
+    }
+
+    private static void evict()
+    {
+        while (true)
+        {
+            if (hand >= clock.size())
+                hand = 0;
+
+            Page<?> page = clock.get(hand);
+            if (page.referenced)
+            {
+                page.referenced = false;
+                hand++;
+            }
+            else
+            {
+                remove(page);
+                evictions++;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes a page which its reader no longer uses.
+     */
+    /* package */static synchronized void remove(SoftReference<?> ref)
+    {
+        if (ref instanceof Page<?> && ((Page<?>) ref).slot >= 0)
+            remove((Page<?>) ref);
+    }
+
+    private static void remove(Page<?> page)
+    {
+        // fill the gap with the last page, the order of the clock does not
+        // matter
+        Page<?> last = clock.remove(clock.size() - 1);
+        if (last != page)
+        {
+            clock.set(page.slot, last);
+            last.slot = page.slot;
+        }
+
+        page.slot = -1;
+        page.value = null;
+        page.clear();
+        memory -= page.size;
+    }
+
+    /**
+     * Removes the pages of a reader which unloads its pages or is closed.
+     */
+    /* package */static synchronized void removeAll(IndexWriter.Pages<? extends SoftReference<?>> pages)
+    {
+        for (int ii = 0; ii < pages.elements.length(); ii++)
+        {
+            SoftReference<?> ref = pages.elements.get(ii);
+            if (ref instanceof Page<?> && ((Page<?>) ref).slot >= 0)
+                remove((Page<?>) ref);
+        }
+    }
+
+    /**
+     * @return the number of lookups which found the page in the cache
+     */
+    public static long getHits()
+    {
+        long hits = 0;
+        for (int ii = 0; ii < STRIPES; ii++)
+            hits += HITS.get(ii * STRIDE);
+        return hits;
+    }
+
+    /**
+     * @return the number of pages read from the index files into the cache
+     */
+    public static synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    /**
+     * @return the number of pages removed to stay within the budget
+     */
+    public static synchronized long getEvictions()
+    {
+        return evictions;
+    }
+
+    /**
+     * @return the estimated memory occupied by the cached pages
+     */
+    public static synchronized long getMemory()
+    {
+        return memory;
+    }
+
+    /**
+     * @return the budget of the cache in bytes
+     */
+    public static synchronized long getMaxMemory()
+    {
+        updateMaxMemory();
+        return maxMemory;
+    }
+}
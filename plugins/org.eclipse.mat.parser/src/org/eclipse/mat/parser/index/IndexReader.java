@@ -11,16 +11,24 @@
  *******************************************************************************/
 package org.eclipse.mat.parser.index;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.io.Serializable;
 import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.collect.ArrayIntCompressed;
 import org.eclipse.mat.collect.ArrayLongCompressed;
 import org.eclipse.mat.collect.HashMapIntObject;
+import org.eclipse.mat.collect.HashMapIntObject.Entry;
 import org.eclipse.mat.parser.index.IndexWriter.ArrayIntLongCompressed;
 import org.eclipse.mat.parser.internal.Messages;
 import org.eclipse.mat.parser.io.SimpleBufferedRandomAccessInputStream;
@@ -32,6 +40,130 @@ public abstract class IndexReader
 {
     public static final boolean DEBUG = false;
 
+    private static final AtomicLong PAGES_READ = new AtomicLong();
+    private static final AtomicLong BYTES_READ = new AtomicLong();
+
+    /**
+     * @return the number of pages read from index files by all readers so
+     *         far
+     * @since 1.7
+     */
+    public static long getPagesRead()
+    {
+        return PAGES_READ.get();
+    }
+
+    /**
+     * @return the number of bytes of the pages read from index files by all
+     *         readers so far
+     * @since 1.7
+     */
+    public static long getBytesRead()
+    {
+        return BYTES_READ.get();
+    }
+
+    /**
+     * Reads the pages of an index file with positional reads. They do not
+     * move the file pointer, so several threads read pages at the same time.
+     * <p>
+     * An interrupt while reading closes the channel for all threads, so then
+     * the file is opened again.
+     */
+    /* package */static final class PageChannel
+    {
+        private final File file;
+        private volatile FileChannel channel;
+        private RandomAccessFile reopened;
+        private boolean isClosed;
+
+        /**
+         * @param file
+         *            the file to open again or null if the index is embedded
+         */
+        PageChannel(File file, SimpleBufferedRandomAccessInputStream in)
+        {
+            this.file = file;
+            this.channel = in.getChannel();
+        }
+
+        byte[] read(long start, long end) throws IOException
+        {
+            ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+            boolean isInterrupted = false;
+            try
+            {
+                while (buffer.hasRemaining())
+                {
+                    FileChannel current = channel;
+                    try
+                    {
+                        if (current.read(buffer, start + buffer.position()) < 0)
+                            throw new EOFException();
+                    }
+                    catch (ClosedChannelException e)
+                    {
+                        if (e instanceof ClosedByInterruptException)
+                            isInterrupted |= Thread.interrupted();
+                        reopen(current, e);
+                    }
+                }
+            }
+            finally
+            {
+                if (isInterrupted)
+                    Thread.currentThread().interrupt();
+            }
+
+            PAGES_READ.incrementAndGet();
+            BYTES_READ.addAndGet(end - start);
+            return buffer.array();
+        }
+
+        private synchronized void reopen(FileChannel closed, ClosedChannelException e) throws IOException
+        {
+            if (isClosed || file == null)
+                throw e;
+
+            // another thread may have opened it already
+            if (channel == closed)
+            {
+                reopened = new RandomAccessFile(file, "r");//$NON-NLS-1$
+                channel = reopened.getChannel();
+            }
+        }
+
+        /**
+         * Closes the file if opened again, the original one is closed with
+         * its stream.
+         */
+        synchronized void close()
+        {
+            isClosed = true;
+
+            if (reopened != null)
+            {
+                try
+                {
+                    reopened.close();
+                }
+                catch (IOException ignore)
+                {
+                    // $JL-EXC$
+                }
+                reopened = null;
+            }
+        }
+    }
+
+    /* package */static Object[] newPageLocks(int numberOfPages)
+    {
+        Object[] locks = new Object[numberOfPages];
+        for (int ii = 0; ii < locks.length; ii++)
+            locks[ii] = new Object();
+        return locks;
+    }
+
     /**
      * An int to int index reader.
      * 
@@ -63,11 +195,17 @@ public abstract class IndexReader
     public static class IntIndexReader extends IndexWriter.IntIndex<SoftReference<ArrayIntCompressed>> implements
                     IIndexReader.IOne2OneIndex
     {
+        /**
+         * @deprecated pages are loaded without a lock shared by all pages
+         */
+        @Deprecated
         public Object LOCK = new Object();
 
         File indexFile;
         public SimpleBufferedRandomAccessInputStream in;
+        PageChannel channel;
         long[] pageStart;
+        Object[] pageLocks;
 
         IntIndexReader(File indexFile, IndexWriter.Pages<SoftReference<ArrayIntCompressed>> pages, long size,
                         int pageSize, long[] pageStart)
@@ -79,6 +217,18 @@ public abstract class IndexReader
             this.indexFile = indexFile;
             this.pageStart = pageStart;
 
+            pages.ensureCapacity(pageStart.length);
+            pageLocks = newPageLocks(pageStart.length);
+
+            // the writer kept the pages it wrote
+            for (int ii = 0; ii + 1 < pageStart.length; ii++)
+            {
+                SoftReference<ArrayIntCompressed> ref = pages.get(ii);
+                ArrayIntCompressed array = ref == null ? null : ref.get();
+                if (array != null && !(ref instanceof IndexPageCache.Page<?>))
+                    pages.put(ii, IndexPageCache.add(array, sizeOf(ii)));
+            }
+
             if (indexFile != null)
                 open();
         }
@@ -93,6 +243,7 @@ public abstract class IndexReader
         {
             this(new SimpleBufferedRandomAccessInputStream(new RandomAccessFile(indexFile, "r")), 0, indexFile.length());//$NON-NLS-1$
             this.indexFile = indexFile;
+            this.channel = new PageChannel(indexFile, in);
         }
 
         public IntIndexReader(SimpleBufferedRandomAccessInputStream in, long start, long length) throws IOException
@@ -124,6 +275,10 @@ public abstract class IndexReader
 
             this.in.seek(start + length - 8 - (pageStart.length * 8));
             this.in.readLongArray(pageStart);
+
+            this.pages.ensureCapacity(pageStart.length);
+            this.pageLocks = newPageLocks(pageStart.length);
+            this.channel = new PageChannel(null, in);
         }
 
         private synchronized void open()
@@ -137,6 +292,7 @@ public abstract class IndexReader
                     throw new IOException(Messages.IndexReader_Error_IndexIsEmbedded);
 
                 in = new SimpleBufferedRandomAccessInputStream(new RandomAccessFile(this.indexFile, "r"));//$NON-NLS-1$
+                channel = new PageChannel(indexFile, in);
             }
             catch (IOException e)
             {
@@ -148,6 +304,12 @@ public abstract class IndexReader
         {
             unload();
 
+            if (channel != null)
+            {
+                channel.close();
+                channel = null;
+            }
+
             if (in != null)
             {
                 try
@@ -165,36 +327,39 @@ public abstract class IndexReader
             }
         }
 
+        @Override
+        public synchronized void unload()
+        {
+            IndexPageCache.removeAll(pages);
+            super.unload();
+        }
+
+        /**
+         * @return the estimated memory of a loaded page
+         */
+        int sizeOf(int page)
+        {
+            return (int) (pageStart[page + 1] - pageStart[page]) + IndexPageCache.PAGE_OVERHEAD;
+        }
+
         @Override
         protected ArrayIntCompressed getPage(int page)
         {
-            SoftReference<ArrayIntCompressed> ref = pages.get(page);
-            ArrayIntCompressed array = ref == null ? null : ref.get();
+            ArrayIntCompressed array = IndexPageCache.get(pages.get(page));
             if (array == null)
             {
-                synchronized (LOCK)
+                // only loads of the same page wait for each other
+                synchronized (pageLocks[page])
                 {
-                    ref = pages.get(page);
+                    SoftReference<ArrayIntCompressed> ref = pages.get(page);
                     array = ref == null ? null : ref.get();
 
                     if (array == null)
                     {
                         try
                         {
-                            byte[] buffer = null;
-
-                            this.in.seek(pageStart[page]);
-
-                            buffer = new byte[(int) (pageStart[page + 1] - pageStart[page])];
-                            if (this.in.read(buffer) != buffer.length)
-                                throw new IOException();
-
-                            array = new ArrayIntCompressed(buffer);
-
-                            synchronized (pages)
-                            {
-                                pages.put(page, new SoftReference<ArrayIntCompressed>(array));
-                            }
+                            array = new ArrayIntCompressed(channel.read(pageStart[page], pageStart[page + 1]));
+                            pages.put(page, IndexPageCache.load(array, sizeOf(page)));
                         }
                         catch (IOException e)
                         {
@@ -246,26 +411,35 @@ public abstract class IndexReader
             return a.getPos(offset);
         }
 
+        @Override
+        int sizeOf(int page)
+        {
+            // the page holds its data compressed as ints and as longs
+            return 2 * (int) (pageStart[page + 1] - pageStart[page]) + IndexPageCache.PAGE_OVERHEAD;
+        }
+
         @Override
         protected ArrayIntLongCompressed getPage(int page)
         {
-            SoftReference<ArrayIntCompressed> ref = pages.get(page);
-            ArrayIntCompressed array = ref == null ? null : ref.get();
+            ArrayIntCompressed array = IndexPageCache.get(pages.get(page));
             if (array instanceof ArrayIntLongCompressed)
             {
                 return (ArrayIntLongCompressed)array;
             }
             else 
             {
-                synchronized (LOCK)
+                synchronized (pageLocks[page])
                 {
+                    SoftReference<ArrayIntCompressed> ref = pages.get(page);
+                    array = ref == null ? null : ref.get();
+                    if (array instanceof ArrayIntLongCompressed)
+                        return (ArrayIntLongCompressed) array;
+
                     if (array == null)
                         array = super.getPage(page);
                     ArrayIntLongCompressed ret = new ArrayIntLongCompressed(array);
-                    synchronized (pages)
-                    {
-                        pages.put(page, new SoftReference<ArrayIntCompressed>(ret));
-                    }
+                    IndexPageCache.remove(pages.get(page));
+                    pages.put(page, IndexPageCache.<ArrayIntCompressed> add(ret, sizeOf(page)));
                     return ret;
                 }
             }
@@ -370,6 +544,7 @@ public abstract class IndexReader
     {
         File indexFile;
         SimpleBufferedRandomAccessInputStream in;
+        PageChannel channel;
         IntIndexReader header;
         IntIndexReader body;
 
@@ -388,8 +563,7 @@ public abstract class IndexReader
                 this.header = new PositionIndexReader(in, divider, indexLength - divider - 8);
                 this.body = new IntIndexReader(in, 0, divider);
 
-                this.body.LOCK = this.header.LOCK;
-
+                this.header.channel = this.body.channel = channel;
             }
             catch (RuntimeException e)
             {
@@ -404,8 +578,6 @@ public abstract class IndexReader
             this.header = ((IntIndexReader) header);
             this.body = ((IntIndexReader) body);
 
-            this.body.LOCK = this.header.LOCK;
-
             open();
         }
 
@@ -426,12 +598,19 @@ public abstract class IndexReader
                 {
 
                     in = new SimpleBufferedRandomAccessInputStream(new RandomAccessFile(this.indexFile, "r"));//$NON-NLS-1$
+                    channel = new PageChannel(indexFile, in);
 
                     if (this.header != null)
+                    {
                         this.header.in = in;
+                        this.header.channel = channel;
+                    }
 
                     if (this.body != null)
+                    {
                         this.body.in = in;
+                        this.body.channel = channel;
+                    }
                 }
             }
             catch (IOException e)
@@ -445,6 +624,16 @@ public abstract class IndexReader
             header.unload();
             body.unload();
 
+            if (channel != null)
+            {
+                channel.close();
+                channel = null;
+                if (this.header != null)
+                    this.header.channel = null;
+                if (this.body != null)
+                    this.body.channel = null;
+            }
+
             if (in != null)
             {
                 try
@@ -565,23 +754,17 @@ public abstract class IndexReader
             {
                 long[] pos = (long[]) key;
 
-                synchronized (this)
-                {
-                    return body.getNext(pos[0], (int)pos[1]);
-                }
+                return body.getNext(pos[0], (int)pos[1]);
             }
             else
             {
                 int[] pos = (int[]) key;
 
-                synchronized (this)
-                {
-                    // Treat pos[0] as unsigned
-                    if (pos[0] >= 0)
-                        return body.getNext(pos[0], pos[1]);
-                    else
-                        return body.getNext(pos[0] & 0xffffffffL, pos[1]);
-                }
+                // Treat pos[0] as unsigned
+                if (pos[0] >= 0)
+                    return body.getNext(pos[0], pos[1]);
+                else
+                    return body.getNext(pos[0] & 0xffffffffL, pos[1]);
             }
         }
 
@@ -607,22 +790,40 @@ public abstract class IndexReader
      */
     public static class LongIndexReader extends IndexWriter.LongIndex implements IIndexReader.IOne2LongIndex
     {
-        Object LOCK = new Object();
-
         File indexFile;
         SimpleBufferedRandomAccessInputStream in;
+        PageChannel channel;
         long[] pageStart;
+        Object[] pageLocks;
+
+        // the map of the pages is not safe for concurrent use
+        IndexWriter.Pages<SoftReference<ArrayLongCompressed>> loadedPages;
 
+        @SuppressWarnings("unchecked")
         public LongIndexReader(File indexFile, HashMapIntObject<Object> pages, int size, int pageSize, long[] pageStart)
                         throws IOException
         {
             this.size = size;
             this.pageSize = pageSize;
-            this.pages = pages;
+            this.pages = new HashMapIntObject<Object>();
 
             this.indexFile = indexFile;
             this.pageStart = pageStart;
 
+            loadedPages = new IndexWriter.Pages<SoftReference<ArrayLongCompressed>>(pageStart.length);
+            for (Iterator<Entry<Object>> iter = pages.entries(); iter.hasNext();)
+            {
+                Entry<Object> entry = iter.next();
+                if (entry.getValue() instanceof SoftReference<?>)
+                {
+                    // the writer kept the pages it wrote
+                    ArrayLongCompressed array = ((SoftReference<ArrayLongCompressed>) entry.getValue()).get();
+                    if (array != null)
+                        loadedPages.put(entry.getKey(), IndexPageCache.add(array, sizeOf(entry.getKey())));
+                }
+            }
+            pageLocks = newPageLocks(pageStart.length);
+
             open();
         }
 
@@ -630,6 +831,7 @@ public abstract class IndexReader
         {
             this(new SimpleBufferedRandomAccessInputStream(new RandomAccessFile(indexFile, "r")), 0, indexFile.length());//$NON-NLS-1$
             this.indexFile = indexFile;
+            this.channel = new PageChannel(indexFile, in);
 
             open();
         }
@@ -650,6 +852,10 @@ public abstract class IndexReader
 
             this.in.seek(start + length - 8 - (pageStart.length * 8));
             this.in.readLongArray(pageStart);
+
+            this.loadedPages = new IndexWriter.Pages<SoftReference<ArrayLongCompressed>>(pageStart.length);
+            this.pageLocks = newPageLocks(pageStart.length);
+            this.channel = new PageChannel(null, in);
         }
 
         private synchronized void open() throws IOException
@@ -661,12 +867,27 @@ public abstract class IndexReader
                 throw new IOException(Messages.IndexReader_Error_IndexIsEmbedded);
 
             in = new SimpleBufferedRandomAccessInputStream(new RandomAccessFile(this.indexFile, "r"));//$NON-NLS-1$
+            channel = new PageChannel(indexFile, in);
+        }
+
+        @Override
+        public synchronized void unload()
+        {
+            IndexPageCache.removeAll(loadedPages);
+            super.unload();
+            loadedPages = new IndexWriter.Pages<SoftReference<ArrayLongCompressed>>(pageStart.length);
         }
 
         public synchronized void close()
         {
             unload();
 
+            if (channel != null)
+            {
+                channel.close();
+                channel = null;
+            }
+
             if (in != null)
             {
                 try
@@ -684,37 +905,32 @@ public abstract class IndexReader
             }
         }
 
-        @SuppressWarnings("unchecked")
+        /**
+         * @return the estimated memory of a loaded page
+         */
+        int sizeOf(int page)
+        {
+            return (int) (pageStart[page + 1] - pageStart[page]) + IndexPageCache.PAGE_OVERHEAD;
+        }
+
         @Override
         protected ArrayLongCompressed getPage(int page)
         {
-            SoftReference<ArrayLongCompressed> ref = (SoftReference<ArrayLongCompressed>) pages.get(page);
-            ArrayLongCompressed array = ref == null ? null : ref.get();
+            ArrayLongCompressed array = IndexPageCache.get(loadedPages.get(page));
             if (array == null)
             {
-                synchronized (LOCK)
+                // only loads of the same page wait for each other
+                synchronized (pageLocks[page])
                 {
-                    ref = (SoftReference<ArrayLongCompressed>) pages.get(page);
+                    SoftReference<ArrayLongCompressed> ref = loadedPages.get(page);
                     array = ref == null ? null : ref.get();
 
                     if (array == null)
                     {
                         try
                         {
-                            byte[] buffer = null;
-
-                            this.in.seek(pageStart[page]);
-
-                            buffer = new byte[(int) (pageStart[page + 1] - pageStart[page])];
-                            if (this.in.read(buffer) != buffer.length)
-                                throw new IOException();
-
-                            array = new ArrayLongCompressed(buffer);
-
-                            synchronized (pages)
-                            {
-                                pages.put(page, new SoftReference<ArrayLongCompressed>(array));
-                            }
+                            array = new ArrayLongCompressed(channel.read(pageStart[page], pageStart[page + 1]));
+                            loadedPages.put(page, IndexPageCache.load(array, sizeOf(page)));
                         }
                         catch (IOException e)
                         {
@@ -740,6 +956,7 @@ public abstract class IndexReader
     {
         File indexFile;
         SimpleBufferedRandomAccessInputStream in;
+        PageChannel channel;
         IntIndexReader header;
         LongIndexReader body;
 
@@ -756,7 +973,7 @@ public abstract class IndexReader
             this.header = new IntIndexReader(in, divider, indexLength - divider - 8);
             this.body = new LongIndexReader(in, 0, divider);
 
-            this.body.LOCK = this.header.LOCK;
+            this.header.channel = this.body.channel = channel;
         }
 
         public long[] get(int index)
@@ -779,12 +996,19 @@ public abstract class IndexReader
                 {
 
                     in = new SimpleBufferedRandomAccessInputStream(new RandomAccessFile(this.indexFile, "r"));//$NON-NLS-1$
+                    channel = new PageChannel(indexFile, in);
 
                     if (this.header != null)
+                    {
                         this.header.in = in;
+                        this.header.channel = channel;
+                    }
 
                     if (this.body != null)
+                    {
                         this.body.in = in;
+                        this.body.channel = channel;
+                    }
                 }
             }
             catch (IOException e)
@@ -797,6 +1021,12 @@ public abstract class IndexReader
         {
             unload();
 
+            if (channel != null)
+            {
+                channel.close();
+                channel = this.header.channel = this.body.channel = null;
+            }
+
             if (in != null)
             {
                 try
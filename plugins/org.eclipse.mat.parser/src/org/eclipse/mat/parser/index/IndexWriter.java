@@ -11,23 +11,31 @@
  *******************************************************************************/
 package org.eclipse.mat.parser.index;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.Serializable;
 import java.lang.ref.SoftReference;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.eclipse.mat.collect.ArrayInt;
 import org.eclipse.mat.collect.ArrayIntCompressed;
 import org.eclipse.mat.collect.ArrayLong;
 import org.eclipse.mat.collect.ArrayLongCompressed;
-import org.eclipse.mat.collect.ArrayUtils;
 import org.eclipse.mat.collect.BitField;
 import org.eclipse.mat.collect.HashMapIntLong;
 import org.eclipse.mat.collect.HashMapIntObject;
@@ -39,8 +47,6 @@ import org.eclipse.mat.parser.index.IIndexReader.IOne2LongIndex;
 import org.eclipse.mat.parser.index.IIndexReader.IOne2OneIndex;
 import org.eclipse.mat.parser.index.IndexReader.SizeIndexReader;
 import org.eclipse.mat.parser.internal.Messages;
-import org.eclipse.mat.parser.io.BitInputStream;
-import org.eclipse.mat.parser.io.BitOutputStream;
 import org.eclipse.mat.util.IProgressListener;
 import org.eclipse.mat.util.MessageUtil;
 
@@ -59,6 +65,48 @@ public abstract class IndexWriter
     // Switch point for inbound key to using longs
     private static final long INBOUND_MAX_KEY1 = Integer.MAX_VALUE >>> TESTSCALE;
 
+    private static final AtomicLong BYTES_WRITTEN = new AtomicLong();
+
+    /**
+     * @return the number of bytes written to index files by all writers so
+     *         far
+     * @since 1.7
+     */
+    public static long getBytesWritten()
+    {
+        return BYTES_WRITTEN.get();
+    }
+
+    /**
+     * Opens an index file for writing, counting the bytes written to it.
+     */
+    /* package */static FileOutputStream openIndexFile(File file) throws FileNotFoundException
+    {
+        return new FileOutputStream(file)
+        {
+            @Override
+            public void write(int b) throws IOException
+            {
+                super.write(b);
+                BYTES_WRITTEN.incrementAndGet();
+            }
+
+            @Override
+            public void write(byte[] b) throws IOException
+            {
+                super.write(b);
+                BYTES_WRITTEN.addAndGet(b.length);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException
+            {
+                super.write(b, off, len);
+                BYTES_WRITTEN.addAndGet(len);
+            }
+        };
+    }
+
     public interface KeyWriter
     {
         public void storeKey(int index, Serializable key);
@@ -281,20 +329,25 @@ public abstract class IndexWriter
         }
     }
 
+    /**
+     * The pages of an index by page number. Pages can be read and put by
+     * several threads at the same time as long as no put grows the table, so
+     * readers make room for all their pages first.
+     */
     static class Pages<V>
     {
         int size;
-        Object[] elements;
+        AtomicReferenceArray<V> elements;
 
         public Pages(int initialSize)
         {
-            elements = new Object[initialSize];
+            elements = new AtomicReferenceArray<V>(initialSize);
             size = 0;
         }
 
-        private void ensureCapacity(int minCapacity)
+        void ensureCapacity(int minCapacity)
         {
-            int oldCapacity = elements.length;
+            int oldCapacity = elements.length();
             if (minCapacity > oldCapacity)
             {
                 int newCapacity = newCapacity(oldCapacity, minCapacity);
@@ -303,22 +356,22 @@ public abstract class IndexWriter
                     // Avoid strange exceptions later
                     throw new OutOfMemoryError(MessageUtil.format(Messages.IndexWriter_Error_ObjectArrayLength, minCapacity, newCapacity));
                 }
-                Object[] copy = new Object[newCapacity];
-                System.arraycopy(elements, 0, copy, 0, Math.min(elements.length, newCapacity));
+                AtomicReferenceArray<V> copy = new AtomicReferenceArray<V>(newCapacity);
+                for (int ii = 0; ii < oldCapacity; ii++)
+                    copy.set(ii, elements.get(ii));
                 elements = copy;
             }
         }
 
-        @SuppressWarnings("unchecked")
         public V get(int key)
         {
-            return (key >= elements.length) ? null : (V) elements[key];
+            return (key >= elements.length()) ? null : elements.get(key);
         }
 
         public void put(int key, V value)
         {
             ensureCapacity(key + 1);
-            elements[key] = value;
+            elements.set(key, value);
             size = Math.max(size, key + 1);
         }
 
@@ -568,7 +621,7 @@ public abstract class IndexWriter
 
         public IIndexReader.IOne2OneIndex writeTo(File indexFile, IteratorInt iterator) throws IOException
         {
-            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(openIndexFile(indexFile)));
 
             openStream(out, 0);
             addAll(iterator);
@@ -581,7 +634,7 @@ public abstract class IndexWriter
 
         public IIndexReader.IOne2OneIndex writeTo(File indexFile, int[] array) throws IOException
         {
-            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(openIndexFile(indexFile)));
 
             openStream(out, 0);
             addAll(array);
@@ -730,7 +783,7 @@ public abstract class IndexWriter
             // this.header2 = new byte[size];
             this.indexFile = indexFile;
 
-            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+            this.out = new DataOutputStream(new BufferedOutputStream(openIndexFile(indexFile)));
             this.body = new IntIndexStreamer();
             this.body.openStream(this.out, 0);
         }
@@ -911,53 +964,143 @@ public abstract class IndexWriter
 
     }
 
+    /**
+     * Collects the inbound references of all objects and writes them sorted by
+     * object.
+     * <p>
+     * The references are collected in runs of at most
+     * {@link #MAX_RUN_LENGTH} references. A full run is sorted and written to
+     * a temporary file on a separate thread while the next run is collected.
+     * Flushing merges the runs, reading at most {@link #MAX_MERGE_WIDTH} files
+     * at once, and writes the references of each object as soon as they are
+     * complete. So the memory used does not depend on the number of
+     * references, only on the number of objects and the references to a
+     * single object.
+     */
     public static class InboundWriter
     {
+        /** Number of references sorted in memory at once */
+        private static final int MAX_RUN_LENGTH = 1 << 22;
+        /** Number of run files read at once when merging */
+        private static final int MAX_MERGE_WIDTH = 64;
+
         int size;
         File indexFile;
         int[] header;
         // Used to expand the range of values stored in the header up to 2^40
         byte[] header2;
 
-        int bitLength;
-        int pageSize;
-        BitOutputStream[] segments;
-        long[] segmentSizes;
+        int maxRunLength;
+        int maxMergeWidth;
+
+        // object index in the high and reference in the low 32 bits,
+        // negative references are pseudo references
+        long[] run;
+        int runLength;
+        List<File> runFiles;
+        int numberOfRunFiles;
+        RunWriter runWriter;
 
         /**
          * @throws IOException
          */
         public InboundWriter(int size, File indexFile) throws IOException
         {
+            this(size, indexFile, MAX_RUN_LENGTH, MAX_MERGE_WIDTH);
+        }
+
+        /**
+         * Small runs and merge widths are for testing the merge of many run
+         * files.
+         * 
+         * @param maxRunLength
+         *            number of references sorted in memory at once
+         * @param maxMergeWidth
+         *            number of run files read at once when merging, at least 2
+         * @throws IOException
+         */
+        public InboundWriter(int size, File indexFile, int maxRunLength, int maxMergeWidth) throws IOException
+        {
+            if (maxRunLength < 1 || maxMergeWidth < 2)
+                throw new IllegalArgumentException();
+
             this.size = size;
             this.indexFile = indexFile;
+            this.maxRunLength = maxRunLength;
+            this.maxMergeWidth = maxMergeWidth;
 
-            int requiredSegments = (size / 500000) + 1;
+            this.run = new long[Math.min(1024, maxRunLength)];
+            this.runFiles = new ArrayList<File>();
+        }
 
-            int segments = 1;
-            while (segments < requiredSegments)
-                segments <<= 1;
+        public void log(int objectIndex, int refIndex, boolean isPseudo) throws IOException
+        {
+            if (runLength == run.length)
+            {
+                if (run.length < maxRunLength)
+                {
+                    long[] newRun = new long[(int) Math.min((long) run.length << 1, maxRunLength)];
+                    System.arraycopy(run, 0, newRun, 0, runLength);
+                    run = newRun;
+                }
+                else
+                {
+                    spill();
+                }
+            }
 
-            this.bitLength = mostSignificantBit(size) + 1;
-            this.pageSize = (size / segments) + 1;
-            this.segments = new BitOutputStream[segments];
-            this.segmentSizes = new long[segments];
+            int ref = isPseudo ? -1 - refIndex : refIndex; // 0 is a valid!
+            run[runLength++] = ((long) objectIndex << 32) | (ref & 0xffffffffL);
         }
 
-        public void log(int objectIndex, int refIndex, boolean isPseudo) throws IOException
+        /**
+         * Hands the full run to a thread which sorts and writes it, and
+         * continues with an empty one.
+         */
+        private void spill() throws IOException
         {
-            int segment = objectIndex / pageSize;
-            if (segments[segment] == null)
+            awaitRunWriter();
+
+            File runFile = newRunFile();
+            runWriter = new RunWriter(runFile, run, runLength);
+            runWriter.start();
+
+            run = new long[run.length];
+            runLength = 0;
+        }
+
+        private File newRunFile()
+        {
+            File runFile = new File(this.indexFile.getAbsolutePath() + (numberOfRunFiles++) + ".log");//$NON-NLS-1$
+            runFiles.add(runFile);
+            return runFile;
+        }
+
+        private void awaitRunWriter() throws IOException
+        {
+            if (runWriter == null)
+                return;
+
+            try
             {
-                File segmentFile = new File(this.indexFile.getAbsolutePath() + segment + ".log");//$NON-NLS-1$
-                segments[segment] = new BitOutputStream(new FileOutputStream(segmentFile));
+                runWriter.join();
+            }
+            catch (InterruptedException e)
+            {
+                IOException ioe = new IOException(e.getMessage());
+                ioe.initCause(e);
+                throw ioe;
             }
 
-            segments[segment].writeBit(isPseudo ? 1 : 0);
-            segments[segment].writeInt(objectIndex, bitLength);
-            segments[segment].writeInt(refIndex, bitLength);
+            Throwable failure = runWriter.failure;
+            runWriter = null;
 
-            segmentSizes[segment]++;
+            if (failure instanceof IOException)
+                throw (IOException) failure;
+            if (failure instanceof RuntimeException)
+                throw (RuntimeException) failure;
+            if (failure instanceof Error)
+                throw (Error) failure;
         }
 
         void setHeader(int index, long val)
@@ -984,25 +1127,45 @@ public abstract class IndexWriter
             header = new int[size];
 
             DataOutputStream index = new DataOutputStream(new BufferedOutputStream(
-                            new FileOutputStream(this.indexFile), 1024 * 256));
+                            openIndexFile(this.indexFile), 1024 * 256));
 
-            BitInputStream segmentIn = null;
+            List<RunInput> inputs = new ArrayList<RunInput>();
 
             try
             {
                 IntIndexStreamer body = new IntIndexStreamer();
                 body.openStream(index, 0);
 
-                for (int segment = 0; segment < segments.length; segment++)
+                // merge the files until the remaining ones can be read at
+                // once, together with the run still in memory
+                while (runFiles.size() >= maxMergeWidth)
                 {
-                    if (monitor.isCanceled())
-                        throw new IProgressListener.OperationCanceledException();
+                    List<File> files = new ArrayList<File>(runFiles);
+                    runFiles.clear();
+                    for (int ii = 0; ii < files.size(); ii += maxMergeWidth)
+                    {
+                        if (monitor.isCanceled())
+                            throw new IProgressListener.OperationCanceledException();
 
-                    File segmentFile = new File(this.indexFile.getAbsolutePath() + segment + ".log");//$NON-NLS-1$
-                    int startIndex = segment * pageSize;
-                    processGiantSegmentFile(monitor, keyWriter, body, segmentFile, segmentSizes[segment], segment, startIndex);
+                        List<File> group = files.subList(ii, Math.min(ii + maxMergeWidth, files.size()));
+                        mergeRunFiles(group, newRunFile(), inputs);
+                    }
                 }
 
+                for (File runFile : runFiles)
+                    inputs.add(new RunInput(runFile));
+                Arrays.sort(run, 0, runLength);
+                List<Input> all = new ArrayList<Input>(inputs);
+                all.add(new ArrayInput(run, runLength));
+
+                processReferences(monitor, keyWriter, body, new MergeInput(all));
+
+                for (RunInput input : inputs)
+                    input.delete();
+                inputs.clear();
+                runFiles.clear();
+                run = null;
+
                 // write header
                 long divider = body.closeStream();
                 IIndexReader.IOne2OneIndex headerIndex = null;
@@ -1052,230 +1215,78 @@ public abstract class IndexWriter
                 catch (IOException ignore)
                 {}
 
-                try
-                {
-                    if (segmentIn != null)
-                        segmentIn.close();
-                }
-                catch (IOException ignore)
-                {}
+                for (RunInput input : inputs)
+                    input.delete();
 
                 if (monitor.isCanceled())
                     cancel();
             }
         }
 
-        private void processGiantSegmentFile(IProgressListener monitor, KeyWriter keyWriter,
-                        IntIndexStreamer body, File segmentFile, long segmentSize, int segment, int startIndex) throws IOException
-                        {
-            final int SUBSIZE = 500000 * 16;
-            if (!segmentFile.exists())
-                return;
-            if (segmentSize < SUBSIZE)
-            {
-                processSegmentFile(monitor, keyWriter, body, segmentFile, (int)segmentSize, segment);
-                return;
-            }
+        private void mergeRunFiles(List<File> files, File target, List<RunInput> inputs) throws IOException
+        {
+            for (File file : files)
+                inputs.add(new RunInput(file));
 
-            // read payload and get counts of refs per object
-            BitInputStream segmentIn = new BitInputStream(new FileInputStream(segmentFile));
-            int counts[];
+            MergeInput merged = new MergeInput(new ArrayList<Input>(inputs));
+            RunOutput out = new RunOutput(target);
             try
             {
-                counts = new int[pageSize];
-                for (long ii = 0; ii < segmentSize; ii++)
-                {
-
-                    segmentIn.readBit();
-
-                    int objIndex = segmentIn.readInt(bitLength);
-                    segmentIn.readInt(bitLength);
-
-                    counts[objIndex - startIndex]++;
-                }
+                while (merged.next())
+                    out.write(merged.value);
             }
             finally
             {
-                segmentIn.close();
+                out.close();
             }
 
-            if (monitor.isCanceled())
-                throw new IProgressListener.OperationCanceledException();
-
-            // Work out where to split the segment
-            int subsegment[] = new int[pageSize];
-            int subsegSize = SUBSIZE;
-            int subsegs = -1;
-            for (int jj = 0; jj < counts.length; ++jj)
-            {
-                if (counts[jj] > 0 && (long)subsegSize + counts[jj] > SUBSIZE)
-                {
-                    subsegSize = 0;
-                    subsegs++;
-                }
-                subsegSize += counts[jj];
-                subsegment[jj] = subsegs;
-            }
-            ++subsegs;
+            for (RunInput input : inputs)
+                input.delete();
+            inputs.clear();
+        }
 
-            if (subsegs <= 1)
-            {
-                // Only one subsegment, so use the original segment
-                processSegmentFile(monitor, keyWriter, body, segmentFile, (int)segmentSize, segment);
-                return;
-            }
+        /**
+         * Writes the references of the objects, which the input returns
+         * sorted by object.
+         */
+        private void processReferences(IProgressListener monitor, KeyWriter keyWriter, IntIndexStreamer body,
+                        Input input) throws IOException
+        {
+            int[] refIndex = new int[16];
+            int length = 0;
+            int previous = -1;
+            int objects = 0;
 
-            // Create the subsegments
-            BitOutputStream[] subsegments = new BitOutputStream[subsegs];
-            int[] subsegmentSizes = new int[subsegs];
-            try
+            while (input.next())
             {
-                try
+                int objectIndex = (int) (input.value >>> 32);
+                if (objectIndex != previous)
                 {
-                    for (int ss = 0; ss < subsegs; ++ss)
-                    {
-                        File subsegmentFile = new File(this.indexFile.getAbsolutePath() + segment +"." + ss + ".log");//$NON-NLS-1$ //$NON-NLS-2$
-                        subsegments[ss] = new BitOutputStream(new FileOutputStream(subsegmentFile));
-                    }
-
-                    // Partition payload
-                    segmentIn = new BitInputStream(new FileInputStream(segmentFile));
-                    try
+                    if (length > 0)
                     {
-                        for (long ii = 0; ii < segmentSize; ii++)
-                        {
-                            if (ii % 1000 == 0 && monitor.isCanceled())
-                                throw new IProgressListener.OperationCanceledException();
-
-                            boolean isPseudo = segmentIn.readBit() == 1;
-
-                            int objectIndex = segmentIn.readInt(bitLength);
-                            int refIndex = segmentIn.readInt(bitLength);
-
-                            int subseg = subsegment[objectIndex - startIndex];
+                        if (++objects % 1000 == 0 && monitor.isCanceled())
+                            throw new IProgressListener.OperationCanceledException();
 
-                            subsegments[subseg].writeBit(isPseudo ? 1 : 0);
-                            subsegments[subseg].writeInt(objectIndex, bitLength);
-                            subsegments[subseg].writeInt(refIndex, bitLength);
-
-                            subsegmentSizes[subseg]++;
-
-                        }
-                    }
-                    finally
-                    {
-                        segmentIn.close();
-                    }
-                }
-                finally 
-                {
-                    // Close the subfiles
-                    for (int ss = 0; ss < subsegs; ++ss)
-                    {
-                        if (subsegments[ss] != null)
-                            subsegments[ss].close();
+                        setHeader(previous, body.size + 1);
+                        processObject(keyWriter, body, previous, refIndex, 0, length);
                     }
+                    previous = objectIndex;
+                    length = 0;
                 }
 
-                // delete segment log
-                segmentFile.delete();
-                segmentFile = null;
-
-                // Process the subsegments
-                for (int ss = 0; ss < subsegs; ++ss)
+                if (length == refIndex.length)
                 {
-                    File subsegmentFile = new File(this.indexFile.getAbsolutePath() + segment +"." + ss + ".log");//$NON-NLS-1$ //$NON-NLS-2$
-                    processSegmentFile(monitor, keyWriter, body, subsegmentFile, subsegmentSizes[ss], segment);
+                    int[] newRefIndex = new int[refIndex.length << 1];
+                    System.arraycopy(refIndex, 0, newRefIndex, 0, length);
+                    refIndex = newRefIndex;
                 }
+                refIndex[length++] = (int) input.value;
             }
-            finally
-            {
-                // Tidy up in case of cancel
-                // Normal operation will have deleted these files
-                for (int ss = 0; ss < subsegs; ++ss)
-                {
-                    File subsegmentFile = new File(this.indexFile.getAbsolutePath() + segment +"." + ss + ".log");//$NON-NLS-1$ //$NON-NLS-2$
-                    if (subsegmentFile.exists())
-                        subsegmentFile.delete();
-                }
-            }
-        }
-
-        private void processSegmentFile(IProgressListener monitor, KeyWriter keyWriter, IntIndexStreamer body, File segmentFile, int segmentSize, int segment) throws IOException
-        {
-            if (!segmentFile.exists())
-                return;
 
-            // read & sort payload
-            BitInputStream segmentIn = new BitInputStream(new FileInputStream(segmentFile));
-
-            int objIndex[];
-            int refIndex[];
-            try
+            if (length > 0)
             {
-                objIndex= new int[segmentSize];
-                refIndex= new int[segmentSize];
-
-                for (int ii = 0; ii < segmentSize; ii++)
-                {
-
-                    boolean isPseudo = segmentIn.readBit() == 1;
-
-                    objIndex[ii] = segmentIn.readInt(bitLength);
-                    refIndex[ii] = segmentIn.readInt(bitLength);
-
-                    if (isPseudo)
-                        refIndex[ii] = -1 - refIndex[ii]; // 0 is a valid!
-                }
-            }
-            finally
-            {
-                segmentIn.close();
-                segmentIn = null;
-            }
-
-            if (monitor.isCanceled())
-                throw new IProgressListener.OperationCanceledException();
-
-            // delete segment log
-            segmentFile.delete();
-            segmentFile = null;
-
-            processSegment(monitor, keyWriter, body, objIndex, refIndex);
-        }
-
-        private void processSegment(IProgressListener monitor, KeyWriter keyWriter,
-                        IntIndexStreamer body, int[] objIndex, int[] refIndex) throws IOException
-        {
-            // sort (only by objIndex though)
-            ArrayUtils.sort(objIndex, refIndex);
-
-            // write index body
-            int start = 0;
-            int previous = -1;
-
-            for (int ii = 0; ii <= objIndex.length; ii++)
-            {
-                if (ii == 0)
-                {
-                    start = ii;
-                    previous = objIndex[ii];
-                }
-                else if (ii == objIndex.length || previous != objIndex[ii])
-                {
-                    if (monitor.isCanceled())
-                        throw new IProgressListener.OperationCanceledException();
-
-                    setHeader(previous, body.size + 1);
-
-                    processObject(keyWriter, body, previous, refIndex, start, ii);
-
-                    if (ii < objIndex.length)
-                    {
-                        previous = objIndex[ii];
-                        start = ii;
-                    }
-                }
+                setHeader(previous, body.size + 1);
+                processObject(keyWriter, body, previous, refIndex, 0, length);
             }
         }
 
@@ -1361,44 +1372,245 @@ public abstract class IndexWriter
             try
             {
                 close();
-
-                if (segments != null)
-                {
-                    for (int ii = 0; ii < segments.length; ii++)
-                    {
-                        new File(this.indexFile.getAbsolutePath() + ii + ".log").delete();//$NON-NLS-1$
-                    }
-                }
             }
             catch (IOException ignore)
             {}
+            catch (RuntimeException ignore)
+            {}
             finally
             {
+                if (runFiles != null)
+                {
+                    for (File runFile : runFiles)
+                        runFile.delete();
+                }
                 indexFile.delete();
             }
         }
 
+        /**
+         * Waits until the last full run is written.
+         */
         public synchronized void close() throws IOException
         {
-            if (segments != null)
+            awaitRunWriter();
+        }
+
+        public File getIndexFile()
+        {
+            return indexFile;
+        }
+
+        /**
+         * Sorts a run and writes it to its file.
+         */
+        private static final class RunWriter extends Thread
+        {
+            private final File file;
+            private final long[] values;
+            private final int length;
+            volatile Throwable failure;
+
+            RunWriter(File file, long[] values, int length)
+            {
+                super("InboundWriter-" + file.getName()); //$NON-NLS-1$
+                this.file = file;
+                this.values = values;
+                this.length = length;
+                setDaemon(true);
+            }
+
+            @Override
+            public void run()
             {
-                for (int ii = 0; ii < segments.length; ii++)
+                try
                 {
-                    if (segments[ii] != null)
+                    Arrays.sort(values, 0, length);
+
+                    RunOutput out = new RunOutput(file);
+                    try
                     {
-                        segments[ii].flush();
-                        segments[ii].close();
-                        segments[ii] = null;
+                        for (int ii = 0; ii < length; ii++)
+                            out.write(values[ii]);
                     }
+                    finally
+                    {
+                        out.close();
+                    }
+                }
+                catch (Throwable t)
+                {
+                    failure = t;
                 }
             }
         }
 
-        public File getIndexFile()
+        /**
+         * Writes sorted values as the differences to their predecessor, seven
+         * bits per byte.
+         */
+        private static final class RunOutput
         {
-            return indexFile;
+            private final DataOutputStream out;
+            private long previous;
+
+            RunOutput(File file) throws IOException
+            {
+                out = new DataOutputStream(new BufferedOutputStream(openIndexFile(file), 1024 * 64));
+            }
+
+            void write(long value) throws IOException
+            {
+                long delta = value - previous;
+                previous = value;
+
+                while ((delta & ~0x7fL) != 0)
+                {
+                    out.write((int) (delta & 0x7f) | 0x80);
+                    delta >>>= 7;
+                }
+                out.write((int) delta);
+            }
+
+            void close() throws IOException
+            {
+                // -1 as a difference marks the end, the values are sorted
+                write(previous - 1);
+                out.close();
+            }
+        }
+
+        abstract static class Input
+        {
+            long value;
+
+            /**
+             * @return false if there are no more values
+             */
+            abstract boolean next() throws IOException;
         }
 
+        private static final class ArrayInput extends Input
+        {
+            private final long[] values;
+            private final int length;
+            private int index;
+
+            ArrayInput(long[] values, int length)
+            {
+                this.values = values;
+                this.length = length;
+            }
+
+            @Override
+            boolean next()
+            {
+                if (index == length)
+                    return false;
+                value = values[index++];
+                return true;
+            }
+        }
+
+        private static final class RunInput extends Input
+        {
+            private final File file;
+            private DataInputStream in;
+
+            RunInput(File file) throws IOException
+            {
+                this.file = file;
+                this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1024 * 64));
+            }
+
+            @Override
+            boolean next() throws IOException
+            {
+                if (in == null)
+                    return false;
+
+                long delta = 0;
+                int shift = 0;
+                int b;
+                do
+                {
+                    b = in.readUnsignedByte();
+                    delta |= (long) (b & 0x7f) << shift;
+                    shift += 7;
+                }
+                while ((b & 0x80) != 0);
+
+                if (delta == -1L)
+                {
+                    close();
+                    return false;
+                }
+
+                value += delta;
+                return true;
+            }
+
+            private void close() throws IOException
+            {
+                if (in != null)
+                {
+                    in.close();
+                    in = null;
+                }
+            }
+
+            void delete()
+            {
+                try
+                {
+                    close();
+                }
+                catch (IOException ignore)
+                {}
+                file.delete();
+            }
+        }
+
+        /**
+         * Merges sorted inputs.
+         */
+        private static final class MergeInput extends Input
+        {
+            private final PriorityQueue<Input> queue;
+            private Input current;
+
+            MergeInput(List<Input> inputs) throws IOException
+            {
+                queue = new PriorityQueue<Input>(inputs.size() + 1, new Comparator<Input>()
+                {
+                    public int compare(Input o1, Input o2)
+                    {
+                        return o1.value < o2.value ? -1 : o1.value == o2.value ? 0 : 1;
+                    }
+                });
+                for (Input input : inputs)
+                {
+                    if (input.next())
+                        queue.add(input);
+                }
+            }
+
+            @Override
+            boolean next() throws IOException
+            {
+                // advance the input of the last value only now, so that it
+                // was not read ahead
+                if (current != null && current.next())
+                    queue.add(current);
+
+                current = queue.poll();
+                if (current == null)
+                    return false;
+
+                value = current.value;
+                return true;
+            }
+        }
     }
 
     public static class IntArray1NUncompressedCollector
@@ -1669,7 +1881,7 @@ public abstract class IndexWriter
 
         public LongIndexStreamer(File indexFile) throws IOException
         {
-            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(openIndexFile(indexFile)));
             openStream(out, 0);
         }
 
@@ -1683,7 +1895,7 @@ public abstract class IndexWriter
         public IOne2LongIndex writeTo(File indexFile, int size, HashMapIntObject<Object> pages, int pageSize)
                         throws IOException
         {
-            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(openIndexFile(indexFile)));
 
             openStream(out, 0);
 
@@ -1710,7 +1922,7 @@ public abstract class IndexWriter
 
         public IOne2LongIndex writeTo(File indexFile, long[] array) throws IOException
         {
-            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(openIndexFile(indexFile)));
 
             openStream(out, 0);
             addAll(array);
@@ -1723,7 +1935,7 @@ public abstract class IndexWriter
 
         public IOne2LongIndex writeTo(File indexFile, IteratorLong iterator) throws IOException
         {
-            FileOutputStream fos = new FileOutputStream(indexFile);
+            FileOutputStream fos = openIndexFile(indexFile);
             try
             {
                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
@@ -1749,7 +1961,7 @@ public abstract class IndexWriter
 
         public IOne2LongIndex writeTo(File indexFile, ArrayLong array) throws IOException
         {
-            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(openIndexFile(indexFile)));
 
             openStream(out, 0);
             addAll(array);
@@ -1947,7 +2159,7 @@ public abstract class IndexWriter
             this.header = new int[size];
             this.indexFile = indexFile;
 
-            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+            this.out = new DataOutputStream(new BufferedOutputStream(openIndexFile(indexFile)));
             this.body = new LongIndexStreamer();
             this.body.openStream(this.out, 0);
         }
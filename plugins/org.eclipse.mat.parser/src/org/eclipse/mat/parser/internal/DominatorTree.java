@@ -11,9 +11,17 @@
  *******************************************************************************/
 package org.eclipse.mat.parser.internal;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.LinkedList;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.collect.ArrayUtils;
@@ -23,6 +31,7 @@ import org.eclipse.mat.parser.index.IIndexReader;
 import org.eclipse.mat.parser.index.IndexManager;
 import org.eclipse.mat.parser.index.IndexWriter;
 import org.eclipse.mat.parser.index.IndexManager.Index;
+import org.eclipse.mat.parser.internal.util.IntArray;
 import org.eclipse.mat.parser.internal.util.IntStack;
 import org.eclipse.mat.util.IProgressListener;
 import org.eclipse.mat.util.SimpleMonitor;
@@ -33,7 +42,24 @@ public class DominatorTree
     public static void calculate(SnapshotImpl snapshot, IProgressListener listener) throws SnapshotException,
                     IOException
     {
-        new Calculator(snapshot, listener).compute();
+        calculate(snapshot, listener, true);
+    }
+
+    /**
+     * Calculates the dominator tree and the retained sizes.
+     * 
+     * @param parallel
+     *            if true and several processors are available, the reading
+     *            of the inbound references, the retained sizes and the index
+     *            of the dominated objects are prepared on several threads.
+     *            The Lengauer-Tarjan algorithm itself and therefore the
+     *            resulting indices are the same as with the serial engine.
+     */
+    public static void calculate(SnapshotImpl snapshot, IProgressListener listener, boolean parallel)
+                    throws SnapshotException, IOException
+    {
+        int numberOfThreads = parallel ? Runtime.getRuntime().availableProcessors() : 1;
+        new Calculator(snapshot, listener, numberOfThreads).compute();
     }
 
     static class Calculator
@@ -46,22 +72,38 @@ public class DominatorTree
         int[] gcRootsArray;
         private BitField gcRootsSet;
 
-        int[] bucket;
+        IntArray bucket;
         private int r, n;
-        private int[] dom;
-        private int[] parent;
-        private int[] anchestor;
-        private int[] vertex;
-        private int[] label;
-        private int[] semi;
+        private IntArray dom;
+        private IntArray parent;
+        private IntArray anchestor;
+        private IntArray vertex;
+        private IntArray label;
+        private IntArray semi;
+
+        /** Where the working arrays are if they are memory-mapped */
+        private final File directory;
 
         private static int ROOT_VALUE = -1;
         private static int[] ROOT_VALUE_ARR = new int[] { ROOT_VALUE };
 
+        /** Number of vertices or objects handed to a worker thread at once */
+        private static final int BATCH_SIZE = 4096;
+
+        private final int numberOfThreads;
+        private ExecutorService executor;
+
         public Calculator(SnapshotImpl snapshot, IProgressListener listener) throws SnapshotException
+        {
+            this(snapshot, listener, 1);
+        }
+
+        public Calculator(SnapshotImpl snapshot, IProgressListener listener, int numberOfThreads)
+                        throws SnapshotException
         {
 
             this.snapshot = snapshot;
+            this.numberOfThreads = numberOfThreads;
             inboundIndex = snapshot.getIndexManager().inbound();
             outboundIndex = snapshot.getIndexManager().outbound();
             this.monitor = new SimpleMonitor(Messages.DominatorTree_CalculatingDominatorTree, listener, new int[] {
@@ -88,23 +130,81 @@ public class DominatorTree
             n = snapshot.getSnapshotInfo().getNumberOfObjects() + 1;
             r = 1;
 
-            parent = new int[n + 1];
-            anchestor = new int[n + 1];
-            vertex = new int[n + 1];
-            label = new int[n + 1];
-            semi = new int[n + 1];
+            directory = new File(snapshot.getSnapshotInfo().getPrefix()).getAbsoluteFile().getParentFile();
+            try
+            {
+                parent = IntArray.create(n + 1, directory);
+                anchestor = IntArray.create(n + 1, directory);
+                vertex = IntArray.create(n + 1, directory);
+                label = IntArray.create(n + 1, directory);
+                semi = IntArray.create(n + 1, directory);
+
+                /*
+                 * Allocate these up front, to check for early OOM, but then
+                 * free so that dfs() can use the space for outbound index
+                 * caching.
+                 */
+                dom = IntArray.create(n + 1, directory);
+                bucket = IntArray.create(n + 1, directory);
+                dom.close();
+                bucket.close();
+                dom = null;
+                bucket = null;
+            }
+            catch (IOException e)
+            {
+                release();
+                throw new SnapshotException(e);
+            }
+        }
 
-            /*
-             * Allocate these up front, to check for early OOM, but then free
-             * so that dfs() can use the space for outbound index caching.  
-             */
-            dom = new int[n + 1];
-            bucket = new int[n + 1];
-            dom = null;
-            bucket = null;
+        /**
+         * Closes the working arrays of the Lengauer-Tarjan algorithm.
+         */
+        private void release()
+        {
+            IntArray[] arrays = new IntArray[] { parent, anchestor, vertex, label, semi, dom, bucket };
+            parent = anchestor = vertex = label = semi = dom = bucket = null;
+            for (IntArray array : arrays)
+            {
+                if (array != null)
+                    array.close();
+            }
         }
 
         public void compute() throws IOException, SnapshotException, IProgressListener.OperationCanceledException
+        {
+            if (numberOfThreads > 1)
+            {
+                executor = Executors.newFixedThreadPool(numberOfThreads, new ThreadFactory()
+                {
+                    int count;
+
+                    public synchronized Thread newThread(Runnable r)
+                    {
+                        Thread thread = new Thread(r, "DominatorTreeThread-" + (++count)); //$NON-NLS-1$
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            }
+
+            try
+            {
+                doCompute();
+            }
+            finally
+            {
+                if (executor != null)
+                {
+                    executor.shutdownNow();
+                    executor = null;
+                }
+                release();
+            }
+        }
+
+        private void doCompute() throws IOException, SnapshotException, IProgressListener.OperationCanceledException
         {
             IProgressListener progressListener0 = this.monitor.nextMonitor();
             progressListener0.beginTask(Messages.DominatorTree_DominatorTreeCalculation, 3);
@@ -120,47 +220,91 @@ public class DominatorTree
             /*
              * Reallocate just before use. 
              */
-            dom = new int[snapshot.getSnapshotInfo().getNumberOfObjects() + 2];
-            bucket = new int[snapshot.getSnapshotInfo().getNumberOfObjects() + 2];
+            dom = IntArray.create(snapshot.getSnapshotInfo().getNumberOfObjects() + 2, directory);
+            bucket = IntArray.create(snapshot.getSnapshotInfo().getNumberOfObjects() + 2, directory);
 
-            Arrays.fill(bucket, -1);
+            bucket.fill(-1);
+
+            /*
+             * Vertices are processed in decreasing order of their dfs number.
+             * The loop stays on one thread: each vertex evaluates the forest
+             * linked by the vertices before it. Iterative dataflow over
+             * partitions needs as many rounds as the dominator tree is deep,
+             * which for a chain of objects is the number of objects, so only
+             * reading the predecessors is done by the workers.
+             */
+            Batches<int[][]> predecessors = null;
+            if (executor != null)
+            {
+                predecessors = new Batches<int[][]>((n - 1 + BATCH_SIZE - 1) / BATCH_SIZE)
+                {
+                    int[][] compute(int batch)
+                    {
+                        int first = n - batch * BATCH_SIZE;
+                        int last = Math.max(2, first - BATCH_SIZE + 1);
+                        int[][] answer = new int[first - last + 1][];
+                        for (int i = first; i >= last; i--)
+                            answer[first - i] = getPredecessors(vertex.get(i));
+                        return answer;
+                    }
+                };
+            }
+            int[][] batch = null;
+            int batchIndex = 0;
 
             for (int i = n; i >= 2; i--)
             {
-                int w = vertex[i];
-                for (int v : getPredecessors(w))
+                int w = vertex.get(i);
+                int[] preds;
+                if (predecessors != null)
+                {
+                    if (batch == null || batchIndex == batch.length)
+                    {
+                        batch = predecessors.next();
+                        batchIndex = 0;
+                    }
+                    preds = batch[batchIndex];
+                    batch[batchIndex++] = null;
+                }
+                else
+                {
+                    preds = getPredecessors(w);
+                }
+                for (int v : preds)
                 {
                     v += 2;
                     if (v < 0)
                         continue;
                     int u = eval(v);
-                    if (semi[u] < semi[w])
+                    if (semi.get(u) < semi.get(w))
                     {
-                        semi[w] = semi[u];
+                        semi.set(w, semi.get(u));
                     }
                 }
                 // add w to bucket(vertex(semi(w)))
                 // create the bucket if needed
-                bucket[w] = bucket[vertex[semi[w]]]; // serves as next(w)
-                bucket[vertex[semi[w]]] = w; // serves as
+                int first = vertex.get(semi.get(w));
+                bucket.set(w, bucket.get(first)); // serves as next(w)
+                bucket.set(first, w); // serves as
                 // first(vertex[semi[w]])
-                link(parent[w], w);
+                int p = parent.get(w);
+                link(p, w);
 
-                int v = bucket[parent[w]];
+                int v = bucket.get(p);
                 while (v != -1)
                 {
                     int u = eval(v);
-                    if (semi[u] < semi[v])
+                    if (semi.get(u) < semi.get(v))
                     {
-                        dom[v] = u;
+                        dom.set(v, u);
                     }
                     else
                     {
-                        dom[v] = parent[w];
+                        dom.set(v, p);
                     }
-                    v = bucket[v]; // here bucket serves as next[]
+                    v = bucket.get(v); // here bucket serves as next[]
                 }
-                bucket[parent[w]] = -1;
+                bucket.set(p, -1);
                 // }
                 if (i % 1000 == 0)
                 {
@@ -172,17 +316,19 @@ public class DominatorTree
 
             for (int i = 2; i <= n; i++)
             {
-                int w = vertex[i];
-                if (dom[w] != vertex[semi[w]])
+                int w = vertex.get(i);
+                if (dom.get(w) != vertex.get(semi.get(w)))
                 {
-                    dom[w] = dom[dom[w]];
+                    dom.set(w, dom.get(dom.get(w)));
                 }
             }
-            dom[r] = 0;
+            dom.set(r, 0);
 
             progressListener.done();
 
-            parent = anchestor = vertex = label = semi = bucket = null;
+            // sorting and the retained sizes need the dominators on the heap
+            final int[] dominators = dom.toArray();
+            release();
             inboundIndex.unload();
 
             if (progressListener0.isCanceled())
@@ -199,12 +345,12 @@ public class DominatorTree
 
                                 public boolean hasNext()
                                 {
-                                    return nextIndex < dom.length;
+                                    return nextIndex < dominators.length;
                                 }
 
                                 public int next()
                                 {
-                                    return dom[nextIndex++];
+                                    return dominators[nextIndex++];
                                 }
 
                             }));
@@ -217,10 +363,10 @@ public class DominatorTree
             objectIds[1] = ROOT_VALUE;
             progressListener0.worked(1);
 
-            ArrayUtils.sort(dom, objectIds, 2, dom.length - 2);
+            ArrayUtils.sort(dominators, objectIds, 2, dominators.length - 2);
             progressListener0.worked(1);
 
-            FlatDominatorTree tree = new FlatDominatorTree(snapshot, dom, objectIds, ROOT_VALUE);
+            FlatDominatorTree tree = new FlatDominatorTree(snapshot, dominators, objectIds, ROOT_VALUE);
 
             if (progressListener0.isCanceled())
                 throw new IProgressListener.OperationCanceledException();
@@ -230,6 +376,58 @@ public class DominatorTree
 
         }
 
+        /**
+         * Computes consecutive batches of work on the worker threads and
+         * returns the results in the order of the batches. Only a few batches
+         * are computed ahead of the consumer to bound the memory used.
+         */
+        abstract class Batches<T>
+        {
+            private final LinkedList<Future<T>> queue = new LinkedList<Future<T>>();
+            private final int numberOfBatches;
+            private int submitted;
+
+            Batches(int numberOfBatches)
+            {
+                this.numberOfBatches = numberOfBatches;
+            }
+
+            abstract T compute(int batch) throws SnapshotException;
+
+            T next() throws SnapshotException
+            {
+                while (submitted < numberOfBatches && queue.size() < 2 * numberOfThreads)
+                {
+                    final int batch = submitted++;
+                    queue.add(executor.submit(new Callable<T>()
+                    {
+                        public T call() throws SnapshotException
+                        {
+                            return compute(batch);
+                        }
+                    }));
+                }
+
+                try
+                {
+                    return queue.removeFirst().get();
+                }
+                catch (InterruptedException e)
+                {
+                    throw new SnapshotException(e);
+                }
+                catch (ExecutionException e)
+                {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException)
+                        throw (RuntimeException) cause;
+                    if (cause instanceof Error)
+                        throw (Error) cause;
+                    throw SnapshotException.rethrow(cause);
+                }
+            }
+        }
+
         private void dfs(int root) throws UnsupportedOperationException
         {
             IProgressListener progressListener = this.monitor.nextMonitor();
@@ -263,13 +461,13 @@ public class DominatorTree
                 successors = (int[]) successorsStack[size - 1];
                 currentSuccessor = currentSuccessorStack[size - 1];
 
-                if (semi[v] == 0)
+                if (semi.get(v) == 0)
                 {
                     n = n + 1;
-                    semi[v] = n;
-                    vertex[n] = v;
-                    label[v] = v;
-                    anchestor[v] = 0;
+                    semi.set(v, n);
+                    vertex.set(n, v);
+                    label.set(v, v);
+                    anchestor.set(v, 0);
                 }
 
                 if (currentSuccessor < successors.length)
@@ -280,9 +478,9 @@ public class DominatorTree
                     // value
 
                     // push the next unvisited successor
-                    if (semi[w] == 0)
+                    if (semi.get(w) == 0)
                     {
-                        parent[w] = v;
+                        parent.set(w, v);
                         successors = outboundIndex.get(w - 2); // get the
                         // successors of w
 
@@ -353,46 +551,47 @@ public class DominatorTree
         private void compress(int v)
         {
             IntStack stack = new IntStack();
-            while (anchestor[anchestor[v]] != 0) // is ancestor[v] a root in
+            while (anchestor.get(anchestor.get(v)) != 0) // is ancestor[v] a root in
             // the
             // forest?
             {
                 stack.push(v);
-                v = anchestor[v];
+                v = anchestor.get(v);
             }
             while (stack.size() > 0)
             {
                 v = stack.pop();
-                if (semi[label[anchestor[v]]] < semi[label[v]])
+                int a = anchestor.get(v);
+                if (semi.get(label.get(a)) < semi.get(label.get(v)))
                 {
-                    label[v] = label[anchestor[v]];
+                    label.set(v, label.get(a));
                 }
-                anchestor[v] = anchestor[anchestor[v]];
+                anchestor.set(v, anchestor.get(a));
             }
         }
 
         private int eval(int v)
         {
-            if (anchestor[v] == 0)
+            if (anchestor.get(v) == 0)
             {
                 return v;
             }
             else
             {
                 compress(v);
-                return label[v];
+                return label.get(v);
             }
         }
 
         private void link(int v, int w)
         {
-            anchestor[w] = v;
+            anchestor.set(w, v);
         }
 
-        private void writeIndexFiles(FlatDominatorTree tree) throws IOException
+        private void writeIndexFiles(FlatDominatorTree tree) throws IOException, SnapshotException
         {
 
-            IndexWriter.IntArray1NWriter writer = new IndexWriter.IntArray1NWriter(dom.length - 1,
+            IndexWriter.IntArray1NWriter writer = new IndexWriter.IntArray1NWriter(tree.dom.length - 1,
                             IndexManager.Index.DOMINATED.getFile(snapshot.getSnapshotInfo().getPrefix()));
 
             int numberOfObjects = snapshot.getSnapshotInfo().getNumberOfObjects();
@@ -400,10 +599,44 @@ public class DominatorTree
             IProgressListener progressListener = this.monitor.nextMonitor();
             progressListener.beginTask(Messages.DominatorTree_CreateDominatorsIndexFile, numberOfObjects / 1000);
 
+            // the sorted successors of object ids starting at -1
+            Batches<int[][]> dominated = null;
+            if (executor != null)
+            {
+                final FlatDominatorTree flatTree = tree;
+                final int numberOfIds = numberOfObjects + 1;
+                dominated = new Batches<int[][]>((numberOfIds + BATCH_SIZE - 1) / BATCH_SIZE)
+                {
+                    int[][] compute(int batch)
+                    {
+                        int first = batch * BATCH_SIZE;
+                        int[][] answer = new int[Math.min(BATCH_SIZE, numberOfIds - first)][];
+                        for (int ii = 0; ii < answer.length; ii++)
+                        {
+                            int[] successors = flatTree.getSuccessorsArr(first + ii - 1);
+                            flatTree.sortByTotalSize(successors, null, null);
+                            answer[ii] = successors;
+                        }
+                        return answer;
+                    }
+                };
+            }
+            int[][] batch = null;
+
             for (int i = -1; i < numberOfObjects; i++)
             {
-                int[] successors = tree.getSuccessorsArr(i);
-                tree.sortByTotalSize(successors);
+                int[] successors;
+                if (dominated != null)
+                {
+                    if ((i + 1) % BATCH_SIZE == 0)
+                        batch = dominated.next();
+                    successors = batch[(i + 1) % BATCH_SIZE];
+                }
+                else
+                {
+                    successors = tree.getSuccessorsArr(i);
+                    tree.sortByTotalSize(successors);
+                }
                 writer.log(i + 1, successors);
 
                 if (i % 1000 == 0)
@@ -474,6 +707,18 @@ public class DominatorTree
             }
 
             public void sortByTotalSize(int[] objectIds)
+            {
+                sortByTotalSize(objectIds, tempLongArray, tempIntArray);
+            }
+
+            /**
+             * @param tmpLong
+             *            temporary array for the sort or null, so that
+             *            several threads can sort at once
+             * @param tmpInt
+             *            temporary array for the sort or null
+             */
+            void sortByTotalSize(int[] objectIds, long[] tmpLong, int[] tmpInt)
             {
                 int length = objectIds.length;
 
@@ -486,13 +731,13 @@ public class DominatorTree
 
                 // sort both arrays according to the total sizes
                 if (totalSizes.length > 1)
-                    if (totalSizes.length > TEMP_ARR_LENGTH)
+                    if (totalSizes.length > TEMP_ARR_LENGTH || tmpLong == null || tmpInt == null)
                     {
                         ArrayUtils.sortDesc(totalSizes, objectIds);
                     }
                     else
                     {
-                        ArrayUtils.sortDesc(totalSizes, objectIds, tempLongArray, tempIntArray);
+                        ArrayUtils.sortDesc(totalSizes, objectIds, tmpLong, tmpInt);
                     }
             }
 
@@ -544,6 +789,8 @@ public class DominatorTree
                 int[] stack = new int[capacity];
                 SuccessorsEnum[] succStack = new SuccessorsEnum[capacity];
 
+                boolean heapSizesKnown = fillHeapSizes();
+
                 int currentEntry = e;
                 SuccessorsEnum currentSucc = getSuccessorsEnum(currentEntry);
                 stack[size] = currentEntry;
@@ -565,7 +812,8 @@ public class DominatorTree
                         int nextChild = currentSucc.nextElement();
                         currentSucc = getSuccessorsEnum(nextChild);
 
-                        ts[nextChild + 2] = nextChild < 0 ? 0 : snapshot.getHeapSize(nextChild);
+                        if (!heapSizesKnown)
+                            ts[nextChild + 2] = nextChild < 0 ? 0 : snapshot.getHeapSize(nextChild);
 
                         if (size == capacity)
                         {
@@ -613,6 +861,35 @@ public class DominatorTree
 
                 progressListener.done();
             }
+
+            /**
+             * Reads the heap sizes of all objects into ts on the worker
+             * threads.
+             * 
+             * @return false if there are no worker threads and the sizes
+             *         still need to be read
+             */
+            private boolean fillHeapSizes() throws SnapshotException
+            {
+                if (executor == null)
+                    return false;
+
+                final int numberOfObjects = dump.getSnapshotInfo().getNumberOfObjects();
+                int numberOfBatches = (numberOfObjects + BATCH_SIZE - 1) / BATCH_SIZE;
+                Batches<Object> heapSizes = new Batches<Object>(numberOfBatches)
+                {
+                    Object compute(int batch) throws SnapshotException
+                    {
+                        int last = Math.min(numberOfObjects, (batch + 1) * BATCH_SIZE);
+                        for (int objectId = batch * BATCH_SIZE; objectId < last; objectId++)
+                            ts[objectId + 2] = dump.getHeapSize(objectId);
+                        return null;
+                    }
+                };
+                for (int ii = 0; ii < numberOfBatches; ii++)
+                    heapSizes.next();
+                return true;
+            }
         }
     }
 }
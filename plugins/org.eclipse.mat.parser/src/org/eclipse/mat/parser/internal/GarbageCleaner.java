@@ -20,6 +20,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.eclipse.mat.collect.ArrayInt;
+import org.eclipse.mat.collect.AtomicBitField;
 import org.eclipse.mat.collect.BitField;
 import org.eclipse.mat.collect.HashMapIntObject;
 import org.eclipse.mat.collect.IteratorInt;
@@ -29,6 +30,7 @@ import org.eclipse.mat.parser.index.IIndexReader.IOne2OneIndex;
 import org.eclipse.mat.parser.index.IIndexReader.IOne2SizeIndex;
 import org.eclipse.mat.parser.index.IndexManager;
 import org.eclipse.mat.parser.index.IndexManager.Index;
+import org.eclipse.mat.parser.index.IndexReader;
 import org.eclipse.mat.parser.index.IndexReader.SizeIndexReader;
 import org.eclipse.mat.parser.index.IndexWriter;
 import org.eclipse.mat.parser.internal.snapshot.ObjectMarker;
@@ -58,7 +60,7 @@ import org.eclipse.mat.util.SilentProgressListener;
             final int oldNoOfObjects = idx.identifiers.size();
 
             // determine reachable objects
-            boolean[] reachable = new boolean[oldNoOfObjects];
+            AtomicBitField reachable = new AtomicBitField(oldNoOfObjects);
             int newNoOfObjects = 0;
             int[] newRoots = idx.gcRoots.getAllKeys();
 
@@ -88,9 +90,7 @@ import org.eclipse.mat.util.SilentProgressListener;
                 }
 
                 // find the number of new objects. It's not returned by marker
-                for (boolean b : reachable)
-                    if (b)
-                        newNoOfObjects++;
+                newNoOfObjects = reachable.cardinality();
 
             }
             else
@@ -131,9 +131,11 @@ import org.eclipse.mat.util.SilentProgressListener;
             listener.worked(1); // 3
             listener.subTask(Messages.GarbageCleaner_ReIndexingObjects);
 
-            // create re-index map
+            // create re-index map, the addresses of the remaining objects are
+            // written right away instead of being collected in an array
             final int[] map = new int[oldNoOfObjects];
-            final long[] id2a = new long[newNoOfObjects];
+            File identifierFile = Index.IDENTIFIER.getFile(idx.snapshotInfo.getPrefix());
+            IndexWriter.LongIndexStreamer id2a = new IndexWriter.LongIndexStreamer(identifierFile);
 
             List<ClassImpl> classes2remove = new ArrayList<ClassImpl>();
 
@@ -141,10 +143,10 @@ import org.eclipse.mat.util.SilentProgressListener;
             long memFree = 0;
             for (int ii = 0, jj = 0; ii < oldNoOfObjects; ii++)
             {
-                if (reachable[ii])
+                if (reachable.get(ii))
                 {
-                    map[ii] = jj;
-                    id2a[jj++] = identifiers.get(ii);
+                    map[ii] = jj++;
+                    id2a.add(identifiers.get(ii));
                 }
                 else
                 {
@@ -200,6 +202,9 @@ import org.eclipse.mat.util.SilentProgressListener;
 
             reachable = null; // early gc...
 
+            id2a.close();
+            id2a = null;
+
             identifiers.close();
             identifiers.delete();
             identifiers = null;
@@ -234,9 +239,9 @@ import org.eclipse.mat.util.SilentProgressListener;
             // identifiers
             // //////////////////////////////////////////////////////////////
 
-            File indexFile = Index.IDENTIFIER.getFile(idx.snapshotInfo.getPrefix());
+            File indexFile = identifierFile;
             listener.subTask(MessageUtil.format(Messages.GarbageCleaner_Writing, indexFile.getAbsolutePath()));
-            idxManager.setReader(Index.IDENTIFIER, new IndexWriter.LongIndexStreamer().writeTo(indexFile, id2a));
+            idxManager.setReader(Index.IDENTIFIER, new IndexReader.LongIndexReader(indexFile));
 
             if (listener.isCanceled())
                 throw new IProgressListener.OperationCanceledException();
@@ -327,12 +332,14 @@ import org.eclipse.mat.util.SilentProgressListener;
             IndexWriter.InboundWriter w_in = new IndexWriter.InboundWriter(newNoOfObjects, IndexManager.Index.INBOUND
                             .getFile(idx.snapshotInfo.getPrefix()));
 
+            long numberOfReferences = 0;
             for (int ii = 0; ii < oldNoOfObjects; ii++)
             {
                 int k = map[ii];
 				if (k < 0) continue;
 
 				int[] a = preOutbound.get(ii);
+				numberOfReferences += a.length;
 				int[] tl = new int[a.length];
 				for (int jj = 0; jj < a.length; jj++)
 				{
@@ -404,6 +411,7 @@ import org.eclipse.mat.util.SilentProgressListener;
             builder.setArrayObjects(arrayObjects);
             builder.setRoots(roots);
             builder.setRootsPerThread(rootsPerThread);
+            builder.setNumberOfReferences(numberOfReferences);
 
             return map;
         }
@@ -509,7 +517,7 @@ import org.eclipse.mat.util.SilentProgressListener;
         }
     }
 
-    private static void createHistogramOfUnreachableObjects(PreliminaryIndexImpl idx, boolean[] reachable)
+    private static void createHistogramOfUnreachableObjects(PreliminaryIndexImpl idx, AtomicBitField reachable)
     {
         IOne2SizeIndex array2size = idx.array2size;
 
@@ -518,48 +526,45 @@ import org.eclipse.mat.util.SilentProgressListener;
         int totalObjectCount = 0;
         long totalSize = 0;
 
-        for (int ii = 0; ii < reachable.length; ii++)
+        for (int ii = reachable.nextClearBit(0); ii >= 0; ii = reachable.nextClearBit(ii + 1))
         {
-            if (!reachable[ii])
-            {
-                int classId = idx.object2classId.get(ii);
+            int classId = idx.object2classId.get(ii);
 
-                Record r = histogram.get(classId);
-                if (r == null)
-                {
-                    ClassImpl clazz = idx.classesById.get(classId);
-                    r = new Record(clazz);
-                    histogram.put(classId, r);
-                }
+            Record r = histogram.get(classId);
+            if (r == null)
+            {
+                ClassImpl clazz = idx.classesById.get(classId);
+                r = new Record(clazz);
+                histogram.put(classId, r);
+            }
 
-                r.objectCount++;
-                totalObjectCount++;
-                long s = 0;
+            r.objectCount++;
+            totalObjectCount++;
+            long s = 0;
 
-                s = array2size.getSize(ii);
-                if (s > 0)
-                {
-                    // Already got the size
-                }
-                else if (IClass.JAVA_LANG_CLASS.equals(r.clazz.getName()))
+            s = array2size.getSize(ii);
+            if (s > 0)
+            {
+                // Already got the size
+            }
+            else if (IClass.JAVA_LANG_CLASS.equals(r.clazz.getName()))
+            {
+                ClassImpl classImpl = idx.classesById.get(ii);
+                if (classImpl == null)
                 {
-                    ClassImpl classImpl = idx.classesById.get(ii);
-                    if (classImpl == null)
-                    {
-                        s = r.clazz.getHeapSizePerInstance();
-                    }
-                    else
-                    {
-                        s = classImpl.getUsedHeapSize();
-                    }
+                    s = r.clazz.getHeapSizePerInstance();
                 }
                 else
                 {
-                    s = r.clazz.getHeapSizePerInstance();
+                    s = classImpl.getUsedHeapSize();
                 }
-                r.size += s;
-                totalSize += s;
             }
+            else
+            {
+                s = r.clazz.getHeapSizePerInstance();
+            }
+            r.size += s;
+            totalSize += s;
         }
 
         List<UnreachableObjectsHistogram.Record> records = new ArrayList<UnreachableObjectsHistogram.Record>();
@@ -578,31 +583,28 @@ import org.eclipse.mat.util.SilentProgressListener;
     // //////////////////////////////////////////////////////////////
 
     private static int markUnreachableAsGCRoots(final PreliminaryIndexImpl idx, //
-                    boolean[] reachable, //
+                    AtomicBitField reachable, //
                     int noReachableObjects, //
                     int extraRootType, IProgressListener listener)
     {
-        final int noOfObjects = reachable.length;
+        final int noOfObjects = reachable.size();
         final IOne2LongIndex identifiers = idx.identifiers;
         final IOne2ManyIndex preOutbound = idx.outbound;
 
         // find objects not referenced by any other object
         byte inbounds[] = new byte[noOfObjects];
-        for (int ii = 0; ii < noOfObjects; ++ii)
+        for (int ii = reachable.nextClearBit(0); ii >= 0; ii = reachable.nextClearBit(ii + 1))
         {
-            if (!reachable[ii])
+            // We only need search the unreachable objects as
+            // the reachable ones will have already marked
+            // its outbound refs.
+            for (int out : preOutbound.get(ii))
             {
-                // We only need search the unreachable objects as
-                // the reachable ones will have already marked
-                // its outbound refs.
-                for (int out : preOutbound.get(ii))
+                // Exclude objects pointing to themselves
+                if (out != ii)
                 {
-                    // Exclude objects pointing to themselves
-                    if (out != ii)
-                    {
-                        // Avoid overflow
-                        if (inbounds[out] != -1) inbounds[out]++;
-                    }
+                    // Avoid overflow
+                    if (inbounds[out] != -1) inbounds[out]++;
                 }
             }
         }
@@ -612,7 +614,7 @@ import org.eclipse.mat.util.SilentProgressListener;
         for (int ii = 0; ii < noOfObjects; ++ii)
         {
             // Do the objects with no inbounds first
-            if (!reachable[ii] && inbounds[ii] == 0)
+            if (!reachable.get(ii) && inbounds[ii] == 0)
             {
                 // Identify this unreachable object as a root,
                 // No need to mark it as the marker will do that
@@ -642,11 +644,7 @@ import org.eclipse.mat.util.SilentProgressListener;
             }
 
             // find the number of new objects. It's not returned by marker
-            int newNoOfObjects = 0;
-            for (boolean b : reachable)
-                if (b)
-                    newNoOfObjects++;
-            noReachableObjects = newNoOfObjects;
+            noReachableObjects = reachable.cardinality();
         }
         else
         {
@@ -656,13 +654,10 @@ import org.eclipse.mat.util.SilentProgressListener;
 
         // find remaining unreachable objects
         unref.clear();
-        for (int ii = 0; ii < noOfObjects; ++ii)
+        for (int ii = reachable.nextClearBit(0); ii >= 0; ii = reachable.nextClearBit(ii + 1))
         {
-            if (!reachable[ii])
-            {
-                // Add to list
-                unref.add(ii);
-            }
+            // Add to list
+            unref.add(ii);
         }
 
         int root[] = new int[1];
@@ -676,7 +671,7 @@ import org.eclipse.mat.util.SilentProgressListener;
             for (IteratorInt it = unref.iterator(); it.hasNext();)
             {
                 int ii = it.next();
-                if (!reachable[ii])
+                if (!reachable.get(ii))
                 {
                     // We only need search the unreachable objects as
                     // the reachable ones will have already marked
@@ -688,7 +683,7 @@ import org.eclipse.mat.util.SilentProgressListener;
                         // and only count unreachable refs
                         // We only need to recount outbound refs as the
                         // inbound ref count will be unchanged.
-                        if (out != ii && !reachable[out])
+                        if (out != ii && !reachable.get(out))
                         {
                             // Avoid overflow
                             if (outbounds[ii] != -1) outbounds[ii]++;
@@ -743,10 +738,10 @@ import org.eclipse.mat.util.SilentProgressListener;
      * @param inbounds count of inbounds (as 0..255)
      * @return candidate root or -1
      */
-    private static int selectRoot(int ii, int pass, int passes, boolean[] reachable, final IOne2ManyIndex preOutbound,
+    private static int selectRoot(int ii, int pass, int passes, AtomicBitField reachable, final IOne2ManyIndex preOutbound,
                     byte[] outbounds, byte[] inbounds)
     {
-        if (reachable[ii])
+        if (reachable.get(ii))
             return -1;
 
         // Check for objects with 1 inbound, pointing to another object 
@@ -760,7 +755,7 @@ import org.eclipse.mat.util.SilentProgressListener;
                 {
                     // Exclude objects pointing to themselves
                     // and only count unreachable refs
-                    if (out != ii && !reachable[out])
+                    if (out != ii && !reachable.get(out))
                     {
                         if ((inbounds[out] & 0xff) != 1)
                             continue;
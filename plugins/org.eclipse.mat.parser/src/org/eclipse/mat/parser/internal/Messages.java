@@ -26,6 +26,7 @@ public class Messages extends NLS
     public static String DominatorTree_CreateDominatorsIndexFile;
     public static String DominatorTree_DepthFirstSearch;
     public static String DominatorTree_DominatorTreeCalculation;
+    public static String FieldValueIndex_Building;
     public static String Function_Error_NeedsNumberAsInput;
     public static String Function_ErrorNoFunction;
     public static String Function_unknown;
@@ -36,10 +37,12 @@ public class Messages extends NLS
     public static String GarbageCleaner_RemovingUnreachableObjects;
     public static String GarbageCleaner_SearchingForUnreachableObjects;
     public static String GarbageCleaner_Writing;
+    public static String GZIPIndex_Error_Closed;
     public static String HistogramBuilder_Error_FailedToStoreInHistogram;
     public static String IndexReader_Error_IndexIsEmbedded;
     public static String IndexWriter_Error_ArrayLength;
     public static String IndexWriter_Error_ObjectArrayLength;
+    public static String MappedRandomAccessInputStream_Error_Closed;
     public static String MethodCallExpression_Error_MethodNotFound;
     public static String MultiplePathsFromGCRootsComputerImpl_FindingPaths;
     public static String SnapshotFactoryImpl_ClassIDNotFound;
@@ -49,6 +52,7 @@ public class Messages extends NLS
     public static String SnapshotFactoryImpl_ClassIndexAddressTypeIDNotEqualClassImplClassId;
     public static String SnapshotFactoryImpl_ClassIndexNotEqualClassObjectID;
     public static String SnapshotFactoryImpl_EmptyOutbounds;
+    public static String SnapshotFactoryImpl_Error_NoHistogramBuilder;
     public static String SnapshotFactoryImpl_Error_NoParserRegistered;
     public static String SnapshotFactoryImpl_Error_OpeningHeapDump;
     public static String SnapshotFactoryImpl_Error_ReparsingHeapDump;
@@ -88,6 +92,7 @@ public class Messages extends NLS
     public static String SnapshotImpl_ReopeningParsedHeapDumpFile;
     public static String SnapshotImpl_RetrievingDominators;
     public static String ObjectArrayImpl_forArray;
+    public static String MinRetainedSizeCalculator_CalculatingRetainedSizes;
     public static String ObjectMarker_MarkingObjects;
     public static String Operation_Error_ArgumentOfUnknownClass;
     public static String Operation_Error_CannotCompare;
@@ -117,6 +122,13 @@ public class Messages extends NLS
     public static String PositionInputStream_mark;
     public static String PositionInputStream_reset;
     public static String PositionInputStream_seek;
+    public static String QueryProfile_ColumnCacheHits;
+    public static String QueryProfile_ColumnIndexPagesRead;
+    public static String QueryProfile_ColumnObjectsLoaded;
+    public static String QueryProfile_ColumnRowsIn;
+    public static String QueryProfile_ColumnRowsOut;
+    public static String QueryProfile_ColumnStage;
+    public static String QueryProfile_ColumnTime;
     public static String RetainedSizeCache_ErrorReadingRetainedSizes;
     public static String RetainedSizeCache_Warning_IgnoreError;
 
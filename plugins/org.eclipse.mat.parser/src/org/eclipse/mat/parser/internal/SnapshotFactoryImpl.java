@@ -31,15 +31,20 @@ import org.eclipse.core.runtime.Status;
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.collect.HashMapIntObject;
 import org.eclipse.mat.collect.IteratorInt;
+import org.eclipse.mat.parser.IHistogramBuilder;
 import org.eclipse.mat.parser.IIndexBuilder;
+import org.eclipse.mat.parser.IObjectReader;
 import org.eclipse.mat.parser.internal.oql.OQLQueryImpl;
+import org.eclipse.mat.parser.internal.util.PhaseRecorder;
 import org.eclipse.mat.parser.internal.util.ParserRegistry;
 import org.eclipse.mat.parser.internal.util.ParserRegistry.Parser;
 import org.eclipse.mat.parser.model.ClassImpl;
 import org.eclipse.mat.parser.model.XGCRootInfo;
 import org.eclipse.mat.parser.model.XSnapshotInfo;
+import org.eclipse.mat.snapshot.Histogram;
 import org.eclipse.mat.snapshot.IOQLQuery;
 import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.PhaseStatistics;
 import org.eclipse.mat.snapshot.SnapshotFactory;
 import org.eclipse.mat.snapshot.SnapshotFormat;
 import org.eclipse.mat.snapshot.model.GCRootInfo;
@@ -53,33 +58,92 @@ public class SnapshotFactoryImpl implements SnapshotFactory.Implementation
     {
         private int usageCount;
         private WeakReference<ISnapshot> snapshot;
-
-        public SnapshotEntry(int usageCount, ISnapshot snapshot)
-        {
-            this.usageCount = usageCount;
-            this.snapshot = new WeakReference<ISnapshot>(snapshot);
-        }
+        /** while the first caller opens the snapshot, the others wait */
+        private boolean isOpening = true;
+        /** the snapshot while nobody uses it, if idle snapshots are kept */
+        private ISnapshot idleSnapshot;
+        private long idleSince;
     }
 
-    private Map<File, SnapshotEntry> snapshotCache = new HashMap<File, SnapshotEntry>();
+    /** the snapshots by the prefix of their index files, guarded by this */
+    private Map<String, SnapshotEntry> snapshotCache = new HashMap<String, SnapshotEntry>();
 
     public ISnapshot openSnapshot(File file, Map<String, String> args, IProgressListener listener) throws SnapshotException
     {
-        ISnapshot answer = null;
+        String prefix = getPrefix(file, args);
 
-        // lookup in cache
-        SnapshotEntry entry = snapshotCache.get(file);
-        if (entry != null)
+        SnapshotEntry entry;
+        synchronized (this)
         {
-            answer = entry.snapshot.get();
+            while (true)
+            {
+                entry = snapshotCache.get(prefix);
+                if (entry == null)
+                {
+                    entry = new SnapshotEntry();
+                    snapshotCache.put(prefix, entry);
+                    break;
+                }
+                else if (entry.isOpening)
+                {
+                    // if the first caller fails, for example because it is
+                    // canceled, the next one opens the snapshot itself
+                    if (listener.isCanceled())
+                        throw new IProgressListener.OperationCanceledException();
+                    try
+                    {
+                        wait(1000);
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                        throw new IProgressListener.OperationCanceledException();
+                    }
+                }
+                else
+                {
+                    ISnapshot answer = entry.snapshot.get();
+                    if (answer != null)
+                    {
+                        entry.usageCount++;
+                        entry.idleSnapshot = null;
+                        return answer;
+                    }
+                    snapshotCache.remove(prefix);
+                }
+            }
+        }
 
-            if (answer != null)
+        ISnapshot answer = null;
+        try
+        {
+            answer = open(file, prefix, args, listener);
+        }
+        finally
+        {
+            synchronized (this)
             {
-                entry.usageCount++;
-                return answer;
+                if (answer != null)
+                {
+                    entry.snapshot = new WeakReference<ISnapshot>(answer);
+                    entry.usageCount = 1;
+                    entry.isOpening = false;
+                }
+                else
+                {
+                    snapshotCache.remove(prefix);
+                }
+                notifyAll();
             }
         }
 
+        disposeIdleSnapshots();
+
+        return answer;
+    }
+
+    private String getPrefix(File file, Map<String, String> args)
+    {
         String name = file.getName();
 
         int p = name.lastIndexOf('.');
@@ -90,6 +154,13 @@ public class SnapshotFactoryImpl implements SnapshotFactory.Implementation
         {
             prefix += snapshot_identifier + "."; //$NON-NLS-1$
         }
+        return prefix;
+    }
+
+    private ISnapshot open(File file, String prefix, Map<String, String> args, IProgressListener listener)
+                    throws SnapshotException
+    {
+        ISnapshot answer = null;
 
         try
         {
@@ -126,47 +197,147 @@ public class SnapshotFactoryImpl implements SnapshotFactory.Implementation
             answer = parse(file, prefix, args, listener);
         }
 
-        entry = new SnapshotEntry(1, answer);
-
-        snapshotCache.put(file, entry);
-
         return answer;
     }
 
-    public synchronized void dispose(ISnapshot snapshot)
+    public void dispose(ISnapshot snapshot)
     {
-
-        for (Iterator<SnapshotEntry> iter = snapshotCache.values().iterator(); iter.hasNext();)
+        // disposed after leaving the monitor, so that other snapshots can be
+        // opened meanwhile
+        ISnapshot unused = snapshot;
+        synchronized (this)
         {
-            SnapshotEntry entry = iter.next();
-
-            ISnapshot s = entry.snapshot.get();
-            if (s == null)
+            for (Iterator<SnapshotEntry> iter = snapshotCache.values().iterator(); iter.hasNext();)
             {
-                iter.remove();
-            }
-            else if (s == snapshot)
-            {
-                entry.usageCount--;
-                if (entry.usageCount == 0)
+                SnapshotEntry entry = iter.next();
+                if (entry.isOpening)
+                    continue;
+
+                ISnapshot s = entry.snapshot.get();
+                if (s == null)
                 {
-                    snapshot.dispose();
                     iter.remove();
                 }
-                return;
+                else if (s == snapshot)
+                {
+                    unused = null;
+                    entry.usageCount--;
+                    if (entry.usageCount == 0)
+                    {
+                        if (Integer.getInteger(SnapshotFactory.IDLE_SNAPSHOTS_PROPERTY, 0).intValue() > 0)
+                        {
+                            entry.idleSnapshot = snapshot;
+                            entry.idleSince = System.currentTimeMillis();
+                        }
+                        else
+                        {
+                            iter.remove();
+                            unused = snapshot;
+                        }
+                    }
+                    break;
+                }
             }
         }
 
-        // just in case the snapshot is not stored anymore
-        if (snapshot != null)
+        // also just in case the snapshot is not stored anymore
+        if (unused != null)
+            unused.dispose();
+
+        disposeIdleSnapshots();
+    }
+
+    /**
+     * Disposes the snapshots nobody uses, the longest idle first, while there
+     * are more than {@link SnapshotFactory#IDLE_SNAPSHOTS_PROPERTY} of them
+     * or the used heap exceeds three quarters of the maximum heap. They are
+     * disposed one at a time outside of the monitor, so that the used heap is
+     * checked again after each one.
+     */
+    private void disposeIdleSnapshots()
+    {
+        ISnapshot snapshot;
+        while ((snapshot = removeIdleSnapshot()) != null)
             snapshot.dispose();
     }
 
+    /**
+     * @return the longest idle snapshot, removed from the cache, if there are
+     *         too many idle snapshots or too little free heap, otherwise null
+     */
+    private synchronized ISnapshot removeIdleSnapshot()
+    {
+        int maxIdle = Integer.getInteger(SnapshotFactory.IDLE_SNAPSHOTS_PROPERTY, 0).intValue();
+
+        int numberOfIdle = 0;
+        String oldest = null;
+        long oldestSince = Long.MAX_VALUE;
+        for (Map.Entry<String, SnapshotEntry> e : snapshotCache.entrySet())
+        {
+            SnapshotEntry entry = e.getValue();
+            if (entry.idleSnapshot != null)
+            {
+                numberOfIdle++;
+                if (entry.idleSince < oldestSince)
+                {
+                    oldest = e.getKey();
+                    oldestSince = entry.idleSince;
+                }
+            }
+        }
+
+        if (oldest == null)
+            return null;
+
+        Runtime runtime = Runtime.getRuntime();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+        if (numberOfIdle <= maxIdle && used <= runtime.maxMemory() / 4 * 3)
+            return null;
+
+        return snapshotCache.remove(oldest).idleSnapshot;
+    }
+
     public IOQLQuery createQuery(String queryString) throws SnapshotException
     {
         return new OQLQueryImpl(queryString);
     }
 
+    public Histogram getHistogram(File file, IProgressListener listener) throws SnapshotException
+    {
+        ParserRegistry registry = ParserPlugin.getDefault().getParserRegistry();
+
+        List<ParserRegistry.Parser> parsers = registry.matchParser(file.getName());
+        if (parsers.isEmpty())
+            parsers.addAll(registry.delegates()); // try all...
+
+        List<IOException> errors = new ArrayList<IOException>();
+
+        for (Parser parser : parsers)
+        {
+            if (!parser.provides(ParserRegistry.HISTOGRAM_BUILDER))
+                continue;
+
+            IHistogramBuilder histogramBuilder = parser.create(IHistogramBuilder.class,
+                            ParserRegistry.HISTOGRAM_BUILDER);
+            if (histogramBuilder == null)
+                continue;
+
+            try
+            {
+                return histogramBuilder.build(file, listener);
+            }
+            catch (IOException ioe)
+            {
+                errors.add(ioe);
+            }
+        }
+
+        if (errors.isEmpty())
+            throw new SnapshotException(MessageUtil.format(Messages.SnapshotFactoryImpl_Error_NoHistogramBuilder,
+                            file.getName()));
+        throw openingError(file, errors);
+    }
+
     public List<SnapshotFormat> getSupportedFormats()
     {
         List<SnapshotFormat> answer = new ArrayList<SnapshotFormat>();
@@ -198,6 +369,7 @@ public class SnapshotFactoryImpl implements SnapshotFactory.Implementation
 			if (indexBuilder == null)
 				continue;
             
+            PhaseRecorder recorder = new PhaseRecorder();
             try
             {
                 indexBuilder.init(file, prefix);
@@ -219,8 +391,13 @@ public class SnapshotFactoryImpl implements SnapshotFactory.Implementation
 
                 PreliminaryIndexImpl idx = new PreliminaryIndexImpl(snapshotInfo);
 
+                recorder.begin(PhaseStatistics.PARSE);
+
                 indexBuilder.fill(idx, listener);
 
+                int numberOfObjects = idx.identifiers.size();
+                recorder.end(numberOfObjects, -1, file.length());
+
                 if (ParserPlugin.getDefault().isDebugging())
                 {
                     validateIndices(idx, listener);
@@ -228,13 +405,22 @@ public class SnapshotFactoryImpl implements SnapshotFactory.Implementation
 
                 SnapshotImplBuilder builder = new SnapshotImplBuilder(idx.getSnapshotInfo());
 
+                recorder.begin(PhaseStatistics.GARBAGE_CLEANER);
+
                 int[] purgedMapping = GarbageCleaner.clean(idx, builder, args, listener);
 
                 indexBuilder.clean(purgedMapping, listener);
 
                 SnapshotImpl snapshot = builder.create(parser, listener);
 
-                snapshot.calculateDominatorTree(listener);
+                recorder.end(numberOfObjects, builder.getNumberOfReferences(), 0);
+                recorder.begin(PhaseStatistics.DOMINATOR_TREE);
+
+                boolean parallel = !Boolean.FALSE.toString().equals(args.get("parallel_dominator_tree")); //$NON-NLS-1$
+                snapshot.calculateDominatorTree(listener, parallel);
+
+                recorder.end(snapshot.getSnapshotInfo().getNumberOfObjects(), builder.getNumberOfReferences(), 0);
+                recorder.write(snapshot.getSnapshotInfo());
 
                 return snapshot;
             }
@@ -249,8 +435,70 @@ public class SnapshotFactoryImpl implements SnapshotFactory.Implementation
 
                 throw SnapshotException.rethrow(e);
             }
+            finally
+            {
+                recorder.cancel();
+            }
+        }
+
+        if (errors.isEmpty())
+            throw new SnapshotException(MessageUtil.format(Messages.SnapshotFactoryImpl_Error_NoParserRegistered, file
+                            .getName()));
+        throw openingError(file, errors);
+    }
+
+    /**
+     * Parses a dump with the given index builder and object reader instead of
+     * the ones of the parser registry, and without the dominator tree. For
+     * tools running outside of the platform, like the benchmarks.
+     * 
+     * @param file
+     *            the dump
+     * @param prefix
+     *            the prefix of the index files
+     * @param objectReaderUniqueIdentifier
+     *            stored with the snapshot to identify the reader
+     */
+    public static SnapshotImpl parse(File file, String prefix, IIndexBuilder indexBuilder,
+                    String objectReaderUniqueIdentifier, IObjectReader heapObjectReader, IProgressListener listener)
+                    throws SnapshotException, IOException
+    {
+        try
+        {
+            indexBuilder.init(file, prefix);
+
+            XSnapshotInfo snapshotInfo = new XSnapshotInfo();
+            snapshotInfo.setPath(file.getAbsolutePath());
+            snapshotInfo.setPrefix(prefix);
+
+            PreliminaryIndexImpl idx = new PreliminaryIndexImpl(snapshotInfo);
+            indexBuilder.fill(idx, listener);
+
+            SnapshotImplBuilder builder = new SnapshotImplBuilder(idx.getSnapshotInfo());
+            int[] purgedMapping = GarbageCleaner.clean(idx, builder, new HashMap<String, String>(), listener);
+            indexBuilder.clean(purgedMapping, listener);
+
+            return builder.create(objectReaderUniqueIdentifier, heapObjectReader, listener);
+        }
+        catch (IOException e)
+        {
+            indexBuilder.cancel();
+            throw e;
+        }
+        catch (SnapshotException e)
+        {
+            indexBuilder.cancel();
+            throw e;
+        }
+        catch (RuntimeException e)
+        {
+            indexBuilder.cancel();
+            throw e;
         }
+    }
 
+    private static SnapshotException openingError(File file, List<IOException> errors)
+    {
         if (errors.size() > 1)
         {
             MultiStatus status = new MultiStatus(ParserPlugin.PLUGIN_ID, 0,
@@ -260,18 +508,13 @@ public class SnapshotFactoryImpl implements SnapshotFactory.Implementation
             // Create a CoreException so that all the errors will be logged
             CoreException ce = new CoreException(status);
 
-            throw new SnapshotException(MessageUtil.format(Messages.SnapshotFactoryImpl_Error_OpeningHeapDump, file
+            return new SnapshotException(MessageUtil.format(Messages.SnapshotFactoryImpl_Error_OpeningHeapDump, file
                             .getName()), ce);
         }
-        else if (errors.size() == 1)
-        {
-            throw new SnapshotException(MessageUtil.format(Messages.SnapshotFactoryImpl_Error_OpeningHeapDump, file
-                            .getName()), errors.get(0));
-        }
         else
         {
-            throw new SnapshotException(MessageUtil.format(Messages.SnapshotFactoryImpl_Error_NoParserRegistered, file
-                            .getName()));
+            return new SnapshotException(MessageUtil.format(Messages.SnapshotFactoryImpl_Error_OpeningHeapDump, file
+                            .getName()), errors.get(0));
         }
     }
 
@@ -565,6 +808,8 @@ public class SnapshotFactoryImpl implements SnapshotFactory.Implementation
         final Pattern indexPattern = Pattern.compile("([A-Za-z0-9]+\\.)?index$"); //$NON-NLS-1$
         final Pattern threadPattern = Pattern.compile("threads$"); //$NON-NLS-1$
         final Pattern logPattern = Pattern.compile("inbound\\.index.*\\.log$"); //$NON-NLS-1$
+        // left over by query results which were not completely cached
+        final Pattern resultPattern = Pattern.compile("result[0-9a-f]+\\.index\\..*\\.tmp$"); //$NON-NLS-1$
 
         File[] files = directory.listFiles(new FileFilter()
         {
@@ -577,7 +822,8 @@ public class SnapshotFactoryImpl implements SnapshotFactory.Implementation
                 return name.startsWith(fragment)
                                 && (indexPattern.matcher(name.substring(fragment.length())).matches()
                                   || threadPattern.matcher(name.substring(fragment.length())).matches() 
-                                  || logPattern.matcher(name.substring(fragment.length())).matches());
+                                  || logPattern.matcher(name.substring(fragment.length())).matches()
+                                  || resultPattern.matcher(name.substring(fragment.length())).matches());
             }
         });
 
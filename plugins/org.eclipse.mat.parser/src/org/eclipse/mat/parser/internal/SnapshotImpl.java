@@ -13,12 +13,15 @@ package org.eclipse.mat.parser.internal;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -32,9 +35,11 @@ import java.util.Map;
 import java.util.Set;
 import java.util.regex.Pattern;
 
+import org.eclipse.core.runtime.Platform;
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.collect.ArrayInt;
 import org.eclipse.mat.collect.ArrayIntBig;
+import org.eclipse.mat.collect.AtomicBitField;
 import org.eclipse.mat.collect.BitField;
 import org.eclipse.mat.collect.HashMapIntObject;
 import org.eclipse.mat.collect.IteratorInt;
@@ -45,7 +50,9 @@ import org.eclipse.mat.parser.index.IIndexReader.IOne2OneIndex;
 import org.eclipse.mat.parser.index.IIndexReader.IOne2SizeIndex;
 import org.eclipse.mat.parser.index.IndexManager;
 import org.eclipse.mat.parser.index.IndexManager.Index;
+import org.eclipse.mat.parser.internal.snapshot.FieldValueIndex;
 import org.eclipse.mat.parser.internal.snapshot.HistogramBuilder;
+import org.eclipse.mat.parser.internal.snapshot.MinRetainedSizeCalculator;
 import org.eclipse.mat.parser.internal.snapshot.MultiplePathsFromGCRootsComputerImpl;
 import org.eclipse.mat.parser.internal.snapshot.ObjectCache;
 import org.eclipse.mat.parser.internal.snapshot.ObjectMarker;
@@ -53,6 +60,7 @@ import org.eclipse.mat.parser.internal.snapshot.PathsFromGCRootsTreeBuilder;
 import org.eclipse.mat.parser.internal.snapshot.RetainedSizeCache;
 import org.eclipse.mat.parser.internal.util.IntStack;
 import org.eclipse.mat.parser.internal.util.ParserRegistry;
+import org.eclipse.mat.parser.internal.util.PhaseRecorder;
 import org.eclipse.mat.parser.internal.util.ParserRegistry.Parser;
 import org.eclipse.mat.parser.model.AbstractObjectImpl;
 import org.eclipse.mat.parser.model.ClassImpl;
@@ -87,7 +95,12 @@ public final class SnapshotImpl implements ISnapshot
     // factory methods
     // //////////////////////////////////////////////////////////////
 
-    private static final String VERSION = "MAT_01";//$NON-NLS-1$
+    /**
+     * Since version 2 the GC roots follow the serialized data in a binary
+     * format and are read when first needed.
+     */
+    private static final String VERSION = "MAT_02";//$NON-NLS-1$
+    private static final String VERSION_1 = "MAT_01";//$NON-NLS-1$
 
     @SuppressWarnings("unchecked")
     public static SnapshotImpl readFromFile(File file, String prefix, IProgressListener listener)
@@ -105,7 +118,7 @@ public final class SnapshotImpl implements ISnapshot
             ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(fis));
 
             String version = in.readUTF();
-            if (!VERSION.equals(version))
+            if (!VERSION.equals(version) && !VERSION_1.equals(version))
                 throw new IOException(MessageUtil.format(Messages.SnapshotImpl_Error_UnknownVersion, version));
 
             String objectReaderUniqueIdentifier = in.readUTF();
@@ -122,9 +135,18 @@ public final class SnapshotImpl implements ISnapshot
             if (listener.isCanceled())
                 throw new IProgressListener.OperationCanceledException();
 
-            HashMapIntObject<XGCRootInfo[]> roots = (HashMapIntObject<XGCRootInfo[]>) in.readObject();
-            HashMapIntObject<HashMapIntObject<XGCRootInfo[]>> rootsPerThread = (HashMapIntObject<HashMapIntObject<XGCRootInfo[]>>) in
-                            .readObject();
+            HashMapIntObject<XGCRootInfo[]> roots = null;
+            HashMapIntObject<HashMapIntObject<XGCRootInfo[]>> rootsPerThread = null;
+            long rootsOffset = -1;
+            if (VERSION_1.equals(version))
+            {
+                roots = (HashMapIntObject<XGCRootInfo[]>) in.readObject();
+                rootsPerThread = (HashMapIntObject<HashMapIntObject<XGCRootInfo[]>>) in.readObject();
+            }
+            else
+            {
+                rootsOffset = readRootsOffset(indexFile);
+            }
 
             listener.worked(1);
             if (listener.isCanceled())
@@ -135,6 +157,7 @@ public final class SnapshotImpl implements ISnapshot
             listener.worked(3);
 
             snapshotInfo.setPrefix(prefix);
+            PhaseRecorder.read(snapshotInfo);
             // Allow a dump to be opened via the index file
             if (file.equals(indexFile))
             {
@@ -155,8 +178,8 @@ public final class SnapshotImpl implements ISnapshot
             IndexManager indexManager = new IndexManager();
             indexManager.init(prefix);
 
-            SnapshotImpl ret = new SnapshotImpl(snapshotInfo, heapObjectReader, classCache, roots, rootsPerThread, loaderLabels,
-                            arrayObjects, indexManager);
+            SnapshotImpl ret = new SnapshotImpl(snapshotInfo, heapObjectReader, classCache, roots, rootsPerThread,
+                            indexFile, rootsOffset, loaderLabels, arrayObjects, indexManager);
             listener.worked(3);
             return ret;
         }
@@ -190,8 +213,8 @@ public final class SnapshotImpl implements ISnapshot
                     IndexManager indexManager, //
                     IProgressListener listener) throws IOException, SnapshotException
     {
-        SnapshotImpl answer = new SnapshotImpl(snapshotInfo, heapObjectReader, classCache, roots, rootsPerThread, null,
-                        arrayObjects, indexManager);
+        SnapshotImpl answer = new SnapshotImpl(snapshotInfo, heapObjectReader, classCache, roots, rootsPerThread,
+                        null, -1, null, arrayObjects, indexManager);
 
         answer.calculateLoaderLabels();
 
@@ -201,7 +224,8 @@ public final class SnapshotImpl implements ISnapshot
         try
         {
             fos = new FileOutputStream(snapshotInfo.getPrefix() + "index");//$NON-NLS-1$
-            out = new ObjectOutputStream(new BufferedOutputStream(fos));
+            BufferedOutputStream buffer = new BufferedOutputStream(fos);
+            out = new ObjectOutputStream(buffer);
             out.writeUTF(VERSION);
             out.writeUTF(objectReaderUniqueIdentifier);
             out.writeObject(answer.snapshotInfo);
@@ -210,14 +234,33 @@ public final class SnapshotImpl implements ISnapshot
             if (listener.isCanceled())
                 throw new IProgressListener.OperationCanceledException();
 
-            out.writeObject(answer.roots);
-            out.writeObject(answer.rootsPerThread);
+            out.writeObject(answer.loaderLabels);
+            out.writeObject(answer.arrayObjects);
+            out.flush();
 
             if (listener.isCanceled())
                 throw new IProgressListener.OperationCanceledException();
 
-            out.writeObject(answer.loaderLabels);
-            out.writeObject(answer.arrayObjects);
+            // the GC roots follow, their position is the last long of the file
+            long rootsOffset = fos.getChannel().position();
+            DataOutputStream data = new DataOutputStream(buffer);
+            writeRoots(data, answer.roots);
+            if (answer.rootsPerThread != null)
+            {
+                data.writeInt(answer.rootsPerThread.size());
+                for (IteratorInt threads = answer.rootsPerThread.keys(); threads.hasNext();)
+                {
+                    int threadId = threads.next();
+                    data.writeInt(threadId);
+                    writeRoots(data, answer.rootsPerThread.get(threadId));
+                }
+            }
+            else
+            {
+                data.writeInt(-1);
+            }
+            data.writeLong(rootsOffset);
+            data.flush();
         }
         finally
         {
@@ -231,6 +274,115 @@ public final class SnapshotImpl implements ISnapshot
         return answer;
     }
 
+    private static void writeRoots(DataOutputStream out, HashMapIntObject<XGCRootInfo[]> roots) throws IOException
+    {
+        out.writeInt(roots.size());
+        for (IteratorInt keys = roots.keys(); keys.hasNext();)
+        {
+            int key = keys.next();
+            XGCRootInfo[] infos = roots.get(key);
+            out.writeInt(key);
+            out.writeInt(infos.length);
+            for (XGCRootInfo info : infos)
+            {
+                out.writeLong(info.getObjectAddress());
+                out.writeLong(info.getContextAddress());
+                out.writeInt(info.getType());
+                out.writeInt(info.getObjectId());
+                out.writeInt(info.getContextId());
+            }
+        }
+    }
+
+    private static HashMapIntObject<XGCRootInfo[]> readRoots(DataInputStream in) throws IOException
+    {
+        int size = in.readInt();
+        HashMapIntObject<XGCRootInfo[]> roots = new HashMapIntObject<XGCRootInfo[]>(size);
+        for (int ii = 0; ii < size; ii++)
+        {
+            int key = in.readInt();
+            XGCRootInfo[] infos = new XGCRootInfo[in.readInt()];
+            for (int jj = 0; jj < infos.length; jj++)
+            {
+                infos[jj] = new XGCRootInfo(in.readLong(), in.readLong(), in.readInt());
+                infos[jj].setObjectId(in.readInt());
+                infos[jj].setContextId(in.readInt());
+            }
+            roots.put(key, infos);
+        }
+        return roots;
+    }
+
+    private static long readRootsOffset(File indexFile) throws IOException
+    {
+        RandomAccessFile file = new RandomAccessFile(indexFile, "r"); //$NON-NLS-1$
+        try
+        {
+            file.seek(file.length() - 8);
+            return file.readLong();
+        }
+        finally
+        {
+            file.close();
+        }
+    }
+
+    /**
+     * Reads the GC roots of a reopened snapshot.
+     */
+    private synchronized void loadRoots()
+    {
+        if (roots != null)
+            return;
+
+        try
+        {
+            // streamed, not mapped: as for the dump itself, a mapping would
+            // keep the index file from being deleted until it is collected
+            FileInputStream fis = new FileInputStream(rootsFile);
+            try
+            {
+                fis.getChannel().position(rootsOffset);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(fis));
+
+                HashMapIntObject<XGCRootInfo[]> roots = readRoots(in);
+
+                int numberOfThreads = in.readInt();
+                if (numberOfThreads >= 0)
+                {
+                    rootsPerThread = new HashMapIntObject<HashMapIntObject<XGCRootInfo[]>>(numberOfThreads);
+                    for (int ii = 0; ii < numberOfThreads; ii++)
+                    {
+                        int threadId = in.readInt();
+                        rootsPerThread.put(threadId, readRoots(in));
+                    }
+                }
+
+                // last, so that readers see the roots per thread as well
+                this.roots = roots;
+            }
+            finally
+            {
+                fis.close();
+            }
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private HashMapIntObject<XGCRootInfo[]> getRoots()
+    {
+        HashMapIntObject<XGCRootInfo[]> answer = roots;
+        if (answer == null)
+        {
+            loadRoots();
+            answer = roots;
+        }
+        return answer;
+    }
+
     // //////////////////////////////////////////////////////////////
     // member variables
     // //////////////////////////////////////////////////////////////
@@ -238,8 +390,12 @@ public final class SnapshotImpl implements ISnapshot
     // serialized data
     private XSnapshotInfo snapshotInfo;
     private HashMapIntObject<ClassImpl> classCache;
-    private HashMapIntObject<XGCRootInfo[]> roots;
+
+    // binary data, of a reopened snapshot read when first needed
+    private volatile HashMapIntObject<XGCRootInfo[]> roots;
     private HashMapIntObject<HashMapIntObject<XGCRootInfo[]>> rootsPerThread;
+    private final File rootsFile;
+    private final long rootsOffset;
 
     private HashMapIntObject<String> loaderLabels;
     private BitField arrayObjects;
@@ -252,8 +408,9 @@ public final class SnapshotImpl implements ISnapshot
     private boolean dominatorTreeCalculated;
     private Map<String, List<IClass>> classCacheByName;
     private ObjectCache<IObject> objectCache;
+    private FieldValueIndex fieldValueIndex;
     
-    private boolean parsedThreads = false;
+    private volatile boolean parsedThreads = false;
     HashMapIntObject<IThreadStack> threadId2stack;
 
     // //////////////////////////////////////////////////////////////
@@ -265,6 +422,8 @@ public final class SnapshotImpl implements ISnapshot
                     HashMapIntObject<ClassImpl> classCache, //
                     HashMapIntObject<XGCRootInfo[]> roots, //
                     HashMapIntObject<HashMapIntObject<XGCRootInfo[]>> rootsPerThread, //
+                    File rootsFile, //
+                    long rootsOffset, //
                     HashMapIntObject<String> loaderLabels, //
                     BitField arrayObjects, //
                     IndexManager indexManager) throws SnapshotException, IOException
@@ -274,6 +433,8 @@ public final class SnapshotImpl implements ISnapshot
         this.classCache = classCache;
         this.roots = roots;
         this.rootsPerThread = rootsPerThread;
+        this.rootsFile = rootsFile;
+        this.rootsOffset = rootsOffset;
         this.loaderLabels = loaderLabels;
         this.arrayObjects = arrayObjects;
         this.indexManager = indexManager;
@@ -300,7 +461,7 @@ public final class SnapshotImpl implements ISnapshot
         this.dominatorTreeCalculated = indexManager.dominated() != null && indexManager.o2retained() != null
                         && indexManager.dominator() != null;
 
-        this.objectCache = new HeapObjectCache(this, 1000);
+        this.objectCache = new HeapObjectCache(this, HeapObjectCache.defaultMaxMemory());
 
         this.heapObjectReader.open(this);
 
@@ -377,7 +538,7 @@ public final class SnapshotImpl implements ISnapshot
 		// each class. Sometimes there was a mismatch. See bug 294311
 		snapshotInfo.setNumberOfObjects(indexManager.idx.size());
         snapshotInfo.setNumberOfClassLoaders(loaderLabels.size());
-        snapshotInfo.setNumberOfGCRoots(roots.size());
+        snapshotInfo.setNumberOfGCRoots(getRoots().size());
         snapshotInfo.setNumberOfClasses(classCache.size());
 
         // important: refresh object cache. To calculate the loader labels, the
@@ -399,7 +560,7 @@ public final class SnapshotImpl implements ISnapshot
 
     public int[] getGCRoots() throws SnapshotException
     {
-        return roots.getAllKeys();
+        return getRoots().getAllKeys();
         // return Arrays.asList((GCRootInfo[]) roots.getAllValues(new
         // GCRootInfo[roots.size()]));
     }
@@ -602,7 +763,7 @@ public final class SnapshotImpl implements ISnapshot
             progressMonitor = new VoidProgressListener();
 
         /* a bit field to mark all reached objects */
-        boolean[] reachable = new boolean[numberOfObjects];
+        AtomicBitField reachable = new AtomicBitField(numberOfObjects);
 
         /*
          * Initially mark all the objects whose retained set is to be calculated
@@ -611,7 +772,7 @@ public final class SnapshotImpl implements ISnapshot
          */
         for (int objId : objectIds)
         {
-            reachable[objId] = true;
+            reachable.set(objId);
         }
 
         /*
@@ -619,7 +780,7 @@ public final class SnapshotImpl implements ISnapshot
          * references, and mark all unmarked objects. The retained set will
          * contain the unmarked objects
          */
-        ObjectMarker marker = new ObjectMarker(roots.getAllKeys(), reachable, indexManager.outbound(),
+        ObjectMarker marker = new ObjectMarker(getRoots().getAllKeys(), reachable, indexManager.outbound(),
                         IndexManager.Index.OUTBOUND.getFile(getSnapshotInfo().getPrefix()).length(),
                         progressMonitor);
         int numReached;
@@ -642,17 +803,14 @@ public final class SnapshotImpl implements ISnapshot
          */
         for (int objId : objectIds)
         {
-            reachable[objId] = false;
+            reachable.clear(objId);
         }
 
         /* Put each unmarked bit into the retained set */
         int j = 0;
-        for (int i = 0; i < numberOfObjects; i++)
+        for (int i = reachable.nextClearBit(0); i >= 0; i = reachable.nextClearBit(i + 1))
         {
-            if (!reachable[i])
-            {
-                retained[j++] = i;
-            }
+            retained[j++] = i;
         }
         return retained;
 
@@ -675,8 +833,8 @@ public final class SnapshotImpl implements ISnapshot
         if (progressMonitor == null)
             progressMonitor = new VoidProgressListener();
 
-        /* a boolean[] to mark all reached objects */
-        boolean[] reachable = new boolean[numberOfObjects];
+        /* a bit field to mark all reached objects */
+        AtomicBitField reachable = new AtomicBitField(numberOfObjects);
 
         /*
          * Initially mark all the objects whose retained set is to be calculated
@@ -685,7 +843,7 @@ public final class SnapshotImpl implements ISnapshot
          */
         for (int objId : objectIds)
         {
-            reachable[objId] = true;
+            reachable.set(objId);
         }
 
         /*
@@ -693,7 +851,7 @@ public final class SnapshotImpl implements ISnapshot
          * are going to pop() one by one the gc roots and do the marking from
          * them
          */
-        int[] gcRoots = roots.getAllKeys();
+        int[] gcRoots = getRoots().getAllKeys();
         ObjectMarker marker = new ObjectMarker(gcRoots, reachable, indexManager.outbound(),
                         IndexManager.Index.OUTBOUND.getFile(getSnapshotInfo().getPrefix()).length(),
                         progressMonitor);
@@ -712,24 +870,17 @@ public final class SnapshotImpl implements ISnapshot
          */
         for (int objId : objectIds)
         {
-            reachable[objId] = false;
+            reachable.clear(objId);
         }
 
-        /*
-         * build the result in an IntArray - the exact number of marked is not
-         * known
-         */
-        ArrayIntBig retained = new ArrayIntBig();
-
         /* Put each unmarked object into the retained set */
-        for (int i = 0; i < numberOfObjects; i++)
+        int[] retained = new int[numberOfObjects - reachable.cardinality()];
+        int j = 0;
+        for (int i = reachable.nextClearBit(0); i >= 0; i = reachable.nextClearBit(i + 1))
         {
-            if (!reachable[i])
-            {
-                retained.add(i);
-            }
+            retained[j++] = i;
         }
-        return retained.toArray();
+        return retained;
 
     }
 
@@ -788,11 +939,11 @@ public final class SnapshotImpl implements ISnapshot
          * excludedReferences, until initial are reached. The non-marked objects
          * will be a common retained set from the excluded and initial objects
          */
-        boolean[] firstPass = new boolean[getSnapshotInfo().getNumberOfObjects()];
+        AtomicBitField firstPass = new AtomicBitField(getSnapshotInfo().getNumberOfObjects());
         // mark all initial
         for (int objId : objectIds)
         {
-            firstPass[objId] = true;
+            firstPass.set(objId);
         }
         ObjectMarker marker = new ObjectMarker(getGCRoots(), firstPass, getIndexManager().outbound,
                         IndexManager.Index.OUTBOUND.getFile(getSnapshotInfo().getPrefix()).length(),
@@ -802,15 +953,14 @@ public final class SnapshotImpl implements ISnapshot
         // un-mark initial - they have to go into the retained set
         for (int objId : objectIds)
         {
-            firstPass[objId] = false;
+            firstPass.clear(objId);
         }
 
         /*
          * Second pass - from the non-marked objects mark the ones starting from
          * the initial set (objectIds)
          */
-        boolean[] secondPass = new boolean[firstPass.length];
-        System.arraycopy(firstPass, 0, secondPass, 0, firstPass.length);
+        AtomicBitField secondPass = new AtomicBitField(firstPass);
 
         ObjectMarker secondMarker = new ObjectMarker(objectIds, secondPass, getIndexManager().outbound,
                         new VoidProgressListener());
@@ -819,11 +969,10 @@ public final class SnapshotImpl implements ISnapshot
         /*
          * Have to merge the results of the two markings here
          */
-        int numObjects = getSnapshotInfo().getNumberOfObjects();
         ArrayIntBig retainedSet = new ArrayIntBig();
-        for (int i = 0; i < numObjects; i++)
+        for (int i = secondPass.nextSetBit(0); i >= 0; i = secondPass.nextSetBit(i + 1))
         {
-            if (!firstPass[i] && secondPass[i])
+            if (!firstPass.get(i))
             {
                 retainedSet.add(i);
             }
@@ -850,6 +999,27 @@ public final class SnapshotImpl implements ISnapshot
         return result;
     }
 
+    public long[] getMinRetainedSizes(int[][] objectIdSets, IProgressListener progressMonitor)
+                    throws SnapshotException
+    {
+        if (!isDominatorTreeCalculated())
+            throw new SnapshotException(Messages.SnapshotImpl_Error_DomTreeNotAvailable);
+
+        if (progressMonitor == null)
+            progressMonitor = new VoidProgressListener();
+
+        MinRetainedSizeCalculator calculator = new MinRetainedSizeCalculator(indexManager.dominated(),
+                        indexManager.o2retained(), indexManager.o2address().size());
+        try
+        {
+            return calculator.calculate(objectIdSets, Runtime.getRuntime().availableProcessors(), progressMonitor);
+        }
+        catch (InterruptedException e)
+        {
+            throw new SnapshotException(e);
+        }
+    }
+
     public int[] getMinRetainedSet(int[] objectIds, IProgressListener progressMonitor)
                     throws UnsupportedOperationException, SnapshotException
     {
@@ -1209,10 +1379,21 @@ public final class SnapshotImpl implements ISnapshot
 
     public void calculateDominatorTree(IProgressListener listener) throws SnapshotException,
                     IProgressListener.OperationCanceledException
+    {
+        calculateDominatorTree(listener, true);
+    }
+
+    /**
+     * @param parallel
+     *            use several threads, see
+     *            {@link DominatorTree#calculate(SnapshotImpl, IProgressListener, boolean)}
+     */
+    public void calculateDominatorTree(IProgressListener listener, boolean parallel) throws SnapshotException,
+                    IProgressListener.OperationCanceledException
     {
         try
         {
-            DominatorTree.calculate(this, listener);
+            DominatorTree.calculate(this, listener, parallel);
             dominatorTreeCalculated = indexManager.dominated() != null && indexManager.o2retained() != null
                             && indexManager.dominator() != null;
         }
@@ -1367,7 +1548,7 @@ public final class SnapshotImpl implements ISnapshot
 
     public GCRootInfo[] getGCRootInfo(int objectId) throws SnapshotException
     {
-        return roots.get(objectId);
+        return getRoots().get(objectId);
     }
 
     public IClass getClassOf(int objectId) throws SnapshotException
@@ -1471,7 +1652,7 @@ public final class SnapshotImpl implements ISnapshot
 
     public boolean isGCRoot(int objectId)
     {
-        return roots.containsKey(objectId);
+        return getRoots().containsKey(objectId);
     }
 
     public int mapAddressToId(long objectAddress) throws SnapshotException
@@ -1506,8 +1687,15 @@ public final class SnapshotImpl implements ISnapshot
             error = e1;
         }
 
+        if (fieldValueIndex != null)
+            fieldValueIndex.close();
+
         classCacheByName.clear();
 
+        if (ParserPlugin.getDefault() != null && Platform.inDebugMode() && ParserPlugin.getDefault().isDebugging())
+            System.out.println("Object cache hits=" + objectCache.getHits() + " misses=" + objectCache.getMisses() //$NON-NLS-1$ //$NON-NLS-2$
+                            + " evictions=" + objectCache.getEvictions() + " memory=" + objectCache.getMemory()); //$NON-NLS-1$ //$NON-NLS-2$
+
         if (error != null)
             throw new RuntimeException(error);
     }
@@ -1570,7 +1758,7 @@ public final class SnapshotImpl implements ISnapshot
 
         IntStack stack = new IntStack();
 
-        for (IteratorInt en = roots.keys(); en.hasNext();)
+        for (IteratorInt en = getRoots().keys(); en.hasNext();)
         {
             int i = en.next();
             stack.push(i);
@@ -1729,7 +1917,7 @@ public final class SnapshotImpl implements ISnapshot
             currentId = objectId;
 
             visited.set(objectId);
-            if (roots.get(objectId) != null)
+            if (getRoots().get(objectId) != null)
             {
                 // leave the fifo empty
             }
@@ -1782,7 +1970,7 @@ public final class SnapshotImpl implements ISnapshot
                      * some special check if the initial object itself is a GC
                      * root usually the GC roots are found among the referrers
                      */
-                    if (roots.containsKey(currentId))
+                    if (getRoots().containsKey(currentId))
                     {
                         referringThreads = null;
                         state = 2; // PROCESSING GC ROOT
@@ -1928,7 +2116,7 @@ public final class SnapshotImpl implements ISnapshot
             GCRootInfo[] rootInfo = null;
             for (int i = fromIndex; i < currentReferrers.length; i++)
             {
-                rootInfo = roots.get(currentReferrers[i]);
+                rootInfo = getRoots().get(currentReferrers[i]);
                 if (rootInfo != null)
                 {
                     if (excludeMap == null)
@@ -1960,7 +2148,7 @@ public final class SnapshotImpl implements ISnapshot
             }
             for (int referrer : currentReferrers)
             {
-                if (referrer >= 0 && !visited.get(referrer) && !roots.containsKey(referrer))
+                if (referrer >= 0 && !visited.get(referrer) && !getRoots().containsKey(referrer))
                 {
                     if (excludeMap == null)
                     {
@@ -1997,8 +2185,21 @@ public final class SnapshotImpl implements ISnapshot
         return indexManager.i2sv2;
     }
 
+    public ObjectCache<IObject> getObjectCache()
+    {
+        return objectCache;
+    }
+
+    public synchronized FieldValueIndex getFieldValueIndex()
+    {
+        if (fieldValueIndex == null)
+            fieldValueIndex = new FieldValueIndex(this);
+        return fieldValueIndex;
+    }
+
     public HashMapIntObject<HashMapIntObject<XGCRootInfo[]>> getRootsPerThread()
     {
+        getRoots();
         return rootsPerThread;
     }
 
@@ -2023,13 +2224,20 @@ public final class SnapshotImpl implements ISnapshot
         }
     }
     
+    private synchronized void loadThreadStacks() throws SnapshotException
+    {
+        // queries of a report may ask from several threads
+        if (!parsedThreads)
+        {
+            threadId2stack = ThreadStackHelper.loadThreadsData(this);
+            parsedThreads = true;
+        }
+    }
+
     public IThreadStack getThreadStack(int objectId) throws SnapshotException
     {
     	if (!parsedThreads)
-    	{
-    		threadId2stack = ThreadStackHelper.loadThreadsData(this);
-    		parsedThreads = true;
-    	}
+    		loadThreadStacks();
     	
     	if (threadId2stack != null)
     	{
@@ -2044,14 +2252,43 @@ public final class SnapshotImpl implements ISnapshot
 
     private static final class HeapObjectCache extends ObjectCache<IObject>
     {
+        /** Estimated overhead of an object model instance, its fields and the cache entry */
+        private static final int OBJECT_OVERHEAD = 96;
+
         SnapshotImpl snapshot;
 
-        private HeapObjectCache(SnapshotImpl snapshot, int maxSize)
+        private HeapObjectCache(SnapshotImpl snapshot, long maxMemory)
         {
-            super(maxSize);
+            super(maxMemory);
             this.snapshot = snapshot;
         }
 
+        /**
+         * A small share of the heap, between 1MB and 64MB. The objects can
+         * always be read again from the dump.
+         */
+        static long defaultMaxMemory()
+        {
+            return Math.min(Math.max(Runtime.getRuntime().maxMemory() / 64, 1L << 20), 64L << 20);
+        }
+
+        @Override
+        protected int sizeOf(IObject object)
+        {
+            // Fields and small array contents are read on demand and take a
+            // few times the space they had in the dump. Larger arrays are
+            // always read lazily, so their size in the dump does not count.
+            try
+            {
+                long heapSize = snapshot.getHeapSize(object.getObjectId());
+                return OBJECT_OVERHEAD + 4 * (int) Math.min(heapSize, 1024);
+            }
+            catch (SnapshotException e)
+            {
+                return OBJECT_OVERHEAD;
+            }
+        }
+
         @Override
         protected IObject load(int objectId)
         {
@@ -34,6 +34,7 @@ public class SnapshotImplBuilder
     /* package */Map<String, List<IClass>> classCacheByName;
     private HashMapIntObject<XGCRootInfo[]> roots;
     private HashMapIntObject<HashMapIntObject<XGCRootInfo[]>> rootsPerThread;
+    private long numberOfReferences = -1;
 
     /* package */BitField arrayObjects;
 
@@ -59,6 +60,24 @@ public class SnapshotImplBuilder
         return indexManager;
     }
 
+    /**
+     * @param numberOfReferences
+     *            the number of outbound references of all objects
+     */
+    public void setNumberOfReferences(long numberOfReferences)
+    {
+        this.numberOfReferences = numberOfReferences;
+    }
+
+    /**
+     * @return the number of outbound references of all objects or -1 if
+     *         unknown
+     */
+    public long getNumberOfReferences()
+    {
+        return numberOfReferences;
+    }
+
     public void setClassCache(HashMapIntObject<ClassImpl> classCache)
     {
         this.classCache = classCache;
@@ -84,6 +103,11 @@ public class SnapshotImplBuilder
         this.rootsPerThread = rootsPerThread;
     }
 
+    public HashMapIntObject<HashMapIntObject<XGCRootInfo[]>> getRootsPerThread()
+    {
+        return rootsPerThread;
+    }
+
     public void setArrayObjects(BitField arrayObjects)
     {
         this.arrayObjects = arrayObjects;
@@ -92,7 +116,13 @@ public class SnapshotImplBuilder
     public SnapshotImpl create(Parser parser, IProgressListener listener) throws IOException, SnapshotException
     {
         IObjectReader heapObjectReader = parser.create(IObjectReader.class, ParserRegistry.OBJECT_READER);
-        return SnapshotImpl.create(snapshotInfo, parser.getUniqueIdentifier(), heapObjectReader, classCache, roots,
+        return create(parser.getUniqueIdentifier(), heapObjectReader, listener);
+    }
+
+    public SnapshotImpl create(String objectReaderUniqueIdentifier, IObjectReader heapObjectReader,
+                    IProgressListener listener) throws IOException, SnapshotException
+    {
+        return SnapshotImpl.create(snapshotInfo, objectReaderUniqueIdentifier, heapObjectReader, classCache, roots,
                         rootsPerThread, arrayObjects, indexManager, listener);
     }
 
@@ -18,6 +18,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -28,15 +29,19 @@ import org.eclipse.mat.collect.ArrayLong;
 import org.eclipse.mat.collect.IteratorInt;
 import org.eclipse.mat.collect.IteratorLong;
 import org.eclipse.mat.collect.SetInt;
+import org.eclipse.mat.parser.index.IIndexReader;
 import org.eclipse.mat.parser.internal.Messages;
+import org.eclipse.mat.parser.internal.SnapshotImpl;
 import org.eclipse.mat.parser.internal.oql.compiler.CompilerImpl;
 import org.eclipse.mat.parser.internal.oql.compiler.EvaluationContext;
 import org.eclipse.mat.parser.internal.oql.compiler.Expression;
+import org.eclipse.mat.parser.internal.oql.compiler.FieldPredicate;
 import org.eclipse.mat.parser.internal.oql.compiler.Query;
 import org.eclipse.mat.parser.internal.oql.compiler.Query.SelectItem;
 import org.eclipse.mat.parser.internal.oql.parser.OQLParser;
 import org.eclipse.mat.parser.internal.oql.parser.ParseException;
 import org.eclipse.mat.parser.internal.oql.parser.TokenMgrError;
+import org.eclipse.mat.parser.internal.snapshot.FieldValueIndex;
 import org.eclipse.mat.query.Column;
 import org.eclipse.mat.query.IContextObject;
 import org.eclipse.mat.query.IContextObjectSet;
@@ -59,6 +64,24 @@ public class OQLQueryImpl implements IOQLQuery
     Query query;
     EvaluationContext ctx;
 
+    /** prefix of a query which returns the profile instead of the result */
+    private static final Pattern EXPLAIN_ANALYZE = Pattern.compile("\\s*EXPLAIN\\s+ANALYZE\\s", //$NON-NLS-1$
+                    Pattern.CASE_INSENSITIVE);
+
+    private boolean isExplainAnalyze;
+
+    // set while the query is profiled
+    private QueryProfile profile;
+    private QueryProfile.Stage parentStage;
+    private QueryProfile.Stage queryStage;
+    private QueryProfile.Stage stage;
+
+    /** classes with fewer objects are filtered without stored field values */
+    private static final int FIELD_VALUES_THRESHOLD = 1000;
+
+    /** number of stored field values scanned at a time */
+    private static final int SCAN_SIZE = 4096;
+
     // //////////////////////////////////////////////////////////////
     // result set implementations
     // //////////////////////////////////////////////////////////////
@@ -595,6 +618,257 @@ public class OQLQueryImpl implements IOQLQuery
 
     }
 
+    // //////////////////////////////////////////////////////////////
+    // parallel evaluation
+    // //////////////////////////////////////////////////////////////
+
+    /**
+     * fewer objects are evaluated by the calling thread, unless the query asks
+     * for parallel evaluation
+     */
+    private static final int PARALLEL_THRESHOLD = 10000;
+
+    /** number of consecutive objects a worker evaluates at a time */
+    private static final int RANGE_SIZE = 1024;
+
+    /**
+     * The threads of a parallel query. Sub-queries running on them are
+     * evaluated by the thread itself.
+     */
+    private static class WorkerThread extends Thread
+    {
+        WorkerThread(Runnable runnable, int number)
+        {
+            super(runnable, "OQLQueryThread-" + number); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Evaluates ranges of the object ids on several threads, each with its own
+     * evaluation context. The results are kept per range, so that they are
+     * returned in the order of the object ids.
+     */
+    private abstract class ParallelEvaluation
+    {
+        private final int numberOfObjects;
+        private final Object[] results;
+        private final AtomicInteger nextRange = new AtomicInteger();
+        private volatile boolean stop;
+        private volatile Throwable error;
+
+        ParallelEvaluation(int[] objectIds)
+        {
+            this.numberOfObjects = objectIds.length;
+            this.results = new Object[(objectIds.length + RANGE_SIZE - 1) / RANGE_SIZE];
+        }
+
+        abstract Object evaluate(int from, int to, EvaluationContext context) throws SnapshotException;
+
+        Object[] run(int numberOfThreads, IProgressListener listener) throws SnapshotException
+        {
+            Thread[] threads = new Thread[Math.min(numberOfThreads, results.length)];
+
+            // the work of the threads as part of the current stage
+            QueryProfile.Stage parallelStage = null;
+            if (profile != null && stage != null)
+                parallelStage = profile.begin(stage, "PARALLEL(" + threads.length + ")", numberOfObjects); //$NON-NLS-1$ //$NON-NLS-2$
+
+            for (int ii = 0; ii < threads.length; ii++)
+            {
+                threads[ii] = new WorkerThread(new Worker(), ii + 1);
+                threads[ii].start();
+            }
+
+            // only the calling thread talks to the progress listener
+            try
+            {
+                for (Thread thread : threads)
+                {
+                    while (thread.isAlive())
+                    {
+                        thread.join(100);
+                        if (listener.isCanceled())
+                            stop = true;
+                    }
+                }
+            }
+            catch (InterruptedException e)
+            {
+                stop = true;
+                Thread.currentThread().interrupt();
+                throw new IProgressListener.OperationCanceledException();
+            }
+            finally
+            {
+                if (parallelStage != null)
+                    profile.end(parallelStage, -1);
+            }
+
+            if (error instanceof SnapshotException)
+                throw (SnapshotException) error;
+            if (error instanceof RuntimeException)
+                throw (RuntimeException) error;
+            if (error instanceof Error)
+                throw (Error) error;
+            if (stop)
+                throw new IProgressListener.OperationCanceledException();
+
+            return results;
+        }
+
+        private void fail(Throwable t)
+        {
+            error = t;
+            stop = true;
+        }
+
+        private class Worker implements Runnable
+        {
+            public void run()
+            {
+                // own subject, but the alias and outer contexts of the query
+                EvaluationContext context = new EvaluationContext(ctx);
+                context.setAlias(query.getFromClause().getAlias());
+
+                try
+                {
+                    int range;
+                    while (!stop && (range = nextRange.getAndIncrement()) < results.length)
+                    {
+                        int from = range * RANGE_SIZE;
+                        results[range] = evaluate(from, Math.min(from + RANGE_SIZE, numberOfObjects), context);
+                    }
+                }
+                catch (SnapshotException e)
+                {
+                    fail(e);
+                }
+                catch (RuntimeException e)
+                {
+                    fail(e);
+                }
+                catch (Error e)
+                {
+                    fail(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of threads to evaluate the objects of this query with
+     */
+    private int numberOfThreads()
+    {
+        if (Thread.currentThread() instanceof WorkerThread)
+            return 1;
+
+        int parallelism = query.getSelectClause().getParallelism();
+        if (parallelism == Query.SelectClause.PARALLEL_DEFAULT)
+            parallelism = Boolean.FALSE.toString().equalsIgnoreCase(System.getProperty(OQL.PARALLEL_PROPERTY)) ? 1
+                            : Query.SelectClause.PARALLEL_ALL_PROCESSORS;
+        if (parallelism == Query.SelectClause.PARALLEL_ALL_PROCESSORS)
+            parallelism = Runtime.getRuntime().availableProcessors();
+        return parallelism;
+    }
+
+    /**
+     * @return the number of objects from which they are evaluated with
+     *         several threads, none if the query has a hint
+     */
+    private int parallelThreshold()
+    {
+        if (query.getSelectClause().getParallelism() != Query.SelectClause.PARALLEL_DEFAULT)
+            return 0;
+        return Integer.getInteger(OQL.PARALLEL_THRESHOLD_PROPERTY, PARALLEL_THRESHOLD);
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // profiling
+    // //////////////////////////////////////////////////////////////
+
+    /**
+     * Profiles this query as a stage of the enclosing query.
+     */
+    private void setProfile(QueryProfile profile, QueryProfile.Stage parent)
+    {
+        this.profile = profile;
+        this.parentStage = parent;
+    }
+
+    /**
+     * Ends the current stage, if still running, and starts the next one.
+     */
+    private void beginStage(String name, long rowsIn)
+    {
+        if (profile == null)
+            return;
+
+        if (stage != null)
+            profile.end(stage, -1);
+        stage = profile.begin(queryStage, name, rowsIn);
+    }
+
+    /**
+     * Ends the FROM stage and starts the WHERE stage, if there is a WHERE
+     * clause.
+     */
+    private void beginWhere(long rowsIn)
+    {
+        endStage(rowsIn);
+        if (query.getWhereClause() != null)
+            beginStage("WHERE " + query.getWhereClause(), rowsIn); //$NON-NLS-1$
+    }
+
+    private void endStage(long rowsOut)
+    {
+        if (profile == null || stage == null)
+            return;
+
+        profile.end(stage, rowsOut);
+        stage = null;
+    }
+
+    /**
+     * Computes the values of a result table, which otherwise are computed
+     * when displayed.
+     */
+    private static void analyze(Object result)
+    {
+        if (!(result instanceof IResultTable))
+            return;
+
+        IResultTable table = (IResultTable) result;
+        int numberOfColumns = table.getColumns().length;
+        for (int ii = 0; ii < table.getRowCount(); ii++)
+        {
+            Object row = table.getRow(ii);
+            for (int jj = 0; jj < numberOfColumns; jj++)
+                table.getColumnValue(row, jj);
+        }
+    }
+
+    /**
+     * @return the number of rows of a (partial) result or -1 if unknown
+     */
+    private static long sizeOf(Object result)
+    {
+        if (result == null)
+            return 0;
+        else if (result instanceof IntResult)
+            return ((IntResult) result).size();
+        else if (result instanceof IResultTable)
+            return ((IResultTable) result).getRowCount();
+        else if (result instanceof Collection)
+            return ((Collection<?>) result).size();
+        else if (result instanceof Iterable)
+            return -1;
+        else if (result.getClass().isArray())
+            return Array.getLength(result);
+        else
+            return 1;
+    }
+
     // //////////////////////////////////////////////////////////////
     // oql execution
     // //////////////////////////////////////////////////////////////
@@ -606,6 +880,14 @@ public class OQLQueryImpl implements IOQLQuery
 
     public OQLQueryImpl(String queryString) throws OQLParseException
     {
+        Matcher explain = EXPLAIN_ANALYZE.matcher(queryString);
+        if (explain.lookingAt())
+        {
+            // blank out the prefix, so that errors refer to the right column
+            isExplainAnalyze = true;
+            queryString = explain.group().replaceAll("\\S", " ") + queryString.substring(explain.end()); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+
         try
         {
             OQLParser p = new OQLParser(new StringReader(queryString));
@@ -664,6 +946,14 @@ public class OQLQueryImpl implements IOQLQuery
         if (monitor == null)
             monitor = new VoidProgressListener();
 
+        if (isExplainAnalyze)
+        {
+            QueryProfile answer = new QueryProfile(toString(), snapshot);
+            setProfile(answer, null);
+            internalExecute(monitor);
+            return answer;
+        }
+
         Object result = internalExecute(monitor);
         return result instanceof IntResult ? ((IntResult) result).toArray() : result;
     }
@@ -674,6 +964,12 @@ public class OQLQueryImpl implements IOQLQuery
         Arrays.fill(percentages, 100);
         SimpleMonitor listener = new SimpleMonitor(query.toString(), monitor, percentages);
 
+        if (profile != null)
+        {
+            queryStage = profile.begin(parentStage, getSelectQuery().toString(), -1);
+            beginStage("FROM " + query.getFromClause(), -1); //$NON-NLS-1$
+        }
+
         // process query
         Object result = null;
 
@@ -690,11 +986,22 @@ public class OQLQueryImpl implements IOQLQuery
             result = doFromItem(listener.nextMonitor());
         }
 
+        if (profile != null)
+        {
+            analyze(result);
+            endStage(sizeOf(result));
+        }
+
         if (query.getUnionQueries() != null)
         {
+            beginStage("UNION", sizeOf(result)); //$NON-NLS-1$
             result = union(listener, result);
+            endStage(sizeOf(result));
         }
 
+        if (profile != null)
+            profile.end(queryStage, sizeOf(result));
+
         return result;
 
     }
@@ -734,6 +1041,7 @@ public class OQLQueryImpl implements IOQLQuery
             }
 
             OQLQueryImpl unionQuery = new OQLQueryImpl(this.ctx, q);
+            unionQuery.setProfile(profile, stage);
             Object unionResult = unionQuery.internalExecute(monitor.nextMonitor());
 
             if (unionResult != null)
@@ -766,6 +1074,7 @@ public class OQLQueryImpl implements IOQLQuery
     private Object doSubQuery(IProgressListener monitor) throws SnapshotException
     {
         OQLQueryImpl subQuery = new OQLQueryImpl(this.ctx, query.getFromClause().getSubSelect());
+        subQuery.setProfile(profile, stage);
         Object result = subQuery.internalExecute(monitor);
 
         if (!(result instanceof IntResult))
@@ -956,11 +1265,13 @@ public class OQLQueryImpl implements IOQLQuery
             {
                 List<Object> r = new ArrayList<Object>();
 
+                beginWhere(sizeOf(result));
                 for (Object obj : (Iterable<?>) result)
                 {
                     if (accept(obj))
                         r.add(obj);
                 }
+                endStage(r.size());
 
                 return r.isEmpty() ? null : select(r, listener);
             }
@@ -969,18 +1280,24 @@ public class OQLQueryImpl implements IOQLQuery
                 List<Object> r = new ArrayList<Object>();
 
                 int length = Array.getLength(result);
+                beginWhere(length);
                 for (int ii = 0; ii < length; ii++)
                 {
                     Object obj = Array.get(result, ii);
                     if (accept(obj))
                         r.add(obj);
                 }
+                endStage(r.size());
 
                 return r.isEmpty() ? null : select(r, listener);
             }
             else
             {
-                return accept(result) ? select(result, listener) : null;
+                beginWhere(1);
+                boolean isAccepted = accept(result);
+                endStage(isAccepted ? 1 : 0);
+
+                return isAccepted ? select(result, listener) : null;
             }
         }
         else
@@ -1103,6 +1420,7 @@ public class OQLQueryImpl implements IOQLQuery
         if (query.getFromClause().includeObjects())
         {
             listener.beginTask(Messages.OQLQueryImpl_SelectingObjects, classes.size());
+            beginWhere(classes.size());
 
             IntResult filteredSet = createIntResult(classes.size());
             for (IClass clasz : classes)
@@ -1114,12 +1432,21 @@ public class OQLQueryImpl implements IOQLQuery
                     throw new IProgressListener.OperationCanceledException();
                 listener.worked(1);
             }
+            endStage(filteredSet.size());
+
             return filteredSet.isEmpty() ? null : select(filteredSet, listener);
 
         }
         else
         {
             listener.beginTask(Messages.OQLQueryImpl_CollectingObjects, classes.size());
+            if (profile != null)
+            {
+                long numberOfObjects = 0;
+                for (IClass clasz : classes)
+                    numberOfObjects += clasz.getNumberOfObjects();
+                beginWhere(numberOfObjects);
+            }
 
             IntResult filteredSet = createIntResult(classes.size() * 100);
             for (IClass clasz : classes)
@@ -1127,17 +1454,13 @@ public class OQLQueryImpl implements IOQLQuery
                 listener.subTask(MessageUtil.format(Messages.OQLQueryImpl_CheckingClass,
                                 new Object[] { clasz.getName() }));
 
-                int[] ids = clasz.getObjectIds();
-                for (int id : ids)
-                {
-                    if (accept(id))
-                        filteredSet.add(id);
-                }
+                filter(clasz, filteredSet, listener);
 
                 if (listener.isCanceled())
                     throw new IProgressListener.OperationCanceledException();
                 listener.worked(1);
             }
+            endStage(filteredSet.size());
 
             return filteredSet.isEmpty() ? null : select(filteredSet, listener);
         }
@@ -1152,37 +1475,172 @@ public class OQLQueryImpl implements IOQLQuery
     }
 
     private boolean accept(Object object) throws SnapshotException
+    {
+        return accept(object, ctx);
+    }
+
+    private boolean accept(Object object, EvaluationContext context) throws SnapshotException
     {
         if (query.getWhereClause() == null)
             return true;
 
-        ctx.setSubject(object);
+        context.setSubject(object);
 
-        Boolean result = (Boolean) query.getWhereClause().compute(ctx);
+        Boolean result = (Boolean) query.getWhereClause().compute(context);
 
         return result == null ? false : result.booleanValue();
     }
 
-    private Object filterAndSelect(IntResult objectIds, IProgressListener listener) throws SnapshotException
+    /**
+     * Adds the objects accepted by the WHERE clause to the filtered set, in
+     * the order of the given object ids.
+     */
+    private void filter(final int[] objectIds, IntResult filteredSet, IProgressListener listener)
+                    throws SnapshotException
     {
-        IntResult filteredSet = createIntResult(objectIds.size());
+        int numberOfThreads = numberOfThreads();
+        if (query.getWhereClause() == null || numberOfThreads <= 1 || objectIds.length < parallelThreshold())
+        {
+            for (int id : objectIds)
+            {
+                if (listener.isCanceled())
+                    throw new IProgressListener.OperationCanceledException();
+
+                if (accept(id))
+                    filteredSet.add(id);
+            }
+            return;
+        }
+
+        Object[] accepted = new ParallelEvaluation(objectIds)
+        {
+            @Override
+            Object evaluate(int from, int to, EvaluationContext context) throws SnapshotException
+            {
+                ArrayInt answer = new ArrayInt();
+                for (int ii = from; ii < to; ii++)
+                {
+                    if (accept(context.getSnapshot().getObject(objectIds[ii]), context))
+                        answer.add(objectIds[ii]);
+                }
+                return answer.toArray();
+            }
+        }.run(numberOfThreads, listener);
+
+        for (Object ids : accepted)
+            filteredSet.addAll((int[]) ids);
+    }
+
+    /**
+     * Adds the objects of the class accepted by the WHERE clause to the
+     * filtered set. Comparisons of primitive fields with constants are
+     * evaluated on the stored field values first, so that only the remaining
+     * objects are read, if the rest of the WHERE clause needs them at all.
+     */
+    private void filter(IClass clasz, IntResult filteredSet, IProgressListener listener) throws SnapshotException
+    {
+        int[] objectIds = clasz.getObjectIds();
+        if (query.getWhereClause() == null
+                        || objectIds.length < Integer.getInteger(OQL.FIELD_VALUES_THRESHOLD_PROPERTY,
+                                        FIELD_VALUES_THRESHOLD)
+                        || !(ctx.getSnapshot() instanceof SnapshotImpl))
+        {
+            filter(objectIds, filteredSet, listener);
+            return;
+        }
 
-        for (IntIterator iter = objectIds.iterator(); iter.hasNext();)
+        FieldValueIndex index = ((SnapshotImpl) ctx.getSnapshot()).getFieldValueIndex();
+        int[] positions = null;
+        boolean isComplete = true;
+        for (Expression conjunct : FieldPredicate.conjunctsOf(query.getWhereClause()))
         {
+            FieldPredicate predicate = FieldPredicate.of(conjunct, ctx);
+            int type = predicate != null ? FieldValueIndex.getType(clasz, predicate.getFieldName()) : -1;
+            if (type < 0 || !predicate.supports(type))
+            {
+                isComplete = false;
+                continue;
+            }
+
+            IIndexReader.IOne2LongIndex column = index.getColumn(clasz, predicate.getFieldName(), listener);
+            positions = scan(column, type, predicate, positions);
+
             if (listener.isCanceled())
                 throw new IProgressListener.OperationCanceledException();
+        }
 
-            int id = iter.nextInt();
-            if (accept(id))
-                filteredSet.add(id);
+        if (positions == null)
+        {
+            filter(objectIds, filteredSet, listener);
+            return;
         }
 
+        int[] remaining = new int[positions.length];
+        for (int ii = 0; ii < positions.length; ii++)
+            remaining[ii] = objectIds[positions[ii]];
+
+        if (isComplete)
+            filteredSet.addAll(remaining);
+        else
+            filter(remaining, filteredSet, listener);
+    }
+
+    /**
+     * @return the positions in the column, of all or of the given positions,
+     *         whose values are accepted by the comparison
+     */
+    private static int[] scan(IIndexReader.IOne2LongIndex column, int type, FieldPredicate predicate, int[] positions)
+    {
+        ArrayInt answer = new ArrayInt();
+        int size = column.size();
+        int next = 0;
+        for (int start = 0; start < size; start += SCAN_SIZE)
+        {
+            int length = Math.min(SCAN_SIZE, size - start);
+            if (positions != null)
+            {
+                if (next == positions.length)
+                    break;
+                if (positions[next] >= start + length)
+                    continue;
+            }
+
+            long[] values = column.getNext(start, length);
+            if (positions == null)
+            {
+                for (int ii = 0; ii < length; ii++)
+                {
+                    if (predicate.accept(type, values[ii]))
+                        answer.add(start + ii);
+                }
+            }
+            else
+            {
+                for (; next < positions.length && positions[next] < start + length; next++)
+                {
+                    if (predicate.accept(type, values[positions[next] - start]))
+                        answer.add(positions[next]);
+                }
+            }
+        }
+        return answer.toArray();
+    }
+
+    private Object filterAndSelect(IntResult objectIds, IProgressListener listener) throws SnapshotException
+    {
+        IntResult filteredSet = createIntResult(objectIds.size());
+
+        beginWhere(objectIds.size());
+        filter(objectIds.toArray(), filteredSet, listener);
+        endStage(filteredSet.size());
+
         return filteredSet.isEmpty() ? null : select(filteredSet, listener);
     }
 
     private Object select(IntResult objectIds, IProgressListener listener) throws SnapshotException
     {
         Query.SelectClause select = query.getSelectClause();
+        beginStage("SELECT " + select, objectIds.size()); //$NON-NLS-1$
 
         // calculate retained set
         if (select.isRetainedSet())
@@ -1196,9 +1654,17 @@ public class OQLQueryImpl implements IOQLQuery
         }
         else if (select.isAsObjects())
         {
-            ResultSet temp = new ResultSet(getSelectQuery(), objectIds.toArray());
             IntResult r = createIntResult(objectIds.size());
-            convertToObjects(temp, r, listener);
+            int numberOfThreads = numberOfThreads();
+            if (numberOfThreads > 1 && objectIds.size() >= parallelThreshold() && select.getSelectList().size() == 1)
+            {
+                selectObjects(objectIds.toArray(), r, numberOfThreads, listener);
+            }
+            else
+            {
+                ResultSet temp = new ResultSet(getSelectQuery(), objectIds.toArray());
+                convertToObjects(temp, r, listener);
+            }
             return r;
         }
         else
@@ -1207,6 +1673,38 @@ public class OQLQueryImpl implements IOQLQuery
         }
     }
 
+    /**
+     * Evaluates the single column of a SELECT OBJECTS query on several threads
+     * and adds the resulting objects in the order of the given object ids.
+     */
+    private void selectObjects(final int[] objectIds, IntResult resultSet, int numberOfThreads,
+                    IProgressListener listener) throws SnapshotException
+    {
+        final Expression column = query.getSelectClause().getSelectList().get(0).getExpression();
+
+        Object[] values = new ParallelEvaluation(objectIds)
+        {
+            @Override
+            Object evaluate(int from, int to, EvaluationContext context) throws SnapshotException
+            {
+                Object[] answer = new Object[to - from];
+                for (int ii = from; ii < to; ii++)
+                {
+                    context.setSubject(context.getSnapshot().getObject(objectIds[ii]));
+                    answer[ii - from] = column.compute(context);
+                }
+                return answer;
+            }
+        }.run(numberOfThreads, listener);
+
+        String oqlQuery = getSelectQuery().toString();
+        for (Object range : values)
+        {
+            for (Object rowObject : (Object[]) range)
+                addObjectIds(rowObject, resultSet, oqlQuery);
+        }
+    }
+
     private Object select(List<Object> objects, IProgressListener listener) throws SnapshotException
     {
         Query.SelectClause select = query.getSelectClause();
@@ -1214,6 +1712,8 @@ public class OQLQueryImpl implements IOQLQuery
         // calculate retained set
         if (select.isRetainedSet()) { return select(convertToObjectIds(objects), listener); }
 
+        beginStage("SELECT " + select, objects.size()); //$NON-NLS-1$
+
         if (select.getSelectList().isEmpty())
         {
             return objects;
@@ -1239,6 +1739,8 @@ public class OQLQueryImpl implements IOQLQuery
         if (select.isRetainedSet()) { return select(convertToObjectIds(Arrays.asList(new Object[] { object })),
                         listener); }
 
+        beginStage("SELECT " + select, 1); //$NON-NLS-1$
+
         if (select.getSelectList().isEmpty())
         {
             return object;
@@ -1314,67 +1816,72 @@ public class OQLQueryImpl implements IOQLQuery
                 throw new IProgressListener.OperationCanceledException();
 
             Object rowObject = set.getColumnValue(set.getRow(ii), 0);
-            /**
-             * Convert arrays or collections of IObjects
-             * or ints or int arrays or IObjects
-             * or longs or arrays of longs into object ids.
-             */
-            Iterable<?> it;
-            if (rowObject instanceof Iterable)
+            addObjectIds(rowObject, resultSet, set.getOQLQuery());
+        }
+    }
+
+    private void addObjectIds(Object rowObject, IntResult resultSet, String oqlQuery) throws SnapshotException
+    {
+        /**
+         * Convert arrays or collections of IObjects
+         * or ints or int arrays or IObjects
+         * or longs or arrays of longs into object ids.
+         */
+        Iterable<?> it;
+        if (rowObject instanceof Iterable)
+        {
+            it = (Iterable<?>)rowObject;
+        }
+        else if (rowObject instanceof Object[])
+        {
+            it = Arrays.asList((Object[])rowObject);
+        }
+        else
+        {
+            it = Collections.singleton(rowObject);
+        }
+        for (Object object : it)
+        {
+            if (object == null)
             {
-                it = (Iterable<?>)rowObject;
+                // acceptable value -> do nothing
             }
-            else if (rowObject instanceof Object[])
+            else if (object instanceof Integer)
             {
-                it = Arrays.asList((Object[])rowObject);
+                resultSet.add(((Integer) object).intValue());
             }
-            else
+            else if (object instanceof int[])
             {
-                it = Collections.singleton(rowObject);
+                resultSet.addAll((int[]) object);
             }
-            for (Object object : it)
+            else if (object instanceof IObject)
             {
-                if (object == null)
-                {
-                    // acceptable value -> do nothing
-                }
-                else if (object instanceof Integer)
-                {
-                    resultSet.add(((Integer) object).intValue());
-                }
-                else if (object instanceof int[])
-                {
-                    resultSet.addAll((int[]) object);
-                }
-                else if (object instanceof IObject)
+                resultSet.add(((IObject) object).getObjectId());
+            }
+            else if (object instanceof Long)
+            {
+                long addr = ((Long) object).longValue();
+                if (addr != 0)
                 {
-                    resultSet.add(((IObject) object).getObjectId());
+                    int id = ctx.getSnapshot().mapAddressToId(addr);
+                    resultSet.add(id);
                 }
-                else if (object instanceof Long)
+            }
+            else if (object instanceof long[])
+            {
+                for (long addr : (long[])object)
                 {
-                    long addr = ((Long) object).longValue();
                     if (addr != 0)
                     {
                         int id = ctx.getSnapshot().mapAddressToId(addr);
                         resultSet.add(id);
                     }
                 }
-                else if (object instanceof long[])
-                {
-                    for (long addr : (long[])object)
-                    {
-                        if (addr != 0)
-                        {
-                            int id = ctx.getSnapshot().mapAddressToId(addr);
-                            resultSet.add(id);
-                        }
-                    }
-                }
-                else
-                {
-                    throw new SnapshotException(MessageUtil.format(Messages.OQLQueryImpl_Error_ResultMustReturnObjectList,
-                                    new Object[] { set.getOQLQuery(), String.valueOf(rowObject) }));
-                }
+            }
+            else
+            {
+                throw new SnapshotException(MessageUtil.format(Messages.OQLQueryImpl_Error_ResultMustReturnObjectList,
+                                new Object[] { oqlQuery, String.valueOf(rowObject) }));
             }
         }
     }
@@ -1388,7 +1895,7 @@ public class OQLQueryImpl implements IOQLQuery
     @Override
     public String toString()
     {
-        return query.toString();
+        return isExplainAnalyze ? "EXPLAIN ANALYZE " + query : query.toString(); //$NON-NLS-1$
     }
 
 }
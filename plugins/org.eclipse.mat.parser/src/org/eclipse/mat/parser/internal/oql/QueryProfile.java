@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser.internal.oql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.mat.parser.index.IndexReader;
+import org.eclipse.mat.parser.internal.Messages;
+import org.eclipse.mat.parser.internal.SnapshotImpl;
+import org.eclipse.mat.parser.internal.snapshot.ObjectCache;
+import org.eclipse.mat.query.Column;
+import org.eclipse.mat.query.IContextObject;
+import org.eclipse.mat.query.IResultTree;
+import org.eclipse.mat.query.ResultMetaData;
+import org.eclipse.mat.snapshot.IOQLQuery;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.model.IObject;
+
+/**
+ * The profile of a query executed with <code>EXPLAIN ANALYZE</code>: one node
+ * per query with the FROM, WHERE, SELECT and UNION stages as children. The
+ * nodes of sub-queries are children of the FROM stage, the nodes of the UNION
+ * queries children of the UNION stage.
+ * <p>
+ * Objects loaded, cache hits and index pages read are the differences of
+ * counters of the snapshot and of all index readers, so they include the
+ * work done at the same time by other threads.
+ */
+public class QueryProfile implements IOQLQuery.Result, IResultTree
+{
+    /* package */static class Stage
+    {
+        final String name;
+        final List<Stage> children = new ArrayList<Stage>();
+
+        long rowsIn = -1;
+        long rowsOut = -1;
+        long objectsLoaded;
+        long cacheHits;
+        long pagesRead;
+        long nanos;
+        boolean isRunning = true;
+
+        Stage(String name)
+        {
+            this.name = name;
+        }
+    }
+
+    private final String oqlQuery;
+    private final ObjectCache<IObject> objectCache;
+    private final List<Stage> elements = new ArrayList<Stage>(1);
+
+    /* package */QueryProfile(String oqlQuery, ISnapshot snapshot)
+    {
+        this.oqlQuery = oqlQuery;
+        this.objectCache = snapshot instanceof SnapshotImpl ? ((SnapshotImpl) snapshot).getObjectCache() : null;
+    }
+
+    /**
+     * Starts a stage: until it ends, the counters hold the values at the
+     * start.
+     *
+     * @param parent
+     *            the enclosing stage or null for the query itself
+     */
+    /* package */Stage begin(Stage parent, String name, long rowsIn)
+    {
+        Stage stage = new Stage(name);
+        stage.rowsIn = rowsIn;
+        if (objectCache != null)
+        {
+            stage.objectsLoaded = objectCache.getMisses();
+            stage.cacheHits = objectCache.getHits();
+        }
+        stage.pagesRead = IndexReader.getPagesRead();
+        stage.nanos = System.nanoTime();
+
+        if (parent != null)
+            parent.children.add(stage);
+        else
+            elements.add(stage);
+        return stage;
+    }
+
+    /* package */void end(Stage stage, long rowsOut)
+    {
+        if (!stage.isRunning)
+            return;
+
+        stage.isRunning = false;
+        stage.nanos = System.nanoTime() - stage.nanos;
+        stage.pagesRead = IndexReader.getPagesRead() - stage.pagesRead;
+        if (objectCache != null)
+        {
+            stage.objectsLoaded = objectCache.getMisses() - stage.objectsLoaded;
+            stage.cacheHits = objectCache.getHits() - stage.cacheHits;
+        }
+        else
+        {
+            stage.objectsLoaded = -1;
+            stage.cacheHits = -1;
+        }
+        stage.rowsOut = rowsOut;
+    }
+
+    public String getOQLQuery()
+    {
+        return oqlQuery;
+    }
+
+    public ResultMetaData getResultMetaData()
+    {
+        return null;
+    }
+
+    public Column[] getColumns()
+    {
+        return new Column[] { new Column(Messages.QueryProfile_ColumnStage), //
+                        new Column(Messages.QueryProfile_ColumnRowsIn, long.class).noTotals(), //
+                        new Column(Messages.QueryProfile_ColumnRowsOut, long.class).noTotals(), //
+                        new Column(Messages.QueryProfile_ColumnObjectsLoaded, long.class).noTotals(), //
+                        new Column(Messages.QueryProfile_ColumnCacheHits, long.class).noTotals(), //
+                        new Column(Messages.QueryProfile_ColumnIndexPagesRead, long.class).noTotals(), //
+                        new Column(Messages.QueryProfile_ColumnTime, double.class).noTotals() };
+    }
+
+    public List<?> getElements()
+    {
+        return elements;
+    }
+
+    public boolean hasChildren(Object element)
+    {
+        return !((Stage) element).children.isEmpty();
+    }
+
+    public List<?> getChildren(Object parent)
+    {
+        return Collections.unmodifiableList(((Stage) parent).children);
+    }
+
+    public Object getColumnValue(Object row, int columnIndex)
+    {
+        Stage stage = (Stage) row;
+        switch (columnIndex)
+        {
+            case 0:
+                return stage.name;
+            case 1:
+                return valueOf(stage.rowsIn);
+            case 2:
+                return valueOf(stage.rowsOut);
+            case 3:
+                return valueOf(stage.objectsLoaded);
+            case 4:
+                return valueOf(stage.cacheHits);
+            case 5:
+                return valueOf(stage.pagesRead);
+            case 6:
+                return Double.valueOf(stage.nanos / 1000000d);
+            default:
+                return null;
+        }
+    }
+
+    private static Long valueOf(long value)
+    {
+        // unknown, for example the rows of the FROM clause of classes
+        return value >= 0 ? Long.valueOf(value) : null;
+    }
+
+    public IContextObject getContext(Object row)
+    {
+        return null;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder buf = new StringBuilder();
+        for (Stage stage : elements)
+            append(buf, stage, ""); //$NON-NLS-1$
+        return buf.toString();
+    }
+
+    private void append(StringBuilder buf, Stage stage, String indent)
+    {
+        buf.append(indent).append(stage.name);
+        buf.append(" (rows in=").append(toString(stage.rowsIn)); //$NON-NLS-1$
+        buf.append(", rows out=").append(toString(stage.rowsOut)); //$NON-NLS-1$
+        buf.append(", objects loaded=").append(toString(stage.objectsLoaded)); //$NON-NLS-1$
+        buf.append(", cache hits=").append(toString(stage.cacheHits)); //$NON-NLS-1$
+        buf.append(", index pages read=").append(stage.pagesRead); //$NON-NLS-1$
+        buf.append(", time=").append(stage.nanos / 1000000).append(" ms)\n"); //$NON-NLS-1$ //$NON-NLS-2$
+        for (Stage child : stage.children)
+            append(buf, child, indent + "  "); //$NON-NLS-1$
+    }
+
+    private static String toString(long value)
+    {
+        return value >= 0 ? String.valueOf(value) : "-"; //$NON-NLS-1$
+    }
+}
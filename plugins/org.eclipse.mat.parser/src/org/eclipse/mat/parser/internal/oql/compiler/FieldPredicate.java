@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser.internal.oql.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.mat.parser.internal.oql.compiler.CompilerImpl.ConstantExpression;
+import org.eclipse.mat.parser.internal.oql.compiler.Operation.RelationalOperation;
+import org.eclipse.mat.parser.internal.snapshot.FieldValueIndex;
+import org.eclipse.mat.snapshot.model.IObject;
+
+/**
+ * A comparison of a field of the subject with a constant, for example
+ * <code>s.count &gt; 1000</code>. For primitive fields it can be evaluated on
+ * the stored field values instead of the objects.
+ */
+public class FieldPredicate
+{
+    private final RelationalOperation operation;
+    private final String fieldName;
+    private final Object constant;
+    private final boolean isFieldLeft;
+
+    private FieldPredicate(RelationalOperation operation, String fieldName, Object constant, boolean isFieldLeft)
+    {
+        this.operation = operation;
+        this.fieldName = fieldName;
+        this.constant = constant;
+        this.isFieldLeft = isFieldLeft;
+    }
+
+    public String getFieldName()
+    {
+        return fieldName;
+    }
+
+    /**
+     * @return the expressions which all must be true for the WHERE clause to
+     *         be true
+     */
+    public static List<Expression> conjunctsOf(Expression where)
+    {
+        List<Expression> answer = new ArrayList<Expression>();
+        addConjuncts(answer, where);
+        return answer;
+    }
+
+    private static void addConjuncts(List<Expression> answer, Expression expression)
+    {
+        if (expression instanceof Operation.And)
+        {
+            for (Expression arg : ((Operation.And) expression).getArguments())
+                addConjuncts(answer, arg);
+        }
+        else
+        {
+            answer.add(expression);
+        }
+    }
+
+    /**
+     * @return the comparison or null if the expression does not compare a
+     *         field of the subject with a constant
+     */
+    public static FieldPredicate of(Expression expression, EvaluationContext ctx)
+    {
+        if (!(expression instanceof RelationalOperation))
+            return null;
+
+        RelationalOperation operation = (RelationalOperation) expression;
+        Expression[] args = operation.getArguments();
+
+        for (int ii = 0; ii < 2; ii++)
+        {
+            String fieldName = fieldNameOf(args[ii], ctx);
+            if (fieldName != null && args[1 - ii] instanceof ConstantExpression)
+            {
+                Object constant = ((ConstantExpression) args[1 - ii]).literal;
+                if (constant == null || constant == ConstantExpression.NULL)
+                    return null;
+                return new FieldPredicate(operation, fieldName, constant, ii == 0);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return the name of the field if the path is <code>alias.field</code>
+     *         or <code>field</code>
+     */
+    private static String fieldNameOf(Expression expression, EvaluationContext ctx)
+    {
+        if (!(expression instanceof PathExpression))
+            return null;
+
+        List<Object> attributes = ((PathExpression) expression).getAttributes();
+        for (Object element : attributes)
+        {
+            if (!(element instanceof Attribute) || ((Attribute) element).isNative()
+                            || ((Attribute) element).isEnvVar())
+                return null;
+        }
+
+        String first = ((Attribute) attributes.get(0)).getName();
+        if (attributes.size() == 1 && !ctx.isAlias(first) && ctx.getAlias(first) == null)
+            return first;
+        if (attributes.size() == 2 && first.equals(ctx.alias))
+            return ((Attribute) attributes.get(1)).getName();
+        return null;
+    }
+
+    /**
+     * @return true if the comparison can be evaluated on the stored values of
+     *         a field of this type, exactly as on the field value itself
+     */
+    public boolean supports(int type)
+    {
+        switch (type)
+        {
+            case IObject.Type.BOOLEAN:
+                return constant instanceof Boolean;
+            case IObject.Type.CHAR:
+                return constant instanceof Character;
+            default:
+                return constant instanceof Number;
+        }
+    }
+
+    /**
+     * Evaluates the comparison for a stored value of a field of a supported
+     * type, like {@link RelationalOperation#compute(EvaluationContext)} does
+     * for the field value.
+     */
+    public boolean accept(int type, long value)
+    {
+        Object result;
+        if (!(constant instanceof Number))
+        {
+            Object fieldValue = FieldValueIndex.valueOf(type, value);
+            result = isFieldLeft ? operation.eval(fieldValue, constant) : operation.eval(constant, fieldValue);
+        }
+        else if (type == IObject.Type.FLOAT || type == IObject.Type.DOUBLE || constant instanceof Double
+                        || constant instanceof Float)
+        {
+            double d = FieldValueIndex.doubleValue(type, value);
+            double c = ((Number) constant).doubleValue();
+            result = isFieldLeft ? operation.eval(d, c) : operation.eval(c, d);
+        }
+        else
+        {
+            long c = ((Number) constant).longValue();
+            result = isFieldLeft ? operation.eval(value, c) : operation.eval(c, value);
+        }
+        return ((Boolean) result).booleanValue();
+    }
+}
@@ -19,6 +19,7 @@ import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import org.eclipse.mat.SnapshotException;
@@ -34,6 +35,12 @@ class MethodCallExpression extends Expression
     String name;
     List<Expression> parameters;
 
+    /**
+     * The methods found so far, by the classes of the subject and of the
+     * arguments. Finding the method is much more expensive than calling it.
+     */
+    private ConcurrentHashMap<List<Class<?>>, Method> resolved = new ConcurrentHashMap<List<Class<?>>, Method>();
+
     public MethodCallExpression(String name, List<Expression> parameters)
     {
         this.name = name;
@@ -62,6 +69,66 @@ class MethodCallExpression extends Expression
             return name != null ? name : ((IObject) subject).getTechnicalName();
         }
 
+        List<Class<?>> types = new ArrayList<Class<?>>(arguments.length + 1);
+        types.add(subject.getClass());
+        for (int ii = 0; ii < arguments.length; ii++)
+        {
+            if (arguments[ii] == ConstantExpression.NULL)
+                arguments[ii] = null;
+            types.add(arguments[ii] != null ? arguments[ii].getClass() : null);
+        }
+
+        Method method = resolved.get(types);
+        if (method == null)
+        {
+            method = findMethod(subject.getClass(), arguments);
+            if (method == null)
+            {
+                StringBuilder argTypes = new StringBuilder();
+                for (Object arg : arguments)
+                {
+                    if (argTypes.length() > 0)
+                        argTypes.append(", "); //$NON-NLS-1$
+                    argTypes.append(arg != null ? unboxedType(arg.getClass()).getName() : null);
+                }
+                throw new SnapshotException(MessageUtil.format(Messages.MethodCallExpression_Error_MethodNotFound,
+                                new Object[] { this.name, argTypes, subject, subject.getClass().getName() }));
+            }
+            resolved.put(types, method);
+        }
+
+        // we do some special magic here...
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for (int jj = 0; jj < arguments.length; jj++)
+        {
+            if (arguments[jj] != null && !isConvertible(parameterTypes[jj], arguments[jj]))
+                arguments[jj] = Pattern.compile(PatternUtil.smartFix(String.valueOf(arguments[jj]), false));
+        }
+
+        try
+        {
+            return method.invoke(subject, arguments);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new SnapshotException(Arrays.toString(arguments), e);
+        }
+        catch (IllegalAccessException e)
+        {
+            throw new SnapshotException(method.toString(), e);
+        }
+        catch (InvocationTargetException e)
+        {
+            throw new SnapshotException(e);
+        }
+    }
+
+    /**
+     * Finds the method to call for the arguments, null arguments must already
+     * be <code>null</code>.
+     */
+    private Method findMethod(final Class<? extends Object> subjectClass, Object[] arguments)
+    {
         /*
          * Finding the right method is tricky as the arguments have already been boxed.
          * E.g. consider overloaded methods 
@@ -70,7 +137,6 @@ class MethodCallExpression extends Expression
          * with argument Integer(1).
          */
         List<Method> extraMethods = new ArrayList<Method>();
-        final Class<? extends Object> subjectClass = subject.getClass();
         Method[] methods;
         methods = subjectClass.getMethods();
         if (!Modifier.isPublic(subjectClass.getModifiers()))
@@ -112,69 +178,18 @@ class MethodCallExpression extends Expression
                 Class<?>[] parameterTypes = methods[ii].getParameterTypes();
                 if (parameterTypes.length == arguments.length)
                 {
-                    Object savedArgs[] = null;
                     for (int jj = 0; jj < arguments.length; jj++)
                     {
-                        if (arguments[jj] == ConstantExpression.NULL)
-                        {
-                            arguments[jj] = null;
-                        }
-                        if (arguments[jj] != null && !isConvertible(parameterTypes[jj], arguments[jj]))
-                        {
-                            // we do some special magic here...
-                            if (parameterTypes[jj].isAssignableFrom(Pattern.class))
-                            {
-                                if (savedArgs == null)
-                                    savedArgs = new Object[arguments.length];
-                                savedArgs[jj] = arguments[jj];
-                                arguments[jj] = Pattern.compile(PatternUtil.smartFix(String.valueOf(arguments[jj]),
-                                                false));
-                            }
-                            else
-                            {
-                                if (savedArgs != null)
-                                {
-                                    // Restore arguments
-                                    for (int ia = 0; ia < savedArgs.length; ++ia)
-                                    {
-                                        if (savedArgs[ia] != null)
-                                            arguments[ia] = savedArgs[ia];
-                                    }
-                                }
-                                continue nextMethod;
-                            }
-                        }
-                    }
-
-                    try
-                    {
-                        return methods[ii].invoke(subject, arguments);
-                    }
-                    catch (IllegalArgumentException e)
-                    {
-                        throw new SnapshotException(Arrays.toString(arguments), e);
-                    }
-                    catch (IllegalAccessException e)
-                    {
-                        throw new SnapshotException(methods[ii].toString(), e);
-                    }
-                    catch (InvocationTargetException e)
-                    {
-                        throw new SnapshotException(e);
+                        // strings are compiled into patterns for pattern parameters
+                        if (arguments[jj] != null && !isConvertible(parameterTypes[jj], arguments[jj])
+                                        && !parameterTypes[jj].isAssignableFrom(Pattern.class))
+                            continue nextMethod;
                     }
+                    return methods[ii];
                 }
             }
         }
-
-        StringBuilder argTypes = new StringBuilder();
-        for (Object arg : arguments)
-        {
-            if (argTypes.length() > 0)
-                argTypes.append(", "); //$NON-NLS-1$
-            argTypes.append(arg != null ? unboxedType(arg.getClass()).getName() : null);
-        }
-        throw new SnapshotException(MessageUtil.format(Messages.MethodCallExpression_Error_MethodNotFound,
-                        new Object[] { this.name, argTypes, subject, subject != null ? subject.getClass().getName() : null }));
+        return null;
     }
 
     /**
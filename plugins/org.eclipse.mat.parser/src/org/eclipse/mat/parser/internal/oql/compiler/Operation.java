@@ -722,13 +722,16 @@ abstract class Operation extends Expression
 
         private static Set<String> getIntf(Class<?> context)
         {
-            Set<String> intf = class2intf.get(context.getName());
-            if (intf == null)
+            synchronized (class2intf)
             {
-                class2intf.put(context.getName(), intf = new HashSet<String>());
-                inspect(intf, context);
+                Set<String> intf = class2intf.get(context.getName());
+                if (intf == null)
+                {
+                    class2intf.put(context.getName(), intf = new HashSet<String>());
+                    inspect(intf, context);
+                }
+                return intf;
             }
-            return intf;
         }
 
         private static void inspect(Set<String> types, Class<?> clasz)
@@ -12,13 +12,17 @@
 package org.eclipse.mat.parser.internal.oql.compiler;
 
 import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
 import java.lang.reflect.Array;
+import java.lang.reflect.Method;
 import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.parser.internal.Messages;
@@ -55,9 +59,22 @@ class PathExpression extends Expression
     
     private List<Object> attributes;
 
+    /** per path element, the read method of the bean property by class */
+    private List<Map<Class<?>, Method>> readMethods;
+
+    /** per path element, whether the {@link IClass} declares the field */
+    private List<Map<IClass, Boolean>> fields;
+
     public PathExpression(List<Object> attributes)
     {
         this.attributes = attributes;
+        this.readMethods = new ArrayList<Map<Class<?>, Method>>(attributes.size());
+        this.fields = new ArrayList<Map<IClass, Boolean>>(attributes.size());
+        for (int ii = 0; ii < attributes.size(); ii++)
+        {
+            this.readMethods.add(new ConcurrentHashMap<Class<?>, Method>());
+            this.fields.add(new ConcurrentHashMap<IClass, Boolean>());
+        }
     }
 
     @Override
@@ -110,24 +127,13 @@ class PathExpression extends Expression
                         }
                         else
                         {
-                            boolean didFindProperty = false;
-
-                            BeanInfo info = Introspector.getBeanInfo(current.getClass());
-                            PropertyDescriptor[] descriptors = info.getPropertyDescriptors();
+                            Method readMethod = readMethod(index, current.getClass(), attribute.getName());
 
-                            for (PropertyDescriptor descriptor : descriptors)
-                            {
-                                if (attribute.getName().equals(descriptor.getName()))
-                                {
-                                    current = descriptor.getReadMethod().invoke(current, (Object[]) null);
-                                    didFindProperty = true;
-                                    break;
-                                }
-                            }
-
-                            if (!didFindProperty) { throw new SnapshotException(MessageUtil.format(
+                            if (readMethod == null) { throw new SnapshotException(MessageUtil.format(
                                             Messages.PathExpression_Error_TypeHasNoProperty, new Object[] {
                                                             current.getClass().getName(), attribute.name })); }
+
+                            current = readMethod.invoke(current, (Object[]) null);
                         }
 
                     }
@@ -135,18 +141,7 @@ class PathExpression extends Expression
                     {
                         IObject c = (IObject) current;
                         // Performance optimization - check that the field exists first
-                        boolean found = false;
-                        field: for (IClass cls = c.getClazz(); cls != null; cls = cls.getSuperClass())
-                        {
-                            for (FieldDescriptor fd : cls.getFieldDescriptors())
-                            {
-                                if (fd.getName().equals(attribute.getName()))
-                                {
-                                    found = true;
-                                    break field;
-                                }
-                            }
-                        }
+                        boolean found = hasField(index, c.getClazz(), attribute.getName());
                         if (found)
                         {
                             current = c.resolveValue(attribute.getName());
@@ -197,6 +192,59 @@ class PathExpression extends Expression
         }
     }
 
+    private Method readMethod(int index, Class<?> type, String name) throws IntrospectionException
+    {
+        Map<Class<?>, Method> cache = readMethods.get(index);
+        Method readMethod = cache.get(type);
+        if (readMethod == null)
+        {
+            BeanInfo info = Introspector.getBeanInfo(type);
+            for (PropertyDescriptor descriptor : info.getPropertyDescriptors())
+            {
+                if (name.equals(descriptor.getName()))
+                {
+                    readMethod = descriptor.getReadMethod();
+                    if (readMethod != null)
+                        cache.put(type, readMethod);
+                    break;
+                }
+            }
+        }
+        return readMethod;
+    }
+
+    private boolean hasField(int index, IClass clazz, String name)
+    {
+        // objects without a class declare no fields
+        if (clazz == null)
+            return false;
+
+        Map<IClass, Boolean> cache = fields.get(index);
+        Boolean found = cache.get(clazz);
+        if (found == null)
+        {
+            found = Boolean.FALSE;
+            field: for (IClass cls = clazz; cls != null; cls = cls.getSuperClass())
+            {
+                for (FieldDescriptor fd : cls.getFieldDescriptors())
+                {
+                    if (fd.getName().equals(name))
+                    {
+                        found = Boolean.TRUE;
+                        break field;
+                    }
+                }
+            }
+            cache.put(clazz, found);
+        }
+        return found.booleanValue();
+    }
+
+    /* package */List<Object> getAttributes()
+    {
+        return attributes;
+    }
+
     protected static List<?> asList(final Object element)
     {
         int size = Array.getLength(element);
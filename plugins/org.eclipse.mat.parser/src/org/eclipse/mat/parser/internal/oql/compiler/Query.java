@@ -76,9 +76,15 @@ public class Query
 
     public static class SelectClause
     {
+        /** no hint given, the default of the system decides */
+        public static final int PARALLEL_DEFAULT = -1;
+        /** the PARALLEL hint without a number of threads */
+        public static final int PARALLEL_ALL_PROCESSORS = 0;
+
         boolean isDistinct;
         boolean isRetainedSet;
         boolean asObjects;
+        int parallelism = PARALLEL_DEFAULT;
         List<SelectItem> selectList;
 
         public boolean isDistinct()
@@ -111,6 +117,21 @@ public class Query
             this.asObjects = asObjects;
         }
 
+        /**
+         * @return the number of threads requested by the hint
+         *         <code>/*+ PARALLEL(n) *&#47;</code>, {@link #PARALLEL_ALL_PROCESSORS}
+         *         or {@link #PARALLEL_DEFAULT}
+         */
+        public int getParallelism()
+        {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism)
+        {
+            this.parallelism = parallelism;
+        }
+
         public List<SelectItem> getSelectList()
         {
             return selectList;
@@ -125,6 +146,11 @@ public class Query
         {
             StringBuilder buf = new StringBuilder(128);
 
+            if (parallelism == PARALLEL_ALL_PROCESSORS)
+                buf.append("/*+ PARALLEL */ ");//$NON-NLS-1$
+            else if (parallelism != PARALLEL_DEFAULT)
+                buf.append("/*+ PARALLEL(").append(parallelism).append(") */ ");//$NON-NLS-1$//$NON-NLS-2$
+
             if (isDistinct())
                 buf.append("DISTINCT ");//$NON-NLS-1$
 
@@ -18,7 +18,8 @@ public class QueryExpression extends Expression
 {
     Query query;
 
-    boolean isDependencyCalculated = false;
+    // the query may be evaluated by several threads at once
+    volatile boolean isDependencyCalculated = false;
     boolean isQueryContextDependent;
     Object queryResult;
 
@@ -32,13 +33,20 @@ public class QueryExpression extends Expression
     {
         if (!isDependencyCalculated)
         {
-            isQueryContextDependent = this.isContextDependent(ctx);
-            isDependencyCalculated = true;
-
-            if (!isQueryContextDependent)
+            synchronized (this)
             {
-                OQLQueryImpl q = new OQLQueryImpl(ctx, query);
-                queryResult = q.execute(ctx.getSnapshot(), null);
+                if (!isDependencyCalculated)
+                {
+                    isQueryContextDependent = this.isContextDependent(ctx);
+
+                    if (!isQueryContextDependent)
+                    {
+                        OQLQueryImpl q = new OQLQueryImpl(ctx, query);
+                        queryResult = q.execute(ctx.getSnapshot(), null);
+                    }
+
+                    isDependencyCalculated = true;
+                }
             }
         }
 
@@ -17,6 +17,8 @@ import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.eclipse.mat.parser.internal.Messages;
 import org.eclipse.mat.parser.internal.oql.ICompiler;
@@ -62,6 +64,37 @@ public class OQLParser implements OQLParserConstants
         return true;
     }
 
+    private static final Pattern PARALLEL_HINT = Pattern.compile(
+                    "/\\*\\+\\s*(NO_?PARALLEL|PARALLEL(\\s*\\(\\s*(\\d+)\\s*\\))?)\\s*\\*/", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Reads the hint <code>/*+ PARALLEL *&#47;</code>,
+     * <code>/*+ PARALLEL(n) *&#47;</code> or <code>/*+ NOPARALLEL *&#47;</code>
+     * from the comments in front of the token.
+     */
+    protected int parallelHint(Token t)
+    {
+        for (Token special = t.specialToken; special != null; special = special.specialToken)
+        {
+            Matcher matcher = PARALLEL_HINT.matcher(special.image);
+            if (!matcher.matches())
+                continue;
+            if (matcher.group(1).toUpperCase(Locale.ENGLISH).startsWith("NO"))
+                return 1;
+            if (matcher.group(3) == null)
+                return Query.SelectClause.PARALLEL_ALL_PROCESSORS;
+            try
+            {
+                return Math.max(1, Integer.parseInt(matcher.group(3)));
+            }
+            catch (NumberFormatException e)
+            {
+                return Query.SelectClause.PARALLEL_ALL_PROCESSORS;
+            }
+        }
+        return Query.SelectClause.PARALLEL_DEFAULT;
+    }
+
     protected boolean seeExclude(String... keywords)
     {
         if (getToken(1).kind != IDENTIFIER)
@@ -173,6 +206,7 @@ public class OQLParser implements OQLParserConstants
         Query.SelectClause selectClause = new Query.SelectClause();
         List<Query.SelectItem> columns = new ArrayList<Query.SelectItem>();
         Query.SelectItem a;
+        selectClause.setParallelism(parallelHint(getToken(1)));
         if (jj_2_3(1))
         {
             if (seeUnreservedKeyword("DISTINCT"))
@@ -0,0 +1,296 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser.internal.snapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.parser.index.IIndexReader;
+import org.eclipse.mat.parser.index.IndexReader;
+import org.eclipse.mat.parser.index.IndexWriter;
+import org.eclipse.mat.parser.internal.Messages;
+import org.eclipse.mat.parser.internal.SnapshotImpl;
+import org.eclipse.mat.snapshot.model.Field;
+import org.eclipse.mat.snapshot.model.FieldDescriptor;
+import org.eclipse.mat.snapshot.model.IClass;
+import org.eclipse.mat.snapshot.model.IInstance;
+import org.eclipse.mat.snapshot.model.IObject;
+import org.eclipse.mat.util.IProgressListener;
+import org.eclipse.mat.util.MessageUtil;
+
+/**
+ * The values of the primitive instance fields, one column per class and field
+ * in the order of the object ids of the class. The columns of a class are
+ * written next to the other index files the first time one of them is needed
+ * and read from there afterwards.
+ * <p>
+ * Values are stored as longs: integral values as they are, characters and
+ * booleans as numbers and floating point values as their bits.
+ */
+public class FieldValueIndex
+{
+    private final SnapshotImpl snapshot;
+    private final Map<String, IIndexReader.IOne2LongIndex> columns = new HashMap<String, IIndexReader.IOne2LongIndex>();
+
+    public FieldValueIndex(SnapshotImpl snapshot)
+    {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * @return the type of the field as in {@link IObject.Type}, or -1 if there
+     *         is no column for the field: it is not a primitive field or its
+     *         name is used more than once in the class hierarchy
+     */
+    public static int getType(IClass clazz, String fieldName)
+    {
+        if (clazz.isArrayType() || IClass.JAVA_LANG_CLASS.equals(clazz.getName()))
+            return -1;
+
+        int type = -1;
+        for (IClass cls = clazz; cls != null; cls = cls.getSuperClass())
+        {
+            for (FieldDescriptor fd : cls.getFieldDescriptors())
+            {
+                if (fd.getName().equals(fieldName))
+                {
+                    if (type != -1)
+                        return -1;
+                    type = fd.getType() != IObject.Type.OBJECT ? fd.getType() : -2;
+                }
+            }
+        }
+        return type >= 0 ? type : -1;
+    }
+
+    /**
+     * Returns the values of the field for the objects of the class. The
+     * missing columns of the primitive fields of the class are built together,
+     * which reads all objects of the class once.
+     */
+    public synchronized IIndexReader.IOne2LongIndex getColumn(IClass clazz, String fieldName,
+                    IProgressListener listener) throws SnapshotException
+    {
+        if (getType(clazz, fieldName) < 0)
+            throw new IllegalArgumentException(fieldName);
+
+        IIndexReader.IOne2LongIndex column = columns.get(getKey(clazz, fieldName));
+        if (column != null)
+            return column;
+
+        List<String> names = new ArrayList<String>();
+        List<File> files = new ArrayList<File>();
+        int fieldNo = 0;
+        for (IClass cls = clazz; cls != null; cls = cls.getSuperClass())
+        {
+            for (FieldDescriptor fd : cls.getFieldDescriptors())
+            {
+                String name = fd.getName();
+                File file = getFile(clazz, fieldNo++);
+                if (name.equals(fieldName))
+                {
+                    column = open(file, clazz.getNumberOfObjects());
+                    if (column != null)
+                        continue;
+                }
+                else if (file.exists() || columns.containsKey(getKey(clazz, name)) || getType(clazz, name) < 0)
+                {
+                    continue;
+                }
+                names.add(name);
+                files.add(file);
+            }
+        }
+
+        if (column == null)
+        {
+            try
+            {
+                build(clazz, names, files, listener);
+                column = new IndexReader.LongIndexReader(files.get(names.indexOf(fieldName)));
+            }
+            catch (IOException e)
+            {
+                for (File file : files)
+                    file.delete();
+                throw new SnapshotException(e);
+            }
+        }
+
+        columns.put(getKey(clazz, fieldName), column);
+        return column;
+    }
+
+    private String getKey(IClass clazz, String fieldName)
+    {
+        return clazz.getObjectId() + "." + fieldName; //$NON-NLS-1$
+    }
+
+    /**
+     * @return the column or null if the file does not exist or was not
+     *         written completely
+     */
+    private IIndexReader.IOne2LongIndex open(File file, int numberOfObjects)
+    {
+        if (!file.exists())
+            return null;
+
+        try
+        {
+            IIndexReader.IOne2LongIndex column = new IndexReader.LongIndexReader(file);
+            if (column.size() == numberOfObjects)
+                return column;
+            column.close();
+        }
+        catch (IOException ignore)
+        {
+            // $JL-EXC$
+        }
+        return null;
+    }
+
+    private void build(IClass clazz, List<String> names, List<File> files, IProgressListener listener)
+                    throws SnapshotException, IOException
+    {
+        listener.subTask(MessageUtil.format(Messages.FieldValueIndex_Building, clazz.getName()));
+
+        IndexWriter.LongIndexStreamer[] writers = new IndexWriter.LongIndexStreamer[names.size()];
+        try
+        {
+            for (int ii = 0; ii < writers.length; ii++)
+                writers[ii] = new IndexWriter.LongIndexStreamer(files.get(ii));
+
+            int[] objectIds = clazz.getObjectIds();
+            for (int ii = 0; ii < objectIds.length; ii++)
+            {
+                if (ii % 1000 == 0 && listener.isCanceled())
+                    throw new IProgressListener.OperationCanceledException();
+
+                IInstance instance = (IInstance) snapshot.getObject(objectIds[ii]);
+                for (int jj = 0; jj < writers.length; jj++)
+                {
+                    Field field = instance.getField(names.get(jj));
+                    writers[jj].add(toLong(field.getValue()));
+                }
+            }
+
+            for (int ii = 0; ii < writers.length; ii++)
+            {
+                writers[ii].close();
+                writers[ii] = null;
+            }
+        }
+        finally
+        {
+            for (int ii = 0; ii < writers.length; ii++)
+            {
+                if (writers[ii] != null)
+                {
+                    try
+                    {
+                        writers[ii].close();
+                    }
+                    catch (IOException ignore)
+                    {
+                        // $JL-EXC$
+                    }
+                    files.get(ii).delete();
+                }
+            }
+        }
+    }
+
+    private File getFile(IClass clazz, int fieldNo)
+    {
+        // prefix + letters and digits only, so that the file is deleted with
+        // the other index files
+        return new File(snapshot.getSnapshotInfo().getPrefix() + "fv" + clazz.getObjectId() + "x" + fieldNo //$NON-NLS-1$//$NON-NLS-2$
+                        + ".index"); //$NON-NLS-1$
+    }
+
+    private static long toLong(Object value)
+    {
+        if (value instanceof Boolean)
+            return ((Boolean) value).booleanValue() ? 1 : 0;
+        else if (value instanceof Character)
+            return ((Character) value).charValue();
+        else if (value instanceof Float)
+            return Float.floatToRawIntBits(((Float) value).floatValue());
+        else if (value instanceof Double)
+            return Double.doubleToRawLongBits(((Double) value).doubleValue());
+        else
+            return ((Number) value).longValue();
+    }
+
+    /**
+     * @return the stored value as a number, for floating point types the
+     *         value itself and not its bits
+     */
+    public static double doubleValue(int type, long value)
+    {
+        switch (type)
+        {
+            case IObject.Type.FLOAT:
+                return Float.intBitsToFloat((int) value);
+            case IObject.Type.DOUBLE:
+                return Double.longBitsToDouble(value);
+            default:
+                return value;
+        }
+    }
+
+    /**
+     * @return the stored value as the object the field of an instance returns
+     */
+    public static Object valueOf(int type, long value)
+    {
+        switch (type)
+        {
+            case IObject.Type.BOOLEAN:
+                return Boolean.valueOf(value != 0);
+            case IObject.Type.CHAR:
+                return Character.valueOf((char) value);
+            case IObject.Type.FLOAT:
+                return Float.valueOf(Float.intBitsToFloat((int) value));
+            case IObject.Type.DOUBLE:
+                return Double.valueOf(Double.longBitsToDouble(value));
+            case IObject.Type.BYTE:
+                return Byte.valueOf((byte) value);
+            case IObject.Type.SHORT:
+                return Short.valueOf((short) value);
+            case IObject.Type.INT:
+                return Integer.valueOf((int) value);
+            default:
+                return Long.valueOf(value);
+        }
+    }
+
+    public synchronized void close()
+    {
+        for (IIndexReader.IOne2LongIndex column : columns.values())
+        {
+            try
+            {
+                column.close();
+            }
+            catch (IOException ignore)
+            {
+                // $JL-EXC$
+            }
+        }
+        columns.clear();
+    }
+}
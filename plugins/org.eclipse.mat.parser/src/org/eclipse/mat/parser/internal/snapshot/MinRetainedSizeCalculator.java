@@ -0,0 +1,346 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser.internal.snapshot;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.mat.collect.ArrayInt;
+import org.eclipse.mat.collect.HashMapIntObject;
+import org.eclipse.mat.parser.index.IIndexReader;
+import org.eclipse.mat.parser.internal.Messages;
+import org.eclipse.mat.util.IProgressListener;
+
+/**
+ * Calculates the minimum retained sizes of many sets of objects with one walk
+ * over the dominator tree. An object adds its retained size to each of its
+ * sets that does not already contain one of its dominators. This is the same
+ * as summing up the retained sizes of the top ancestors of each set, but
+ * costs one pass for all sets instead of one pass per set.
+ * <p>
+ * The dominator tree is cut into subtrees which are walked by several
+ * threads, each with its own totals.
+ */
+public class MinRetainedSizeCalculator
+{
+    /** cut the tree into about this many subtrees per thread */
+    private static final int UNITS_PER_THREAD = 16;
+
+    private static final int[] NO_SETS = new int[0];
+
+    private final IIndexReader.IOne2ManyIndex dominated;
+    private final IIndexReader.IOne2LongIndex retained;
+    private final int numberOfObjects;
+
+    /** the first set an object belongs to, or -1 */
+    private int[] firstSet;
+    /** the other sets of the few objects belonging to more than one set */
+    private HashMapIntObject<ArrayInt> otherSets;
+    private int numberOfSets;
+
+    private Unit[] units;
+    private final AtomicInteger nextUnit = new AtomicInteger();
+    private final AtomicLong walked = new AtomicLong();
+    private volatile boolean stop;
+    private volatile Throwable error;
+
+    public MinRetainedSizeCalculator(IIndexReader.IOne2ManyIndex dominated, IIndexReader.IOne2LongIndex retained,
+                    int numberOfObjects)
+    {
+        this.dominated = dominated;
+        this.retained = retained;
+        this.numberOfObjects = numberOfObjects;
+    }
+
+    /**
+     * @return the minimum retained size of each set, in the order of the sets
+     */
+    public long[] calculate(int[][] objectIdSets, int numberOfThreads, IProgressListener listener)
+                    throws InterruptedException
+    {
+        numberOfSets = objectIdSets.length;
+        firstSet = new int[numberOfObjects];
+        Arrays.fill(firstSet, -1);
+        otherSets = new HashMapIntObject<ArrayInt>();
+        for (int set = 0; set < numberOfSets; set++)
+        {
+            for (int objectId : objectIdSets[set])
+                addMember(objectId, set);
+        }
+
+        listener.beginTask(Messages.MinRetainedSizeCalculator_CalculatingRetainedSizes, numberOfObjects / 1000);
+
+        long[] sizes = new long[numberOfSets];
+        units = split(sizes, numberOfThreads * UNITS_PER_THREAD);
+
+        Worker[] workers = new Worker[Math.max(1, Math.min(numberOfThreads, units.length))];
+        Thread[] threads = new Thread[workers.length];
+        for (int i = 0; i < workers.length; i++)
+        {
+            workers[i] = new Worker();
+            threads[i] = new Thread(workers[i], "MinRetainedSizeThread-" + (i + 1));//$NON-NLS-1$
+            threads[i].start();
+        }
+
+        // only this thread talks to the progress listener
+        try
+        {
+            int reported = 0;
+            for (int i = 0; i < threads.length; i++)
+            {
+                while (threads[i].isAlive())
+                {
+                    threads[i].join(100);
+
+                    int done = (int) (walked.get() / 1000);
+                    if (done > reported)
+                    {
+                        listener.worked(done - reported);
+                        reported = done;
+                    }
+                    if (listener.isCanceled())
+                        stop = true;
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            stop = true;
+            throw e;
+        }
+
+        if (error instanceof RuntimeException)
+            throw (RuntimeException) error;
+        if (error instanceof Error)
+            throw (Error) error;
+
+        if (listener.isCanceled())
+            throw new IProgressListener.OperationCanceledException();
+
+        for (Worker worker : workers)
+        {
+            for (int set = 0; set < numberOfSets; set++)
+                sizes[set] += worker.sizes[set];
+        }
+
+        listener.done();
+        return sizes;
+    }
+
+    private void addMember(int objectId, int set)
+    {
+        int first = firstSet[objectId];
+        if (first < 0)
+        {
+            firstSet[objectId] = set;
+        }
+        else if (first != set)
+        {
+            ArrayInt others = otherSets.get(objectId);
+            if (others == null)
+                otherSets.put(objectId, others = new ArrayInt(2));
+            else if (others.get(others.size() - 1) == set)
+                return;
+            others.add(set);
+        }
+    }
+
+    /**
+     * Expands the biggest subtrees below the root until there are enough of
+     * them to keep the threads busy. The objects on the way are added to the
+     * sizes here, and each subtree remembers which sets are already retained
+     * by its dominators.
+     */
+    private Unit[] split(long[] sizes, int wanted)
+    {
+        PriorityQueue<Unit> queue = new PriorityQueue<Unit>(wanted, Unit.BIGGEST_FIRST);
+        for (int objectId : dominated.get(0))
+            queue.add(new Unit(objectId, NO_SETS, retained.get(objectId)));
+
+        // a tree like a long chain cannot be cut into many pieces
+        int expansions = 64 * wanted;
+        while (queue.size() < wanted && !queue.isEmpty() && expansions-- > 0)
+        {
+            Unit unit = queue.poll();
+            walked.incrementAndGet();
+
+            int[] activeSets = unit.activeSets;
+            int first = firstSet[unit.objectId];
+            if (first >= 0)
+            {
+                ArrayInt sets = new ArrayInt(activeSets);
+                addSize(sizes, activeSets, sets, first, unit);
+                ArrayInt others = otherSets.get(unit.objectId);
+                if (others != null)
+                {
+                    for (int ii = 0; ii < others.size(); ii++)
+                        addSize(sizes, activeSets, sets, others.get(ii), unit);
+                }
+                activeSets = sets.toArray();
+            }
+
+            for (int objectId : dominated.get(unit.objectId + 1))
+                queue.add(new Unit(objectId, activeSets, retained.get(objectId)));
+        }
+
+        Unit[] answer = queue.toArray(new Unit[queue.size()]);
+        Arrays.sort(answer, Unit.BIGGEST_FIRST);
+        return answer;
+    }
+
+    private void addSize(long[] sizes, int[] activeSets, ArrayInt sets, int set, Unit unit)
+    {
+        for (int active : activeSets)
+        {
+            if (active == set)
+                return;
+        }
+        sizes[set] += unit.retainedSize;
+        sets.add(set);
+    }
+
+    private static final class Unit
+    {
+        static final Comparator<Unit> BIGGEST_FIRST = new Comparator<Unit>()
+        {
+            public int compare(Unit o1, Unit o2)
+            {
+                return o1.retainedSize > o2.retainedSize ? -1 : o1.retainedSize == o2.retainedSize ? 0 : 1;
+            }
+        };
+
+        final int objectId;
+        /** sets which already contain a dominator of the object */
+        final int[] activeSets;
+        final long retainedSize;
+
+        Unit(int objectId, int[] activeSets, long retainedSize)
+        {
+            this.objectId = objectId;
+            this.activeSets = activeSets;
+            this.retainedSize = retainedSize;
+        }
+    }
+
+    private class Worker implements Runnable
+    {
+        final long[] sizes = new long[numberOfSets];
+        /** how many objects on the current path belong to each set */
+        final int[] active = new int[numberOfSets];
+        int[] stack = new int[1024];
+
+        public void run()
+        {
+            try
+            {
+                int next;
+                while (!stop && (next = nextUnit.getAndIncrement()) < units.length)
+                    walk(units[next]);
+            }
+            catch (RuntimeException e)
+            {
+                error = e;
+                stop = true;
+            }
+            catch (Error e)
+            {
+                error = e;
+                stop = true;
+            }
+        }
+
+        private void walk(Unit unit)
+        {
+            for (int set : unit.activeSets)
+                active[set]++;
+
+            int size = 0;
+            stack[size++] = unit.objectId;
+            int count = 0;
+
+            while (size > 0)
+            {
+                int objectId = stack[--size];
+
+                // leaving the subtree of an object, encoded as ~objectId
+                if (objectId < 0)
+                {
+                    leave(~objectId);
+                    continue;
+                }
+
+                if (++count == 4096)
+                {
+                    walked.addAndGet(count);
+                    count = 0;
+                    if (stop)
+                        return;
+                }
+
+                boolean member = enter(objectId);
+                int[] children = dominated.get(objectId + 1);
+
+                if (size + children.length + 1 > stack.length)
+                {
+                    int[] newStack = new int[Math.max(stack.length << 1, size + children.length + 1)];
+                    System.arraycopy(stack, 0, newStack, 0, size);
+                    stack = newStack;
+                }
+                if (member)
+                    stack[size++] = ~objectId;
+                System.arraycopy(children, 0, stack, size, children.length);
+                size += children.length;
+            }
+            walked.addAndGet(count);
+
+            for (int set : unit.activeSets)
+                active[set]--;
+        }
+
+        private boolean enter(int objectId)
+        {
+            int first = firstSet[objectId];
+            if (first < 0)
+                return false;
+
+            long retainedSize = -1;
+            if (active[first]++ == 0)
+                sizes[first] += retainedSize = retained.get(objectId);
+
+            ArrayInt others = otherSets.get(objectId);
+            if (others != null)
+            {
+                for (int ii = 0; ii < others.size(); ii++)
+                {
+                    int set = others.get(ii);
+                    if (active[set]++ == 0)
+                        sizes[set] += retainedSize >= 0 ? retainedSize : (retainedSize = retained.get(objectId));
+                }
+            }
+            return true;
+        }
+
+        private void leave(int objectId)
+        {
+            active[firstSet[objectId]]--;
+
+            ArrayInt others = otherSets.get(objectId);
+            if (others != null)
+            {
+                for (int ii = 0; ii < others.size(); ii++)
+                    active[others.get(ii)]--;
+            }
+        }
+    }
+}
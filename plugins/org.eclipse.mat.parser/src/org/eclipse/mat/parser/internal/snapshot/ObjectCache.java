@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2010 SAP AG.
+ * Copyright (c) 2008, 2014 SAP AG.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,120 +11,247 @@
 package org.eclipse.mat.parser.internal.snapshot;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.List;
 
 import org.eclipse.mat.collect.HashMapIntObject;
 
+/**
+ * Cache of objects by id, bounded by the estimated memory of the cached
+ * objects.
+ * <p>
+ * The cache is split into segments which are locked independently, so
+ * concurrent lookups rarely contend. Each segment evicts with the CLOCK
+ * algorithm: a hit only sets the referenced flag of the entry, and the
+ * eviction hand gives referenced entries a second chance. Objects are loaded
+ * outside of any lock; if two threads miss on the same object at once, the
+ * first inserted object is returned to both.
+ */
 abstract public class ObjectCache<E>
 {
-    static class Entry<E>
+    static final class Entry<E>
     {
-        E object;
-        int key;
-        int numUsages;
-    }
-
-    private int maxSize;
-    private final HashMapIntObject<Entry<E>> map;
-    private final List<LinkedList<Entry<E>>> lfus;
-    private int maxLfuBuckets = 0;
-    private int lowestNonEmptyLfu = 0;
+        final int key;
+        final E object;
+        final int size;
+        boolean referenced = true;
 
-    public ObjectCache(int maxSize)
-    {
-        this.maxSize = maxSize;
-        this.map = new HashMapIntObject<Entry<E>>(maxSize);
-        this.lfus = new ArrayList<LinkedList<Entry<E>>>(5);
-        this.maxLfuBuckets = maxSize / 3;
+        Entry(int key, E object, int size)
+        {
+            this.key = key;
+            this.object = object;
+            this.size = size;
+        }
     }
 
-    public synchronized E get(int objectId)
+    static final class Segment<E>
     {
-        Entry<E> e = map.get(objectId);
-        if (e != null)
+        final long maxMemory;
+        final HashMapIntObject<Entry<E>> map = new HashMapIntObject<Entry<E>>();
+        final ArrayList<Entry<E>> clock = new ArrayList<Entry<E>>();
+        int hand;
+        long memory;
+
+        long hits;
+        long misses;
+        long evictions;
+
+        Segment(long maxMemory)
+        {
+            this.maxMemory = maxMemory;
+        }
+
+        synchronized E get(int key)
+        {
+            Entry<E> e = map.get(key);
+            if (e == null)
+            {
+                misses++;
+                return null;
+            }
+
+            hits++;
+            e.referenced = true;
+            return e.object;
+        }
+
+        synchronized E put(int key, E object, int size)
         {
-            revalueEntry(e);
+            Entry<E> e = map.get(key);
+            if (e != null)
+                return e.object;
+
+            e = new Entry<E>(key, object, size);
+            map.put(key, e);
+            clock.add(e);
+            memory += size;
+
+            while (memory > maxMemory && clock.size() > 1)
+                evict();
+
+            return object;
         }
-        else
+
+        private void evict()
         {
-            e = new Entry<E>();
-            e.object = load(objectId);
-            e.key = objectId;
+            while (true)
+            {
+                if (hand >= clock.size())
+                    hand = 0;
 
-            doInsert(e);
+                Entry<E> e = clock.get(hand);
+                if (e.referenced)
+                {
+                    e.referenced = false;
+                    hand++;
+                }
+                else
+                {
+                    // fill the gap with the last entry, the order of the clock does not matter
+                    Entry<E> last = clock.remove(clock.size() - 1);
+                    if (last != e)
+                        clock.set(hand, last);
 
-            while (map.size() > maxSize)
-                removeLeastValuableNode();
+                    map.remove(e.key);
+                    memory -= e.size;
+                    evictions++;
+                    return;
+                }
+            }
         }
 
-        return e.object;
+        synchronized void clear()
+        {
+            map.clear();
+            clock.clear();
+            hand = 0;
+            memory = 0;
+        }
     }
 
-    public synchronized void clear()
+    private final Segment<E>[] segments;
+    private final int segmentMask;
+
+    /**
+     * @param maxMemory
+     *            the estimated number of bytes the cached objects may occupy,
+     *            see {@link #sizeOf(Object)}
+     */
+    public ObjectCache(long maxMemory)
     {
-        this.map.clear();
-        this.lfus.clear();
+        int noOfSegments = 1;
+        while (noOfSegments < 4 * Runtime.getRuntime().availableProcessors())
+            noOfSegments <<= 1;
+
+        this.segments = newSegments(noOfSegments);
+        for (int ii = 0; ii < noOfSegments; ii++)
+            segments[ii] = new Segment<E>(Math.max(1, maxMemory / noOfSegments));
+        this.segmentMask = noOfSegments - 1;
     }
 
-    protected abstract E load(int key);
+    @SuppressWarnings("unchecked")
+    private static <E> Segment<E>[] newSegments(int length)
+    {
+        return (Segment<E>[]) new Segment<?>[length];
+    }
 
-    protected synchronized void doInsert(final Entry<E> e)
+    public E get(int objectId)
     {
-        lfu(e.numUsages).addFirst(e);
-        Entry<?> p = map.put(e.key, e);
-        lowestNonEmptyLfu = 0;
+        Segment<E> segment = segmentFor(objectId);
+
+        E object = segment.get(objectId);
+        if (object != null)
+            return object;
 
-        if (p != null)
-            lfu(p.numUsages).remove(p);
+        object = load(objectId);
+        return segment.put(objectId, object, sizeOf(object));
     }
 
-    protected final LinkedList<Entry<E>> lfu(int numUsageIndex)
+    public void clear()
     {
-        int lfuIndex = Math.min(maxLfuBuckets, numUsageIndex);
+        for (Segment<E> segment : segments)
+            segment.clear();
+    }
+
+    protected abstract E load(int key);
 
-        if (lfuIndex >= lfus.size())
+    /**
+     * Estimates the memory occupied by a cached object.
+     * 
+     * @return the estimated size in bytes, by default 1 so that the cache is
+     *         bounded by the number of entries
+     */
+    protected int sizeOf(E object)
+    {
+        return 1;
+    }
+
+    /**
+     * @return the number of lookups which found the object in the cache
+     */
+    public long getHits()
+    {
+        long hits = 0;
+        for (Segment<E> segment : segments)
         {
-            LinkedList<Entry<E>> lfu = new LinkedList<Entry<E>>();
-            lfus.add(lfuIndex, lfu);
-            return lfu;
+            synchronized (segment)
+            {
+                hits += segment.hits;
+            }
         }
-        else
+        return hits;
+    }
+
+    /**
+     * @return the number of lookups which had to load the object
+     */
+    public long getMisses()
+    {
+        long misses = 0;
+        for (Segment<E> segment : segments)
         {
-            return lfus.get(lfuIndex);
+            synchronized (segment)
+            {
+                misses += segment.misses;
+            }
         }
+        return misses;
     }
 
-    protected void revalueEntry(Entry<E> entry)
+    /**
+     * @return the number of objects removed to stay within the memory limit
+     */
+    public long getEvictions()
     {
-        LinkedList<Entry<E>> currBucket = lfu(entry.numUsages);
-        LinkedList<Entry<E>> nextBucket = lfu(++entry.numUsages);
-
-        currBucket.remove(entry);
-        nextBucket.addFirst(entry);
+        long evictions = 0;
+        for (Segment<E> segment : segments)
+        {
+            synchronized (segment)
+            {
+                evictions += segment.evictions;
+            }
+        }
+        return evictions;
     }
 
-    protected LinkedList<Entry<E>> getLowestNonEmptyLfu()
+    /**
+     * @return the estimated memory occupied by the cached objects
+     */
+    public long getMemory()
     {
-        LinkedList<Entry<E>> lfu = null;
-        for (int i = lowestNonEmptyLfu; i < lfus.size(); i++)
+        long memory = 0;
+        for (Segment<E> segment : segments)
         {
-            lfu = lfu(i);
-
-            if (lfu.size() != 0)
+            synchronized (segment)
             {
-                lowestNonEmptyLfu = i;
-                return lfu;
+                memory += segment.memory;
             }
         }
-        return lfu;
+        return memory;
     }
 
-    protected void removeLeastValuableNode()
+    private Segment<E> segmentFor(int objectId)
     {
-        LinkedList<Entry<E>> lfu = getLowestNonEmptyLfu();
-        Entry<?> lln = lfu.remove(lfu.size() - 1);
-        map.remove(lln.key);
+        // spread neighbouring ids, which are often read together, over the segments
+        int h = objectId * 0x9E3779B9;
+        return segments[(h ^ (h >>> 16)) & segmentMask];
     }
-
 }
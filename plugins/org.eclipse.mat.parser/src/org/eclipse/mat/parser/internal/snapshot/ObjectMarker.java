@@ -11,19 +11,19 @@
  *******************************************************************************/
 package org.eclipse.mat.parser.internal.snapshot;
 
-import java.lang.ref.SoftReference;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.AtomicBitField;
 import org.eclipse.mat.collect.BitField;
-import org.eclipse.mat.collect.QueueInt;
 import org.eclipse.mat.parser.index.IIndexReader;
 import org.eclipse.mat.parser.internal.Messages;
 import org.eclipse.mat.parser.internal.ParserPlugin;
-import org.eclipse.mat.parser.internal.util.IntStack;
 import org.eclipse.mat.snapshot.ExcludedReferencesDescriptor;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.model.IObject;
@@ -33,28 +33,30 @@ import org.eclipse.mat.util.IProgressListener;
 public class ObjectMarker
 {
     int[] roots;
-    boolean[] bits;
+    AtomicBitField bits;
     IIndexReader.IOne2ManyIndex outbound;
-    long outboundMem;
     IProgressListener progressListener;
-    private static final boolean DEBUG = Platform.inDebugMode() && ParserPlugin.getDefault().isDebugging();
-    private static final boolean USELOCAL = !(Platform.inDebugMode() && ParserPlugin.getDefault().isDebugging() && 
-                    Boolean.parseBoolean(Platform.getDebugOption("org.eclipse.mat.parser/debug/oldMarker"))); //$NON-NLS-1$
-    private static final int MIN_LOCALITY = 1000000;
+    private static final boolean DEBUG = ParserPlugin.getDefault() != null && Platform.inDebugMode()
+                    && ParserPlugin.getDefault().isDebugging();
 
-    public ObjectMarker(int[] roots, boolean[] bits, IIndexReader.IOne2ManyIndex outbound,
+    public ObjectMarker(int[] roots, AtomicBitField bits, IIndexReader.IOne2ManyIndex outbound,
                     IProgressListener progressListener)
     {
         this(roots, bits, outbound, 0, progressListener);
     }
     
-    public ObjectMarker(int[] roots, boolean[] bits, IIndexReader.IOne2ManyIndex outbound,
+    /**
+     * @param outboundLength
+     *            size of the outbound index file, no longer needed as the
+     *            work stealing marker does not partition the objects by
+     *            memory
+     */
+    public ObjectMarker(int[] roots, AtomicBitField bits, IIndexReader.IOne2ManyIndex outbound,
                     long outboundLength, IProgressListener progressListener)
     {
         this.roots = roots;
         this.bits = bits;
         this.outbound = outbound;
-        this.outboundMem = outboundLength > 0 ? outboundLength : outbound.size() * 30L;
         this.progressListener = progressListener;
     }
 
@@ -67,7 +69,7 @@ public class ObjectMarker
 
         for (int rootId : roots)
         {
-            if (!bits[rootId])
+            if (!bits.getAndSet(rootId))
             {
                 /* start stack.push() */
                 if (size == data.length)
@@ -79,7 +81,6 @@ public class ObjectMarker
                 data[size++] = rootId;
                 /* end stack.push() */
 
-                bits[rootId] = true;
                 count++;
 
                 rootsToProcess++;
@@ -105,7 +106,7 @@ public class ObjectMarker
 
             for (int child : outbound.get(current))
             {
-                if (!bits[child])
+                if (!bits.getAndSet(child))
                 {
                     // stack.push(child);
                     /* start stack.push() */
@@ -118,7 +119,6 @@ public class ObjectMarker
                     data[size++] = child;
                     /* end stack.push() */
 
-                    bits[child] = true;
                     count++;
                 }
 
@@ -155,7 +155,7 @@ public class ObjectMarker
         /* first put all "roots" in the stack, and mark them as processed */
         for (int rootId : roots)
         {
-            if (!bits[rootId])
+            if (!bits.getAndSet(rootId))
             {
                 /* start stack.push() */
                 if (size == data.length)
@@ -167,7 +167,6 @@ public class ObjectMarker
                 data[size++] = rootId;
                 /* end stack.push() */
 
-                bits[rootId] = true; // mark the object
                 count++;
 
                 rootsToProcess++;
@@ -195,7 +194,7 @@ public class ObjectMarker
 
             for (int child : outbound.get(current))
             {
-                if (!bits[child]) // already visited?
+                if (!bits.get(child)) // already visited?
                 {
                     if (!refersOnlyThroughExcluded(current, child, excludeSets, excludeObjectsBF, snapshot))
                     {
@@ -209,7 +208,7 @@ public class ObjectMarker
                         data[size++] = child;
                         /* end stack.push() */
 
-                        bits[child] = true; // mark the object
+                        bits.set(child); // mark the object
                         count++;
                     }
                 }
@@ -222,535 +221,279 @@ public class ObjectMarker
     }
 
     /**
-     * A stack accessible by multiple threads
-     * @author ajohnson
-     *
+     * Objects given up by a worker for other workers to steal.
      */
-    static class MultiThreadedRootStack extends IntStack
+    static final class SharedDeque
     {
-        private int waitingThreads;
-        private int totalThreads;
-        private int waits; // Debug
-        private long waitsduration; // Debug
-        static final int RESERVED_WAITING = 20;
-        static final int RESERVED_RUNNING = 5;
-        int totalWork;
-        int worked; // ticks done so far
-        int pushed; // items pushed to the stack
-        int lastDone; // items processed at last tick
-
-        MultiThreadedRootStack(int n)
+        private int[] data = new int[1024];
+        private int size;
+        /** read without the lock by workers looking for work */
+        volatile int available;
+
+        /**
+         * Moves the lower (older) half of the worker's stack into this deque
+         * if it is empty.
+         */
+        synchronized void share(Worker owner)
         {
-            super(n);
-            totalWork = n;
-            pushed = n;
+            if (size > 0)
+                return;
+
+            int n = owner.size / 2;
+            if (data.length < n)
+                data = new int[n];
+            System.arraycopy(owner.stack, 0, data, 0, n);
+            System.arraycopy(owner.stack, n, owner.stack, 0, owner.size - n);
+            owner.size -= n;
+            available = size = n;
         }
 
-        synchronized void linkThread()
+        /**
+         * Moves half of the entries, at least one, onto the empty stack of
+         * the thief.
+         */
+        synchronized boolean steal(Worker thief)
         {
-            ++totalThreads;
+            if (size == 0)
+                return false;
+
+            int n = (size + 1) / 2;
+            thief.ensureCapacity(n);
+            System.arraycopy(data, size - n, thief.stack, 0, n);
+            thief.size = n;
+            available = size -= n;
+            return true;
         }
+    }
 
-        synchronized void unlinkThread()
+    /**
+     * Marks from the roots on several threads. Each worker does a depth first
+     * search on its own stack. If other workers are idle, it moves the older
+     * half of its stack to its shared deque from where idle workers steal.
+     */
+    final class WorkStealingMarker
+    {
+        final int[] rootsToProcess;
+        final AtomicInteger nextRoot = new AtomicInteger();
+        final Worker[] workers;
+        final AtomicInteger active;
+        volatile boolean stop;
+        volatile Throwable error;
+
+        WorkStealingMarker(int[] rootsToProcess, int numberOfThreads)
         {
-            --totalThreads;
-            if (waitingThreads >= totalThreads)
-            {
-                // Everyone else is waiting, so all must finish
-                notifyAll();
-                if (DEBUG && totalThreads == 0) System.out.println("Total waits "+waits+" "+waitsduration+"ms");  //$NON-NLS-1$//$NON-NLS-2$//$NON-NLS-3$
-            }
+            this.rootsToProcess = rootsToProcess;
+            this.workers = new Worker[numberOfThreads];
+            for (int i = 0; i < numberOfThreads; i++)
+                workers[i] = new Worker(this, i);
+            this.active = new AtomicInteger(numberOfThreads);
         }
+    }
 
-        /**
-         * Calculate the number of ticks worked.
-         * The total ticks is just the initial stack size
-         * However, more items can be pushed later, so we calculate the 
-         * items processed since last time, the total to do, and the 
-         * remaining ticks.
-         * Must have the lock on this stack.
-         * @return new ticks worked
-         */
-        int worked()
+    final class Worker implements Runnable
+    {
+        private static final int SHARE_THRESHOLD = 16;
+
+        final WorkStealingMarker marker;
+        final int index;
+        final SharedDeque shared = new SharedDeque();
+        int[] stack = new int[10 * 1024]; // start with 10k
+        int size;
+
+        Worker(WorkStealingMarker marker, int index)
         {
-            int done = pushed - size();
-            int newDone = done - lastDone;
-            int ticksLeft = totalWork - worked;
-            if (newDone > 0)
-            {
-                int k = ticksLeft * newDone / (newDone + size());
-                // Make sure we don't report progress too often
-                if (k < totalWork / 1000)
-                    k = 0;
-                if (k > 0)
-                {
-                    worked += k;
-                    lastDone = done;
-                }
-                return k;
-            }
-            else
+            this.marker = marker;
+            this.index = index;
+        }
+
+        void ensureCapacity(int capacity)
+        {
+            if (stack.length < capacity)
             {
-                return 0;
+                int[] newArr = new int[Math.max(capacity, stack.length << 1)];
+                System.arraycopy(stack, 0, newArr, 0, size);
+                stack = newArr;
             }
         }
 
-        /**
-         * When the stack is empty wait for another thread to
-         * put something back onto the stack.
-         * Must have lock on this stack.
-         * @return object id 
-         * -1 if all threads are waiting, so everything is done
-         */
-        int waitAndPop()
+        public void run()
         {
-            waitingThreads++;
-            long t = System.currentTimeMillis();
-            waits++;
             try
             {
-                while (waitingThreads < totalThreads && size() == 0)
+                AtomicBitField marks = bits;
+                int count = 0;
+
+                while (size > 0 || findWork())
                 {
-                    wait();
+                    int current = stack[--size];
+
+                    for (int child : outbound.get(current))
+                    {
+                        if (!marks.getAndSet(child))
+                        {
+                            if (size == stack.length)
+                                ensureCapacity(size + 1);
+                            stack[size++] = child;
+                        }
+                    }
+
+                    if ((++count & 0x3f) == 0)
+                    {
+                        if (marker.stop)
+                            return;
+                        // give away work only if somebody is looking for it
+                        if (size > SHARE_THRESHOLD && shared.available == 0
+                                        && marker.active.get() < marker.workers.length)
+                            shared.share(this);
+                    }
                 }
             }
-            catch (InterruptedException e)
+            catch (RuntimeException e)
             {
-                return -1;
+                marker.error = e;
+                marker.stop = true;
             }
-            long t2 = System.currentTimeMillis();
-            waitsduration += (t2-t);
-            if (DEBUG && t2 - t > 10) System.out.println("Slow wait "+(t2-t)+"ms "+Thread.currentThread()+" "+size());  //$NON-NLS-1$//$NON-NLS-2$//$NON-NLS-3$
-            if (waitingThreads >= totalThreads)
+            catch (Error e)
             {
-                // Everyone is waiting, so all must finish
-                waitingThreads--;
-                return -1;
+                marker.error = e;
+                marker.stop = true;
             }
-            waitingThreads--;
-            return pop();
         }
 
         /**
-         * Push an item onto the stack if another thread is waiting
-         * for something to be added and there aren't already 
-         * enough items on the stack for all the waiting threads.
-         * @param z
-         * @return true if the item has been pushed
-         * false if the item has not been pushed and should be 
-         * dealt with by the current thread
+         * Fills the empty stack from the own shared deque, the remaining
+         * roots or by stealing from the other workers.
+         * 
+         * @return false if all the work is done
          */
-        boolean pushIfWaiting(int z)
+        private boolean findWork()
         {
-            /*
-             * Push up to RESERVED_WAITING = 20 items per waiting thread, 
-             * RESERVED_RUNNING = 5 per non-waiting other threads,
-             * so the threads have a chance of finding work waiting.
-             * May require tuning.
-             */
-            if (waitingThreads * RESERVED_WAITING + 
-                (totalThreads - waitingThreads - 1) * RESERVED_RUNNING > size())
+            if (shared.steal(this))
+                return true;
+
+            int root = marker.nextRoot.getAndIncrement();
+            if (root < marker.rootsToProcess.length)
             {
-                push(z);
-                ++pushed;
-                if (waitingThreads > 0)
-                    // All or one?
-                    notifyAll();
+                stack[size++] = marker.rootsToProcess[root];
                 return true;
             }
-            return false;
-        }
-    }
 
-    public void markMultiThreaded(int numberOfThreads) throws InterruptedException
-    {
-        MultiThreadedRootStack rootsStack = new MultiThreadedRootStack(roots.length);
+            if (steal())
+                return true;
 
-        for (int rootId : roots)
-        {
-            if (!bits[rootId])
+            /*
+             * Idle. A thief counts as active before it takes any work, so
+             * once no worker is active, all the deques are empty.
+             */
+            marker.active.decrementAndGet();
+            int spins = 0;
+            while (!marker.stop)
             {
-                rootsStack.push(rootId);
-                bits[rootId] = true;
-            }
-        }
-
-        long l = System.currentTimeMillis();
-        if (DEBUG) System.out.println("Starting threads "+(new Date()));  //$NON-NLS-1$
-        progressListener.beginTask(Messages.ObjectMarker_MarkingObjects, rootsStack.size());
-
-        // Heuristic guess as to a reasonable local range for thread to search
-        int n = bits.length;
-        Runtime runtime = Runtime.getRuntime();
-        // This free memory calculation is very approximate - we do a GC to get a better estimate
-        long maxFree = runtime.maxMemory() - runtime.totalMemory() + runtime.freeMemory();
-        if (maxFree < outboundMem)
-        {
-            runtime.gc();
-            maxFree = runtime.maxMemory() - runtime.totalMemory() + runtime.freeMemory();
-        }
-        /*
-         *  Guess as to how many objects with outbound refs we can support @ 30 bytes per ref.
-         *  A better estimate would use the size of the outbound refs file.
-         */
-        int n1 = (int)Math.min(bits.length, bits.length * maxFree / outboundMem);
-        // guess as to size for each thread so we don't use all of the memory - allow for overlaps
-        int m = (int)((1.0 - Math.pow((double)(n - n1)/n, 1.0/numberOfThreads)) * n);
-        // now impose some reasonable limits
-        int locality = Math.min(n, Math.max(MIN_LOCALITY, m));
-        if (DEBUG) System.out.println("maxFree="+maxFree+" outbound mem="+outboundMem+" n="+n+" n1="+n1+" m="+m+" locality="+locality);  //$NON-NLS-1$//$NON-NLS-2$//$NON-NLS-3$//$NON-NLS-4$//$NON-NLS-5$ //$NON-NLS-6$
-
-        // create and start as much marker threads as specified
-        DfsThread[] dfsthreads = new DfsThread[numberOfThreads];
-        Thread[] threads = new Thread[numberOfThreads];
+                if (anyAvailable())
+                {
+                    marker.active.incrementAndGet();
+                    if (steal())
+                        return true;
+                    marker.active.decrementAndGet();
+                }
 
-        for (int i = 0; i < numberOfThreads; i++)
-        {
-            DfsThread dfsthread = USELOCAL ? new LocalDfsThread(rootsStack, locality) :
-                                  new DfsThread(rootsStack);
-            dfsthreads[i] = dfsthread;
-            Thread thread = new Thread(dfsthread, "ObjectMarkerThread-" + (i + 1));//$NON-NLS-1$
-            thread.start();
-            threads[i] = thread;
-        }
+                if (marker.active.get() == 0)
+                    return false;
 
-        // wait for all the threads to finish
-        for (int i = 0; i < numberOfThreads; i++)
-        {
-            threads[i].join();
+                if (++spins < 100)
+                    Thread.yield();
+                else
+                    LockSupport.parkNanos(100000L);
+            }
+            return false;
         }
 
-        if (progressListener.isCanceled())
-            return;
-
-        progressListener.done();
-        if (DEBUG) System.out.println("Took "+(System.currentTimeMillis() - l)+"ms"); //$NON-NLS-1$//$NON-NLS-2$
-    }
-
-    public class DfsThread implements Runnable
-    {
-
-        int size = 0;
-        int[] data = new int[10 * 1024]; // start with 10k
-        IntStack rootsStack;
-
-        public DfsThread(IntStack roots)
+        private boolean anyAvailable()
         {
-            this.rootsStack = roots;
+            for (Worker w : marker.workers)
+                if (w.shared.available > 0)
+                    return true;
+            return false;
         }
 
-        public void run()
+        private boolean steal()
         {
-            while (true)
+            Worker[] workers = marker.workers;
+            for (int i = 1; i < workers.length; i++)
             {
-                synchronized (rootsStack)
-                {
-                    progressListener.worked(1);
-                    if (progressListener.isCanceled())
-                        return;
-
-                    if (rootsStack.size() > 0) // still some roots are not
-                    // processed
-                    {
-                        data[0] = rootsStack.pop();
-                        size = 1;
-                    }
-                    else
-                    // the work is done
-                    {
-                        break;
-                    }
-                }
-
-                int current;
-
-                while (size > 0)
-                {
-                    /* start stack.pop() */
-                    current = data[--size];
-                    /* end stack.pop */
-
-                    for (int child : outbound.get(current))
-                    {
-                        /*
-                         * No synchronization here. It costs a lot of
-                         * performance It is possible that some bits are marked
-                         * more than once, but this is not a problem
-                         */
-                        if (!bits[child])
-                        {
-                            bits[child] = true;
-                            // stack.push(child);
-                            /* start stack.push() */
-                            if (size == data.length)
-                            {
-                                int[] newArr = new int[data.length << 1];
-                                System.arraycopy(data, 0, newArr, 0, data.length);
-                                data = newArr;
-                            }
-                            data[size++] = child;
-                            /* end stack.push() */
-                        }
-                    }
-                } // end of processing one GC root
+                Worker victim = workers[(index + i) % workers.length];
+                if (victim.shared.available > 0 && victim.shared.steal(this))
+                    return true;
             }
+            return false;
         }
     }
 
-    /**
-     * Depth first search thread - with locality.
-     * Have a local stack for objects close to the current object.
-     * Have a local queue for remaining objects.
-     * Use the global stack for excess objects or when local stack & queue are empty.
-     */
-    public class LocalDfsThread extends DfsThread
+    public void markMultiThreaded(int numberOfThreads) throws InterruptedException
     {
-        private static final int RESERVED = MultiThreadedRootStack.RESERVED_WAITING - MultiThreadedRootStack.RESERVED_RUNNING;
-        static final int MAXSTACK = 100 * 1024;
-        int localRange;
-        final int localRangeLimit;
-        SoftReference<int[]> sr;
-        double scaleUp = 0.005;
-        MultiThreadedRootStack rootsStack;
-        QueueInt queue = new QueueInt(1024);
-
-        public LocalDfsThread(MultiThreadedRootStack roots)
+        int[] rootsToProcess = new int[roots.length];
+        int numberOfRoots = 0;
+        for (int rootId : roots)
         {
-            this(roots, 1000000);
+            if (!bits.getAndSet(rootId))
+                rootsToProcess[numberOfRoots++] = rootId;
         }
-        public LocalDfsThread(MultiThreadedRootStack roots, int range)
+        if (numberOfRoots < rootsToProcess.length)
         {
-            super(roots);
-            rootsStack = roots;
-            localRange = localRangeLimit = range;
+            int[] newArr = new int[numberOfRoots];
+            System.arraycopy(rootsToProcess, 0, newArr, 0, numberOfRoots);
+            rootsToProcess = newArr;
         }
-        int localBase;
-        void initLocalStack(int val) {
-            data[0] = val;
-            size = 1;
-            localBase = calcBase(data[0]);
-        }
-        void fillStack() {
-            // data array must be at least length 2
-            int originalQueueSize = queue.size();
-            // Look at every item in the queue
-            for (int i = 0; i < originalQueueSize; ++i)
-            {
-                int z = queue.get();
-                if (inRange(z))
-                {
-                    // In range, so put on the local stack
-                    data[size++] = z;
-                    if (size == data.length)
-                        break;
-                }
-                else
-                {
-                    // Requeue
-                    queue.put(z);
-                }
-            }
+
+        long l = System.currentTimeMillis();
+        if (DEBUG) System.out.println("Starting threads "+(new Date()));  //$NON-NLS-1$
+        progressListener.beginTask(Messages.ObjectMarker_MarkingObjects, numberOfRoots);
+
+        WorkStealingMarker marker = new WorkStealingMarker(rootsToProcess, numberOfThreads);
+        Thread[] threads = new Thread[numberOfThreads];
+        for (int i = 0; i < numberOfThreads; i++)
+        {
+            threads[i] = new Thread(marker.workers[i], "ObjectMarkerThread-" + (i + 1));//$NON-NLS-1$
+            threads[i].start();
         }
-        public void run()
+
+        // only this thread talks to the progress listener
+        try
         {
-            rootsStack.linkThread();
-            try
+            int reported = 0;
+            for (int i = 0; i < numberOfThreads; i++)
             {
-                boolean check = false;
-                int checkCount = 0;
-                while (true)
+                while (threads[i].isAlive())
                 {
-                    // Pull some work off the global work stack
-                    int d;
-                    int work;
-                    synchronized (rootsStack)
-                    {
+                    threads[i].join(100);
 
-                        if (rootsStack.size() > 0) // still some roots are not
-                            // processed
-                        {
-                            d = rootsStack.pop();
-                        }
-                        else
-                        {
-                            d = rootsStack.waitAndPop();
-                            if (d == -1)
-                                break;
-                        }
-                        work = rootsStack.worked(); 
-                    }
-                    if (work > 0)
-                        progressListener.worked(work);
-                    queue.put(d);
-
-                    while (queue.size() > 0) 
+                    int taken = Math.min(marker.nextRoot.get(), numberOfRoots);
+                    if (taken > reported)
                     {
-                        if (progressListener.isCanceled())
-                            return;
-                        initLocalStack(queue.get());
-                        fillStack();
-
-                        // Process the local stack and queue
-                        int current;
-
-                        while (size > 0)
-                        {
-                            /* start stack.pop() */
-                            current = data[--size];
-                            /* end stack.pop */
-
-                            // See if other threads need work
-                            if (check || checkCount++ >= 10000)
-                            {
-                                checkCount = 0;
-                                check = true;
-                                if (queue.size() > 0 && queue.size() + size > RESERVED)
-                                {
-                                    int fromQueue;
-                                    synchronized (rootsStack)
-                                    {
-                                        do
-                                        {
-                                            fromQueue = queue.get();
-                                            check = rootsStack.pushIfWaiting(fromQueue);
-                                        }
-                                        while (check && queue.size() > 0 && queue.size() + size > RESERVED);
-                                    }
-                                    if (!check)
-                                        queue.put(fromQueue);
-                                }
-                                else if (size > RESERVED)
-                                {
-                                    synchronized (rootsStack)
-                                    {
-                                        do
-                                        {
-                                            check = rootsStack.pushIfWaiting(current);
-                                            if (check)
-                                                current = data[--size];
-                                        }
-                                        while (check && size > RESERVED);
-                                    }
-                                }
-                            }
-
-                            // Examine each outbound reference
-                            for (int child : outbound.get(current))
-                            {
-                                /*
-                                 * No synchronization here. It costs a lot of
-                                 * performance It is possible that some bits are
-                                 * marked more than once, but this is not a
-                                 * problem
-                                 */
-                                if (!bits[child])
-                                {
-                                    bits[child] = true;
-                                    if (size == 0)
-                                    {
-                                        // We have emptied the stack, so reset
-                                        // the base and refill
-                                        initLocalStack(child);
-                                        fillStack();
-                                    }
-                                    else if (inRange(child))
-                                    {
-                                        // In range
-                                        if (size < data.length)
-                                        {
-                                            data[size++] = child;
-                                        }
-                                        else if (size < MAXSTACK)
-                                        {
-                                            // Grow the local stack
-                                            int[] newArr = new int[Math.min(Math.max(0, data.length << 1), MAXSTACK)];
-                                            System.arraycopy(data, 0, newArr, 0, data.length);
-                                            data = newArr;
-                                            data[size++] = child;
-                                        }
-                                        else
-                                        {
-                                            // Local queue
-                                            queue.put(child);
-                                        }
-                                    }
-                                    else
-                                    {
-                                        // Local queue
-                                        queue.put(child);
-                                    }
-                                    /* end stack.push() */
-                                }
-                            }
-                        } // end of processing one GC root
+                        progressListener.worked(taken - reported);
+                        reported = taken;
                     }
+                    if (progressListener.isCanceled())
+                        marker.stop = true;
                 }
             }
-            finally
-            {
-                rootsStack.unlinkThread();
-            }
-        }
-        /**
-         * Is the objectId in range for the local stack?
-         * @param val
-         * @return
-         */
-        private boolean inRange(int val)
-        {
-            return val >= localBase && val - localBase < localRange;
-        }
-        /**
-         * Select a suitable base for the local stack.
-         * This is 1/4 range below and 3/4 range around the candidate item.
-         * @param v
-         * @return
-         */
-        private int calcBase(int v)
-        {
-            calcRange();
-            return Math.max(Math.min(v + (localRange * 3 >>> 2), bits.length) - localRange, 0);
         }
-        /**
-         * Heuristic to vary size of range depending on GC pressure.
-         * Slowly increase the range if no GC pressure.
-         * Cleared soft reference means we are running out of space, so reduce the range.
-         */
-        private void calcRange()
+        catch (InterruptedException e)
         {
-            if (sr == null)
-            {
-                if (DEBUG) System.out.println("Set local range="+localRange); //$NON-NLS-1$
-                // set trigger
-                sr = new SoftReference<int[]>(new int[1024]);
-            }
-            else if (sr.get() != null)
-            {
-                if (localRange < bits.length && scaleUp > 0.0)
-                {
-                    // Increase slowly
-                    localRange = Math.min((int)(localRange * (1.0 + scaleUp)), bits.length);
-                    if (DEBUG) System.out.println("Increased local range="+localRange+" "+scaleUp); //$NON-NLS-1$ //$NON-NLS-2$
-                }
-            }
-            else if (localRange == localRangeLimit && scaleUp == 0.0)
-            {
-                // Already at minimum
-            }
-            else
-            {
-                // decrease more rapidly
-                localRange = Math.max((int)(localRange * 0.9), localRangeLimit);
-                // and don't increase as fast
-                scaleUp *= 0.5f;
-                // if it is too small, stop the scaling
-                if (scaleUp * localRange < 1.0)
-                    scaleUp = 0.0;
-                if (DEBUG) System.out.println("Decreased local range="+localRange+" "+scaleUp); //$NON-NLS-1$ //$NON-NLS-2$
-                // reset trigger
-                sr = new SoftReference<int[]>(new int[1024]);
-            }
+            marker.stop = true;
+            throw e;
         }
+
+        if (marker.error instanceof RuntimeException)
+            throw (RuntimeException) marker.error;
+        if (marker.error instanceof Error)
+            throw (Error) marker.error;
+
+        if (progressListener.isCanceled())
+            return;
+
+        progressListener.done();
+        if (DEBUG) System.out.println("Took "+(System.currentTimeMillis() - l)+"ms"); //$NON-NLS-1$//$NON-NLS-2$
     }
 
     private boolean refersOnlyThroughExcluded(int referrerId, int referentId,
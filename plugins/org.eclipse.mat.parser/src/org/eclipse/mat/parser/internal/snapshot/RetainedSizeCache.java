@@ -11,16 +11,19 @@
 package org.eclipse.mat.parser.internal.snapshot;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.util.NoSuchElementException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.eclipse.mat.collect.ArrayInt;
 import org.eclipse.mat.collect.HashMapIntLong;
 import org.eclipse.mat.parser.index.IIndexReader;
 import org.eclipse.mat.parser.internal.Messages;
@@ -28,8 +31,19 @@ import org.eclipse.mat.parser.model.XSnapshotInfo;
 
 public class RetainedSizeCache implements IIndexReader
 {
+    /**
+     * Append new entries to the file every so often, so a long calculation of
+     * many retained sizes is not lost if the snapshot is not closed cleanly.
+     * Reading replaces older entries of a key by newer ones.
+     */
+    private static final int APPEND_INTERVAL = 1024;
+
+    /** key and retained size */
+    private static final int ENTRY_SIZE = 12;
+
     private String filename;
     private HashMapIntLong id2size;
+    private ArrayInt appendKeys = new ArrayInt();
     private boolean isDirty = false;
     
     /**
@@ -54,7 +68,7 @@ public class RetainedSizeCache implements IIndexReader
         readId2Size(snapshotInfo.getPrefix());
     }
 
-    public long get(int key)
+    public synchronized long get(int key)
     {
         try
         {
@@ -67,14 +81,58 @@ public class RetainedSizeCache implements IIndexReader
         }
     }
 
-    public void put(int key, long value)
+    public synchronized void put(int key, long value)
     {
         id2size.put(key, value);
         isDirty = true;
+
+        appendKeys.add(key);
+        if (appendKeys.size() >= APPEND_INTERVAL)
+            append();
     }
 
-    public void close()
+    private void append()
     {
+        File file = new File(filename);
+
+        // entries read from the old format must be written too
+        if (!file.exists())
+        {
+            close();
+            return;
+        }
+
+        try
+        {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+
+            try
+            {
+                for (int ii = 0; ii < appendKeys.size(); ii++)
+                {
+                    int key = appendKeys.get(ii);
+                    out.writeInt(key);
+                    out.writeLong(id2size.get(key));
+                }
+            }
+            finally
+            {
+                out.close();
+            }
+        }
+        catch (IOException e)
+        {
+            Logger.getLogger(RetainedSizeCache.class.getName()).log(Level.WARNING,
+                            Messages.RetainedSizeCache_Warning_IgnoreError, e);
+        }
+
+        appendKeys.clear();
+    }
+
+    public synchronized void close()
+    {
+        appendKeys.clear();
+
         if (!isDirty)
             return;
 
@@ -106,13 +164,19 @@ public class RetainedSizeCache implements IIndexReader
         DataInputStream in = null;
         boolean delete = false;
 
+        // an append interrupted by a crash leaves a partial entry at the end,
+        // the complete entries before it are still good
+        long length = file.length();
+        long entries = length / ENTRY_SIZE;
+        boolean torn = length % ENTRY_SIZE != 0;
+
         try
         {
-            id2size = new HashMapIntLong((int) file.length() / 8);
+            id2size = new HashMapIntLong((int) entries);
 
             in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
 
-            while (in.available() > 0)
+            for (long ii = 0; ii < entries; ii++)
             {
                 int key = in.readInt();
                 long value = in.readLong();
@@ -149,6 +213,10 @@ public class RetainedSizeCache implements IIndexReader
                 {
                     file.delete();
                 }
+                else if (torn)
+                {
+                    truncate(file, entries * ENTRY_SIZE);
+                }
             }
             catch (RuntimeException ignore)
             {
@@ -157,6 +225,29 @@ public class RetainedSizeCache implements IIndexReader
         }
     }
 
+    private static void truncate(File file, long length)
+    {
+        try
+        {
+            RandomAccessFile raf = new RandomAccessFile(file, "rw"); //$NON-NLS-1$
+            try
+            {
+                raf.setLength(length);
+            }
+            finally
+            {
+                raf.close();
+            }
+        }
+        catch (IOException e)
+        {
+            // appending to the partial entry would misalign everything after it
+            Logger.getLogger(RetainedSizeCache.class.getName()).log(Level.WARNING,
+                            Messages.RetainedSizeCache_Warning_IgnoreError, e);
+            file.delete();
+        }
+    }
+
     private void readId2Size(String prefix)
     {
         File file = new File(filename);
@@ -178,7 +269,7 @@ public class RetainedSizeCache implements IIndexReader
         }
     }
 
-    public int size()
+    public synchronized int size()
     {
         return id2size.size();
     }
@@ -0,0 +1,228 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser.internal.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * A working array of ints with one entry per object, for example of the
+ * dominator tree calculation. It is either an array on the heap or, if the
+ * system property {@link #MAPPED_PROPERTY} is <code>true</code>, a
+ * memory-mapped temporary file, so that the operating system pages it in and
+ * out instead of it occupying the heap.
+ */
+public abstract class IntArray
+{
+    /**
+     * System property which decides whether the working arrays are
+     * memory-mapped temporary files. The default is <code>false</code>.
+     */
+    public static final String MAPPED_PROPERTY = "mat_mapped_arrays"; //$NON-NLS-1$
+
+    /**
+     * @param directory
+     *            where to create the temporary file if the array is
+     *            memory-mapped
+     */
+    public static IntArray create(int length, File directory) throws IOException
+    {
+        if (Boolean.getBoolean(MAPPED_PROPERTY))
+            return new Mapped(length, directory, Mapped.SEGMENT_BITS);
+        else
+            return new Heap(length);
+    }
+
+    /**
+     * Creates a memory-mapped array regardless of {@link #MAPPED_PROPERTY}.
+     *
+     * @param segmentBits
+     *            the file is mapped in segments of 2^segmentBits entries, at
+     *            most 2^28, small segments are for testing
+     */
+    public static IntArray createMapped(int length, File directory, int segmentBits) throws IOException
+    {
+        if (segmentBits < 0 || segmentBits > Mapped.SEGMENT_BITS)
+            throw new IllegalArgumentException(String.valueOf(segmentBits));
+        return new Mapped(length, directory, segmentBits);
+    }
+
+    public abstract int get(int index);
+
+    public abstract void set(int index, int value);
+
+    public abstract int length();
+
+    public abstract void fill(int value);
+
+    /**
+     * @return the values as an array on the heap, the array itself if the
+     *         values are on the heap already
+     */
+    public abstract int[] toArray();
+
+    /**
+     * Releases the memory or the temporary file.
+     */
+    public abstract void close();
+
+    private static final class Heap extends IntArray
+    {
+        private final int[] data;
+
+        Heap(int length)
+        {
+            this.data = new int[length];
+        }
+
+        @Override
+        public int get(int index)
+        {
+            return data[index];
+        }
+
+        @Override
+        public void set(int index, int value)
+        {
+            data[index] = value;
+        }
+
+        @Override
+        public int length()
+        {
+            return data.length;
+        }
+
+        @Override
+        public void fill(int value)
+        {
+            Arrays.fill(data, value);
+        }
+
+        @Override
+        public int[] toArray()
+        {
+            return data;
+        }
+
+        @Override
+        public void close()
+        {}
+    }
+
+    private static final class Mapped extends IntArray
+    {
+        // a mapping holds at most 2 GB, so map segments of 1 GB
+        private static final int SEGMENT_BITS = 28;
+
+        private final int shift;
+        private final int mask;
+        private final int length;
+        private final File file;
+        private RandomAccessFile raf;
+        private IntBuffer[] segments;
+
+        Mapped(int length, File directory, int shift) throws IOException
+        {
+            this.shift = shift;
+            this.mask = (1 << shift) - 1;
+            this.length = length;
+            this.file = File.createTempFile("mat", ".tmp", directory); //$NON-NLS-1$ //$NON-NLS-2$
+
+            try
+            {
+                raf = new RandomAccessFile(file, "rw"); //$NON-NLS-1$
+                FileChannel channel = raf.getChannel();
+
+                segments = new IntBuffer[(int) (((long) length + mask) >>> shift)];
+                for (int ii = 0; ii < segments.length; ii++)
+                {
+                    long start = (long) ii << shift;
+                    long size = Math.min(1L << shift, length - start);
+                    segments[ii] = channel.map(FileChannel.MapMode.READ_WRITE, start * 4, size * 4)
+                                    .order(ByteOrder.nativeOrder()).asIntBuffer();
+                }
+            }
+            catch (IOException e)
+            {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public int get(int index)
+        {
+            return segments[index >>> shift].get(index & mask);
+        }
+
+        @Override
+        public void set(int index, int value)
+        {
+            segments[index >>> shift].put(index & mask, value);
+        }
+
+        @Override
+        public int length()
+        {
+            return length;
+        }
+
+        @Override
+        public void fill(int value)
+        {
+            for (int ii = 0; ii < length; ii++)
+                set(ii, value);
+        }
+
+        @Override
+        public int[] toArray()
+        {
+            int[] answer = new int[length];
+            for (int ii = 0; ii < segments.length; ii++)
+            {
+                IntBuffer segment = segments[ii].duplicate();
+                segment.clear();
+                segment.get(answer, ii << shift, segment.remaining());
+            }
+            return answer;
+        }
+
+        @Override
+        public void close()
+        {
+            segments = null;
+
+            if (raf != null)
+            {
+                try
+                {
+                    raf.close();
+                }
+                catch (IOException ignore)
+                {
+                    // $JL-EXC$
+                }
+                raf = null;
+            }
+
+            // the mapping is released by the garbage collector only, until
+            // then some platforms refuse to delete the file
+            if (!file.delete())
+                file.deleteOnExit();
+        }
+    }
+}
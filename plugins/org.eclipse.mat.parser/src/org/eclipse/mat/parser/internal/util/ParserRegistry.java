@@ -40,6 +40,7 @@ public class ParserRegistry extends RegistryReader<ParserRegistry.Parser>
     private static final String DYNAMIC = "dynamic";//$NON-NLS-1$
     public static final String INDEX_BUILDER = "indexBuilder";//$NON-NLS-1$
     public static final String OBJECT_READER = "objectReader";//$NON-NLS-1$
+    public static final String HISTOGRAM_BUILDER = "histogramBuilder";//$NON-NLS-1$
 
     public class Parser
     {
@@ -77,6 +78,14 @@ public class ParserRegistry extends RegistryReader<ParserRegistry.Parser>
             return snapshotFormat;
         }
 
+        /**
+         * Whether the parser declares the optional attribute
+         */
+        public boolean provides(String attribute)
+        {
+            return configElement.getAttribute(attribute) != null;
+        }
+
         @SuppressWarnings("unchecked")
         public <I> I create(Class<I> type, String attribute)
         {
@@ -0,0 +1,222 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser.internal.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.mat.parser.index.IndexReader;
+import org.eclipse.mat.parser.index.IndexWriter;
+import org.eclipse.mat.snapshot.PhaseStatistics;
+import org.eclipse.mat.snapshot.SnapshotInfo;
+
+/**
+ * Measures the phases of parsing a heap dump and keeps them with the index
+ * files, so that they are available when the snapshot is opened again.
+ * <p>
+ * The peak heap of a phase is the largest used heap sampled while it runs.
+ * The peak usage of the memory pools is not used, as resetting it would
+ * disturb other tools watching the JVM.
+ */
+public class PhaseRecorder
+{
+    /** milliseconds between samples of the used heap */
+    private static final long SAMPLE_INTERVAL = 50;
+
+    private final List<PhaseStatistics> phases = new ArrayList<PhaseStatistics>();
+
+    private String name;
+    private long wallTime;
+    private long cpuTime;
+    private long bytesRead;
+    private long bytesWritten;
+    private final AtomicLong peakHeap = new AtomicLong();
+    private Timer sampler;
+
+    /**
+     * Starts to measure a phase, the previous one must have ended.
+     */
+    public void begin(String name)
+    {
+        this.name = name;
+
+        peakHeap.set(0);
+        sampleHeap();
+        sampler = new Timer("PhaseRecorder", true); //$NON-NLS-1$
+        sampler.schedule(new TimerTask()
+        {
+            @Override
+            public void run()
+            {
+                sampleHeap();
+            }
+        }, SAMPLE_INTERVAL, SAMPLE_INTERVAL);
+
+        bytesWritten = IndexWriter.getBytesWritten();
+        bytesRead = IndexReader.getBytesRead();
+        cpuTime = cpuTime();
+        wallTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Ends the current phase.
+     *
+     * @param otherBytesRead
+     *            bytes read besides the index files, for example the heap
+     *            dump
+     */
+    public PhaseStatistics end(long objects, long references, long otherBytesRead)
+    {
+        long wall = System.currentTimeMillis() - wallTime;
+        long cpu = cpuTime();
+        cpu = cpu >= 0 && cpuTime >= 0 ? (cpu - cpuTime) / 1000000 : -1;
+        long read = IndexReader.getBytesRead() - bytesRead + otherBytesRead;
+        long written = IndexWriter.getBytesWritten() - bytesWritten;
+
+        sampler.cancel();
+        sampler = null;
+        sampleHeap();
+
+        PhaseStatistics phase = new PhaseStatistics(name, wall, cpu, read, written, peakHeap.get(), objects,
+                        references);
+        phases.add(phase);
+        name = null;
+        return phase;
+    }
+
+    /**
+     * Stops measuring the current phase without recording it, for example
+     * when it failed.
+     */
+    public void cancel()
+    {
+        if (sampler != null)
+        {
+            sampler.cancel();
+            sampler = null;
+        }
+        name = null;
+    }
+
+    public PhaseStatistics[] getPhases()
+    {
+        return phases.toArray(new PhaseStatistics[phases.size()]);
+    }
+
+    /**
+     * @return the CPU time of the process in nanoseconds, or of the current
+     *         thread if the JVM does not provide it, or -1
+     */
+    private static long cpuTime()
+    {
+        try
+        {
+            OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+            Class<?> type = Class.forName("com.sun.management.OperatingSystemMXBean"); //$NON-NLS-1$
+            if (type.isInstance(bean))
+            {
+                long time = ((Long) type.getMethod("getProcessCpuTime").invoke(bean)).longValue(); //$NON-NLS-1$
+                if (time >= 0)
+                    return time;
+            }
+        }
+        catch (Exception ignore)
+        {
+            // $JL-EXC$
+        }
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : -1;
+    }
+
+    private void sampleHeap()
+    {
+        long used = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        long peak = peakHeap.get();
+        while (used > peak && !peakHeap.compareAndSet(peak, used))
+            peak = peakHeap.get();
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // persistence
+    // //////////////////////////////////////////////////////////////
+
+    private static File getFile(SnapshotInfo info)
+    {
+        return new File(info.getPrefix() + "phases.index"); //$NON-NLS-1$
+    }
+
+    /**
+     * Stores the phases as property of the snapshot and in a file next to
+     * the index files.
+     */
+    public void write(SnapshotInfo info) throws IOException
+    {
+        PhaseStatistics[] answer = getPhases();
+        info.setProperty(PhaseStatistics.PROPERTY, answer);
+
+        ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(getFile(info))));
+        try
+        {
+            out.writeObject(answer);
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * Sets the property of the snapshot to the phases stored when it was
+     * parsed, if there are any.
+     */
+    public static void read(SnapshotInfo info)
+    {
+        File file = getFile(info);
+        if (!file.exists())
+            return;
+
+        try
+        {
+            ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try
+            {
+                info.setProperty(PhaseStatistics.PROPERTY, (PhaseStatistics[]) in.readObject());
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        catch (IOException ignore)
+        {
+            // $JL-EXC$ the statistics are informational only
+        }
+        catch (ClassNotFoundException ignore)
+        {
+            // $JL-EXC$
+        }
+    }
+}
@@ -0,0 +1,565 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.zip.ZipException;
+
+/**
+ * Decodes gzip files. Unlike {@link java.util.zip.Inflater} the decoder can
+ * tell the exact bit position at which a deflate block starts and can restart
+ * decoding at such a position, given the 32KB of uncompressed data preceding
+ * it. This is what {@link GZIPIndex} needs for its checkpoints.
+ */
+final class GZIPDecoder
+{
+    /** history needed to restart decoding */
+    static final int WINDOW_SIZE = 1 << 15;
+
+    private static final int RING_SIZE = 1 << 17;
+    private static final int RING_MASK = RING_SIZE - 1;
+    /** stop decoding once this many bytes are not yet read */
+    private static final int MAX_PENDING = RING_SIZE - 1024;
+
+    private static final int STATE_HEADER = 0;
+    private static final int STATE_BLOCK = 1;
+    private static final int STATE_STORED = 2;
+    private static final int STATE_CODES = 3;
+    private static final int STATE_END = 4;
+
+    private static final int[] LENGTH_BASE = { 3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27, 31, 35, 43, 51,
+                    59, 67, 83, 99, 115, 131, 163, 195, 227, 258 };
+    private static final int[] LENGTH_EXTRA = { 0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 4, 4, 4,
+                    4, 5, 5, 5, 5, 0 };
+    private static final int[] DIST_BASE = { 1, 2, 3, 4, 5, 7, 9, 13, 17, 25, 33, 49, 65, 97, 129, 193, 257, 385,
+                    513, 769, 1025, 1537, 2049, 3073, 4097, 6145, 8193, 12289, 16385, 24577 };
+    private static final int[] DIST_EXTRA = { 0, 0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6, 7, 7, 8, 8, 9, 9, 10,
+                    10, 11, 11, 12, 12, 13, 13 };
+    private static final int[] CODE_LENGTH_ORDER = { 16, 17, 18, 0, 8, 7, 9, 6, 10, 5, 11, 4, 12, 3, 13, 2, 14, 1, 15 };
+
+    /**
+     * Receives the positions at which decoding could be restarted.
+     */
+    interface CheckpointListener
+    {
+        void checkpoint(GZIPDecoder decoder) throws IOException;
+    }
+
+    private final RandomAccessFile file;
+
+    // compressed input
+    private final byte[] in = new byte[1 << 16];
+    private int inPos;
+    private int inLength;
+    private long inStart;
+    private long bitBuffer;
+    private int bitCount;
+    private int paddingBits;
+
+    // uncompressed output
+    private final byte[] ring = new byte[RING_SIZE];
+    private long validFrom;
+    private long outPos;
+    private long readPos;
+
+    // decoding state
+    private int state;
+    private boolean lastBlock;
+    private int storedRemaining;
+    private final int[] literalTable = new int[1 << 15];
+    private int literalBits;
+    private final int[] distanceTable = new int[1 << 15];
+    private int distanceBits;
+    private final int[] codeLengthTable = new int[1 << 7];
+    private final byte[] lengths = new byte[288 + 32];
+
+    private CheckpointListener checkpointListener;
+
+    GZIPDecoder(RandomAccessFile file) throws IOException
+    {
+        this.file = file;
+        restart(0, 0, null);
+    }
+
+    void setCheckpointListener(CheckpointListener listener)
+    {
+        this.checkpointListener = listener;
+    }
+
+    /**
+     * Restarts decoding at the start of a deflate block.
+     * 
+     * @param bitPosition
+     *            position of the block in the compressed file in bits, 0 for
+     *            the start of the file
+     * @param position
+     *            the uncompressed position of the block
+     * @param window
+     *            the uncompressed data preceding the block
+     */
+    void restart(long bitPosition, long position, byte[] window) throws IOException
+    {
+        inStart = bitPosition >>> 3;
+        inPos = inLength = 0;
+        bitBuffer = 0;
+        bitCount = 0;
+        paddingBits = 0;
+        file.seek(inStart);
+
+        int windowLength = window != null ? window.length : 0;
+        for (int ii = 0; ii < windowLength; ii++)
+            ring[(int) (position - windowLength + ii) & RING_MASK] = window[ii];
+        validFrom = position - windowLength;
+        outPos = readPos = position;
+
+        if (bitPosition == 0)
+        {
+            state = STATE_HEADER;
+        }
+        else
+        {
+            drop((int) (bitPosition & 7));
+            state = STATE_BLOCK;
+        }
+        lastBlock = false;
+    }
+
+    /** the uncompressed position of the next byte read */
+    long position()
+    {
+        return readPos;
+    }
+
+    /** the uncompressed position up to which the data has been decoded */
+    long decoded()
+    {
+        return outPos;
+    }
+
+    /** the bit position of the next compressed bit to decode */
+    long bitPosition()
+    {
+        return ((inStart + inPos) << 3) - bitCount;
+    }
+
+    /** the compressed position up to which the file has been read */
+    long filePosition()
+    {
+        return inStart + inLength;
+    }
+
+    /**
+     * @return the uncompressed data preceding the decoded position, at most
+     *         {@link #WINDOW_SIZE} bytes
+     */
+    byte[] window()
+    {
+        int length = (int) Math.min(WINDOW_SIZE, outPos - validFrom);
+        byte[] window = new byte[length];
+        for (int ii = 0; ii < length; ii++)
+            window[ii] = ring[(int) (outPos - length + ii) & RING_MASK];
+        return window;
+    }
+
+    /**
+     * Positions the decoder at the given uncompressed position if it is
+     * still buffered or lies ahead.
+     * 
+     * @return false if the position lies before the buffered data
+     */
+    boolean moveTo(long position) throws IOException
+    {
+        long bufferedFrom = Math.max(validFrom, outPos - MAX_PENDING);
+        if (position < bufferedFrom)
+            return false;
+
+        while (position > outPos)
+        {
+            readPos = outPos;
+            if (!decode())
+                throw new EOFException();
+        }
+        readPos = position;
+        return true;
+    }
+
+    int read() throws IOException
+    {
+        if (readPos == outPos && !decode())
+            return -1;
+        return ring[(int) (readPos++) & RING_MASK] & 0xff;
+    }
+
+    int read(byte[] b, int off, int len) throws IOException
+    {
+        if (len == 0)
+            return 0;
+        if (readPos == outPos && !decode())
+            return -1;
+
+        int n = (int) Math.min(len, outPos - readPos);
+        int start = (int) readPos & RING_MASK;
+        int first = Math.min(n, RING_SIZE - start);
+        System.arraycopy(ring, start, b, off, first);
+        if (first < n)
+            System.arraycopy(ring, 0, b, off + first, n - first);
+        readPos += n;
+        return n;
+    }
+
+    /**
+     * Decodes more data.
+     * 
+     * @return false at the end of the file
+     */
+    private boolean decode() throws IOException
+    {
+        long before = outPos;
+        while (outPos - readPos < MAX_PENDING)
+        {
+            switch (state)
+            {
+                case STATE_HEADER:
+                    readHeader();
+                    break;
+                case STATE_BLOCK:
+                    if (lastBlock)
+                        readTrailer();
+                    else
+                    {
+                        if (checkpointListener != null)
+                            checkpointListener.checkpoint(this);
+                        readBlockHeader();
+                    }
+                    break;
+                case STATE_STORED:
+                    decodeStored();
+                    break;
+                case STATE_CODES:
+                    decodeCodes();
+                    break;
+                default:
+                    return outPos > before;
+            }
+        }
+        return true;
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // gzip framing
+    // //////////////////////////////////////////////////////////////
+
+    private void readHeader() throws IOException
+    {
+        if (bits(8) != 0x1f || bits(8) != 0x8b)
+            throw new ZipException("Not in GZIP format"); //$NON-NLS-1$
+        if (bits(8) != 8)
+            throw new ZipException("Unsupported compression method"); //$NON-NLS-1$
+        int flags = bits(8);
+        bits(16); // modification time
+        bits(16);
+        bits(8); // extra flags
+        bits(8); // operating system
+        if ((flags & 4) != 0)
+        {
+            int length = bits(16);
+            for (int ii = 0; ii < length; ii++)
+                bits(8);
+        }
+        if ((flags & 8) != 0)
+            while (bits(8) != 0)
+            {
+                // file name
+            }
+        if ((flags & 16) != 0)
+            while (bits(8) != 0)
+            {
+                // comment
+            }
+        if ((flags & 2) != 0)
+            bits(16); // header CRC
+
+        state = STATE_BLOCK;
+        lastBlock = false;
+    }
+
+    private void readTrailer() throws IOException
+    {
+        drop(bitCount & 7);
+        bits(16); // CRC
+        bits(16);
+        bits(16); // size
+        bits(16);
+
+        // like java.util.zip.GZIPInputStream, ignore anything but another
+        // member following
+        state = STATE_END;
+        if (available(2) && (bitBuffer & 0xffff) == 0x8b1f)
+            state = STATE_HEADER;
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // deflate blocks
+    // //////////////////////////////////////////////////////////////
+
+    private void readBlockHeader() throws IOException
+    {
+        lastBlock = bits(1) != 0;
+        switch (bits(2))
+        {
+            case 0:
+                drop(bitCount & 7);
+                int length = bits(16);
+                int complement = bits(16);
+                if ((length ^ 0xffff) != complement)
+                    throw new ZipException("Invalid stored block lengths"); //$NON-NLS-1$
+                storedRemaining = length;
+                state = STATE_STORED;
+                break;
+            case 1:
+                Arrays.fill(lengths, 0, 144, (byte) 8);
+                Arrays.fill(lengths, 144, 256, (byte) 9);
+                Arrays.fill(lengths, 256, 280, (byte) 7);
+                Arrays.fill(lengths, 280, 288, (byte) 8);
+                literalBits = buildTable(lengths, 0, 288, literalTable);
+                Arrays.fill(lengths, 0, 30, (byte) 5);
+                distanceBits = buildTable(lengths, 0, 30, distanceTable);
+                state = STATE_CODES;
+                break;
+            case 2:
+                readDynamicTables();
+                state = STATE_CODES;
+                break;
+            default:
+                throw new ZipException("Invalid block type"); //$NON-NLS-1$
+        }
+    }
+
+    private void readDynamicTables() throws IOException
+    {
+        int literals = bits(5) + 257;
+        int distances = bits(5) + 1;
+        int codeLengths = bits(4) + 4;
+        if (literals > 286 || distances > 30)
+            throw new ZipException("Invalid code lengths"); //$NON-NLS-1$
+
+        Arrays.fill(lengths, 0, 19, (byte) 0);
+        for (int ii = 0; ii < codeLengths; ii++)
+            lengths[CODE_LENGTH_ORDER[ii]] = (byte) bits(3);
+        int codeLengthBits = buildTable(lengths, 0, 19, codeLengthTable);
+
+        int total = literals + distances;
+        int ii = 0;
+        while (ii < total)
+        {
+            int symbol = decodeSymbol(codeLengthTable, codeLengthBits);
+            if (symbol < 16)
+            {
+                lengths[ii++] = (byte) symbol;
+                continue;
+            }
+
+            int repeat;
+            byte value = 0;
+            if (symbol == 16)
+            {
+                if (ii == 0)
+                    throw new ZipException("Invalid code lengths"); //$NON-NLS-1$
+                value = lengths[ii - 1];
+                repeat = 3 + bits(2);
+            }
+            else if (symbol == 17)
+                repeat = 3 + bits(3);
+            else
+                repeat = 11 + bits(7);
+
+            if (ii + repeat > total)
+                throw new ZipException("Invalid code lengths"); //$NON-NLS-1$
+            while (repeat-- > 0)
+                lengths[ii++] = value;
+        }
+
+        if (lengths[256] == 0)
+            throw new ZipException("Missing end of block code"); //$NON-NLS-1$
+
+        literalBits = buildTable(lengths, 0, literals, literalTable);
+        distanceBits = buildTable(lengths, literals, distances, distanceTable);
+    }
+
+    /**
+     * Builds a lookup table indexed by the next bits of the input. Each
+     * entry holds the symbol shifted left by 4 and the code length.
+     * 
+     * @return the number of bits to look up
+     */
+    private static int buildTable(byte[] lengths, int offset, int count, int[] table) throws ZipException
+    {
+        int[] lengthCount = new int[16];
+        int maxLength = 1;
+        for (int ii = 0; ii < count; ii++)
+        {
+            int length = lengths[offset + ii];
+            lengthCount[length]++;
+            maxLength = Math.max(maxLength, length);
+        }
+        lengthCount[0] = 0;
+
+        int[] nextCode = new int[16];
+        int code = 0;
+        for (int length = 1; length < 16; length++)
+        {
+            code = (code + lengthCount[length - 1]) << 1;
+            nextCode[length] = code;
+            if (nextCode[length] + lengthCount[length] > (1 << length))
+                throw new ZipException("Invalid Huffman code"); //$NON-NLS-1$
+        }
+
+        int size = 1 << maxLength;
+        Arrays.fill(table, 0, size, 0);
+        for (int symbol = 0; symbol < count; symbol++)
+        {
+            int length = lengths[offset + symbol];
+            if (length == 0)
+                continue;
+
+            // codes are stored starting with the most significant bit
+            int reversed = Integer.reverse(nextCode[length]++) >>> (32 - length);
+            int entry = (symbol << 4) | length;
+            for (int ii = reversed; ii < size; ii += 1 << length)
+                table[ii] = entry;
+        }
+        return maxLength;
+    }
+
+    private int decodeSymbol(int[] table, int tableBits) throws IOException
+    {
+        need(tableBits);
+        int entry = table[(int) bitBuffer & ((1 << tableBits) - 1)];
+        int length = entry & 0xf;
+        if (length == 0)
+            throw new ZipException("Invalid Huffman code"); //$NON-NLS-1$
+        drop(length);
+        return entry >>> 4;
+    }
+
+    private void decodeStored() throws IOException
+    {
+        while (storedRemaining > 0 && outPos - readPos < MAX_PENDING)
+        {
+            ring[(int) (outPos++) & RING_MASK] = (byte) bits(8);
+            storedRemaining--;
+        }
+        if (storedRemaining == 0)
+            state = STATE_BLOCK;
+    }
+
+    private void decodeCodes() throws IOException
+    {
+        final byte[] ring = this.ring;
+        while (outPos - readPos < MAX_PENDING)
+        {
+            int symbol = decodeSymbol(literalTable, literalBits);
+            if (symbol < 256)
+            {
+                ring[(int) (outPos++) & RING_MASK] = (byte) symbol;
+            }
+            else if (symbol == 256)
+            {
+                state = STATE_BLOCK;
+                return;
+            }
+            else
+            {
+                symbol -= 257;
+                if (symbol >= LENGTH_BASE.length)
+                    throw new ZipException("Invalid literal/length code"); //$NON-NLS-1$
+                int length = LENGTH_BASE[symbol] + bits(LENGTH_EXTRA[symbol]);
+
+                symbol = decodeSymbol(distanceTable, distanceBits);
+                if (symbol >= DIST_BASE.length)
+                    throw new ZipException("Invalid distance code"); //$NON-NLS-1$
+                int distance = DIST_BASE[symbol] + bits(DIST_EXTRA[symbol]);
+                if (distance > outPos - validFrom)
+                    throw new ZipException("Invalid distance too far back"); //$NON-NLS-1$
+
+                long from = outPos - distance;
+                for (int ii = 0; ii < length; ii++)
+                    ring[(int) (outPos++) & RING_MASK] = ring[(int) (from++) & RING_MASK];
+            }
+        }
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // bit input
+    // //////////////////////////////////////////////////////////////
+
+    private int bits(int n) throws IOException
+    {
+        if (n == 0)
+            return 0;
+        need(n);
+        int value = (int) bitBuffer & ((1 << n) - 1);
+        drop(n);
+        return value;
+    }
+
+    /**
+     * Makes sure that at least n bits are in the bit buffer. Past the end of
+     * the file the buffer is padded with zeros, as a lookup may need more
+     * bits than the last code has.
+     */
+    private void need(int n) throws IOException
+    {
+        while (bitCount < n)
+        {
+            if (inPos == inLength && !fillInput())
+            {
+                paddingBits += 8;
+                bitCount += 8;
+                continue;
+            }
+            bitBuffer |= (long) (in[inPos++] & 0xff) << bitCount;
+            bitCount += 8;
+        }
+    }
+
+    private void drop(int n) throws IOException
+    {
+        if (n == 0)
+            return;
+        need(n);
+        bitBuffer >>>= n;
+        bitCount -= n;
+        if (bitCount < paddingBits)
+            throw new EOFException("Unexpected end of compressed data"); //$NON-NLS-1$
+    }
+
+    /** checks for at least n more bytes without consuming them */
+    private boolean available(int n) throws IOException
+    {
+        need(n * 8);
+        return bitCount - paddingBits >= n * 8;
+    }
+
+    private boolean fillInput() throws IOException
+    {
+        inStart += inLength;
+        inPos = inLength = 0;
+        int n = file.read(in, 0, in.length);
+        if (n <= 0)
+            return false;
+        inLength = n;
+        return true;
+    }
+}
@@ -0,0 +1,425 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser.io;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import org.eclipse.mat.collect.ArrayLong;
+import org.eclipse.mat.parser.internal.Messages;
+import org.eclipse.mat.util.IProgressListener;
+
+/**
+ * Checkpoints into a gzip compressed file, so that the file can be read from
+ * any uncompressed position without decompressing everything before it. In
+ * the style of zran.c from the zlib distribution, a checkpoint is taken at the
+ * start of a deflate block about every {@link #SPAN} uncompressed bytes. It
+ * consists of the uncompressed position, the compressed bit position and the
+ * last 32KB of uncompressed data. The checkpoint table is kept in memory, the
+ * windows are stored compressed in the index file and read when needed. The
+ * index file stays open and the windows used last are kept inflated until the
+ * index is closed.
+ * 
+ * @see SeekableGZIPInputStream
+ */
+public final class GZIPIndex implements Closeable
+{
+    /** uncompressed bytes between checkpoints */
+    public static final long SPAN = 1L << 20;
+
+    private static final int MAGIC = 0x475a4958; // GZIX
+    private static final int VERSION = 1;
+    /** inflated windows kept, 32KB each */
+    private static final int CACHED_WINDOWS = 64;
+
+    private final File indexFile;
+    private final long length;
+    private final long[] positions;
+    private final long[] bitPositions;
+    private final long[] windowOffsets;
+    private final Map<Integer, byte[]> windows = new LinkedHashMap<Integer, byte[]>(CACHED_WINDOWS, 0.75f, true)
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, byte[]> eldest)
+        {
+            return size() > CACHED_WINDOWS;
+        }
+    };
+    private RandomAccessFile raf;
+    private boolean closed;
+
+    private GZIPIndex(File indexFile, long length, long[] positions, long[] bitPositions, long[] windowOffsets)
+    {
+        this.indexFile = indexFile;
+        this.length = length;
+        this.positions = positions;
+        this.bitPositions = bitPositions;
+        this.windowOffsets = windowOffsets;
+    }
+
+    /**
+     * Checks for the gzip magic number at the start of the file.
+     */
+    public static boolean isGZIP(File file) throws IOException
+    {
+        InputStream in = new FileInputStream(file);
+        try
+        {
+            return isGZIP(in);
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Checks for the gzip magic number. Reads two bytes from the stream.
+     */
+    public static boolean isGZIP(InputStream in) throws IOException
+    {
+        return in.read() == 0x1f && in.read() == 0x8b;
+    }
+
+    /**
+     * Decompresses the whole file once to find the checkpoints and writes
+     * them to the index file.
+     * 
+     * @param file
+     *            the gzip compressed file
+     * @param indexFile
+     *            where to store the checkpoints
+     * @param listener
+     *            receives one unit of work for every 1000 compressed bytes
+     */
+    public static GZIPIndex create(File file, File indexFile, IProgressListener listener) throws IOException
+    {
+        IndexingInputStream in = new IndexingInputStream(file, indexFile);
+        try
+        {
+            byte[] buffer = new byte[1 << 16];
+            long reported = 0;
+            while (in.read(buffer, 0, buffer.length) > 0)
+            {
+                long workDone = in.filePosition() / 1000;
+                if (workDone > reported)
+                {
+                    listener.worked((int) (workDone - reported));
+                    reported = workDone;
+                    if (listener.isCanceled())
+                        throw new IProgressListener.OperationCanceledException();
+                }
+            }
+            return in.finish();
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Input stream over the uncompressed content of a gzip compressed file
+     * which writes the checkpoints to the index file while it is read, so that
+     * a parser which has to read the file sequentially anyway gets the
+     * checkpoints without decompressing the file a second time.
+     */
+    public static final class IndexingInputStream extends InputStream
+    {
+        private final RandomAccessFile raf;
+        private final File indexFile;
+        private final DataOutputStream out;
+        private final GZIPDecoder decoder;
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private final byte[] compressed = new byte[GZIPDecoder.WINDOW_SIZE + 1024];
+        private final ArrayLong positions = new ArrayLong();
+        private final ArrayLong bitPositions = new ArrayLong();
+        private final ArrayLong windowOffsets = new ArrayLong();
+        private long offset;
+        private long next = SPAN;
+        private GZIPIndex index;
+
+        public IndexingInputStream(File file, File indexFile) throws IOException
+        {
+            this.raf = new RandomAccessFile(file, "r"); //$NON-NLS-1$
+            this.indexFile = indexFile;
+            DataOutputStream out = null;
+            try
+            {
+                out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+                this.decoder = new GZIPDecoder(raf);
+            }
+            catch (IOException e)
+            {
+                if (out != null)
+                {
+                    out.close();
+                    indexFile.delete();
+                }
+                raf.close();
+                deflater.end();
+                throw e;
+            }
+            this.out = out;
+            decoder.setCheckpointListener(new GZIPDecoder.CheckpointListener()
+            {
+                public void checkpoint(GZIPDecoder decoder) throws IOException
+                {
+                    addCheckpoint();
+                }
+            });
+        }
+
+        private void addCheckpoint() throws IOException
+        {
+            if (decoder.decoded() < next)
+                return;
+
+            byte[] window = decoder.window();
+            deflater.reset();
+            deflater.setInput(window);
+            deflater.finish();
+            int length = deflater.deflate(compressed);
+            if (!deflater.finished())
+                throw new ZipException(); // window did not fit
+
+            positions.add(decoder.decoded());
+            bitPositions.add(decoder.bitPosition());
+            windowOffsets.add(offset);
+            out.writeInt(window.length);
+            out.writeInt(length);
+            out.write(compressed, 0, length);
+            offset += 8 + length;
+            next = decoder.decoded() + SPAN;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            return decoder.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            return decoder.read(b, off, len);
+        }
+
+        /**
+         * The compressed position up to which the file has been read, for
+         * progress reporting.
+         */
+        public long filePosition()
+        {
+            return decoder.filePosition();
+        }
+
+        /**
+         * Decompresses the rest of the file and completes the index file.
+         * 
+         * @return the checkpoints, ready for random access
+         */
+        public GZIPIndex finish() throws IOException
+        {
+            if (index != null)
+                return index;
+
+            byte[] buffer = new byte[1 << 16];
+            while (decoder.read(buffer, 0, buffer.length) > 0)
+            {
+                // decode everything
+            }
+
+            long tableOffset = offset;
+            out.writeInt(positions.size());
+            for (int ii = 0; ii < positions.size(); ii++)
+            {
+                out.writeLong(positions.get(ii));
+                out.writeLong(bitPositions.get(ii));
+                out.writeLong(windowOffsets.get(ii));
+            }
+            out.writeLong(decoder.position());
+            out.writeLong(tableOffset);
+            out.writeInt(VERSION);
+            out.writeInt(MAGIC);
+            out.close();
+
+            index = new GZIPIndex(indexFile, decoder.position(), positions.toArray(), bitPositions.toArray(),
+                            windowOffsets.toArray());
+            return index;
+        }
+
+        /**
+         * Closes the compressed file. The index file is deleted unless
+         * {@link #finish()} completed it.
+         */
+        @Override
+        public void close() throws IOException
+        {
+            try
+            {
+                if (index == null)
+                {
+                    out.close();
+                    indexFile.delete();
+                }
+            }
+            finally
+            {
+                deflater.end();
+                raf.close();
+            }
+        }
+    }
+
+    /**
+     * Reads the checkpoints written by {@link #create}.
+     */
+    public static GZIPIndex read(File indexFile) throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile(indexFile, "r"); //$NON-NLS-1$
+        try
+        {
+            if (raf.length() < 16)
+                throw new IOException(indexFile.getAbsolutePath());
+            raf.seek(raf.length() - 16);
+            long tableOffset = raf.readLong();
+            if (raf.readInt() != VERSION || raf.readInt() != MAGIC)
+                throw new IOException(indexFile.getAbsolutePath());
+
+            raf.seek(tableOffset);
+            int count = raf.readInt();
+            long[] positions = new long[count];
+            long[] bitPositions = new long[count];
+            long[] windowOffsets = new long[count];
+            for (int ii = 0; ii < count; ii++)
+            {
+                positions[ii] = raf.readLong();
+                bitPositions[ii] = raf.readLong();
+                windowOffsets[ii] = raf.readLong();
+            }
+            long length = raf.readLong();
+            return new GZIPIndex(indexFile, length, positions, bitPositions, windowOffsets);
+        }
+        finally
+        {
+            raf.close();
+        }
+    }
+
+    /**
+     * The uncompressed length of the file.
+     */
+    public long length()
+    {
+        return length;
+    }
+
+    /**
+     * @return the last checkpoint at or before the uncompressed position, -1
+     *         if there is none and decoding has to start at the beginning of
+     *         the file
+     */
+    int checkpoint(long position)
+    {
+        int low = 0;
+        int high = positions.length - 1;
+        while (low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            if (positions[mid] <= position)
+                low = mid + 1;
+            else
+                high = mid - 1;
+        }
+        return high;
+    }
+
+    long position(int checkpoint)
+    {
+        return positions[checkpoint];
+    }
+
+    long bitPosition(int checkpoint)
+    {
+        return bitPositions[checkpoint];
+    }
+
+    /**
+     * The uncompressed data preceding the checkpoint. The returned array is
+     * shared and must not be modified.
+     */
+    synchronized byte[] window(int checkpoint) throws IOException
+    {
+        byte[] window = windows.get(checkpoint);
+        if (window != null)
+            return window;
+
+        if (closed)
+            throw new IOException(Messages.GZIPIndex_Error_Closed);
+        if (raf == null)
+            raf = new RandomAccessFile(indexFile, "r"); //$NON-NLS-1$
+        raf.seek(windowOffsets[checkpoint]);
+        window = new byte[raf.readInt()];
+        byte[] compressed = new byte[raf.readInt()];
+        raf.readFully(compressed);
+
+        Inflater inflater = new Inflater();
+        try
+        {
+            inflater.setInput(compressed);
+            if (inflater.inflate(window) != window.length)
+                throw new ZipException(indexFile.getAbsolutePath());
+        }
+        catch (DataFormatException e)
+        {
+            ZipException ze = new ZipException(indexFile.getAbsolutePath());
+            ze.initCause(e);
+            throw ze;
+        }
+        finally
+        {
+            inflater.end();
+        }
+        windows.put(checkpoint, window);
+        return window;
+    }
+
+    /**
+     * Closes the index file and drops the cached windows. Streams still using
+     * the index fail when they have to restart at a checkpoint.
+     */
+    public synchronized void close() throws IOException
+    {
+        closed = true;
+        windows.clear();
+        if (raf != null)
+        {
+            raf.close();
+            raf = null;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import org.eclipse.mat.parser.internal.Messages;
+
+/**
+ * Input stream over a file which is memory mapped in regions of at most 1GB,
+ * so files larger than 2GB can be read. Reading does not involve system calls
+ * once the pages are resident.
+ * <p>
+ * One stream must not be used by several threads at once, but {@link #copy()}
+ * cheaply creates further streams with their own position which share the
+ * mapping. Those can be used concurrently without any locking.
+ * <p>
+ * The mapping is released by the garbage collector once no stream refers to
+ * it any more. Closing the stream which created the mapping drops it from all
+ * the copies, which let go of it when they next read, so that only the
+ * streams themselves need to become unreachable.
+ */
+public class MappedRandomAccessInputStream extends InputStream
+{
+    /** regions of 1GB */
+    private static final int REGION_BITS = 30;
+
+    private final RandomAccessFile raf;
+    private final int regionBits;
+    private final long regionMask;
+    private final ByteBuffer[] regions;
+    private final ByteBuffer[] views;
+    private final long length;
+    private long pos;
+
+    public MappedRandomAccessInputStream(RandomAccessFile raf) throws IOException
+    {
+        this(raf, REGION_BITS);
+    }
+
+    /**
+     * @param regionBits
+     *            the regions are 2^regionBits bytes large, at most 2^30, small
+     *            regions are for testing reads across regions
+     */
+    public MappedRandomAccessInputStream(RandomAccessFile raf, int regionBits) throws IOException
+    {
+        if (regionBits < 0 || regionBits > REGION_BITS)
+            throw new IllegalArgumentException(String.valueOf(regionBits));
+
+        this.raf = raf;
+        this.regionBits = regionBits;
+        this.regionMask = (1L << regionBits) - 1;
+        this.length = raf.length();
+
+        long regionSize = 1L << regionBits;
+        regions = new ByteBuffer[(int) ((length + regionSize - 1) >>> regionBits)];
+        try
+        {
+            FileChannel channel = raf.getChannel();
+            for (int ii = 0; ii < regions.length; ii++)
+            {
+                long start = (long) ii << regionBits;
+                regions[ii] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(regionSize, length - start));
+            }
+        }
+        catch (IOException e)
+        {
+            raf.close();
+            throw e;
+        }
+        views = new ByteBuffer[regions.length];
+    }
+
+    private MappedRandomAccessInputStream(MappedRandomAccessInputStream other)
+    {
+        this.raf = null;
+        this.regionBits = other.regionBits;
+        this.regionMask = other.regionMask;
+        this.regions = other.regions;
+        this.views = new ByteBuffer[regions.length];
+        this.length = other.length;
+        this.pos = other.pos;
+    }
+
+    /**
+     * Create a stream sharing the mapping of this stream, positioned at the
+     * current position of this stream. Closing the copy does not affect this
+     * stream.
+     */
+    public MappedRandomAccessInputStream copy()
+    {
+        return new MappedRandomAccessInputStream(this);
+    }
+
+    private ByteBuffer view(int region) throws IOException
+    {
+        // the shared buffers are never repositioned, each stream reads through its own duplicates
+        ByteBuffer buffer = regions[region];
+        if (buffer == null)
+        {
+            // closed by the stream which created the mapping
+            Arrays.fill(views, null);
+            throw new IOException(Messages.MappedRandomAccessInputStream_Error_Closed);
+        }
+        ByteBuffer view = views[region];
+        if (view == null)
+            view = views[region] = buffer.duplicate();
+        return view;
+    }
+
+    public int read() throws IOException
+    {
+        if (pos >= length)
+            return -1;
+
+        int b = view((int) (pos >>> regionBits)).get((int) (pos & regionMask)) & 0xff;
+        pos++;
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        if (len == 0)
+            return 0;
+
+        if (pos >= length)
+            return -1;
+
+        int copied = 0;
+
+        while (copied < len && pos < length)
+        {
+            ByteBuffer view = view((int) (pos >>> regionBits));
+            int offset = (int) (pos & regionMask);
+            int n = Math.min(len - copied, view.limit() - offset);
+            view.position(offset);
+            view.get(b, off + copied, n);
+            pos += n;
+            copied += n;
+        }
+
+        return copied;
+    }
+
+    @Override
+    public long skip(long n) throws IOException
+    {
+        if (n <= 0 || pos >= length)
+            return 0;
+
+        long skipped = Math.min(n, length - pos);
+        pos += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException
+    {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, length - pos));
+    }
+
+    public boolean markSupported()
+    {
+        return false;
+    }
+
+    /**
+     * Closes the underlying file and drops the mapping from all copies if
+     * this stream was not created by {@link #copy()}. Copies which read
+     * afterwards fail.
+     */
+    public void close() throws IOException
+    {
+        Arrays.fill(views, null);
+        if (raf != null)
+        {
+            Arrays.fill(regions, null);
+            raf.close();
+        }
+    }
+
+    public void seek(long pos) throws IOException
+    {
+        this.pos = pos;
+    }
+
+    public long getFilePointer()
+    {
+        return pos;
+    }
+
+    public long length()
+    {
+        return length;
+    }
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+
+/**
+ * Input stream over the uncompressed content of a gzip compressed file with
+ * random access. Seeking restarts decompression at the nearest checkpoint of
+ * the {@link GZIPIndex} before the position, unless the position is still
+ * buffered or lies a short way ahead of the current position.
+ * <p>
+ * A stream must not be used by several threads at once. Several streams can
+ * share one index.
+ */
+public class SeekableGZIPInputStream extends InputStream
+{
+    private final RandomAccessFile raf;
+    private final GZIPIndex index;
+    private final GZIPDecoder decoder;
+
+    public SeekableGZIPInputStream(File file, GZIPIndex index) throws IOException
+    {
+        this.raf = new RandomAccessFile(file, "r"); //$NON-NLS-1$
+        this.index = index;
+        try
+        {
+            this.decoder = new GZIPDecoder(raf);
+        }
+        catch (IOException e)
+        {
+            raf.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        return decoder.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        return decoder.read(b, off, len);
+    }
+
+    @Override
+    public long skip(long n) throws IOException
+    {
+        long target = Math.min(decoder.position() + n, index.length());
+        if (target <= decoder.position())
+            return 0;
+        long skipped = target - decoder.position();
+        seek(target);
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException
+    {
+        return (int) Math.min(Integer.MAX_VALUE, decoder.decoded() - decoder.position());
+    }
+
+    @Override
+    public boolean markSupported()
+    {
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        raf.close();
+    }
+
+    public void seek(long pos) throws IOException
+    {
+        int checkpoint = index.checkpoint(pos);
+        long checkpointPosition = checkpoint >= 0 ? index.position(checkpoint) : 0;
+
+        // decoding on is cheaper than restarting if no checkpoint lies between
+        if (decoder.decoded() >= checkpointPosition && decoder.moveTo(pos))
+            return;
+
+        if (checkpoint >= 0)
+            decoder.restart(index.bitPosition(checkpoint), checkpointPosition, index.window(checkpoint));
+        else
+            decoder.restart(0, 0, null);
+        decoder.moveTo(pos);
+    }
+
+    public long getFilePointer()
+    {
+        return decoder.position();
+    }
+
+    public long length()
+    {
+        return index.length();
+    }
+}
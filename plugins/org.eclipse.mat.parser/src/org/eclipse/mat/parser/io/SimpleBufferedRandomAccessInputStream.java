@@ -14,6 +14,7 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
 
 public class SimpleBufferedRandomAccessInputStream extends InputStream
 {
@@ -136,6 +137,16 @@ public class SimpleBufferedRandomAccessInputStream extends InputStream
         return (real_pos - buf_end + buf_pos);
     }
 
+    /**
+     * @return the channel of the file, for positional reads which neither
+     *         use nor move the stream
+     * @since 1.7
+     */
+    public FileChannel getChannel()
+    {
+        return raf.getChannel();
+    }
+
     public final int readInt() throws IOException
     {
         if (buf_pos + 4 < buf_end)
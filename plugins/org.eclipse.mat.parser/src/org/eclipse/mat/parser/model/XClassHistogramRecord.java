@@ -11,6 +11,7 @@
 package org.eclipse.mat.parser.model;
 
 import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.ArrayInt;
 import org.eclipse.mat.snapshot.ClassHistogramRecord;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.util.IProgressListener;
@@ -71,4 +72,22 @@ public final class XClassHistogramRecord extends ClassHistogramRecord
 
         return retainedHeapSize;
     }
+
+    @Override
+    protected int[] getRetainedSizeObjectIds()
+    {
+        // the class itself and its instances, as for the class
+        int[] objectIds = getObjectIds();
+        ArrayInt ids = new ArrayInt(objectIds.length + 1);
+        ids.add(getClassId());
+        ids.addAll(objectIds);
+        return ids.toArray();
+    }
+
+    @Override
+    protected void retainedSizeCalculated(long retainedSize)
+    {
+        super.retainedSizeCalculated(retainedSize);
+        classInstance.source.getRetainedSizeCache().put(getClassId(), retainedSize);
+    }
 }
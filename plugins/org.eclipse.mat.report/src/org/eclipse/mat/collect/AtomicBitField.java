@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.collect;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A {@link BitField} which can be modified by several threads at once. The
+ * bits are packed into words in the same way, so marking all objects of a
+ * snapshot costs one bit per object instead of one byte for a boolean[].
+ * Setting and clearing a bit are atomic, and {@link #getAndSet(int)} tells
+ * exactly one of several competing threads that it set the bit. Out of
+ * performance reasons no method does any parameter checking, i.e. only valid
+ * values are expected.
+ * 
+ * @since 1.7
+ */
+public final class AtomicBitField
+{
+    private final AtomicIntegerArray bits;
+    private final int size;
+
+    /**
+     * Creates a bit field with the given number of bits. Size is expected to be
+     * positive - out of performance reasons no checks are done!
+     */
+    public AtomicBitField(int size)
+    {
+        this.bits = new AtomicIntegerArray((size + 0x1f) >>> 0x5);
+        this.size = size;
+    }
+
+    /**
+     * Creates a bit field with the same size and bits as the given one. The
+     * other bit field should not be modified while it is copied.
+     */
+    public AtomicBitField(AtomicBitField other)
+    {
+        this(other.size);
+        for (int ii = 0; ii < bits.length(); ii++)
+            bits.set(ii, other.bits.get(ii));
+    }
+
+    /**
+     * Returns the number of bits as given when the bit field was created.
+     */
+    public final int size()
+    {
+        return size;
+    }
+
+    /**
+     * Sets the bit on the given index. Index is expected to be in range - out
+     * of performance reasons no checks are done!
+     */
+    public final void set(int index)
+    {
+        getAndSet(index);
+    }
+
+    /**
+     * Sets the bit on the given index and returns its previous value. When
+     * several threads set the same bit, exactly one of them gets false. Index
+     * is expected to be in range - out of performance reasons no checks are
+     * done!
+     */
+    public final boolean getAndSet(int index)
+    {
+        int word = index >>> 0x5;
+        int mask = 1 << (index & 0x1f);
+        while (true)
+        {
+            int old = bits.get(word);
+            if ((old & mask) != 0)
+                return true;
+            if (bits.compareAndSet(word, old, old | mask))
+                return false;
+        }
+    }
+
+    /**
+     * Clears the bit on the given index. Index is expected to be in range - out
+     * of performance reasons no checks are done!
+     */
+    public final void clear(int index)
+    {
+        int word = index >>> 0x5;
+        int mask = 1 << (index & 0x1f);
+        while (true)
+        {
+            int old = bits.get(word);
+            if ((old & mask) == 0 || bits.compareAndSet(word, old, old & ~mask))
+                return;
+        }
+    }
+
+    /**
+     * Gets the bit on the given index. Index is expected to be in range - out
+     * of performance reasons no checks are done!
+     */
+    public final boolean get(int index)
+    {
+        return (bits.get(index >>> 0x5) & (1 << (index & 0x1f))) != 0;
+    }
+
+    /**
+     * Returns the index of the first set bit at or after the given index, or
+     * -1 if there is none. Whole words of clear bits are skipped at once.
+     */
+    public final int nextSetBit(int fromIndex)
+    {
+        if (fromIndex >= size)
+            return -1;
+        int word = fromIndex >>> 0x5;
+        int value = bits.get(word) & (-1 << (fromIndex & 0x1f));
+        while (true)
+        {
+            if (value != 0)
+            {
+                int index = (word << 0x5) + Integer.numberOfTrailingZeros(value);
+                return index < size ? index : -1;
+            }
+            if (++word >= bits.length())
+                return -1;
+            value = bits.get(word);
+        }
+    }
+
+    /**
+     * Returns the index of the first clear bit at or after the given index, or
+     * -1 if there is none. Whole words of set bits are skipped at once.
+     */
+    public final int nextClearBit(int fromIndex)
+    {
+        if (fromIndex >= size)
+            return -1;
+        int word = fromIndex >>> 0x5;
+        int value = ~bits.get(word) & (-1 << (fromIndex & 0x1f));
+        while (true)
+        {
+            if (value != 0)
+            {
+                int index = (word << 0x5) + Integer.numberOfTrailingZeros(value);
+                return index < size ? index : -1;
+            }
+            if (++word >= bits.length())
+                return -1;
+            value = ~bits.get(word);
+        }
+    }
+
+    /**
+     * Returns the number of set bits.
+     */
+    public final int cardinality()
+    {
+        int count = 0;
+        for (int ii = 0; ii < bits.length(); ii++)
+            count += Integer.bitCount(bits.get(ii));
+        return count;
+    }
+}
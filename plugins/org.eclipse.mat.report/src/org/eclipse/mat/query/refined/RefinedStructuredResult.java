@@ -23,6 +23,7 @@ import org.eclipse.mat.collect.ArrayInt;
 import org.eclipse.mat.query.Column;
 import org.eclipse.mat.query.Column.SortDirection;
 import org.eclipse.mat.query.ContextDerivedData;
+import org.eclipse.mat.query.ContextDerivedData.DerivedBatchCalculator;
 import org.eclipse.mat.query.ContextDerivedData.DerivedCalculator;
 import org.eclipse.mat.query.ContextDerivedData.DerivedColumn;
 import org.eclipse.mat.query.ContextDerivedData.DerivedOperation;
@@ -429,6 +430,16 @@ public abstract class RefinedStructuredResult implements IStructuredResult, //
         }
 
         int work = elements.size();
+        if (work > 1 && accessor.calculator instanceof DerivedBatchCalculator
+                        && ((DerivedBatchCalculator) accessor.calculator).calculate(operation, elements, listener))
+        {
+            // The items were calculated together, so
+            // just pick up the results item by item
+            if (listener.isCanceled())
+                return;
+            listener = new SilentProgressListener(listener);
+        }
+
         SimpleMonitor sm;
         IProgressListener l1, l2;
         if (work == 1)
@@ -129,7 +129,15 @@ public class ArgumentSet
                 }
             }
 
-            IResult result = impl.execute(listener);
+            String commandLine = getCacheKey();
+            IResult result = commandLine != null ? ResultCache.get(context, commandLine, query.getCommandType()
+                            .getClassLoader()) : null;
+            if (result == null)
+            {
+                result = impl.execute(listener);
+                if (commandLine != null)
+                    ResultCache.put(context, commandLine, result);
+            }
 
             return new QueryResult(this.query, this.writeToLine(), result);
         }
@@ -184,6 +192,53 @@ public class ArgumentSet
         return answer.toString().trim();
     }
 
+    /**
+     * The command line identifies the result in the {@link ResultCache} only
+     * if it describes all the arguments: values built by an
+     * {@link ArgumentFactory} may print a label only, and values provided by
+     * the context other than its own, for example the result of a query to
+     * compare with, are not printed at all.
+     * 
+     * @return the command line to cache the result with, or null
+     */
+    private String getCacheKey()
+    {
+        if (!ResultCache.isEnabled(context))
+            return null;
+
+        for (ArgumentDescriptor arg : query.getArguments())
+        {
+            Object value = values.get(arg);
+            if (value == null)
+                continue;
+
+            if (value instanceof ArgumentFactory)
+                return null;
+            if (value instanceof List<?>)
+            {
+                for (Object v : (List<?>) value)
+                {
+                    if (v instanceof ArgumentFactory)
+                        return null;
+                }
+            }
+
+            if (context.available(arg.getType(), arg.getAdvice())
+                            && value != context.get(arg.getType(), arg.getAdvice()))
+                return null;
+        }
+
+        try
+        {
+            return writeToLine();
+        }
+        catch (RuntimeException e)
+        {
+            // no converter for some argument
+            return null;
+        }
+    }
+
     public void setArgumentValue(ArgumentDescriptor arg, Object value)
     {
         values.put(arg, value);
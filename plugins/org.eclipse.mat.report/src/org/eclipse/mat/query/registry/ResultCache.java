@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.query.registry;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+
+import org.eclipse.mat.query.IQueryContext;
+import org.eclipse.mat.query.IResult;
+
+/**
+ * Keeps the results of queries in files next to the index files of the
+ * snapshot, so that running the same command line again on the same snapshot
+ * reads the result instead of calculating it again.
+ * <p>
+ * A result is kept only if it is {@link Serializable} as a whole, for
+ * example a class histogram or a text result. Results holding the snapshot or
+ * objects read from it, for example the leak suspects, are not kept. A cached
+ * result is dropped if the main index file of the snapshot changed since the
+ * result was written, i.e. if the heap dump was parsed again.
+ * <p>
+ * The cache is used only if the system property {@link #CACHE_PROPERTY} is
+ * true, as queries with side effects, for example exporting data to a file,
+ * would not repeat them when answered from the cache.
+ */
+/* package */final class ResultCache
+{
+    /**
+     * System property which enables the cache. The default is
+     * <code>false</code>.
+     */
+    /* package */static final String CACHE_PROPERTY = "mat_result_cache"; //$NON-NLS-1$
+
+    private static final int VERSION = 1;
+
+    /**
+     * Temporary files not changed for this long are left over from writers
+     * which did not finish, for example because the application ended.
+     */
+    private static final long STALE_TEMP_FILE_AGE = 10 * 60 * 1000L;
+
+    private ResultCache()
+    {}
+
+    /* package */static boolean isEnabled(IQueryContext context)
+    {
+        return Boolean.getBoolean(CACHE_PROPERTY) && context.getPrefix() != null
+                        && getIndexFile(context).isFile();
+    }
+
+    /**
+     * @return the cached result for the command line, or null
+     */
+    /* package */static IResult get(IQueryContext context, String commandLine, final ClassLoader loader)
+    {
+        File file = getFile(context, commandLine);
+        if (!file.isFile())
+            return null;
+
+        File indexFile = getIndexFile(context);
+
+        try
+        {
+            InputStream in = new BufferedInputStream(new FileInputStream(file));
+            try
+            {
+                ObjectInputStream oin = new ObjectInputStream(in)
+                {
+                    @Override
+                    protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException,
+                                    ClassNotFoundException
+                    {
+                        // results are classes of the bundle contributing
+                        // the query, which the report bundle might not see
+                        try
+                        {
+                            return Class.forName(desc.getName(), false, loader);
+                        }
+                        catch (ClassNotFoundException e)
+                        {
+                            return super.resolveClass(desc);
+                        }
+                    }
+                };
+
+                if (oin.readInt() == VERSION && commandLine.equals(oin.readUTF())
+                                && oin.readLong() == indexFile.lastModified() && oin.readLong() == indexFile.length())
+                    return (IResult) oin.readObject();
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        catch (IOException ignore)
+        {
+            // $JL-EXC$ stale or incompatible, calculate the result again
+        }
+        catch (ClassNotFoundException ignore)
+        {
+            // $JL-EXC$
+        }
+        catch (ClassCastException ignore)
+        {
+            // $JL-EXC$
+        }
+
+        return null;
+    }
+
+    /**
+     * Stores the result for the command line, if it can be serialized.
+     */
+    /* package */static void put(IQueryContext context, String commandLine, IResult result)
+    {
+        if (!(result instanceof Serializable))
+            return;
+
+        File file = getFile(context, commandLine);
+        File indexFile = getIndexFile(context);
+
+        File directory = file.getAbsoluteFile().getParentFile();
+        deleteStaleTempFiles(directory, file.getName() + '.');
+
+        File tmp = null;
+        try
+        {
+            // write a new file and rename it so that readers never see a
+            // partial result, not even when the same query runs twice
+            tmp = File.createTempFile(file.getName() + '.', ".tmp", directory); //$NON-NLS-1$
+
+            ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            try
+            {
+                out.writeInt(VERSION);
+                out.writeUTF(commandLine);
+                out.writeLong(indexFile.lastModified());
+                out.writeLong(indexFile.length());
+                out.writeObject(result);
+            }
+            finally
+            {
+                out.close();
+            }
+
+            file.delete();
+            if (tmp.renameTo(file))
+                tmp = null;
+        }
+        catch (IOException ignore)
+        {
+            // $JL-EXC$ for example parts of the result are not serializable
+        }
+        finally
+        {
+            if (tmp != null)
+                tmp.delete();
+        }
+    }
+
+    private static void deleteStaleTempFiles(File directory, final String prefix)
+    {
+        final long staleBefore = System.currentTimeMillis() - STALE_TEMP_FILE_AGE;
+        File[] stale = directory.listFiles(new FileFilter()
+        {
+            public boolean accept(File f)
+            {
+                return f.getName().startsWith(prefix) && f.getName().endsWith(".tmp") //$NON-NLS-1$
+                                && f.lastModified() < staleBefore;
+            }
+        });
+        if (stale != null)
+        {
+            for (File f : stale)
+                f.delete();
+        }
+    }
+
+    private static File getIndexFile(IQueryContext context)
+    {
+        return new File(context.getPrefix() + "index"); //$NON-NLS-1$
+    }
+
+    private static File getFile(IQueryContext context, String commandLine)
+    {
+        // collisions are detected by the command line stored in the file, the
+        // name matches the index files deleted when the dump is parsed again
+        return new File(context.getPrefix() + "result" + Integer.toHexString(commandLine.hashCode()) + ".index"); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+}
@@ -10,6 +10,7 @@
  *******************************************************************************/
 package org.eclipse.mat.query.results;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -26,13 +27,17 @@ import org.eclipse.mat.report.ITestResult;
  * if the CompositeResult is incorporated into an HTML report then each result appears 
  * as a separate HTML section.
  */
-public final class CompositeResult implements IResult
+public final class CompositeResult implements IResult, Serializable
 {
+    private static final long serialVersionUID = 1L;
+
     /**
      * An individual sub-result
      */
-    public static class Entry
+    public static class Entry implements Serializable
     {
+        private static final long serialVersionUID = 1L;
+
         String name;
         IResult result;
 
@@ -10,6 +10,9 @@
  *******************************************************************************/
 package org.eclipse.mat.query.results;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -29,10 +32,13 @@ import org.eclipse.mat.util.IProgressListener;
  * 
  * @noextend
  */
-public class TextResult implements IResult
+public class TextResult implements IResult, Serializable
 {
-    private ResultMetaData metaData;
-    private LinkedResults links;
+    private static final long serialVersionUID = 1L;
+
+    private transient ResultMetaData metaData;
+    private transient LinkedResults links;
+    private List<IResult> linkedResults;
     private boolean isHtml;
     private String text;
 
@@ -108,10 +114,8 @@ public class TextResult implements IResult
     {
         if (metaData == null)
         {
-            links = new LinkedResults();
-            metaData = new ResultMetaData.Builder() //
-                            .addDetailResult(links) //
-                            .build();
+            linkedResults = new ArrayList<IResult>();
+            createLinks();
         }
 
         StringBuilder buf = new StringBuilder();
@@ -128,13 +132,29 @@ public class TextResult implements IResult
     // internal
     // //////////////////////////////////////////////////////////////
 
+    private void createLinks()
+    {
+        links = new LinkedResults(linkedResults);
+        metaData = new ResultMetaData.Builder() //
+                        .addDetailResult(links) //
+                        .build();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+    {
+        in.defaultReadObject();
+        if (linkedResults != null)
+            createLinks();
+    }
+
     private static class LinkedResults extends DetailResultProvider
     {
-        private List<IResult> results = new ArrayList<IResult>();
+        private List<IResult> results;
 
-        public LinkedResults()
+        public LinkedResults(List<IResult> results)
         {
             super(Messages.TextResult_Label_Links);
+            this.results = results;
         }
 
         public String add(IResult result)
@@ -56,6 +56,17 @@ public interface Params
      */
     String FILENAME_SUFFIX = "filename_suffix";
 
+    /**
+     * Whether the query may run on a background thread at the same time as
+     * the other queries of its section, before the results are rendered in
+     * order. Set to "true" on a section or a query known to be thread-safe,
+     * and to "false" to exclude a query. If not given, queries run one after
+     * another unless the system property <code>report_parallel</code> is
+     * true. Like all parameters it applies to the nested specs, too.
+     * @since 1.7
+     */
+    String PARALLEL = "parallel";
+
     /**
      * Parameters specific to HTML reports.
      * @noimplement
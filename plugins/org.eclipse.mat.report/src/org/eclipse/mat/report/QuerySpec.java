@@ -20,6 +20,8 @@ import org.eclipse.mat.util.MessageUtil;
  */
 public class QuerySpec extends Spec
 {
+    private static final long serialVersionUID = 1L;
+
     private String command;
     private IResult result;
 
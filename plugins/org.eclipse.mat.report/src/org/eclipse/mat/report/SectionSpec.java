@@ -24,6 +24,8 @@ import org.eclipse.mat.util.MessageUtil;
  */
 public class SectionSpec extends Spec
 {
+    private static final long serialVersionUID = 1L;
+
     private ITestResult.Status status;
     private List<Spec> children = new ArrayList<Spec>();
 
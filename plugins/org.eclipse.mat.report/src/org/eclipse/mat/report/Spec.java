@@ -10,6 +10,7 @@
  *******************************************************************************/
 package org.eclipse.mat.report;
 
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -19,8 +20,10 @@ import org.eclipse.mat.query.ResultMetaData;
 /**
  * A container for combining results.
  */
-public class Spec implements IResult
+public class Spec implements IResult, Serializable
 {
+    private static final long serialVersionUID = 1L;
+
     private String name;
     private String template;
     private Map<String, String> params = new HashMap<String, String>();
@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.report.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.mat.query.IQueryContext;
+import org.eclipse.mat.util.IProgressListener;
+
+/**
+ * Runs the queries of a section on a bounded pool of threads ahead of
+ * rendering. The parts still render their results one after another in the
+ * order of the report, so the output is the same as when running the queries
+ * one after another.
+ * <p>
+ * At most one query per thread is submitted ahead of the part being rendered,
+ * so no more than that many results wait to be rendered. A part drops its
+ * result once rendered, then the next query is submitted. The threads belong
+ * to the section and are stopped once it is rendered, queries not yet
+ * rendered by then, for example because rendering failed, are cancelled.
+ * <p>
+ * Queries run in parallel only if the parameter
+ * {@link org.eclipse.mat.report.Params#PARALLEL} is true for them, or for their
+ * section. If the parameter is not given the system property
+ * {@link #PARALLEL_PROPERTY} decides.
+ */
+/* package */final class QueryExecutor
+{
+    /**
+     * System property which decides whether the queries of a report section
+     * run on several threads if the report does not say so. The default is
+     * <code>false</code>, as not every query is known to be thread-safe.
+     */
+    /* package */static final String PARALLEL_PROPERTY = "report_parallel"; //$NON-NLS-1$
+
+    private static final AtomicInteger threadNumber = new AtomicInteger();
+
+    private final ExecutorService executor;
+    private final int threads;
+    private final List<QueryPart> parts;
+    private final IQueryContext context;
+    private final IProgressListener listener;
+
+    /** index into parts of the next query to submit */
+    private int next;
+
+    private QueryExecutor(int threads, List<QueryPart> parts, IQueryContext context, IProgressListener listener)
+    {
+        this.threads = threads;
+        this.parts = parts;
+        this.context = context;
+        this.listener = new WorkerListener(listener);
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory()
+        {
+            public Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(r, "MAT report query " + threadNumber.incrementAndGet()); //$NON-NLS-1$
+                // do not keep a headless application alive
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * @return true if queries run on several threads unless the report says
+     *         otherwise
+     */
+    /* package */static boolean isParallelByDefault()
+    {
+        return Boolean.getBoolean(PARALLEL_PROPERTY);
+    }
+
+    /**
+     * Starts the first queries of the parts which may run in parallel, if
+     * there are at least two of them.
+     *
+     * @return the executor, to be told with {@link #submitAhead} when the
+     *         parts are rendered and to be shut down with {@link #shutdown},
+     *         or null if nothing was started
+     */
+    /* package */static QueryExecutor start(List<AbstractPart> children, IQueryContext context,
+                    IProgressListener listener)
+    {
+        List<QueryPart> parts = new ArrayList<QueryPart>();
+        for (AbstractPart part : children)
+        {
+            if (part instanceof QueryPart && ((QueryPart) part).isParallel())
+                parts.add((QueryPart) part);
+        }
+        if (parts.size() < 2)
+            return null;
+
+        int threads = Math.min(parts.size(), Runtime.getRuntime().availableProcessors());
+        QueryExecutor executor = new QueryExecutor(threads, parts, context, listener);
+        executor.submitAhead();
+        return executor;
+    }
+
+    /**
+     * Submits further queries once the results of earlier ones have been
+     * taken, keeping one query per thread ahead of rendering.
+     */
+    /* package */void submitAhead()
+    {
+        int pending = 0;
+        for (int ii = 0; ii < next; ii++)
+        {
+            if (parts.get(ii).isSubmitted())
+                pending++;
+        }
+
+        while (pending < threads && next < parts.size())
+        {
+            parts.get(next++).submit(executor, context, listener);
+            pending++;
+        }
+    }
+
+    /**
+     * Cancels the queries of the parts which have not been rendered and stops
+     * the threads.
+     */
+    /* package */void shutdown()
+    {
+        for (int ii = 0; ii < next; ii++)
+            parts.get(ii).cancel();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Passes on cancellation and messages only: the progress of queries
+     * running side by side would be meaningless.
+     */
+    private static final class WorkerListener implements IProgressListener
+    {
+        private final IProgressListener delegate;
+
+        WorkerListener(IProgressListener delegate)
+        {
+            this.delegate = delegate;
+        }
+
+        public void beginTask(String name, int totalWork)
+        {}
+
+        public void done()
+        {}
+
+        public boolean isCanceled()
+        {
+            return delegate.isCanceled();
+        }
+
+        public void sendUserMessage(Severity severity, String message, Throwable exception)
+        {
+            synchronized (delegate)
+            {
+                delegate.sendUserMessage(severity, message, exception);
+            }
+        }
+
+        public void setCanceled(boolean value)
+        {
+            delegate.setCanceled(value);
+        }
+
+        public void subTask(String name)
+        {}
+
+        public void worked(int work)
+        {}
+    }
+}
@@ -13,6 +13,10 @@ package org.eclipse.mat.report.internal;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -50,6 +54,9 @@ public class QueryPart extends AbstractPart
 {
     /* package */PartsFactory factory;
 
+    /** the result of the query if it was submitted to run in the background */
+    private Future<IResult> future;
+
     public QueryPart(String id, AbstractPart parent, DataFile artefact, QuerySpec spec)
     {
         super(id, parent, artefact, spec);
@@ -73,6 +80,69 @@ public class QueryPart extends AbstractPart
         return params().expand(spec().getCommand());
     }
 
+    /**
+     * @return true if the query may run before the part is rendered, at the
+     *         same time as other queries
+     */
+    /* package */boolean isParallel()
+    {
+        return spec().getResult() == null && getCommand() != null
+                        && params().getBoolean(Params.PARALLEL, QueryExecutor.isParallelByDefault());
+    }
+
+    /**
+     * @return true if the query was submitted and its result not yet taken
+     */
+    /* package */boolean isSubmitted()
+    {
+        return future != null;
+    }
+
+    /* package */void submit(ExecutorService executor, final IQueryContext context, final IProgressListener listener)
+    {
+        final String command = getCommand();
+        future = executor.submit(new Callable<IResult>()
+        {
+            public IResult call() throws Exception
+            {
+                return CommandLine.execute(context, command, listener);
+            }
+        });
+    }
+
+    /**
+     * Cancels the query if it was submitted and its result is not used.
+     */
+    /* package */void cancel()
+    {
+        if (future != null)
+        {
+            future.cancel(true);
+            future = null;
+        }
+    }
+
+    private IResult getSubmittedResult() throws Exception
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception)
+                throw (Exception) cause;
+            else if (cause instanceof Error)
+                throw (Error) cause;
+            throw e;
+        }
+        finally
+        {
+            future = null;
+        }
+    }
+
     @Override
     public AbstractPart execute(IQueryContext context, ResultRenderer renderer, IProgressListener listener)
                     throws SnapshotException, IOException
@@ -93,7 +163,10 @@ public class QueryPart extends AbstractPart
             {
                 try
                 {
-                    result = CommandLine.execute(context, getCommand(), new SilentProgressListener(listener));
+                    if (future != null)
+                        result = getSubmittedResult();
+                    else
+                        result = CommandLine.execute(context, getCommand(), new SilentProgressListener(listener));
                 }
                 catch (Exception e)
                 {
@@ -56,11 +56,22 @@ public class SectionPart extends AbstractPart
     {
         renderer.beginSection(this);
 
-        for (int ii = 0; ii < this.children.size(); ii++)
+        QueryExecutor executor = QueryExecutor.start(this.children, context, listener);
+        try
         {
-            AbstractPart part = this.children.get(ii).execute(context, renderer, listener);
-            this.status = Status.max(this.status, part.status);
-            this.children.set(ii, part);
+            for (int ii = 0; ii < this.children.size(); ii++)
+            {
+                if (executor != null)
+                    executor.submitAhead();
+                AbstractPart part = this.children.get(ii).execute(context, renderer, listener);
+                this.status = Status.max(this.status, part.status);
+                this.children.set(ii, part);
+            }
+        }
+        finally
+        {
+            if (executor != null)
+                executor.shutdown();
         }
 
         renderer.endSection(this);
@@ -24,16 +24,31 @@ import org.junit.runners.Suite.SuiteClasses;
                 org.eclipse.mat.tests.collect.PrimitiveMapTests.class, //
                 org.eclipse.mat.tests.collect.CommandTests.class, //
                 org.eclipse.mat.tests.collect.SortTest.class, //
+                org.eclipse.mat.tests.collect.AtomicBitFieldTest.class, //
                 org.eclipse.mat.tests.collect.ExtractCollectionEntriesTest.class, //
                 org.eclipse.mat.tests.collect.ExtractCollectionEntriesTest2.class, //
                 org.eclipse.mat.tests.parser.TestIndex.class, //
                 org.eclipse.mat.tests.parser.TestIndex1to1.class, //
+                org.eclipse.mat.tests.parser.InboundWriterTest.class, //
+                org.eclipse.mat.tests.parser.ObjectCacheTest.class, //
+                org.eclipse.mat.tests.parser.GZIPIndexTest.class, //
+                org.eclipse.mat.tests.parser.MappedRandomAccessInputStreamTest.class, //
+                org.eclipse.mat.tests.parser.IntArrayTest.class, //
+                org.eclipse.mat.tests.parser.RetainedSizeCacheTest.class, //
+                org.eclipse.mat.tests.parser.PhaseRecorderTest.class, //
                 org.eclipse.mat.tests.snapshot.DominatorTreeTest.class, //
+                org.eclipse.mat.tests.snapshot.ParallelParsingTest.class, //
                 org.eclipse.mat.tests.snapshot.TestUnreachableObjects.class, //
+                org.eclipse.mat.tests.snapshot.FastHistogramTest.class, //
                 org.eclipse.mat.tests.snapshot.GeneralSnapshotTests.class, //
                 org.eclipse.mat.tests.snapshot.TestInstanceSizes.class, //
                 org.eclipse.mat.tests.snapshot.QueryLookupTest.class, //
                 org.eclipse.mat.tests.snapshot.QueriesTest.class, //
+                org.eclipse.mat.tests.snapshot.ParallelReportTest.class, //
+                org.eclipse.mat.tests.snapshot.QueryServerTest.class, //
+                org.eclipse.mat.tests.snapshot.ResultCacheTest.class, //
+                org.eclipse.mat.tests.snapshot.SnapshotFactoryTest.class, //
+                org.eclipse.mat.tests.snapshot.SnapshotIndexFileTest.class, //
                 org.eclipse.mat.tests.snapshot.OQLTest.class, //
                 org.eclipse.mat.tests.snapshot.MultipleSnapshots.class, //
                 org.eclipse.mat.tests.acquire.AcquireDumpTest.class,
@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.collect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.mat.collect.AtomicBitField;
+import org.junit.Test;
+
+public class AtomicBitFieldTest
+{
+    private static final int SIZE = 100003;
+
+    /**
+     * Compare set, clear and the bulk iteration against java.util.BitSet
+     */
+    @Test
+    public void testAgainstBitSet()
+    {
+        Random r = new Random(1);
+        AtomicBitField field = new AtomicBitField(SIZE);
+        BitSet expected = new BitSet(SIZE);
+        for (int i = 0; i < SIZE / 2; ++i)
+        {
+            int index = r.nextInt(SIZE);
+            if (r.nextInt(4) == 0)
+            {
+                field.clear(index);
+                expected.clear(index);
+            }
+            else
+            {
+                assertEquals("Previous value", expected.get(index), field.getAndSet(index)); //$NON-NLS-1$
+                expected.set(index);
+            }
+        }
+
+        assertEquals("Cardinality", expected.cardinality(), field.cardinality()); //$NON-NLS-1$
+        for (int i = 0; i < SIZE; ++i)
+            assertEquals("Bit " + i, expected.get(i), field.get(i)); //$NON-NLS-1$
+
+        int count = 0;
+        for (int i = field.nextSetBit(0); i >= 0; i = field.nextSetBit(i + 1), ++count)
+            assertEquals("Next set bit", expected.nextSetBit(i), i); //$NON-NLS-1$
+        assertEquals("Set bits", expected.cardinality(), count); //$NON-NLS-1$
+
+        count = 0;
+        for (int i = field.nextClearBit(0); i >= 0; i = field.nextClearBit(i + 1), ++count)
+            assertEquals("Next clear bit", expected.nextClearBit(i), i); //$NON-NLS-1$
+        assertEquals("Clear bits", SIZE - expected.cardinality(), count); //$NON-NLS-1$
+
+        AtomicBitField copy = new AtomicBitField(field);
+        assertEquals("Copy size", SIZE, copy.size()); //$NON-NLS-1$
+        assertEquals("Copy cardinality", field.cardinality(), copy.cardinality()); //$NON-NLS-1$
+    }
+
+    /**
+     * Bits beyond the size are never returned
+     */
+    @Test
+    public void testBounds()
+    {
+        AtomicBitField field = new AtomicBitField(33);
+        assertEquals(0, field.nextClearBit(0));
+        assertEquals(-1, field.nextSetBit(0));
+        for (int i = 0; i < 33; ++i)
+            field.set(i);
+        assertEquals(-1, field.nextClearBit(0));
+        assertEquals(32, field.nextSetBit(32));
+        assertEquals(-1, field.nextSetBit(33));
+        assertEquals(33, field.cardinality());
+    }
+
+    /**
+     * Several threads setting the same bits - exactly one wins each bit
+     */
+    @Test
+    public void testConcurrentGetAndSet() throws InterruptedException
+    {
+        final AtomicBitField field = new AtomicBitField(SIZE);
+        final AtomicInteger won = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; ++t)
+        {
+            final int start = t;
+            threads[t] = new Thread() {
+                public void run()
+                {
+                    for (int i = 0; i < SIZE; ++i)
+                    {
+                        if (!field.getAndSet((i + start * 7919) % SIZE))
+                            won.incrementAndGet();
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread t : threads)
+            t.join();
+
+        assertEquals("Each bit set once", SIZE, won.get()); //$NON-NLS-1$
+        assertEquals(SIZE, field.cardinality());
+        assertTrue(field.get(SIZE - 1));
+        assertFalse(field.nextClearBit(0) >= 0);
+    }
+}
@@ -0,0 +1,287 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.parser;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.eclipse.mat.parser.io.GZIPIndex;
+import org.eclipse.mat.parser.io.SeekableGZIPInputStream;
+import org.eclipse.mat.util.VoidProgressListener;
+import org.junit.After;
+import org.junit.Test;
+
+public class GZIPIndexTest
+{
+    /** enough for several checkpoints */
+    private static final int LENGTH = (int) (5 * GZIPIndex.SPAN + 12345);
+
+    private final List<File> files = new ArrayList<File>();
+
+    @After
+    public void deleteFiles()
+    {
+        for (File file : files)
+            file.delete();
+    }
+
+    /**
+     * Reading through the indexing stream gives the uncompressed content, for
+     * stored, fixed and dynamic Huffman blocks.
+     */
+    @Test
+    public void testRoundTrip() throws IOException
+    {
+        byte[] data = data(LENGTH, 1);
+        int[] levels = { Deflater.NO_COMPRESSION, Deflater.BEST_SPEED, Deflater.DEFAULT_COMPRESSION };
+        for (int level : levels)
+        {
+            File file = gzip(level, data);
+            File indexFile = tempFile();
+            GZIPIndex.IndexingInputStream in = new GZIPIndex.IndexingInputStream(file, indexFile);
+            GZIPIndex index;
+            try
+            {
+                assertArrayEquals("Level " + level, data, readAll(in));
+                assertEquals(file.length(), in.filePosition());
+                index = in.finish();
+            }
+            finally
+            {
+                in.close();
+            }
+            assertEquals(data.length, index.length());
+            assertTrue(indexFile.isFile());
+            index.close();
+        }
+    }
+
+    /**
+     * Seeking backwards and forwards restarts at the checkpoints, also with
+     * the checkpoints read back from the index file.
+     */
+    @Test
+    public void testSeekAcrossCheckpoints() throws IOException
+    {
+        byte[] data = data(LENGTH, 2);
+        File file = gzip(Deflater.DEFAULT_COMPRESSION, data);
+        File indexFile = tempFile();
+        GZIPIndex.create(file, indexFile, new VoidProgressListener()).close();
+
+        GZIPIndex index = GZIPIndex.read(indexFile);
+        try
+        {
+            assertEquals(data.length, index.length());
+            checkSeeks(file, index, data, 3);
+        }
+        finally
+        {
+            index.close();
+        }
+    }
+
+    /**
+     * Concatenated gzip members read as one stream.
+     */
+    @Test
+    public void testMultiMember() throws IOException
+    {
+        byte[] first = data(LENGTH / 2, 4);
+        byte[] second = data(LENGTH / 3, 5);
+        File file = gzip(Deflater.BEST_SPEED, first, second);
+
+        byte[] data = new byte[first.length + second.length];
+        System.arraycopy(first, 0, data, 0, first.length);
+        System.arraycopy(second, 0, data, first.length, second.length);
+
+        GZIPIndex index = GZIPIndex.create(file, tempFile(), new VoidProgressListener());
+        try
+        {
+            assertEquals(data.length, index.length());
+            checkSeeks(file, index, data, 6);
+        }
+        finally
+        {
+            index.close();
+        }
+    }
+
+    /**
+     * A truncated file fails and leaves no index file behind.
+     */
+    @Test
+    public void testTruncated() throws IOException
+    {
+        byte[] data = data(LENGTH, 7);
+        File complete = gzip(Deflater.DEFAULT_COMPRESSION, data);
+        InputStream in = new FileInputStream(complete);
+        byte[] compressed;
+        try
+        {
+            compressed = readAll(in);
+        }
+        finally
+        {
+            in.close();
+        }
+
+        File file = tempFile();
+        OutputStream out = new FileOutputStream(file);
+        try
+        {
+            out.write(compressed, 0, compressed.length / 2);
+        }
+        finally
+        {
+            out.close();
+        }
+
+        File indexFile = tempFile();
+        try
+        {
+            GZIPIndex.create(file, indexFile, new VoidProgressListener());
+            fail("Truncated file read");
+        }
+        catch (EOFException expected)
+        {
+            // $JL-EXC$
+        }
+        assertFalse(indexFile.exists());
+    }
+
+    private void checkSeeks(File file, GZIPIndex index, byte[] data, long seed) throws IOException
+    {
+        SeekableGZIPInputStream in = new SeekableGZIPInputStream(file, index);
+        try
+        {
+            assertEquals(data.length, in.length());
+            Random random = new Random(seed);
+            byte[] buffer = new byte[100];
+            for (int ii = 0; ii < 50; ii++)
+            {
+                // alternate far jumps with short skips ahead
+                long pos;
+                if (ii % 2 == 0)
+                    pos = random.nextInt(data.length - buffer.length);
+                else
+                    pos = Math.min(in.getFilePointer() + random.nextInt(1000), data.length - buffer.length);
+                in.seek(pos);
+                assertEquals(pos, in.getFilePointer());
+                readFully(in, buffer);
+                for (int jj = 0; jj < buffer.length; jj++)
+                    assertEquals("Position " + (pos + jj), data[(int) pos + jj], buffer[jj]);
+            }
+
+            in.seek(data.length - 1);
+            assertEquals(data[data.length - 1] & 0xff, in.read());
+            assertEquals(-1, in.read());
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /** a mix of text-like and random bytes */
+    private static byte[] data(int length, long seed)
+    {
+        Random random = new Random(seed);
+        byte[] data = new byte[length];
+        String[] words = { "java.lang.String", "char[]", "java.util.HashMap$Entry", "0x7f001234", "\n" };
+        int ii = 0;
+        while (ii < length)
+        {
+            if (random.nextInt(8) == 0)
+            {
+                data[ii++] = (byte) random.nextInt(256);
+            }
+            else
+            {
+                byte[] word = words[random.nextInt(words.length)].getBytes();
+                for (int jj = 0; jj < word.length && ii < length; jj++)
+                    data[ii++] = word[jj];
+            }
+        }
+        return data;
+    }
+
+    private File gzip(int level, byte[]... members) throws IOException
+    {
+        File file = tempFile();
+        OutputStream out = new FileOutputStream(file);
+        try
+        {
+            for (byte[] member : members)
+            {
+                final int l = level;
+                GZIPOutputStream gzip = new GZIPOutputStream(out)
+                {
+                    {
+                        def.setLevel(l);
+                    }
+                };
+                gzip.write(member);
+                gzip.finish();
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+        return file;
+    }
+
+    private File tempFile() throws IOException
+    {
+        File file = File.createTempFile("gzipindex", null); //$NON-NLS-1$
+        files.add(file);
+        return file;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer, 0, buffer.length)) > 0)
+            out.write(buffer, 0, n);
+        return out.toByteArray();
+    }
+
+    private static void readFully(InputStream in, byte[] buffer) throws IOException
+    {
+        int off = 0;
+        while (off < buffer.length)
+        {
+            int n = in.read(buffer, off, buffer.length - off);
+            if (n < 0)
+                throw new EOFException();
+            off += n;
+        }
+    }
+}
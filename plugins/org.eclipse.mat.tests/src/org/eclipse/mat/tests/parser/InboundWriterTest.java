@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.parser;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.eclipse.mat.parser.index.IIndexReader.IOne2ManyObjectsIndex;
+import org.eclipse.mat.parser.index.IndexWriter;
+import org.eclipse.mat.parser.index.IndexWriter.KeyWriter;
+import org.eclipse.mat.util.VoidProgressListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Builds the inbound index from runs so small that many run files are merged
+ * in several passes, and compares it with the index built from one run in
+ * memory.
+ */
+public class InboundWriterTest
+{
+    private static final int NUMBER_OF_OBJECTS = 3000;
+
+    /** [object, reference, 1 if pseudo] in random order */
+    private List<int[]> references;
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        directory = File.createTempFile("inbound", ""); //$NON-NLS-1$ //$NON-NLS-2$
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdir());
+
+        Random random = new Random(1);
+        references = new ArrayList<int[]>();
+        for (int objectIndex = 0; objectIndex < NUMBER_OF_OBJECTS; objectIndex++)
+        {
+            // some objects without references, some with many
+            int count = objectIndex % 10 == 0 ? 0 : random.nextInt(objectIndex % 97 == 1 ? 500 : 12);
+            for (int ii = 0; ii < count; ii++)
+            {
+                int ref = random.nextInt(NUMBER_OF_OBJECTS);
+                boolean isPseudo = ii == 0 && objectIndex % 3 == 0;
+                references.add(new int[] { objectIndex, ref, isPseudo ? 1 : 0 });
+                // duplicates are written once
+                if (ii % 5 == 4)
+                    references.add(new int[] { objectIndex, ref, 0 });
+            }
+        }
+        Collections.shuffle(references, random);
+    }
+
+    @After
+    public void tearDown()
+    {
+        File[] files = directory.listFiles();
+        if (files != null)
+        {
+            for (File file : files)
+                file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testMultiRunMergeSameAsInMemory() throws IOException
+    {
+        Result expected = write("memory", new IndexWriter.InboundWriter(NUMBER_OF_OBJECTS, //$NON-NLS-1$
+                        new File(directory, "memory.index"))); //$NON-NLS-1$
+
+        // tens of runs, merged in one pass
+        check(expected, write("runs", new IndexWriter.InboundWriter(NUMBER_OF_OBJECTS, //$NON-NLS-1$
+                        new File(directory, "runs.index"), 1000, 64))); //$NON-NLS-1$
+        // hundreds of runs, merged in several passes
+        check(expected, write("passes", new IndexWriter.InboundWriter(NUMBER_OF_OBJECTS, //$NON-NLS-1$
+                        new File(directory, "passes.index"), 37, 3))); //$NON-NLS-1$
+        // a few references per run, merged two at a time
+        check(expected, write("pairs", new IndexWriter.InboundWriter(NUMBER_OF_OBJECTS, //$NON-NLS-1$
+                        new File(directory, "pairs.index"), 5, 2))); //$NON-NLS-1$
+    }
+
+    private void check(Result expected, Result result)
+    {
+        assertEquals(expected.keys, result.keys);
+        for (int objectIndex = 0; objectIndex < NUMBER_OF_OBJECTS; objectIndex++)
+            assertArrayEquals(String.valueOf(objectIndex), expected.inbounds[objectIndex], result.inbounds[objectIndex]);
+        assertArrayEquals(expected.file, result.file);
+    }
+
+    private Result write(String name, IndexWriter.InboundWriter writer) throws IOException
+    {
+        for (int[] reference : references)
+            writer.log(reference[0], reference[1], reference[2] == 1);
+
+        final Map<Integer, String> keys = new TreeMap<Integer, String>();
+        IOne2ManyObjectsIndex index = writer.flush(new VoidProgressListener(), new KeyWriter()
+        {
+            public void storeKey(int index, Serializable key)
+            {
+                keys.put(index, key instanceof int[] ? Arrays.toString((int[]) key) : Arrays
+                                .toString((long[]) key));
+            }
+        });
+
+        Result result = new Result();
+        result.keys = keys;
+        try
+        {
+            result.inbounds = new int[NUMBER_OF_OBJECTS][];
+            for (int objectIndex = 0; objectIndex < NUMBER_OF_OBJECTS; objectIndex++)
+                result.inbounds[objectIndex] = index.get(objectIndex);
+        }
+        finally
+        {
+            index.close();
+        }
+        result.file = read(writer.getIndexFile());
+
+        // only the index file is left
+        for (String file : directory.list())
+            assertTrue(file, !file.startsWith(name) || file.equals(name + ".index")); //$NON-NLS-1$
+        return result;
+    }
+
+    private static byte[] read(File file) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InputStream in = new FileInputStream(file);
+        try
+        {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) > 0)
+                out.write(buffer, 0, n);
+        }
+        finally
+        {
+            in.close();
+        }
+        return out.toByteArray();
+    }
+
+    private static class Result
+    {
+        Map<Integer, String> keys;
+        int[][] inbounds;
+        byte[] file;
+    }
+}
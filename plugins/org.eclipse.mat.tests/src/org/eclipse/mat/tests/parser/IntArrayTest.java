@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.parser;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.eclipse.mat.parser.internal.util.IntArray;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * The working arrays on the heap and in memory-mapped files, the latter mapped
+ * in small segments so that the values span several of them.
+ */
+public class IntArrayTest
+{
+    /** segments of 1024 entries */
+    private static final int SEGMENT_BITS = 10;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+
+    private static final int[] LENGTHS = { 0, 1, SEGMENT_SIZE - 1, SEGMENT_SIZE, SEGMENT_SIZE + 1,
+                    5 * SEGMENT_SIZE + 17 };
+
+    private String oldProperty;
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        oldProperty = System.getProperty(IntArray.MAPPED_PROPERTY);
+        directory = File.createTempFile("intarray", ""); //$NON-NLS-1$ //$NON-NLS-2$
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdir());
+    }
+
+    @After
+    public void tearDown()
+    {
+        if (oldProperty == null)
+            System.clearProperty(IntArray.MAPPED_PROPERTY);
+        else
+            System.setProperty(IntArray.MAPPED_PROPERTY, oldProperty);
+
+        File[] files = directory.listFiles();
+        if (files != null)
+        {
+            for (File file : files)
+                file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testHeap() throws IOException
+    {
+        System.setProperty(IntArray.MAPPED_PROPERTY, Boolean.FALSE.toString());
+        for (int length : LENGTHS)
+        {
+            IntArray array = IntArray.create(length, directory);
+            assertEquals(0, directory.list().length);
+            check(array, length);
+
+            // the values are on the heap already
+            assertSame(array.toArray(), array.toArray());
+            array.close();
+        }
+    }
+
+    /**
+     * Values set and read across the segments of the file, which has the
+     * size of the array and is deleted on close.
+     */
+    @Test
+    public void testMapped() throws IOException
+    {
+        for (int length : LENGTHS)
+        {
+            IntArray array = IntArray.createMapped(length, directory, SEGMENT_BITS);
+            File[] files = directory.listFiles();
+            assertEquals(1, files.length);
+            assertEquals(4L * length, files[0].length());
+
+            check(array, length);
+
+            array.close();
+            assertEquals(0, directory.list().length);
+        }
+    }
+
+    /**
+     * The system property selects the mapped array, with segments of the
+     * default size.
+     */
+    @Test
+    public void testMappedProperty() throws IOException
+    {
+        System.setProperty(IntArray.MAPPED_PROPERTY, Boolean.TRUE.toString());
+        IntArray array = IntArray.create(3 * SEGMENT_SIZE, directory);
+        assertEquals(1, directory.list().length);
+        check(array, 3 * SEGMENT_SIZE);
+        array.close();
+        assertEquals(0, directory.list().length);
+    }
+
+    /**
+     * Sets and reads values at the segment boundaries and at random, fills
+     * the array and copies it to the heap.
+     */
+    private static void check(IntArray array, int length)
+    {
+        assertEquals(length, array.length());
+
+        int[] expected = new int[length];
+        assertArrayEquals(expected, array.toArray());
+
+        for (int edge = 0; edge <= length; edge += SEGMENT_SIZE)
+        {
+            for (int index = edge - 2; index <= edge + 1; index++)
+            {
+                if (index >= 0 && index < length)
+                {
+                    expected[index] = ~index;
+                    array.set(index, ~index);
+                }
+            }
+        }
+        if (length > 0)
+        {
+            expected[length - 1] = Integer.MIN_VALUE;
+            array.set(length - 1, Integer.MIN_VALUE);
+        }
+
+        Random random = new Random(length);
+        for (int ii = 0; ii < length; ii++)
+        {
+            int index = random.nextInt(length);
+            int value = random.nextInt();
+            expected[index] = value;
+            array.set(index, value);
+        }
+
+        for (int index = 0; index < length; index++)
+            assertEquals(expected[index], array.get(index));
+        assertArrayEquals(expected, array.toArray());
+
+        array.fill(-1);
+        for (int index = 0; index < length; index++)
+            assertEquals(-1, array.get(index));
+        int[] filled = array.toArray();
+        assertEquals(length, filled.length);
+        for (int value : filled)
+            assertEquals(-1, value);
+    }
+}
@@ -0,0 +1,328 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.parser;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.mat.parser.io.BufferedRandomAccessInputStream;
+import org.eclipse.mat.parser.io.MappedRandomAccessInputStream;
+import org.eclipse.mat.parser.io.PositionInputStream;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Reads a file mapped in small regions and compares it with reading the
+ * file through {@link BufferedRandomAccessInputStream}.
+ */
+public class MappedRandomAccessInputStreamTest
+{
+    /** regions of 4KB */
+    private static final int REGION_BITS = 12;
+    private static final int REGION_SIZE = 1 << REGION_BITS;
+
+    /** several regions, the last one partly filled */
+    private static final int LENGTH = 5 * REGION_SIZE + 123;
+
+    private final List<File> files = new ArrayList<File>();
+    private final List<RandomAccessFile> opened = new ArrayList<RandomAccessFile>();
+
+    @After
+    public void tearDown() throws IOException
+    {
+        for (RandomAccessFile raf : opened)
+            raf.close();
+        for (File file : files)
+            file.delete();
+    }
+
+    /**
+     * Reads of various sizes, many of them spanning regions, give the same
+     * bytes as the buffered stream.
+     */
+    @Test
+    public void testSequentialReads() throws IOException
+    {
+        File file = createFile(LENGTH);
+        for (int size : new int[] { 1, 7, 100, REGION_SIZE - 1, REGION_SIZE, REGION_SIZE + 1, 3 * REGION_SIZE })
+        {
+            PositionInputStream expected = buffered(file);
+            PositionInputStream mapped = mapped(file);
+
+            byte[] a = new byte[size];
+            byte[] b = new byte[size];
+            int n;
+            do
+            {
+                n = expected.read(a, 0, size);
+                assertEquals(n, readAll(mapped, b, size));
+                assertArrayEquals(a, b);
+            }
+            while (n > 0);
+            assertEquals(-1, mapped.read());
+            assertEquals(LENGTH, mapped.position());
+
+            expected.close();
+            mapped.close();
+        }
+    }
+
+    /**
+     * Seeks to the start and end of each region, and to the end of the file,
+     * followed by reading fully and reading numbers spanning the regions.
+     */
+    @Test
+    public void testSeekAndReadFullyAtEdges() throws IOException
+    {
+        File file = createFile(LENGTH);
+        PositionInputStream expected = buffered(file);
+        PositionInputStream mapped = mapped(file);
+
+        List<Long> positions = new ArrayList<Long>();
+        for (long edge = 0; edge <= LENGTH; edge += REGION_SIZE)
+        {
+            for (long pos = edge - 9; pos <= edge + 1; pos++)
+            {
+                if (pos >= 0)
+                    positions.add(pos);
+            }
+        }
+        for (long pos = LENGTH - 9; pos <= LENGTH; pos++)
+            positions.add(pos);
+
+        for (long pos : positions)
+        {
+            int len = (int) Math.min(20, LENGTH - pos);
+
+            expected.seek(pos);
+            mapped.seek(pos);
+            byte[] a = new byte[len];
+            byte[] b = new byte[len];
+            expected.readFully(a);
+            mapped.readFully(b);
+            assertArrayEquals("at " + pos, a, b); //$NON-NLS-1$
+            assertEquals(pos + len, mapped.position());
+
+            if (LENGTH - pos >= 8)
+            {
+                expected.seek(pos);
+                mapped.seek(pos);
+                assertEquals("at " + pos, expected.readLong(), mapped.readLong()); //$NON-NLS-1$
+                expected.seek(pos);
+                mapped.seek(pos);
+                assertEquals("at " + pos, expected.readInt(), mapped.readInt()); //$NON-NLS-1$
+            }
+            else
+            {
+                mapped.seek(pos);
+                try
+                {
+                    mapped.readLong();
+                    fail("read past the end at " + pos); //$NON-NLS-1$
+                }
+                catch (EOFException expectedEnd)
+                {
+                    // $JL-EXC$
+                }
+            }
+        }
+
+        expected.close();
+        mapped.close();
+    }
+
+    /**
+     * Files which are a multiple of the region size, smaller than one region,
+     * or empty.
+     */
+    @Test
+    public void testFileSizes() throws IOException
+    {
+        for (int length : new int[] { 0, 1, REGION_SIZE - 1, REGION_SIZE, REGION_SIZE + 1, 4 * REGION_SIZE })
+        {
+            File file = createFile(length);
+            PositionInputStream expected = buffered(file);
+            PositionInputStream mapped = mapped(file);
+
+            byte[] a = new byte[length];
+            byte[] b = new byte[length];
+            expected.readFully(a);
+            mapped.readFully(b);
+            assertArrayEquals(a, b);
+            assertEquals(-1, mapped.read());
+            assertEquals(-1, mapped.read(b, 0, 1));
+
+            expected.close();
+            mapped.close();
+        }
+    }
+
+    /**
+     * Copies start at the position of the original, read independently of
+     * it, and are not affected by closing other copies.
+     */
+    @Test
+    public void testCopy() throws IOException
+    {
+        File file = createFile(LENGTH);
+        byte[] content = new byte[LENGTH];
+        PositionInputStream expected = buffered(file);
+        expected.readFully(content);
+        expected.close();
+
+        RandomAccessFile raf = new RandomAccessFile(file, "r"); //$NON-NLS-1$
+        opened.add(raf);
+        MappedRandomAccessInputStream original = new MappedRandomAccessInputStream(raf, REGION_BITS);
+        original.seek(REGION_SIZE - 2);
+
+        MappedRandomAccessInputStream copy = original.copy();
+        assertEquals(REGION_SIZE - 2, copy.getFilePointer());
+
+        assertEquals(content[REGION_SIZE - 2] & 0xff, original.read());
+        assertEquals(REGION_SIZE - 1, original.getFilePointer());
+        assertEquals(REGION_SIZE - 2, copy.getFilePointer());
+
+        byte[] b = new byte[REGION_SIZE];
+        assertEquals(b.length, copy.read(b, 0, b.length));
+        for (int ii = 0; ii < b.length; ii++)
+            assertEquals(content[REGION_SIZE - 2 + ii], b[ii]);
+
+        copy.seek(LENGTH - 1);
+        assertEquals(content[LENGTH - 1] & 0xff, copy.read());
+        assertEquals(-1, copy.read());
+        assertEquals(REGION_SIZE - 1, original.getFilePointer());
+
+        MappedRandomAccessInputStream other = original.copy();
+        copy.close();
+        assertEquals(content[REGION_SIZE - 1] & 0xff, original.read());
+        assertEquals(content[REGION_SIZE - 1] & 0xff, other.read());
+
+        original.close();
+    }
+
+    /**
+     * Closing the stream which mapped the file drops the regions from it and
+     * from all its copies.
+     */
+    @Test
+    public void testCloseReleasesRegions() throws IOException
+    {
+        File file = createFile(LENGTH);
+        RandomAccessFile raf = new RandomAccessFile(file, "r"); //$NON-NLS-1$
+        opened.add(raf);
+        MappedRandomAccessInputStream original = new MappedRandomAccessInputStream(raf, REGION_BITS);
+        MappedRandomAccessInputStream copy = original.copy();
+        assertEquals(10, copy.read(new byte[10], 0, 10));
+
+        original.close();
+
+        assertClosed(original);
+        assertClosed(copy);
+        assertClosed(copy.copy());
+
+        // the file itself is closed, too
+        try
+        {
+            raf.length();
+            fail("file not closed"); //$NON-NLS-1$
+        }
+        catch (IOException expected)
+        {
+            // $JL-EXC$
+        }
+    }
+
+    private static void assertClosed(MappedRandomAccessInputStream stream)
+    {
+        for (long pos : new long[] { 0, REGION_SIZE, LENGTH - 1 })
+        {
+            try
+            {
+                stream.seek(pos);
+                stream.read();
+                fail("read after close at " + pos); //$NON-NLS-1$
+            }
+            catch (IOException expected)
+            {
+                // $JL-EXC$
+            }
+            try
+            {
+                stream.read(new byte[2], 0, 2);
+                fail("read after close at " + pos); //$NON-NLS-1$
+            }
+            catch (IOException expected)
+            {
+                // $JL-EXC$
+            }
+        }
+    }
+
+    /**
+     * Reads until the buffer is full or the end is reached, as the buffered
+     * stream does.
+     */
+    private static int readAll(PositionInputStream in, byte[] b, int len) throws IOException
+    {
+        int copied = 0;
+        while (copied < len)
+        {
+            int n = in.read(b, copied, len - copied);
+            if (n < 0)
+                return copied == 0 ? -1 : copied;
+            copied += n;
+        }
+        return copied;
+    }
+
+    private PositionInputStream buffered(File file) throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile(file, "r"); //$NON-NLS-1$
+        opened.add(raf);
+        return new PositionInputStream(new BufferedRandomAccessInputStream(raf, 512));
+    }
+
+    private PositionInputStream mapped(File file) throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile(file, "r"); //$NON-NLS-1$
+        opened.add(raf);
+        return new PositionInputStream(new MappedRandomAccessInputStream(raf, REGION_BITS));
+    }
+
+    private File createFile(int length) throws IOException
+    {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+
+        File file = File.createTempFile("mapped", ".bin"); //$NON-NLS-1$ //$NON-NLS-2$
+        files.add(file);
+        FileOutputStream out = new FileOutputStream(file);
+        try
+        {
+            out.write(data);
+        }
+        finally
+        {
+            out.close();
+        }
+        return file;
+    }
+}
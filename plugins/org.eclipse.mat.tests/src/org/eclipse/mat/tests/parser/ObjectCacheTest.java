@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.mat.parser.internal.snapshot.ObjectCache;
+import org.junit.Test;
+
+public class ObjectCacheTest
+{
+    private static final int THREADS = 8;
+    private static final int LOOKUPS = 20000;
+    private static final int KEYS = 5000;
+    private static final int MAX_MEMORY = 1000;
+
+    private static final class Value
+    {
+        final int key;
+
+        Value(int key)
+        {
+            this.key = key;
+        }
+    }
+
+    private static class CountingCache extends ObjectCache<Value>
+    {
+        final AtomicInteger loads = new AtomicInteger();
+
+        CountingCache(long maxMemory)
+        {
+            super(maxMemory);
+        }
+
+        @Override
+        protected Value load(int key)
+        {
+            loads.incrementAndGet();
+            return new Value(key);
+        }
+    }
+
+    /**
+     * Many threads looking up overlapping keys get the object of the key they
+     * asked for, the statistics add up and the memory limit holds.
+     */
+    @Test
+    public void testConcurrentLookups() throws Exception
+    {
+        final CountingCache cache = new CountingCache(MAX_MEMORY);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try
+        {
+            List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+            for (int t = 0; t < THREADS; t++)
+            {
+                final long seed = t;
+                futures.add(executor.submit(new Callable<Integer>()
+                {
+                    public Integer call()
+                    {
+                        Random r = new Random(seed);
+                        int wrong = 0;
+                        for (int ii = 0; ii < LOOKUPS; ii++)
+                        {
+                            // mostly a hot set, so that there are hits and evictions
+                            int key = r.nextInt(4) == 0 ? r.nextInt(KEYS) : r.nextInt(KEYS / 20);
+                            if (cache.get(key).key != key)
+                                wrong++;
+                        }
+                        return wrong;
+                    }
+                }));
+            }
+
+            for (Future<Integer> future : futures)
+                assertEquals("Objects for the wrong key", 0, future.get().intValue());
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        long lookups = (long) THREADS * LOOKUPS;
+        assertEquals("Hits and misses", lookups, cache.getHits() + cache.getMisses());
+        assertEquals("Loads", cache.getMisses(), cache.loads.get());
+        assertTrue("Hits " + cache.getHits(), cache.getHits() > 0);
+        assertTrue("Evictions " + cache.getEvictions(), cache.getEvictions() > 0);
+        // each segment keeps at least one object
+        assertTrue("Memory " + cache.getMemory(), cache.getMemory() <= MAX_MEMORY + 4 * Runtime.getRuntime()
+                        .availableProcessors() * 2);
+    }
+
+    /**
+     * Threads which miss on the same object at the same time all get the
+     * object inserted first.
+     */
+    @Test
+    public void testConcurrentMissesReturnSameObject() throws Exception
+    {
+        final CountDownLatch loading = new CountDownLatch(THREADS);
+        final ObjectCache<Value> cache = new ObjectCache<Value>(MAX_MEMORY)
+        {
+            @Override
+            protected Value load(int key)
+            {
+                // all threads load before any of them inserts
+                loading.countDown();
+                try
+                {
+                    loading.await();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                return new Value(key);
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try
+        {
+            List<Future<Value>> futures = new ArrayList<Future<Value>>();
+            for (int t = 0; t < THREADS; t++)
+            {
+                futures.add(executor.submit(new Callable<Value>()
+                {
+                    public Value call()
+                    {
+                        return cache.get(42);
+                    }
+                }));
+            }
+
+            Value first = futures.get(0).get();
+            for (Future<Value> future : futures)
+                assertSame(first, future.get());
+            assertSame(first, cache.get(42));
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testClear()
+    {
+        CountingCache cache = new CountingCache(MAX_MEMORY);
+        Value value = cache.get(1);
+        assertSame(value, cache.get(1));
+        cache.clear();
+        assertEquals(0, cache.getMemory());
+        assertTrue(value != cache.get(1));
+        assertEquals(2, cache.loads.get());
+    }
+}
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.mat.parser.index.IIndexReader;
+import org.eclipse.mat.parser.index.IndexWriter;
+import org.eclipse.mat.parser.internal.util.PhaseRecorder;
+import org.eclipse.mat.parser.model.XSnapshotInfo;
+import org.eclipse.mat.snapshot.PhaseStatistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PhaseRecorderTest
+{
+    private File directory;
+
+    @Before
+    public void createDirectory() throws IOException
+    {
+        directory = File.createTempFile("phases", null); //$NON-NLS-1$
+        directory.delete();
+        directory.mkdir();
+    }
+
+    @After
+    public void deleteDirectory()
+    {
+        File[] files = directory.listFiles();
+        if (files != null)
+        {
+            for (File file : files)
+                file.delete();
+        }
+        directory.delete();
+    }
+
+    /**
+     * The bytes written by the index writers are counted, deleting index
+     * files during the phase does not make the count negative.
+     */
+    @Test
+    public void testBytesWritten() throws IOException
+    {
+        File old = new File(directory, "dump.old.index"); //$NON-NLS-1$
+        writeIndex(old, 100000).close();
+
+        PhaseRecorder recorder = new PhaseRecorder();
+        recorder.begin(PhaseStatistics.PARSE);
+        File file = new File(directory, "dump.new.index"); //$NON-NLS-1$
+        writeIndex(file, 10000).close();
+        old.delete();
+        PhaseStatistics phase = recorder.end(10000, 0, 0);
+
+        assertEquals(file.length(), phase.getBytesWritten());
+    }
+
+    /**
+     * The peak heap covers memory allocated during the phase, and the peak
+     * usage of the memory pools is left alone for other observers.
+     */
+    @Test
+    public void testPeakHeap() throws InterruptedException
+    {
+        List<MemoryPoolMXBean> pools = new ArrayList<MemoryPoolMXBean>();
+        List<Long> peaks = new ArrayList<Long>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid() && pool.getPeakUsage() != null)
+            {
+                pools.add(pool);
+                peaks.add(pool.getPeakUsage().getUsed());
+            }
+        }
+
+        PhaseRecorder recorder = new PhaseRecorder();
+        recorder.begin(PhaseStatistics.DOMINATOR_TREE);
+        byte[] allocated = new byte[16 * 1024 * 1024];
+        Thread.sleep(200);
+        PhaseStatistics phase = recorder.end(0, 0, 0);
+
+        assertTrue("Peak heap " + phase.getPeakHeap(), phase.getPeakHeap() >= allocated.length);
+        for (int ii = 0; ii < pools.size(); ii++)
+        {
+            assertTrue(pools.get(ii).getName(), pools.get(ii).getPeakUsage().getUsed() >= peaks.get(ii));
+        }
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException
+    {
+        PhaseRecorder recorder = new PhaseRecorder();
+        recorder.begin(PhaseStatistics.PARSE);
+        recorder.end(1, 2, 3);
+        recorder.begin(PhaseStatistics.GARBAGE_CLEANER);
+        recorder.cancel();
+
+        XSnapshotInfo info = new XSnapshotInfo();
+        info.setPrefix(new File(directory, "dump.").getPath()); //$NON-NLS-1$
+        recorder.write(info);
+
+        XSnapshotInfo reread = new XSnapshotInfo();
+        reread.setPrefix(info.getPrefix());
+        PhaseRecorder.read(reread);
+        PhaseStatistics[] phases = (PhaseStatistics[]) reread.getProperty(PhaseStatistics.PROPERTY);
+        assertEquals(1, phases.length);
+        assertEquals(PhaseStatistics.PARSE, phases[0].getName());
+        assertEquals(3, phases[0].getBytesRead());
+    }
+
+    private static IIndexReader writeIndex(File file, int size) throws IOException
+    {
+        int[] values = new int[size];
+        for (int ii = 0; ii < size; ii++)
+            values[ii] = ii * 7;
+        return new IndexWriter.IntIndexStreamer().writeTo(file, values);
+    }
+}
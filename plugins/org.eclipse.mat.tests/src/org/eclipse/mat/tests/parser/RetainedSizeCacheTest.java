@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.parser;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.eclipse.mat.parser.internal.snapshot.RetainedSizeCache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RetainedSizeCacheTest
+{
+    private File file;
+
+    @Before
+    public void createFile() throws IOException
+    {
+        file = File.createTempFile("i2sv2", ".index"); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    @After
+    public void deleteFile()
+    {
+        file.delete();
+    }
+
+    /**
+     * A partial entry at the end of the file, as left by an interrupted
+     * append, is cut off and the complete entries are kept.
+     */
+    @Test
+    public void testTornTail() throws IOException
+    {
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+        try
+        {
+            out.writeInt(1);
+            out.writeLong(100);
+            out.writeInt(2);
+            out.writeLong(200);
+            out.writeInt(1);
+            out.writeLong(150);
+            // torn entry
+            out.writeInt(3);
+            out.writeShort(0);
+        }
+        finally
+        {
+            out.close();
+        }
+
+        RetainedSizeCache cache = new RetainedSizeCache(file);
+        assertEquals(2, cache.size());
+        assertEquals(150, cache.get(1));
+        assertEquals(200, cache.get(2));
+        assertEquals(0, cache.get(3));
+        assertEquals(36, file.length());
+
+        // enough to be appended without closing the cache, the new entries
+        // must follow the complete ones
+        for (int ii = 0; ii < 1024; ii++)
+            cache.put(1000 + ii, ii);
+        RetainedSizeCache reread = new RetainedSizeCache(file);
+        assertEquals(2 + 1024, reread.size());
+        assertEquals(150, reread.get(1));
+        assertEquals(1023, reread.get(2023));
+    }
+
+    @Test
+    public void testEmpty()
+    {
+        RetainedSizeCache cache = new RetainedSizeCache(file);
+        assertEquals(0, cache.size());
+        assertEquals(0, file.length());
+    }
+}
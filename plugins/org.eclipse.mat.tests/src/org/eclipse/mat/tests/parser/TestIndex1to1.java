@@ -19,10 +19,12 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.mat.collect.IteratorInt;
 import org.eclipse.mat.collect.IteratorLong;
 import org.eclipse.mat.parser.index.IIndexReader;
+import org.eclipse.mat.parser.index.IndexPageCache;
 import org.eclipse.mat.parser.index.IndexReader;
 import org.eclipse.mat.parser.index.IndexWriter;
 import org.eclipse.mat.parser.index.IndexWriter.Identifier;
@@ -291,6 +293,196 @@ public class TestIndex1to1
         }
     }
 
+    /**
+     * Pages are read by several threads at the same time, one of them is
+     * interrupted.
+     */
+    @Test
+    public void intIndexConcurrent() throws Exception
+    {
+        assumeTrue(N < MAXELEMENTS);
+        assumeTrue(N > 0);
+        File indexFile = File.createTempFile("int1_", ".index");
+        final int n2 = (int) N;
+        IndexWriter.IntIndexStreamer ic = new IndexWriter.IntIndexStreamer();
+        ic.writeTo(indexFile, new IteratorInt()
+        {
+            int i;
+
+            public boolean hasNext()
+            {
+                return i < n2;
+            }
+
+            public int next()
+            {
+                return i++;
+            }
+        }).close();
+
+        try
+        {
+            final IndexReader.IntIndexReader ir = new IndexReader.IntIndexReader(indexFile);
+            final AtomicInteger errors = new AtomicInteger();
+            try
+            {
+                Thread[] threads = new Thread[4];
+                for (int t = 0; t < threads.length; ++t)
+                {
+                    final int seed = t;
+                    threads[t] = new Thread()
+                    {
+                        public void run()
+                        {
+                            if (seed == 0)
+                                interrupt();
+                            Random r = new Random(seed);
+                            try
+                            {
+                                for (int i = 0; i < 10000; ++i)
+                                {
+                                    int index = r.nextInt(n2);
+                                    if (ir.get(index) != index)
+                                        errors.incrementAndGet();
+                                    if (i % 1000 == 0)
+                                        ir.unload();
+                                }
+                            }
+                            catch (RuntimeException e)
+                            {
+                                errors.incrementAndGet();
+                            }
+                        }
+                    };
+                    threads[t].start();
+                }
+                for (Thread thread : threads)
+                    thread.join();
+                assertEquals(0, errors.get());
+                assertEquals(n2 - 1, ir.get(n2 - 1));
+            }
+            finally
+            {
+                ir.close();
+            }
+        }
+        finally
+        {
+            assertTrue(indexFile.delete());
+        }
+    }
+
+    @Test
+    public void intIndexPageCache() throws IOException
+    {
+        assumeTrue(N < MAXELEMENTS);
+        assumeTrue(N > 0);
+        File indexFile = File.createTempFile("int1_", ".index");
+        final int n2 = (int) N;
+        IndexWriter.IntIndexStreamer ic = new IndexWriter.IntIndexStreamer();
+        ic.writeTo(indexFile, new IteratorInt()
+        {
+            int i;
+
+            public boolean hasNext()
+            {
+                return i < n2;
+            }
+
+            public int next()
+            {
+                return i++;
+            }
+        }).close();
+
+        try
+        {
+            long memory = IndexPageCache.getMemory();
+            IndexReader.IntIndexReader ir = new IndexReader.IntIndexReader(indexFile);
+            try
+            {
+                int pages = (n2 - 1) / IndexWriter.PAGE_SIZE_INT + 1;
+                long misses = IndexPageCache.getMisses();
+                for (int i = 0; i < n2; i += IndexWriter.PAGE_SIZE_INT)
+                    assertEquals(i, ir.get(i));
+                assertEquals(misses + pages, IndexPageCache.getMisses());
+
+                long hits = IndexPageCache.getHits();
+                assertEquals(n2 - 1, ir.get(n2 - 1));
+                assertEquals(hits + 1, IndexPageCache.getHits());
+                assertTrue(IndexPageCache.getMemory() <= Math.max(IndexPageCache.getMaxMemory(), memory));
+            }
+            finally
+            {
+                ir.close();
+            }
+            assertTrue(IndexPageCache.getMemory() <= memory);
+        }
+        finally
+        {
+            assertTrue(indexFile.delete());
+        }
+    }
+
+    /**
+     * The budget follows the system property, which the preferences set.
+     */
+    @Test
+    public void intIndexPageCacheBudget() throws IOException
+    {
+        assumeTrue(N < MAXELEMENTS);
+        assumeTrue(N > IndexWriter.PAGE_SIZE_INT);
+        File indexFile = File.createTempFile("int1_", ".index");
+        final int n2 = (int) N;
+        IndexWriter.IntIndexStreamer ic = new IndexWriter.IntIndexStreamer();
+        ic.writeTo(indexFile, new IteratorInt()
+        {
+            int i;
+
+            public boolean hasNext()
+            {
+                return i < n2;
+            }
+
+            public int next()
+            {
+                return i++;
+            }
+        }).close();
+
+        String oldProperty = System.getProperty(IndexPageCache.SIZE_PROPERTY);
+        try
+        {
+            System.setProperty(IndexPageCache.SIZE_PROPERTY, "50");
+            assertEquals(Runtime.getRuntime().maxMemory() / 100 * 50, IndexPageCache.getMaxMemory());
+
+            // no budget: each page loaded evicts another
+            System.setProperty(IndexPageCache.SIZE_PROPERTY, "0");
+            assertEquals(0, IndexPageCache.getMaxMemory());
+            IndexReader.IntIndexReader ir = new IndexReader.IntIndexReader(indexFile);
+            try
+            {
+                int pages = (n2 - 1) / IndexWriter.PAGE_SIZE_INT + 1;
+                long evictions = IndexPageCache.getEvictions();
+                for (int i = 0; i < n2; i += IndexWriter.PAGE_SIZE_INT)
+                    assertEquals(i, ir.get(i));
+                assertTrue(IndexPageCache.getEvictions() >= evictions + pages - 1);
+            }
+            finally
+            {
+                ir.close();
+            }
+        }
+        finally
+        {
+            if (oldProperty == null)
+                System.clearProperty(IndexPageCache.SIZE_PROPERTY);
+            else
+                System.setProperty(IndexPageCache.SIZE_PROPERTY, oldProperty);
+            assertTrue(indexFile.delete());
+        }
+    }
+
     @Test
     public void intIdentifier1()
     {
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.snapshot;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.snapshot.ClassHistogramRecord;
+import org.eclipse.mat.snapshot.ClassLoaderHistogramRecord;
+import org.eclipse.mat.snapshot.Histogram;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.SnapshotFactory;
+import org.eclipse.mat.tests.TestSnapshots;
+import org.eclipse.mat.util.VoidProgressListener;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * The histogram read in one pass matches the histogram of the snapshot parsed
+ * with unreachable objects.
+ */
+@RunWith(value = Parameterized.class)
+public class FastHistogramTest
+{
+    @Parameters
+    public static Collection<Object[]> data()
+    {
+        return Arrays.asList(new Object[][] { { TestSnapshots.SUN_JDK5_13_32BIT }, //
+                        { TestSnapshots.SUN_JDK6_18_32BIT }, //
+                        { TestSnapshots.SUN_JDK6_18_64BIT }, //
+                        { TestSnapshots.SUN_JDK6_30_64BIT_COMPRESSED_OOPS }, //
+                        { TestSnapshots.SUN_JDK6_30_64BIT_NOCOMPRESSED_OOPS }, //
+                        { TestSnapshots.SUN_JDK6_31_64BIT_HPROFAGENT_COMPRESSED_OOPS }, //
+                        { TestSnapshots.SUN_JDK6_31_64BIT_HPROFAGENT_NOCOMPRESSED_OOPS }, //
+                        { TestSnapshots.ORACLE_JDK7_21_64BIT }, //
+                        { TestSnapshots.ORACLE_JDK7_21_64BIT_HPROFAGENT }, //
+                        { TestSnapshots.ORACLE_JDK8_05_64BIT } });
+    }
+
+    private final String dump;
+
+    public FastHistogramTest(String dump)
+    {
+        this.dump = dump;
+    }
+
+    @Test
+    public void testSameAsSnapshot() throws SnapshotException
+    {
+        Map<String, String> options = new HashMap<String, String>();
+        options.put("keep_unreachable_objects", "true"); //$NON-NLS-1$ //$NON-NLS-2$
+        ISnapshot snapshot = TestSnapshots.getSnapshot(dump, options, false);
+        Histogram expected = snapshot.getHistogram(new VoidProgressListener());
+
+        Histogram histogram = SnapshotFactory.getHistogram(new File(snapshot.getSnapshotInfo().getPath()),
+                        new VoidProgressListener());
+
+        assertEquals(expected.getNumberOfObjects(), histogram.getNumberOfObjects());
+        assertEquals(expected.getUsedHeapSize(), histogram.getUsedHeapSize());
+        assertEquals(classes(expected), classes(histogram));
+        assertEquals(loaders(expected), loaders(histogram));
+    }
+
+    /**
+     * @return objects and shallow heap by class name, classes of the same
+     *         name from several loaders added up
+     */
+    private static Map<String, String> classes(Histogram histogram)
+    {
+        Map<String, long[]> sums = new TreeMap<String, long[]>();
+        for (ClassHistogramRecord record : histogram.getClassHistogramRecords())
+        {
+            long[] sum = sums.get(record.getLabel());
+            if (sum == null)
+                sums.put(record.getLabel(), sum = new long[2]);
+            sum[0] += record.getNumberOfObjects();
+            sum[1] += record.getUsedHeapSize();
+        }
+
+        Map<String, String> answer = new TreeMap<String, String>();
+        for (Map.Entry<String, long[]> entry : sums.entrySet())
+            answer.put(entry.getKey(), entry.getValue()[0] + " / " + entry.getValue()[1]); //$NON-NLS-1$
+        return answer;
+    }
+
+    /**
+     * @return objects and shallow heap of the classes of each loader, the
+     *         loaders are labeled differently without a snapshot
+     */
+    private static List<String> loaders(Histogram histogram)
+    {
+        List<String> answer = new ArrayList<String>();
+        for (ClassLoaderHistogramRecord record : histogram.getClassLoaderHistogramRecords())
+            answer.add(record.getNumberOfObjects() + " / " + record.getUsedHeapSize()); //$NON-NLS-1$
+        Collections.sort(answer);
+        return answer;
+    }
+}
@@ -236,6 +236,25 @@ public class GeneralSnapshotTests
         assertEquals("Total heap size", n, total);
     }
 
+    @Test
+    public void minRetainedSizes() throws SnapshotException
+    {
+        Collection<IClass> classes = snapshot.getClasses();
+        int objectIdSets[][] = new int[classes.size()][];
+        int i = 0;
+        for (IClass cls : classes)
+        {
+            objectIdSets[i++] = cls.getObjectIds();
+        }
+        long sizes[] = snapshot.getMinRetainedSizes(objectIdSets, new VoidProgressListener());
+        assertEquals("Number of sizes", objectIdSets.length, sizes.length);
+        for (i = 0; i < objectIdSets.length; ++i)
+        {
+            long n = snapshot.getMinRetainedSize(objectIdSets[i], new VoidProgressListener());
+            assertEquals("Min retained size of set " + i, n, sizes[i]);
+        }
+    }
+
     @Test
     public void objectSizes() throws SnapshotException
     {
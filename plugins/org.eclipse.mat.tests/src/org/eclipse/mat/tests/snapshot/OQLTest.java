@@ -20,13 +20,17 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.io.FileFilter;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.query.IResultTable;
+import org.eclipse.mat.query.IResultTree;
 import org.eclipse.mat.snapshot.IOQLQuery;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.OQL;
@@ -916,10 +920,252 @@ public class OQLTest
         assertThat("Multiple objects expected", objs.length, greaterThanOrEqualTo(2));
     }
     
+    /**
+     * Test that methods and properties resolved for one type of object are
+     * not used for other types.
+     */
+    @Test
+    public void testMethodCallDifferentTypes() throws SnapshotException
+    {
+        int[] all = (int[]) execute("select * from instanceof java.lang.Object");
+        int[] objs = (int[]) execute("select * from instanceof java.lang.Object s where s.getObjectAddress() = s.@objectAddress");
+        assertThat("Instances, arrays and classes expected", objs.length, equalTo(all.length));
+    }
+
+    /**
+     * Test that comparisons of primitive fields with constants, which can be
+     * evaluated on stored field values, give the same result as expressions.
+     */
+    @Test
+    public void testFieldComparison() throws SnapshotException
+    {
+        int[] objs = (int[]) execute("select * from java.lang.String s where s.count > 10 and 0 = offset");
+        int[] expected = (int[]) execute("select * from java.lang.String s where (s.count + 0) > 10 and 0 = (offset + 0)");
+        assertTrue(objs.length > 0);
+        assertTrue(Arrays.equals(expected, objs));
+    }
+
+    /**
+     * Comparisons with constants give the same objects on the stored field
+     * values as on the objects, also mixed with conditions on object
+     * references and null values.
+     */
+    @Test
+    public void testFieldValuesSameAsObjects() throws SnapshotException
+    {
+        String[] queries = { "select * from java.lang.String s where s.count > 10 and 0 = offset",
+                        "select * from java.lang.String s where s.count = 5",
+                        "select * from java.lang.String s where s.count < 3",
+                        "select * from java.lang.String s where 3 > s.count",
+                        "select * from java.lang.String s where s.hash = 0 and s.value != null",
+                        "select * from java.lang.String s where s.count > 2 and s.value.@length > 10",
+                        "select * from java.lang.String s where s.count < 10 and s.count > 2",
+                        "select * from instanceof java.util.AbstractMap m where m.keySet = null and m.size > 0",
+                        "select * from java.util.HashMap m where m.loadFactor = 0.75",
+                        "select * from java.util.HashMap m where m.loadFactor < 0.75 and m.threshold > 1",
+                        "select * from java.lang.Thread t where t.daemon = true",
+                        "select * from java.lang.Thread t where t.priority > 5" };
+
+        for (String query : queries)
+        {
+            int[] objects = (int[]) executeWithFieldValueThreshold(query, Integer.MAX_VALUE);
+            int[] fieldValues = (int[]) executeWithFieldValueThreshold(query, 0);
+            assertTrue(query, Arrays.equals(objects, fieldValues));
+        }
+
+        assertTrue(((int[]) execute(queries[0])).length > 0);
+        assertTrue(((int[]) execute(queries[8])).length > 0);
+    }
+
+    /**
+     * The stored field values are written next to the index files the first
+     * time and afterwards read instead of the objects.
+     */
+    @Test
+    public void testFieldValueIndex() throws SnapshotException
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(TestSnapshots.SUN_JDK5_64BIT, true);
+        IClass stringClass = snapshot.getClassesByName("java.lang.String", false).iterator().next();
+        File prefix = new File(snapshot.getSnapshotInfo().getPrefix());
+        String query = "select * from java.lang.String s where s.count > 10";
+        assertEquals(0, fieldValueFiles(prefix, stringClass).length);
+
+        int[] objs = (int[]) executeWithFieldValueThreshold(snapshot, query, 0);
+        assertTrue(objs.length > 0);
+        assertTrue(fieldValueFiles(prefix, stringClass).length > 0);
+
+        // the objects are neither loaded nor taken from the cache
+        IResultTree tree = (IResultTree) executeWithFieldValueThreshold(snapshot, "EXPLAIN ANALYZE " + query, 0);
+        Object where = stage(tree, "WHERE ");
+        assertEquals(Long.valueOf(objs.length), tree.getColumnValue(where, 2));
+        assertEquals(Long.valueOf(0), tree.getColumnValue(where, 3));
+        assertEquals(Long.valueOf(0), tree.getColumnValue(where, 4));
+
+        tree = (IResultTree) executeWithFieldValueThreshold(snapshot, "EXPLAIN ANALYZE " + query, Integer.MAX_VALUE);
+        where = stage(tree, "WHERE ");
+        assertEquals(Long.valueOf(stringClass.getNumberOfObjects()), Long.valueOf(((Long) tree.getColumnValue(where,
+                        3)).longValue() + ((Long) tree.getColumnValue(where, 4)).longValue()));
+
+        snapshot.dispose();
+    }
+
+    @Test
+    public void testExplainAnalyze() throws SnapshotException
+    {
+        String query = "select * from objects (select * from java.lang.String s where s.count > 10) union (select * from java.lang.Class)";
+        int[] objs = (int[]) execute(query);
+        Object result = execute("EXPLAIN ANALYZE " + query);
+        assertThat(result, instanceOf(IResultTree.class));
+
+        IResultTree tree = (IResultTree) result;
+        assertEquals(1, tree.getElements().size());
+        Object root = tree.getElements().get(0);
+        assertEquals(Long.valueOf(objs.length), tree.getColumnValue(root, 2));
+
+        // FROM with the sub-query, SELECT and UNION
+        assertEquals(3, tree.getChildren(root).size());
+        Object from = tree.getChildren(root).get(0);
+        assertTrue(tree.hasChildren(from));
+        Object subQuery = tree.getChildren(from).get(0);
+        assertEquals(tree.getColumnValue(from, 2), tree.getColumnValue(subQuery, 2));
+    }
+
+    @Test
+    public void testParallelHint() throws SnapshotException
+    {
+        assertEquals("SELECT /*+ PARALLEL */ * FROM java.lang.String ",
+                        SnapshotFactory.createQuery("select /*+ parallel */ * from java.lang.String").toString());
+        assertEquals("SELECT /*+ PARALLEL(4) */ * FROM java.lang.String ",
+                        SnapshotFactory.createQuery("select /*+PARALLEL( 4 )*/ * from java.lang.String").toString());
+        assertEquals("SELECT /*+ PARALLEL(1) */ * FROM java.lang.String ",
+                        SnapshotFactory.createQuery("select /*+ NOPARALLEL */ * from java.lang.String").toString());
+        assertEquals("SELECT * FROM java.lang.String ",
+                        SnapshotFactory.createQuery("select /* parallel */ * from java.lang.String").toString());
+    }
+
+    @Test
+    public void testParallelWhere() throws SnapshotException
+    {
+        String query = "select * from objects (select * from instanceof java.lang.Object) s where s.@usedHeapSize > 32";
+        int[] serial = (int[]) execute(query.replace("select *", "select /*+ NOPARALLEL */ *"));
+        int[] parallel = (int[]) execute(query.replace("select *", "select /*+ PARALLEL(4) */ *"));
+        assertTrue(serial.length > 0);
+        assertTrue(Arrays.equals(serial, parallel));
+
+        // the hint evaluates the objects, fewer than the threshold, in parallel
+        assertTrue(isParallel("EXPLAIN ANALYZE " + query.replace("select *", "select /*+ PARALLEL(4) */ *")));
+        assertTrue(!isParallel("EXPLAIN ANALYZE " + query.replace("select *", "select /*+ NOPARALLEL */ *")));
+    }
+
+    @Test
+    public void testParallelThreshold() throws SnapshotException
+    {
+        String query = "EXPLAIN ANALYZE select * from objects (select * from instanceof java.lang.Object) s where s.@usedHeapSize > 32";
+        assertTrue(!isParallel(query));
+
+        String old = System.getProperty(OQL.PARALLEL_THRESHOLD_PROPERTY);
+        try
+        {
+            System.setProperty(OQL.PARALLEL_THRESHOLD_PROPERTY, "100");
+            assertTrue(isParallel(query));
+        }
+        finally
+        {
+            if (old == null)
+                System.clearProperty(OQL.PARALLEL_THRESHOLD_PROPERTY);
+            else
+                System.setProperty(OQL.PARALLEL_THRESHOLD_PROPERTY, old);
+        }
+    }
+
+    @Test
+    public void testParallelSelectObjects() throws SnapshotException
+    {
+        String query = "select objects s.@clazz from objects (select * from instanceof java.lang.Object) s";
+        int[] serial = (int[]) execute(query.replace("select objects", "select /*+ NOPARALLEL */ objects"));
+        int[] parallel = (int[]) execute(query.replace("select objects", "select /*+ PARALLEL(4) */ objects"));
+        assertTrue(serial.length > 0);
+        assertTrue(Arrays.equals(serial, parallel));
+
+        assertTrue(isParallel("EXPLAIN ANALYZE " + query.replace("select objects", "select /*+ PARALLEL(4) */ objects")));
+    }
+
     // //////////////////////////////////////////////////////////////
     // internal helper
     // //////////////////////////////////////////////////////////////
 
+    /**
+     * @return whether the profile of the query has a stage of objects
+     *         evaluated by several threads
+     */
+    private boolean isParallel(String explainAnalyze) throws SnapshotException
+    {
+        IResultTree tree = (IResultTree) execute(explainAnalyze);
+        return hasParallelStage(tree, tree.getElements());
+    }
+
+    private static boolean hasParallelStage(IResultTree tree, List<?> stages)
+    {
+        for (Object stage : stages)
+        {
+            String name = (String) tree.getColumnValue(stage, 0);
+            if (name.startsWith("PARALLEL(") && !name.equals("PARALLEL(1)"))
+                return true;
+            if (tree.hasChildren(stage) && hasParallelStage(tree, tree.getChildren(stage)))
+                return true;
+        }
+        return false;
+    }
+
+    private static File[] fieldValueFiles(File prefix, IClass clazz)
+    {
+        final String name = prefix.getName() + "fv" + clazz.getObjectId() + "x";
+        return prefix.getAbsoluteFile().getParentFile().listFiles(new FileFilter()
+        {
+            public boolean accept(File file)
+            {
+                return file.getName().startsWith(name) && file.getName().endsWith(".index");
+            }
+        });
+    }
+
+    /**
+     * @return the stage of the query whose name starts as given
+     */
+    private static Object stage(IResultTree tree, String name)
+    {
+        for (Object stage : tree.getChildren(tree.getElements().get(0)))
+        {
+            if (((String) tree.getColumnValue(stage, 0)).startsWith(name))
+                return stage;
+        }
+        throw new AssertionError("No stage " + name);
+    }
+
+    private Object executeWithFieldValueThreshold(String oql, int threshold) throws SnapshotException
+    {
+        return executeWithFieldValueThreshold(TestSnapshots.getSnapshot(TestSnapshots.SUN_JDK5_64BIT, false), oql,
+                        threshold);
+    }
+
+    private Object executeWithFieldValueThreshold(ISnapshot snapshot, String oql, int threshold)
+                    throws SnapshotException
+    {
+        String old = System.getProperty(OQL.FIELD_VALUES_THRESHOLD_PROPERTY);
+        try
+        {
+            System.setProperty(OQL.FIELD_VALUES_THRESHOLD_PROPERTY, String.valueOf(threshold));
+            return SnapshotFactory.createQuery(oql).execute(snapshot, new VoidProgressListener());
+        }
+        finally
+        {
+            if (old == null)
+                System.clearProperty(OQL.FIELD_VALUES_THRESHOLD_PROPERTY);
+            else
+                System.setProperty(OQL.FIELD_VALUES_THRESHOLD_PROPERTY, old);
+        }
+    }
+
     private Object execute(String oql) throws SnapshotException
     {
         try
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.snapshot;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.mat.parser.index.IndexManager;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.tests.TestSnapshots;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Parses the same dump with the serial and with the parallel pass 2 and
+ * dominator tree, and checks that both write the same index files.
+ */
+@RunWith(value = Parameterized.class)
+public class ParallelParsingTest
+{
+    /** small enough to split the test dumps into several chunks */
+    private static final String CHUNK_SIZE = "65536";
+
+    @Parameters
+    public static Collection<Object[]> data()
+    {
+        return Arrays.asList(new Object[][] { { TestSnapshots.SUN_JDK5_13_32BIT }, //
+                        { TestSnapshots.SUN_JDK6_18_64BIT }, //
+                        { TestSnapshots.SUN_JDK6_30_64BIT_COMPRESSED_OOPS }, //
+                        { TestSnapshots.ORACLE_JDK8_05_64BIT } });
+    }
+
+    private final String dumpname;
+
+    public ParallelParsingTest(String dumpname)
+    {
+        this.dumpname = dumpname;
+    }
+
+    @Test
+    public void testSameIndexes() throws IOException
+    {
+        ISnapshot serial = parse(false);
+        ISnapshot parallel = parse(true);
+
+        String serialPrefix = serial.getSnapshotInfo().getPrefix();
+        String parallelPrefix = parallel.getSnapshotInfo().getPrefix();
+
+        List<String> names = new ArrayList<String>();
+        for (IndexManager.Index index : IndexManager.Index.values())
+        {
+            // the retained size cache is filled on demand
+            if (index != IndexManager.Index.I2RETAINED)
+                names.add(index.filename + ".index");
+        }
+        names.add("o2hprof.index");
+
+        for (String name : names)
+        {
+            File serialFile = new File(serialPrefix + name);
+            File parallelFile = new File(parallelPrefix + name);
+            assertTrue("Missing " + serialFile, serialFile.isFile());
+            assertTrue("Missing " + parallelFile, parallelFile.isFile());
+            assertArrayEquals(dumpname + " " + name, read(serialFile), read(parallelFile));
+        }
+    }
+
+    private ISnapshot parse(boolean parallel)
+    {
+        String oldParsing = System.getProperty("hprofParallelParsing");
+        String oldChunkSize = System.getProperty("hprofParallelChunkSize");
+        try
+        {
+            System.setProperty("hprofParallelParsing", Boolean.toString(parallel));
+            System.setProperty("hprofParallelChunkSize", CHUNK_SIZE);
+
+            Map<String, String> options = new HashMap<String, String>();
+            options.put("parallel_dominator_tree", Boolean.toString(parallel));
+            return TestSnapshots.getSnapshot(dumpname, options, true);
+        }
+        finally
+        {
+            restore("hprofParallelParsing", oldParsing);
+            restore("hprofParallelChunkSize", oldChunkSize);
+        }
+    }
+
+    private static void restore(String key, String value)
+    {
+        if (value == null)
+            System.clearProperty(key);
+        else
+            System.setProperty(key, value);
+    }
+
+    private static byte[] read(File file) throws IOException
+    {
+        byte[] content = new byte[(int) file.length()];
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try
+        {
+            in.readFully(content);
+        }
+        finally
+        {
+            in.close();
+        }
+        return content;
+    }
+}
@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.snapshot;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.internal.snapshot.SnapshotQueryContext;
+import org.eclipse.mat.report.QuerySpec;
+import org.eclipse.mat.report.SectionSpec;
+import org.eclipse.mat.report.TestSuite;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.tests.TestSnapshots;
+import org.eclipse.mat.util.VoidProgressListener;
+import org.junit.Test;
+
+/**
+ * Runs a report section with its queries in parallel and one after another,
+ * and checks that both give the same parts in the same order with the same
+ * results.
+ */
+public class ParallelReportTest
+{
+    private static final String[][] QUERIES = { { "System Properties", "system_properties" }, //
+                    { "Class Histogram", "histogram" }, //
+                    { "Class Loader Histogram", "histogram -groupBy BY_CLASSLOADER" }, //
+                    { "Dominator Tree", "dominator_tree" }, //
+                    { "Strings", "oql \"select s.@objectAddress, toString(s) from java.lang.String s\"" }, //
+                    { "Unknown", "no_such_query" }, //
+                    { "Threads", "thread_overview" } };
+
+    @Test
+    public void testSameAsSerial() throws Exception
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(TestSnapshots.SUN_JDK6_18_64BIT, false);
+
+        Map<String, byte[]> serial = run(snapshot, null, null);
+        Map<String, byte[]> parallel = run(snapshot, Boolean.TRUE.toString(), null);
+
+        assertTrue(serial.size() > QUERIES.length);
+        assertSameReport(serial, parallel);
+    }
+
+    /**
+     * Queries run in parallel if their section says so, and one after
+     * another if the section opts out.
+     */
+    @Test
+    public void testSectionParameter() throws Exception
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(TestSnapshots.SUN_JDK6_18_64BIT, false);
+
+        Map<String, byte[]> serial = run(snapshot, Boolean.FALSE.toString(), null);
+        assertSameReport(serial, run(snapshot, null, Boolean.TRUE.toString()));
+        assertSameReport(serial, run(snapshot, Boolean.TRUE.toString(), Boolean.FALSE.toString()));
+    }
+
+    private static void assertSameReport(Map<String, byte[]> serial, Map<String, byte[]> parallel)
+    {
+        assertEquals(new ArrayList<String>(serial.keySet()), new ArrayList<String>(parallel.keySet()));
+        for (Map.Entry<String, byte[]> entry : serial.entrySet())
+            assertArrayEquals(entry.getKey(), entry.getValue(), parallel.get(entry.getKey()));
+    }
+
+    /**
+     * @param property
+     *            the value of the system property report_parallel, or null
+     * @param parameter
+     *            the parallel parameter of the section, or null
+     */
+    private Map<String, byte[]> run(ISnapshot snapshot, String property, String parameter) throws SnapshotException,
+                    IOException
+    {
+        SectionSpec section = new SectionSpec("Parallel Report Test"); //$NON-NLS-1$
+        if (parameter != null)
+            section.set("parallel", parameter); //$NON-NLS-1$
+        for (int ii = 0; ii < QUERIES.length; ii++)
+        {
+            QuerySpec spec = new QuerySpec(QUERIES[ii][0]);
+            spec.setCommand(QUERIES[ii][1]);
+            spec.set("format", "csv"); //$NON-NLS-1$ //$NON-NLS-2$
+            spec.set("filename", ii + ".csv"); //$NON-NLS-1$ //$NON-NLS-2$
+            spec.set("limit", "1000"); //$NON-NLS-1$ //$NON-NLS-2$
+            section.add(spec);
+        }
+
+        File output = File.createTempFile("parallel_report", ".zip"); //$NON-NLS-1$ //$NON-NLS-2$
+        String old = System.getProperty("report_parallel"); //$NON-NLS-1$
+        try
+        {
+            if (property == null)
+                System.clearProperty("report_parallel"); //$NON-NLS-1$
+            else
+                System.setProperty("report_parallel", property); //$NON-NLS-1$
+            TestSuite suite = new TestSuite.Builder(section).output(output).build(new SnapshotQueryContext(snapshot));
+            suite.execute(new VoidProgressListener());
+            return read(output);
+        }
+        finally
+        {
+            if (old == null)
+                System.clearProperty("report_parallel"); //$NON-NLS-1$
+            else
+                System.setProperty("report_parallel", old); //$NON-NLS-1$
+            output.delete();
+        }
+    }
+
+    /**
+     * @return the entries of the zip file in their order
+     */
+    private static Map<String, byte[]> read(File zip) throws IOException
+    {
+        Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+        ZipInputStream in = new ZipInputStream(new FileInputStream(zip));
+        try
+        {
+            byte[] buffer = new byte[8192];
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null)
+            {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                int n;
+                while ((n = in.read(buffer)) > 0)
+                    out.write(buffer, 0, n);
+                entries.put(entry.getName(), out.toByteArray());
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,263 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.snapshot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.mat.internal.apps.QueryServerApp;
+import org.eclipse.mat.tests.TestSnapshots;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class QueryServerTest
+{
+    private final QueryServerApp app = new QueryServerApp();
+    private final List<Client> clients = new ArrayList<Client>();
+    private ServerSocket serverSocket;
+    private File directory;
+    private File dump;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        directory = TestSnapshots.createGeneratedName("server", null); //$NON-NLS-1$
+        File source = TestSnapshots.getResourceFile(TestSnapshots.SUN_JDK6_18_64BIT);
+        dump = new File(directory, source.getName());
+        copy(source, dump);
+
+        serverSocket = new ServerSocket(0, 50, InetAddress.getByName(null));
+    }
+
+    @After
+    public void tearDown() throws IOException
+    {
+        for (Client client : clients)
+            client.close();
+        serverSocket.close();
+
+        File[] files = directory.listFiles();
+        if (files != null)
+        {
+            for (File file : files)
+                file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testQueries() throws Exception
+    {
+        Client client = connect();
+
+        List<String> response = client.request("open " + dump.getPath()); //$NON-NLS-1$
+        assertEquals(response.toString(), "OK", response.get(0)); //$NON-NLS-1$
+        assertEquals(2, response.size());
+
+        assertEquals("OK", client.request("limit 3").get(0)); //$NON-NLS-1$ //$NON-NLS-2$
+        response = client.request("histogram"); //$NON-NLS-1$
+        assertEquals(response.toString(), "OK", response.get(0)); //$NON-NLS-1$
+        // header and rows
+        assertEquals(response.toString(), 5, response.size());
+        assertTrue(response.get(1), response.get(1).startsWith("Class Name,")); //$NON-NLS-1$
+
+        assertEquals("OK", client.request("format json").get(0)); //$NON-NLS-1$ //$NON-NLS-2$
+        response = client.request("histogram"); //$NON-NLS-1$
+        assertEquals(response.toString(), 4, response.size());
+        for (int ii = 1; ii < response.size(); ii++)
+            assertTrue(response.get(ii), response.get(ii).startsWith("{\"Class Name\":")); //$NON-NLS-1$
+
+        response = client.request("fast_histogram " + dump.getPath()); //$NON-NLS-1$
+        assertEquals(response.toString(), "OK", response.get(0)); //$NON-NLS-1$
+        assertEquals(response.toString(), 4, response.size());
+
+        assertEquals("OK", client.request("quit").get(0)); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    /**
+     * Failing requests answer with an error only, without OK or partial
+     * output.
+     */
+    @Test
+    public void testErrors() throws Exception
+    {
+        Client client = connect();
+
+        assertError(client.request("histogram")); //$NON-NLS-1$
+        assertError(client.request("format xml")); //$NON-NLS-1$
+        assertError(client.request("limit x")); //$NON-NLS-1$
+        assertError(client.request("fast_histogram " + new File(directory, "missing.hprof").getPath())); //$NON-NLS-1$ //$NON-NLS-2$
+        assertError(client.request("open " + new File(directory, "missing.hprof").getPath())); //$NON-NLS-1$ //$NON-NLS-2$
+
+        assertEquals("OK", client.request("open " + dump.getPath()).get(0)); //$NON-NLS-1$ //$NON-NLS-2$
+        assertError(client.request("no_such_query")); //$NON-NLS-1$
+        assertEquals("OK", client.request("histogram").get(0)); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    /**
+     * Closing a dump on one connection leaves it open for the others.
+     */
+    @Test
+    public void testCloseKeepsSharedSnapshot() throws Exception
+    {
+        Client first = connect();
+        Client second = connect();
+
+        assertEquals("OK", first.request("open " + dump.getPath()).get(0)); //$NON-NLS-1$ //$NON-NLS-2$
+        assertEquals("OK", second.request("open " + dump.getPath()).get(0)); //$NON-NLS-1$ //$NON-NLS-2$
+        assertEquals("OK", second.request("close").get(0)); //$NON-NLS-1$ //$NON-NLS-2$
+        assertError(second.request("histogram")); //$NON-NLS-1$
+
+        List<String> response = first.request("histogram"); //$NON-NLS-1$
+        assertEquals(response.toString(), "OK", response.get(0)); //$NON-NLS-1$
+        assertTrue(response.size() > 2);
+
+        // ending a connection releases its snapshots
+        assertEquals("OK", first.request("quit").get(0)); //$NON-NLS-1$ //$NON-NLS-2$
+        assertEquals("OK", second.request("open " + dump.getPath()).get(0)); //$NON-NLS-1$ //$NON-NLS-2$
+        assertEquals("OK", second.request("histogram").get(0)); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    private static void assertError(List<String> response)
+    {
+        assertEquals(response.toString(), 1, response.size());
+        assertTrue(response.get(0), response.get(0).startsWith("ERROR ")); //$NON-NLS-1$
+    }
+
+    private Client connect() throws IOException
+    {
+        Socket socket = new Socket(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+        final Socket accepted = serverSocket.accept();
+        Thread thread = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    app.serve(accepted.getInputStream(), accepted.getOutputStream());
+                }
+                catch (IOException ignore)
+                {
+                    // $JL-EXC$ the client went away
+                }
+                finally
+                {
+                    try
+                    {
+                        accepted.close();
+                    }
+                    catch (IOException ignore)
+                    {
+                        // $JL-EXC$
+                    }
+                }
+            }
+        });
+        thread.start();
+
+        Client client = new Client(socket, thread);
+        clients.add(client);
+        return client;
+    }
+
+    private static class Client
+    {
+        private final Socket socket;
+        private final Thread thread;
+        private final Writer writer;
+        private final BufferedReader reader;
+
+        Client(Socket socket, Thread thread) throws IOException
+        {
+            this.socket = socket;
+            this.thread = thread;
+            this.writer = new OutputStreamWriter(socket.getOutputStream(), "UTF-8"); //$NON-NLS-1$
+            this.reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8")); //$NON-NLS-1$
+        }
+
+        /**
+         * @return the lines of the response without the closing dot
+         */
+        List<String> request(String line) throws IOException
+        {
+            writer.write(line);
+            writer.write('\n');
+            writer.flush();
+
+            List<String> response = new ArrayList<String>();
+            String answer;
+            while (!".".equals(answer = reader.readLine())) //$NON-NLS-1$
+            {
+                if (answer == null)
+                    throw new IOException("Connection closed after " + response); //$NON-NLS-1$
+                response.add(answer.startsWith(".") ? answer.substring(1) : answer); //$NON-NLS-1$
+            }
+            return response;
+        }
+
+        /**
+         * Ends the connection and waits until its snapshots are released.
+         */
+        void close() throws IOException
+        {
+            socket.close();
+            try
+            {
+                thread.join();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void copy(File from, File to) throws IOException
+    {
+        InputStream in = new FileInputStream(from);
+        try
+        {
+            OutputStream out = new FileOutputStream(to);
+            try
+            {
+                byte[] buffer = new byte[65536];
+                int n;
+                while ((n = in.read(buffer)) > 0)
+                    out.write(buffer, 0, n);
+            }
+            finally
+            {
+                out.close();
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.snapshot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.util.Iterator;
+
+import org.eclipse.mat.internal.snapshot.SnapshotQueryContext;
+import org.eclipse.mat.query.IResult;
+import org.eclipse.mat.query.registry.CommandLine;
+import org.eclipse.mat.query.results.TextResult;
+import org.eclipse.mat.snapshot.ClassHistogramRecord;
+import org.eclipse.mat.snapshot.Histogram;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.SnapshotFactory;
+import org.eclipse.mat.snapshot.model.IClass;
+import org.eclipse.mat.tests.TestSnapshots;
+import org.eclipse.mat.util.VoidProgressListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ResultCacheTest
+{
+    private static final String CACHE_PROPERTY = "mat_result_cache"; //$NON-NLS-1$
+
+    /** gives a text result, which is cached */
+    private static final String TEXT_QUERY = "oql \"select * from java.lang.String s where s.@objectId < 0\""; //$NON-NLS-1$
+
+    /** gives a result holding the snapshot, which is not cached */
+    private static final String OBJECTS_QUERY = "oql \"select * from java.lang.String\""; //$NON-NLS-1$
+
+    /** long before any file written by the test */
+    private static final long PAST = 1000000000000L;
+
+    private String oldProperty;
+    private ISnapshot snapshot;
+    private SnapshotQueryContext context;
+    private File directory;
+    private String prefix;
+
+    @Before
+    public void setUp()
+    {
+        oldProperty = System.getProperty(CACHE_PROPERTY);
+        System.setProperty(CACHE_PROPERTY, Boolean.TRUE.toString());
+
+        // a snapshot of its own, as the test changes the index files
+        snapshot = TestSnapshots.getSnapshot(TestSnapshots.SUN_JDK6_18_64BIT, true);
+        context = new SnapshotQueryContext(snapshot);
+        prefix = snapshot.getSnapshotInfo().getPrefix();
+        directory = new File(prefix).getAbsoluteFile().getParentFile();
+    }
+
+    @After
+    public void tearDown()
+    {
+        if (oldProperty == null)
+            System.clearProperty(CACHE_PROPERTY);
+        else
+            System.setProperty(CACHE_PROPERTY, oldProperty);
+    }
+
+    /**
+     * The first run stores the result in a file matching the index files, the
+     * second run reads it instead of writing it again.
+     */
+    @Test
+    public void testMissAndHit() throws Exception
+    {
+        assertEquals(0, resultFiles().length);
+
+        String text = execute(TEXT_QUERY);
+        File[] files = resultFiles();
+        assertEquals(1, files.length);
+        assertTrue(files[0].getName(), files[0].getName().substring(new File(prefix).getName().length()).matches(
+                        "result[0-9a-f]+\\.index")); //$NON-NLS-1$
+
+        files[0].setLastModified(PAST);
+        assertEquals(text, execute(TEXT_QUERY));
+        assertEquals("Result written again", PAST, files[0].lastModified()); //$NON-NLS-1$
+        assertEquals(0, tempFiles().length);
+    }
+
+    /**
+     * A result is calculated again once the snapshot is parsed again, which is
+     * noticed by the changed main index file.
+     */
+    @Test
+    public void testStale() throws Exception
+    {
+        String text = execute(TEXT_QUERY);
+        File file = resultFiles()[0];
+        file.setLastModified(PAST);
+
+        File indexFile = new File(prefix + "index"); //$NON-NLS-1$
+        indexFile.setLastModified(indexFile.lastModified() - 60000);
+
+        assertEquals(text, execute(TEXT_QUERY));
+        assertTrue("Result not written again", file.lastModified() != PAST); //$NON-NLS-1$
+    }
+
+    /**
+     * Results which cannot be serialized leave no files behind.
+     */
+    @Test
+    public void testNotSerializable() throws Exception
+    {
+        execute(OBJECTS_QUERY);
+        assertEquals(0, resultFiles().length);
+        assertEquals(0, tempFiles().length);
+    }
+
+    /**
+     * Temporary files left over by writers which did not finish are deleted
+     * when the result is written the next time.
+     */
+    @Test
+    public void testStaleTempFiles() throws Exception
+    {
+        execute(TEXT_QUERY);
+        File file = resultFiles()[0];
+
+        File stale = new File(directory, file.getName() + ".123.tmp"); //$NON-NLS-1$
+        File recent = new File(directory, file.getName() + ".456.tmp"); //$NON-NLS-1$
+        assertTrue(stale.createNewFile());
+        assertTrue(recent.createNewFile());
+        stale.setLastModified(PAST);
+
+        // make the result stale so that it is written again
+        File indexFile = new File(prefix + "index"); //$NON-NLS-1$
+        indexFile.setLastModified(indexFile.lastModified() - 60000);
+        execute(TEXT_QUERY);
+
+        assertFalse(stale.exists());
+        assertTrue(recent.exists());
+        recent.delete();
+    }
+
+    /**
+     * A class histogram is read from the cache after the snapshot is opened
+     * again, equals the calculated one and refers to the same classes.
+     */
+    @Test
+    public void testHistogramAfterReopen() throws Exception
+    {
+        Histogram histogram = (Histogram) CommandLine.execute(context, "histogram", new VoidProgressListener()); //$NON-NLS-1$
+        File file = resultFiles()[0];
+        file.setLastModified(PAST);
+
+        String path = snapshot.getSnapshotInfo().getPath();
+        SnapshotFactory.dispose(snapshot);
+        snapshot = SnapshotFactory.openSnapshot(new File(path), new VoidProgressListener());
+        context = new SnapshotQueryContext(snapshot);
+
+        Histogram cached = (Histogram) CommandLine.execute(context, "histogram", new VoidProgressListener()); //$NON-NLS-1$
+        assertEquals("Result written again", PAST, file.lastModified()); //$NON-NLS-1$
+
+        assertEquals(histogram.getNumberOfObjects(), cached.getNumberOfObjects());
+        assertEquals(histogram.getUsedHeapSize(), cached.getUsedHeapSize());
+        assertEquals(histogram.getClassHistogramRecords().size(), cached.getClassHistogramRecords().size());
+        Iterator<ClassHistogramRecord> expected = histogram.getClassHistogramRecords().iterator();
+        for (ClassHistogramRecord record : cached.getClassHistogramRecords())
+        {
+            ClassHistogramRecord calculated = expected.next();
+            assertEquals(calculated.getLabel(), record.getLabel());
+            assertEquals(calculated.getClassId(), record.getClassId());
+            assertEquals(calculated.getNumberOfObjects(), record.getNumberOfObjects());
+            assertEquals(calculated.getUsedHeapSize(), record.getUsedHeapSize());
+            assertEquals(record.getLabel(), ((IClass) snapshot.getObject(record.getClassId())).getName());
+        }
+        assertEquals(histogram.getClassLoaderHistogramRecords().size(), cached.getClassLoaderHistogramRecords()
+                        .size());
+    }
+
+    @Test
+    public void testDisabled() throws Exception
+    {
+        System.setProperty(CACHE_PROPERTY, Boolean.FALSE.toString());
+        execute(TEXT_QUERY);
+        assertEquals(0, resultFiles().length);
+    }
+
+    private String execute(String commandLine) throws Exception
+    {
+        IResult result = CommandLine.execute(context, commandLine, new VoidProgressListener());
+        return result instanceof TextResult ? ((TextResult) result).getText() : String.valueOf(result);
+    }
+
+    private File[] resultFiles()
+    {
+        return list(".index"); //$NON-NLS-1$
+    }
+
+    private File[] tempFiles()
+    {
+        return list(".tmp"); //$NON-NLS-1$
+    }
+
+    private File[] list(final String suffix)
+    {
+        final String name = new File(prefix).getName() + "result"; //$NON-NLS-1$
+        return directory.listFiles(new FileFilter()
+        {
+            public boolean accept(File f)
+            {
+                return f.getName().startsWith(name) && f.getName().endsWith(suffix);
+            }
+        });
+    }
+}
@@ -0,0 +1,258 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.snapshot;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.SnapshotFactory;
+import org.eclipse.mat.tests.TestSnapshots;
+import org.eclipse.mat.util.IProgressListener;
+import org.eclipse.mat.util.VoidProgressListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Sharing of snapshots opened by several callers.
+ */
+public class SnapshotFactoryTest
+{
+    private static final int NUMBER_OF_THREADS = 4;
+
+    private final List<ISnapshot> opened = new ArrayList<ISnapshot>();
+    private ExecutorService executor;
+    private String oldProperty;
+    private File directory;
+    private File dump;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        oldProperty = System.getProperty(SnapshotFactory.IDLE_SNAPSHOTS_PROPERTY);
+        executor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+        directory = TestSnapshots.createGeneratedName("factory", null); //$NON-NLS-1$
+        dump = copy(TestSnapshots.SUN_JDK5_64BIT);
+    }
+
+    @After
+    public void tearDown()
+    {
+        executor.shutdownNow();
+        for (ISnapshot snapshot : opened)
+            SnapshotFactory.dispose(snapshot);
+        if (oldProperty == null)
+            System.clearProperty(SnapshotFactory.IDLE_SNAPSHOTS_PROPERTY);
+        else
+            System.setProperty(SnapshotFactory.IDLE_SNAPSHOTS_PROPERTY, oldProperty);
+
+        File[] files = directory.listFiles();
+        if (files != null)
+        {
+            for (File file : files)
+                file.delete();
+        }
+        directory.delete();
+    }
+
+    /**
+     * Callers opening the same dump at the same time wait for the first one
+     * and get the same snapshot, which is parsed once.
+     */
+    @Test
+    public void testConcurrentOpen() throws Exception
+    {
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<ISnapshot>> futures = new ArrayList<Future<ISnapshot>>();
+        for (int ii = 0; ii < NUMBER_OF_THREADS; ii++)
+        {
+            futures.add(executor.submit(new Callable<ISnapshot>()
+            {
+                public ISnapshot call() throws Exception
+                {
+                    start.await();
+                    return SnapshotFactory.openSnapshot(dump, new VoidProgressListener());
+                }
+            }));
+        }
+        start.countDown();
+
+        for (Future<ISnapshot> future : futures)
+            opened.add(future.get(5, TimeUnit.MINUTES));
+
+        for (ISnapshot snapshot : opened)
+            assertSame(opened.get(0), snapshot);
+    }
+
+    /**
+     * If the first caller fails, a waiting caller opens the snapshot itself.
+     */
+    @Test
+    public void testFailedFirstOpen() throws Exception
+    {
+        final CountDownLatch firstOpening = new CountDownLatch(1);
+        final CountDownLatch secondWaiting = new CountDownLatch(1);
+
+        // the first caller gives up once the second one waits for it
+        Future<ISnapshot> first = executor.submit(new Callable<ISnapshot>()
+        {
+            public ISnapshot call() throws Exception
+            {
+                return SnapshotFactory.openSnapshot(dump, new VoidProgressListener()
+                {
+                    @Override
+                    public boolean isCanceled()
+                    {
+                        firstOpening.countDown();
+                        try
+                        {
+                            return secondWaiting.await(1, TimeUnit.MINUTES);
+                        }
+                        catch (InterruptedException e)
+                        {
+                            return true;
+                        }
+                    }
+                });
+            }
+        });
+        assertTrue(firstOpening.await(1, TimeUnit.MINUTES));
+
+        Future<ISnapshot> second = executor.submit(new Callable<ISnapshot>()
+        {
+            public ISnapshot call() throws Exception
+            {
+                return SnapshotFactory.openSnapshot(dump, new VoidProgressListener()
+                {
+                    @Override
+                    public boolean isCanceled()
+                    {
+                        // asked before each wait for the first caller
+                        secondWaiting.countDown();
+                        return false;
+                    }
+                });
+            }
+        });
+
+        try
+        {
+            opened.add(first.get(5, TimeUnit.MINUTES));
+            throw new AssertionError("First caller not canceled"); //$NON-NLS-1$
+        }
+        catch (ExecutionException e)
+        {
+            assertTrue(String.valueOf(e.getCause()),
+                            e.getCause() instanceof IProgressListener.OperationCanceledException);
+        }
+
+        ISnapshot snapshot = second.get(5, TimeUnit.MINUTES);
+        assertNotNull(snapshot);
+        opened.add(snapshot);
+        assertSame(snapshot, open(dump));
+    }
+
+    /**
+     * A snapshot is disposed when the last of its users disposes it.
+     */
+    @Test
+    public void testUsageCount() throws SnapshotException
+    {
+        ISnapshot snapshot = open(dump);
+        assertSame(snapshot, open(dump));
+
+        SnapshotFactory.dispose(opened.remove(0));
+        assertSame(snapshot, open(dump));
+        assertTrue(snapshot.getHistogram(new VoidProgressListener()).getNumberOfObjects() > 0);
+
+        SnapshotFactory.dispose(opened.remove(0));
+        SnapshotFactory.dispose(opened.remove(0));
+        assertNotSame(snapshot, open(dump));
+    }
+
+    /**
+     * Idle snapshots are kept up to the configured number, the longest idle
+     * is disposed first.
+     */
+    @Test
+    public void testIdleSnapshots() throws Exception
+    {
+        System.setProperty(SnapshotFactory.IDLE_SNAPSHOTS_PROPERTY, "1"); //$NON-NLS-1$
+        File other = copy(TestSnapshots.SUN_JDK5_13_32BIT);
+
+        ISnapshot snapshot = open(dump);
+        SnapshotFactory.dispose(opened.remove(0));
+        assertSame(snapshot, open(dump));
+        SnapshotFactory.dispose(opened.remove(0));
+
+        ISnapshot otherSnapshot = open(other);
+        Thread.sleep(10);
+        SnapshotFactory.dispose(opened.remove(0));
+
+        // two idle snapshots, the first one is disposed
+        assertSame(otherSnapshot, open(other));
+        assertNotSame(snapshot, open(dump));
+    }
+
+    private ISnapshot open(File file) throws SnapshotException
+    {
+        ISnapshot snapshot = SnapshotFactory.openSnapshot(file, new VoidProgressListener());
+        opened.add(snapshot);
+        return snapshot;
+    }
+
+    private File copy(String name) throws IOException
+    {
+        File source = TestSnapshots.getResourceFile(name);
+        File target = new File(directory, source.getName());
+        InputStream in = new FileInputStream(source);
+        try
+        {
+            OutputStream out = new FileOutputStream(target);
+            try
+            {
+                byte[] buffer = new byte[65536];
+                int n;
+                while ((n = in.read(buffer)) > 0)
+                    out.write(buffer, 0, n);
+            }
+            finally
+            {
+                out.close();
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+        return target;
+    }
+}
@@ -0,0 +1,252 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.snapshot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.HashMapIntObject;
+import org.eclipse.mat.parser.internal.SnapshotImpl;
+import org.eclipse.mat.parser.model.XGCRootInfo;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.model.GCRootInfo;
+import org.eclipse.mat.tests.TestSnapshots;
+import org.eclipse.mat.util.VoidProgressListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Reopening a snapshot from its index file, written as version MAT_02 with
+ * the GC roots in a binary section, or written by older versions as MAT_01.
+ */
+public class SnapshotIndexFileTest
+{
+    private SnapshotImpl snapshot;
+    private File indexFile;
+    private String expectedRoots;
+
+    @Before
+    public void setUp() throws SnapshotException
+    {
+        // a snapshot of its own, as the test changes the index file
+        ISnapshot parsed = TestSnapshots.getSnapshot(TestSnapshots.SUN_JDK6_18_64BIT, true);
+        snapshot = (SnapshotImpl) parsed;
+        indexFile = new File(snapshot.getSnapshotInfo().getPrefix() + "index"); //$NON-NLS-1$
+        expectedRoots = describeRoots(snapshot);
+    }
+
+    @After
+    public void tearDown()
+    {
+        snapshot.dispose();
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception
+    {
+        assertEquals("MAT_02", readVersion()); //$NON-NLS-1$
+
+        SnapshotImpl reopened = reopen();
+        try
+        {
+            assertEquals(expectedRoots, describeRoots(reopened));
+            assertEquals(snapshot.getSnapshotInfo().getNumberOfGCRoots(), reopened.getGCRoots().length);
+            assertEquals(snapshot.getSnapshotInfo().getNumberOfClasses(), reopened.getClasses().size());
+        }
+        finally
+        {
+            reopened.dispose();
+        }
+    }
+
+    /**
+     * The GC roots are read from the index file when first needed, and not
+     * when the snapshot is opened.
+     */
+    @Test
+    public void testRootsReadWhenFirstNeeded() throws Exception
+    {
+        SnapshotImpl reopened = reopen();
+        File moved = new File(indexFile.getPath() + ".moved"); //$NON-NLS-1$
+        try
+        {
+            assertTrue(indexFile.renameTo(moved));
+            try
+            {
+                reopened.getGCRoots();
+                fail("GC roots read when the snapshot was opened"); //$NON-NLS-1$
+            }
+            catch (RuntimeException expected)
+            {
+                // $JL-EXC$ the index file is missing
+            }
+            assertTrue(moved.renameTo(indexFile));
+
+            assertEquals(expectedRoots, describeRoots(reopened));
+        }
+        finally
+        {
+            if (moved.exists())
+                moved.renameTo(indexFile);
+            reopened.dispose();
+        }
+    }
+
+    /**
+     * Index files written before the GC roots were kept in a binary section
+     * are read as before.
+     */
+    @Test
+    public void testVersion1() throws Exception
+    {
+        writeVersion1();
+        assertEquals("MAT_01", readVersion()); //$NON-NLS-1$
+
+        SnapshotImpl reopened = reopen();
+        try
+        {
+            assertEquals(expectedRoots, describeRoots(reopened));
+            assertEquals(snapshot.getSnapshotInfo().getNumberOfClasses(), reopened.getClasses().size());
+        }
+        finally
+        {
+            reopened.dispose();
+        }
+    }
+
+    private SnapshotImpl reopen() throws SnapshotException, IOException
+    {
+        return SnapshotImpl.readFromFile(new File(snapshot.getSnapshotInfo().getPath()), snapshot.getSnapshotInfo()
+                        .getPrefix(), new VoidProgressListener());
+    }
+
+    private String readVersion() throws IOException
+    {
+        ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+        try
+        {
+            return in.readUTF();
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Rewrites the index file in the layout of version MAT_01, with the GC
+     * roots serialized after the class cache.
+     */
+    private void writeVersion1() throws Exception
+    {
+        String objectReaderUniqueIdentifier;
+        Object snapshotInfo, classCache, loaderLabels, arrayObjects;
+        ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+        try
+        {
+            in.readUTF();
+            objectReaderUniqueIdentifier = in.readUTF();
+            snapshotInfo = in.readObject();
+            classCache = in.readObject();
+            loaderLabels = in.readObject();
+            arrayObjects = in.readObject();
+        }
+        finally
+        {
+            in.close();
+        }
+
+        HashMapIntObject<XGCRootInfo[]> roots = new HashMapIntObject<XGCRootInfo[]>();
+        for (int objectId : snapshot.getGCRoots())
+            roots.put(objectId, (XGCRootInfo[]) snapshot.getGCRootInfo(objectId));
+        HashMapIntObject<HashMapIntObject<XGCRootInfo[]>> rootsPerThread = snapshot.getRootsPerThread();
+
+        long lastModified = indexFile.lastModified();
+        ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+        try
+        {
+            out.writeUTF("MAT_01"); //$NON-NLS-1$
+            out.writeUTF(objectReaderUniqueIdentifier);
+            out.writeObject(snapshotInfo);
+            out.writeObject(classCache);
+            out.writeObject(roots);
+            out.writeObject(rootsPerThread);
+            out.writeObject(loaderLabels);
+            out.writeObject(arrayObjects);
+        }
+        finally
+        {
+            out.close();
+        }
+        indexFile.setLastModified(lastModified);
+    }
+
+    /**
+     * @return the GC roots and the roots per thread, sorted by object id
+     */
+    private static String describeRoots(SnapshotImpl snapshot) throws SnapshotException
+    {
+        StringBuilder buf = new StringBuilder();
+        int[] objectIds = snapshot.getGCRoots();
+        Arrays.sort(objectIds);
+        for (int objectId : objectIds)
+        {
+            buf.append(objectId).append(':');
+            append(buf, snapshot.getGCRootInfo(objectId));
+            buf.append('\n');
+        }
+
+        HashMapIntObject<HashMapIntObject<XGCRootInfo[]>> rootsPerThread = snapshot.getRootsPerThread();
+        if (rootsPerThread != null)
+        {
+            int[] threadIds = rootsPerThread.getAllKeys();
+            Arrays.sort(threadIds);
+            for (int threadId : threadIds)
+            {
+                HashMapIntObject<XGCRootInfo[]> roots = rootsPerThread.get(threadId);
+                int[] ids = roots.getAllKeys();
+                Arrays.sort(ids);
+                for (int objectId : ids)
+                {
+                    buf.append(threadId).append('/').append(objectId).append(':');
+                    append(buf, roots.get(objectId));
+                    buf.append('\n');
+                }
+            }
+        }
+        return buf.toString();
+    }
+
+    private static void append(StringBuilder buf, GCRootInfo[] infos)
+    {
+        for (GCRootInfo info : infos)
+        {
+            buf.append(' ').append(Long.toHexString(info.getObjectAddress()));
+            buf.append(',').append(Long.toHexString(info.getContextAddress()));
+            buf.append(',').append(info.getType());
+            buf.append(',').append(info.getObjectId());
+            buf.append(',').append(info.getContextId());
+        }
+    }
+}
@@ -13,6 +13,8 @@ package org.eclipse.mat.ui;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.mat.query.BytesDisplay;
+import org.eclipse.mat.snapshot.OQL;
+import org.eclipse.mat.ui.internal.PreferenceConstants;
 import org.eclipse.ui.IStartup;
 
 /**
@@ -34,6 +36,20 @@ public class MemoryAnalyserPreferences implements IStartup
         {
             loadPreferenceValue();
         }
+        if (System.getProperty(OQL.PARALLEL_PROPERTY) == null)
+        {
+            boolean parallel = Platform.getPreferencesService().getBoolean(
+                            MemoryAnalyserPlugin.getDefault().getBundle().getSymbolicName(),
+                            OQL.PARALLEL_PROPERTY, true, null);
+            System.setProperty(OQL.PARALLEL_PROPERTY, String.valueOf(parallel));
+        }
+        if (System.getProperty(PreferenceConstants.P_INDEX_CACHE) == null)
+        {
+            int percentage = Platform.getPreferencesService().getInt(
+                            MemoryAnalyserPlugin.getDefault().getBundle().getSymbolicName(),
+                            PreferenceConstants.P_INDEX_CACHE, 10, null);
+            System.setProperty(PreferenceConstants.P_INDEX_CACHE, String.valueOf(percentage));
+        }
     }
 
     public static void loadPreferenceValue()
@@ -370,6 +370,9 @@ public class Messages extends NLS
 
 	public static String UIPreferencePage_HideGettingStartedWizard;
     public static String UIPreferencePage_KeepUnreachableObjects;
+    public static String UIPreferencePage_ParallelDominatorTree;
+    public static String UIPreferencePage_IndexCache;
+    public static String UIPreferencePage_ParallelOQL;
     public static String UIPreferencePage_PreferencesSubtitle;
     public static String UIPreferencePage_HideQueryHelp;
     public static String UIPreferencePage_BytesDisplay;
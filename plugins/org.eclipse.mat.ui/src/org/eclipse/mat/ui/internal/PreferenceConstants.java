@@ -16,4 +16,7 @@ package org.eclipse.mat.ui.internal;
 public class PreferenceConstants {
     public static final String P_KEEP_UNREACHABLE_OBJECTS = "keep_unreachable_objects"; //$NON-NLS-1$
     public static final String P_HIDE_WELCOME_SCREEN = "hide_welcome_screen"; //$NON-NLS-1$
+    public static final String P_PARALLEL_DOMINATOR_TREE = "parallel_dominator_tree"; //$NON-NLS-1$
+    /** the system property of org.eclipse.mat.parser.index.IndexPageCache */
+    public static final String P_INDEX_CACHE = "mat_index_cache"; //$NON-NLS-1$
 }
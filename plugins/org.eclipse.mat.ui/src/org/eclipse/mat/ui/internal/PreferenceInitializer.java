@@ -13,6 +13,7 @@ package org.eclipse.mat.ui.internal;
 import org.eclipse.core.runtime.preferences.AbstractPreferenceInitializer;
 import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.mat.query.BytesDisplay;
+import org.eclipse.mat.snapshot.OQL;
 import org.eclipse.mat.ui.MemoryAnalyserPlugin;
 import org.eclipse.mat.ui.internal.query.arguments.ArgumentsWizardPage;
 
@@ -32,6 +33,9 @@ public class PreferenceInitializer extends AbstractPreferenceInitializer {
 	    store.setDefault(PreferenceConstants.P_KEEP_UNREACHABLE_OBJECTS, false);
 	    store.setDefault(ArgumentsWizardPage.HIDE_QUERY_HELP, false);
 	    store.setDefault(PreferenceConstants.P_HIDE_WELCOME_SCREEN, false);
+	    store.setDefault(PreferenceConstants.P_PARALLEL_DOMINATOR_TREE, true);
+	    store.setDefault(PreferenceConstants.P_INDEX_CACHE, 10);
+	    store.setDefault(OQL.PARALLEL_PROPERTY, true);
 	    store.setDefault(BytesDisplay.PROPERTY_NAME, BytesDisplay.DEFAULT.toString());
 	}
 
@@ -12,9 +12,11 @@ package org.eclipse.mat.ui.internal;
 
 import org.eclipse.jface.preference.BooleanFieldEditor;
 import org.eclipse.jface.preference.FieldEditorPreferencePage;
+import org.eclipse.jface.preference.IntegerFieldEditor;
 import org.eclipse.jface.preference.RadioGroupFieldEditor;
 import org.eclipse.jface.util.PropertyChangeEvent;
 import org.eclipse.mat.query.BytesDisplay;
+import org.eclipse.mat.snapshot.OQL;
 import org.eclipse.mat.ui.MemoryAnalyserPlugin;
 import org.eclipse.mat.ui.Messages;
 import org.eclipse.mat.ui.internal.query.arguments.ArgumentsWizardPage;
@@ -52,6 +54,14 @@ public class UIPreferencePage extends FieldEditorPreferencePage implements IWork
     {
         addField(new BooleanFieldEditor(PreferenceConstants.P_KEEP_UNREACHABLE_OBJECTS, Messages.UIPreferencePage_KeepUnreachableObjects,
                         getFieldEditorParent()));
+        addField(new BooleanFieldEditor(PreferenceConstants.P_PARALLEL_DOMINATOR_TREE, Messages.UIPreferencePage_ParallelDominatorTree,
+                        getFieldEditorParent()));
+        IntegerFieldEditor indexCache = new IntegerFieldEditor(PreferenceConstants.P_INDEX_CACHE, Messages.UIPreferencePage_IndexCache,
+                        getFieldEditorParent(), 3);
+        indexCache.setValidRange(0, 100);
+        addField(indexCache);
+        addField(new BooleanFieldEditor(OQL.PARALLEL_PROPERTY, Messages.UIPreferencePage_ParallelOQL,
+                        getFieldEditorParent()));
         addField(new BooleanFieldEditor(GettingStartedWizard.HIDE_WIZARD_KEY, Messages.UIPreferencePage_HideGettingStartedWizard,
                         getFieldEditorParent()));
         addField(new BooleanFieldEditor(ArgumentsWizardPage.HIDE_QUERY_HELP, Messages.UIPreferencePage_HideQueryHelp,
@@ -85,7 +95,11 @@ public class UIPreferencePage extends FieldEditorPreferencePage implements IWork
         {
             BytesDisplay.setCurrentValue(BytesDisplay.parse(lastBytesDisplay));
         }
-        return super.performOk();
+        boolean ok = super.performOk();
+        System.setProperty(OQL.PARALLEL_PROPERTY, String.valueOf(getPreferenceStore().getBoolean(OQL.PARALLEL_PROPERTY)));
+        // the index page cache picks up the new budget with the next page
+        System.setProperty(PreferenceConstants.P_INDEX_CACHE, String.valueOf(getPreferenceStore().getInt(PreferenceConstants.P_INDEX_CACHE)));
+        return ok;
     }
     
     @Override
@@ -50,6 +50,10 @@ public abstract class ParseHeapDumpJob extends Job
         if (prefs.getBoolean(PreferenceConstants.P_KEEP_UNREACHABLE_OBJECTS))
         {
             args.put("keep_unreachable_objects", Boolean.TRUE.toString()); //$NON-NLS-1$
+        }
+        if (!prefs.getBoolean(PreferenceConstants.P_PARALLEL_DOMINATOR_TREE))
+        {
+            args.put("parallel_dominator_tree", Boolean.FALSE.toString()); //$NON-NLS-1$
         }
             return args;
         }